@@ -18,6 +18,7 @@ import org.bukkit.event.block.*;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.material.Attachable;
 import org.bukkit.material.MaterialData;
+import org.bukkit.util.Vector;
 
 import java.util.List;
 import java.util.UUID;
@@ -57,11 +58,11 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		// get block location
-		Location location = event.getBlock().getLocation();
+		// get block broken
+		final Block block = event.getBlock();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 		
@@ -71,11 +72,8 @@ public final class BlockEventListener implements Listener {
 		// get player data
 		final PlayerState playerState = PlayerState.getPlayerState(player.getUniqueId());
 
-		// get claim at location
-		Claim claim = plugin.dataStore.getClaimAt(location);
-		
-		// get block broken
-		final Block block = event.getBlock();
+		// get claim at block
+		Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// get block material data
 		final MaterialData materialData = block.getState().getData();
@@ -92,7 +90,7 @@ public final class BlockEventListener implements Listener {
 				Block attachedBlock  = block.getRelative(blockFace);
 
 				// get claim at attached block location
-				claim = plugin.dataStore.getClaimAt(attachedBlock.getLocation());
+				claim = plugin.dataStore.getClaimAt(attachedBlock);
 				
 				// if no claim at attached block location, do nothing and return
 				if (claim == null) {
@@ -104,13 +102,13 @@ public final class BlockEventListener implements Listener {
 			else {
 
 				// get claim at player location, ignoring height
-				Claim claimAbove = plugin.dataStore.getClaimAt(location, true);
+				Claim claimAbove = plugin.dataStore.getClaimAt(block, true);
 
 				// if claim exists above location and is owned by player, extend claim lower boundary
 				if (claimAbove != null && claimAbove.getOwnerUUID().equals(player.getUniqueId())) {
 
 					// extend claim depth including parent and sibling or child claims
-					claimAbove.extend(location.getBlockY());
+					claimAbove.extend(block.getY());
 				}
 				return;
 			}
@@ -159,11 +157,11 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 
-		// get block location
-		final Location location = event.getBlock().getLocation();
+		// get block placed
+		final Block block = event.getBlock();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 
@@ -173,11 +171,8 @@ public final class BlockEventListener implements Listener {
 		// get player data
 		final PlayerState playerState = PlayerState.getPlayerState(player.getUniqueId());
 		
-		// get claim at block location
-		Claim claim = plugin.dataStore.getClaimAt(location);
-		
-		// get block placed
-		final Block block = event.getBlock();
+		// get claim at block
+		Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// get block material data
 		final MaterialData materialData = block.getState().getData();
@@ -193,7 +188,7 @@ public final class BlockEventListener implements Listener {
 				Block attachedBlock  = block.getRelative(blockFace);
 
 				// get claim at attached block location
-				claim = plugin.dataStore.getClaimAt(attachedBlock.getLocation());
+				claim = plugin.dataStore.getClaimAt(attachedBlock);
 				
 				// if no claim at attached block location, do nothing and return
 				if (claim == null) {
@@ -208,13 +203,13 @@ public final class BlockEventListener implements Listener {
 			else {
 				
 				// get claim at player location, ignoring height
-				Claim claimAbove = plugin.dataStore.getClaimAt(location, true);
+				Claim claimAbove = plugin.dataStore.getClaimAt(block, true);
 
 				// if claim exists and is owned by player, extend claim lower boundary
 				if (claimAbove != null && claimAbove.getOwnerUUID().equals(player.getUniqueId())) {
 
 					// extend claim depth including parent and sibling or child claims
-					claimAbove.extend(location.getBlockY());
+					claimAbove.extend(block.getY());
 				}
 				return;
 			}
@@ -282,7 +277,8 @@ public final class BlockEventListener implements Listener {
 		for (BlockState block : replacedBlocks) {
 
 			// get claim at block location
-			final Claim claim = plugin.dataStore.getClaimAt(block.getLocation());
+			final Claim claim = plugin.dataStore.getClaimAt(block.getWorld(),
+					block.getX(), block.getY(), block.getZ(), false);
 
 			// if block is not within a claim, continue to next block
 			if (claim == null) {
@@ -329,67 +325,22 @@ public final class BlockEventListener implements Listener {
 		
 		final Block pistonBlock = event.getBlock();
 		
-		final List<Block> movedBlocks = event.getBlocks();
+		// get claim at piston location
+		final Claim claim = plugin.dataStore.getClaimAt(pistonBlock);
 		
-		/// get claim at piston location
-		final Claim claim = plugin.dataStore.getClaimAt(pistonBlock.getLocation());
+		// get owner of claim at piston location; null if piston is not in a claim
+		// TODO: consider checking permissions for inter-claim block pushing
+		final UUID ownerUUID = claim == null ? null : claim.getOwnerUUID();
 		
-		// if a piston is not in a claim but is affecting a block in a claim; cancel event, break piston and return
-		if (claim == null) {
+		// if any moved block or its destination is in a claim with other owner, cancel event and break piston
+		if (plugin.dataStore.movesClaimedBlocks(ownerUUID, event.getBlocks(), event.getDirection())) {
 			
 			if (plugin.debug) {
-				plugin.getLogger().info("Piston extend detected outside any claims.");
+				plugin.getLogger().info("Piston extend affecting claim with other owner detected.");
 			}
 			
-			// test each block that is affected by the piston
-			for (Block movedBlock : movedBlocks) {
-
-				// new block location
-				Location newLocation = movedBlock.getRelative(event.getDirection()).getLocation();
-				
-				// if no claim at moved block location and new block location, continue to next moved block
-				if (plugin.dataStore.getClaimAt(movedBlock.getLocation()) == null
-						&& plugin.dataStore.getClaimAt(newLocation) == null) {
-					continue;
-				}
-				
-				else {
-					event.setCancelled(true);
-					pistonBlock.breakNaturally();
-					return;
-				}
-			}
-		}
-		
-		// if piston is inside a claim and affecting blocks in a claim with other owner, break piston and return
-		// TODO: consider checking permissions for inter-claim block pushing
-		else {
-			
-			// get the claim owner uuid
-			UUID ownerUUID = claim.getOwnerUUID();
-
-			// test each block that is affected by the piston
-			for (Block movedBlock : movedBlocks) {
-				
-				// original block location
-				final Location origLocation = movedBlock.getLocation();
-				
-				// new block location
-				final Location newLocation = movedBlock.getRelative(event.getDirection()).getLocation();
-
-				// if old location is a claim with a different owner
-				// or new location is a claim with a different owner
-				// cancel event and break piston
-				if ((plugin.dataStore.getClaimAt(origLocation) != null 
-						&& !plugin.dataStore.getClaimAt(origLocation).getOwnerUUID().equals(ownerUUID))
-						|| (plugin.dataStore.getClaimAt(newLocation) != null
-						&& !plugin.dataStore.getClaimAt(newLocation).getOwnerUUID()
-							.equals(ownerUUID))) {
-					
-					event.setCancelled(true);
-					pistonBlock.breakNaturally();
-				}
-			}
+			event.setCancelled(true);
+			pistonBlock.breakNaturally();
 		}
 	}
 	
@@ -416,58 +367,21 @@ public final class BlockEventListener implements Listener {
 
 		final Block pistonBlock = event.getBlock();
 		
-		final List<Block> movedBlocks = event.getBlocks();
+		// get claim at piston location
+		final Claim claim = plugin.dataStore.getClaimAt(pistonBlock);
 		
-		/// get claim at piston location
-		final Claim claim = plugin.dataStore.getClaimAt(pistonBlock.getLocation());
+		// get owner of claim at piston location; null if piston is not in a claim
+		// TODO: consider checking permissions for inter-claim block pushing
+		final UUID ownerUUID = claim == null ? null : claim.getOwnerUUID();
 		
-		// if a piston is not in a claim but is affecting a block in a claim; cancel event, break piston and return
-		if (claim == null) {
+		// if any retracted block is in a claim with other owner, cancel event and break piston
+		if (plugin.dataStore.movesClaimedBlocks(ownerUUID, event.getBlocks(), null)) {
 			
-			// test each block that is affected by the piston
-			for (Block movedBlock : movedBlocks) {
-
-				// if no claim at moved block location and new block location, continue to next moved block
-				if (plugin.dataStore.getClaimAt(movedBlock.getLocation()) == null) {
-					continue;
-				}
-				
-				else {
-					
-					// cancel event
-					event.setCancelled(true);
-					
-					// break piston
-					pistonBlock.breakNaturally();
-					return;
-				}
-			}
-		}
-		
-		// if piston is inside a claim and affecting blocks in a claim with other owner, break piston and return
-		// TODO: consider checking permissions for inter-claim block pushing
-		else {
+			// cancel event
+			event.setCancelled(true);
 			
-			// get the claim owner uuid
-			final UUID ownerUUID = claim.getOwnerUUID();
-
-			// test each block that is affected by the piston
-			for (Block movedBlock : movedBlocks) {
-				
-				// original block location
-				final Location origLocation = movedBlock.getLocation();
-				
-				// check if block location is in a claim with a different owner
-				if ((plugin.dataStore.getClaimAt(origLocation) != null 
-						&& !plugin.dataStore.getClaimAt(origLocation).getOwnerUUID().equals(ownerUUID))) {
-
-					// cancel event
-					event.setCancelled(true);
-					
-					// break piston
-					pistonBlock.breakNaturally();
-				}
-			}
+			// break piston
+			pistonBlock.breakNaturally();
 		}
 	}
 	
@@ -487,18 +401,18 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		// get block location
-		final Location location = event.getBlock().getLocation();
+		// get block
+		final Block block = event.getBlock();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 
 		//TODO: CONSIDER CONFIG OPTION FOR PREVENT OFF-CLAIM ENDERMAN GRIEF
 		
 		// get claim at block location
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		final Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// if block is in a claim and entity is enderman, cancel event
 		if (claim != null && event.getEntityType().equals(EntityType.ENDERMAN)) {
@@ -523,21 +437,13 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		// get event location
-		final Location location = event.getBlock().getLocation();
-		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(event.getBlock().getWorld())) {
 			return;
 		}
 
-		// iterate through event block list and remove blocks that are within a claim
-		for (int i = 0; i < event.blockList().size(); i++) {
-			Block block = event.blockList().get(i);
-			if (plugin.dataStore.getClaimAt(block.getLocation()) != null) {
-				event.blockList().remove(i);
-			}
-		}
+		// remove blocks that are within a claim from event block list
+		plugin.dataStore.removeClaimedBlocks(event.blockList());
 	}
 	
 	
@@ -556,19 +462,26 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		// get block location
-		final Location location = event.getBlock().getLocation();
+		// get dispenser block
+		final Block block = event.getBlock();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 		
-		// get claim at dispensed location
-		final Claim dispensedClaim = plugin.dataStore.getClaimAt(location.clone().add(event.getVelocity()));
+		// get dispense velocity
+		final Vector velocity = event.getVelocity();
 		
-		// get claim at dispenser location; send dispensed claim as hint
-		final Claim dispenserClaim = plugin.dataStore.getClaimAt(location);
+		// get claim at dispensed coordinates
+		final Claim dispensedClaim = plugin.dataStore.getClaimAt(block.getWorld(),
+				Location.locToBlock(block.getX() + velocity.getX()),
+				Location.locToBlock(block.getY() + velocity.getY()),
+				Location.locToBlock(block.getZ() + velocity.getZ()),
+				false);
+		
+		// get claim at dispenser block
+		final Claim dispenserClaim = plugin.dataStore.getClaimAt(block);
 
 		// if dispensedLocation is not in a claim, do nothing and return
 		if (dispensedClaim == null) {
@@ -603,15 +516,15 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		final Location location = event.getBlock().getLocation();
+		final Block block = event.getBlock();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 		
 		// get claim at block location
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		final Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// if no claim at location, do nothing and return
 		if (claim == null) {
@@ -620,7 +533,7 @@ public final class BlockEventListener implements Listener {
 
 		// extinguish fire on adjacent blocks to prevent eternal flame, except netherrack
 		for (BlockFace blockFace : BlockFace.values()) {
-			final Block adjacentBlock = event.getBlock().getRelative(blockFace);
+			final Block adjacentBlock = block.getRelative(blockFace);
 			if (adjacentBlock.getType().equals(Material.FIRE)
 					&& adjacentBlock.getRelative(BlockFace.DOWN).getType() != Material.NETHERRACK) {
 				adjacentBlock.breakNaturally();
@@ -647,15 +560,15 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		final Location location = event.getBlock().getLocation();
+		final Block block = event.getBlock();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 		
 		// get claim at block location
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		final Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// if no claim at location, do nothing and return
 		if (claim == null) {
@@ -704,16 +617,16 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 
-		// get toBlock location
-		final Location location = event.getToBlock().getLocation();
+		// get toBlock
+		final Block toBlock = event.getToBlock();
 
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(toBlock.getWorld())) {
 			return;
 		}
 
 		// get claim at toBlock location
-		final Claim toClaim = plugin.dataStore.getClaimAt(location);
+		final Claim toClaim = plugin.dataStore.getClaimAt(toBlock);
 
 		// if no claim at location, do nothing and return
 		if (toClaim == null) {
@@ -721,7 +634,7 @@ public final class BlockEventListener implements Listener {
 		}
 
 		// get claim at fromBlock location
-		final Claim fromClaim = plugin.dataStore.getClaimAt(event.getBlock().getLocation());
+		final Claim fromClaim = plugin.dataStore.getClaimAt(event.getBlock());
 		
 		// if fromClaim has same owner as toClaim, do nothing and return
 		if (fromClaim != null && fromClaim.getOwnerUUID().equals(toClaim.getOwnerUUID())) {
@@ -15,7 +15,6 @@ import org.bukkit.event.hanging.HangingBreakByEntityEvent;
 import org.bukkit.event.hanging.HangingPlaceEvent;
 import org.bukkit.projectiles.ProjectileSource;
 
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -135,15 +134,15 @@ public final class EntityEventListener implements Listener {
 	@EventHandler
 	public final void onHangingPlace(final HangingPlaceEvent event) {
 		
-		// get location
-		final Location location = event.getBlock().getLocation();
+		// get block
+		final Block block = event.getBlock();
 		
 		// get player, player data
 		final Player player = event.getPlayer();
 		final PlayerState playerState = PlayerState.getPlayerState(player.getUniqueId());
 		
-		// get claim at entity location
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		// get claim at block location
+		final Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// if no claim at location, do nothing and return
 		if (claim == null) {
@@ -327,19 +326,8 @@ public final class EntityEventListener implements Listener {
 			return;
 		}
 		
-		// get list of exploded blocks
-		final List<Block> explodedBlocks = new ArrayList<>(event.blockList());
-		
-		// iterate through all exploded blocks
-		for (Block block : explodedBlocks) {
-
-			// check if block is within a claim
-			if (plugin.dataStore.getClaimAt(block.getLocation()) != null) {
-
-				// remove block from event blockList
-				event.blockList().remove(block);
-			}
-		}
+		// remove blocks that are within a claim from event block list
+		plugin.dataStore.removeClaimedBlocks(event.blockList());
 	}
 
 }
@@ -15,6 +15,7 @@ import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
 import org.bukkit.entity.*;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.SignChangeEvent;
@@ -45,16 +46,34 @@ public final class PlayerEventListener implements Listener {
 	}
 
 
+	/**
+	 * Load player state into the cache and resolve name conflicts in the async pre-login thread,
+	 * so the login event handled in the main thread does not read the datastore.<br>
+	 * Runs at monitor priority, after other plugins have decided whether the player may log in.
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public final void onAsyncPlayerPreLogin(final AsyncPlayerPreLoginEvent event) {
+
+		// if player will not be allowed to log in, do nothing and return
+		if (!event.getLoginResult().equals(AsyncPlayerPreLoginEvent.Result.ALLOWED)) {
+			return;
+		}
+
+		PlayerState.prefetch(event.getUniqueId(), event.getName());
+	}
+
+
 	@EventHandler
 	public final void onPlayerLogin (final PlayerLoginEvent event) {
 
 		// get event player object
 		final Player player = event.getPlayer();
 		
-		// get player state
+		// get player state, prefetched into the cache during pre-login
 		PlayerState playerState = PlayerState.getPlayerState(player.getUniqueId());
 		
-		// if the player has not been seen before
+		// if the player has not been seen before and was not prefetched
 		if (playerState == null) {
 			
 			// create new player state object from player
@@ -62,6 +81,9 @@ public final class PlayerEventListener implements Listener {
 			
 			// insert new player record in the datastore
 			playerState.insert();
+			
+			// resolve name conflicts, which were not checked during pre-login
+			playerState.resolveNameConflicts();
 		}
 		
 		// if player has been seen before
@@ -81,15 +103,15 @@ public final class PlayerEventListener implements Listener {
 		
 		// now do what we do when any player, new or old, logs in
 		
-		// resolve name conflicts
-		playerState.resolveNameConflicts();
-		
 		// set player last afk location
 		playerState.setLastAfkCheckLocation(player.getLocation());
 		
 		// start player earned blocks task
 		plugin.taskManager.startPlayerEarnedBlocksTask(player);
 		
+		// update player claim expiry time from last login
+		plugin.taskManager.updateClaimExpiry(playerState);
+		
 	}
 
 	
@@ -206,7 +228,7 @@ public final class PlayerEventListener implements Listener {
 				}
 
 				// get claim at clicked block location, if any (ignore height)
-				Claim claim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+				Claim claim = plugin.dataStore.getClaimAt(clickedBlock, true);
 
 				// if first click and claim corner and item in hand is not delete tool, set claim tool to resize tool
 				if (playerState.getLastToolLocation() == null 
@@ -253,7 +275,7 @@ public final class PlayerEventListener implements Listener {
 		}
 
 		// get claim at location
-		Claim claim = plugin.dataStore.getClaimAt(clickedBlock.getLocation());
+		Claim claim = plugin.dataStore.getClaimAt(clickedBlock);
 		
 		// if no claim at location, do nothing and return
 		// NOTE: any checks for interactions outside claims should go before this check
@@ -969,16 +991,16 @@ public final class PlayerEventListener implements Listener {
 			return;
 		}
 		
-		// get location of block clicked
-		final Location location = event.getBlockClicked().getLocation();
+		// get block clicked
+		final Block block = event.getBlockClicked();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 		
 		// get claim at location of block clicked
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		final Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// if no claim at location, do nothing and return
 		if (claim == null) {
@@ -1029,16 +1051,16 @@ public final class PlayerEventListener implements Listener {
 			return;
 		}
 		
-		// get location of block clicked
-		final Location location = event.getBlockClicked().getLocation();
+		// get block clicked
+		final Block block = event.getBlockClicked();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(block.getWorld())) {
 			return;
 		}
 		
 		// get claim at location of block clicked
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		final Claim claim = plugin.dataStore.getClaimAt(block);
 		
 		// if no claim at location, do nothing and return
 		if (claim == null) {
@@ -1092,16 +1114,16 @@ public final class PlayerEventListener implements Listener {
 		// get player
 		final Player player = event.getPlayer();
 		
-		// get bed location
-		final Location location = event.getBed().getLocation();
+		// get bed block
+		final Block bed = event.getBed();
 		
 		// if world is not enabled, do nothing and return
-		if (!plugin.worldManager.isEnabled(location.getWorld())) {
+		if (!plugin.worldManager.isEnabled(bed.getWorld())) {
 			return;
 		}
 
-		// get claim at entity location
-		final Claim claim = plugin.dataStore.getClaimAt(location);
+		// get claim at bed location
+		final Claim claim = plugin.dataStore.getClaimAt(bed);
 		
 		// if claim is null (no claim exists at location) do nothing and return
 		if (claim == null) {
@@ -1164,11 +1186,8 @@ public final class PlayerEventListener implements Listener {
 			return;
 		}
 		
-		// get sign location
-		final Location signLocation = event.getBlock().getLocation();
-		
 		// get claim at sign location
-		final Claim claim = plugin.dataStore.getClaimAt(signLocation);
+		final Claim claim = plugin.dataStore.getClaimAt(event.getBlock());
 		
 		// if no claim at sign location, send error message and return
 		if (claim == null) {
@@ -1283,11 +1302,8 @@ public final class PlayerEventListener implements Listener {
 			return;
 		}
 		
-		// get sign location
-		final Location signLocation = event.getClickedBlock().getLocation(); 
-
 		// get claim at sign location
-		Claim claim = plugin.dataStore.getClaimAt(signLocation);
+		Claim claim = plugin.dataStore.getClaimAt(event.getClickedBlock());
 
 		// if no claim at sign location, send player message and return
 		if (claim == null) {
@@ -39,7 +39,7 @@ public enum ClaimTool {
 			}
 
 			// check for existing claims at clicked location, ignoring height
-			Claim existingClaim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+			Claim existingClaim = plugin.dataStore.getClaimAt(clickedBlock, true);
 			
 			// if existing claim at clicked location...
 			if (existingClaim != null) {
@@ -331,7 +331,7 @@ public enum ClaimTool {
 			}
 
 			// check for existing claims at clicked location, ignoring height
-			Claim existingClaim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+			Claim existingClaim = plugin.dataStore.getClaimAt(clickedBlock, true);
 			
 			// if existing claim exists..
 			if (existingClaim != null) {
@@ -564,7 +564,7 @@ public enum ClaimTool {
 			}
 
 			// check for existing claims at clicked location, ignoring height
-			Claim clickedClaim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+			Claim clickedClaim = plugin.dataStore.getClaimAt(clickedBlock, true);
 
 			// if clicked location was outside an existing claim, send error message and stop
 			if (clickedClaim == null) {
@@ -791,7 +791,7 @@ public enum ClaimTool {
 		public final void onFirstClick(final Player player, final Block clickedBlock) {
 
 			// get claim at clicked location
-			Claim claim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+			Claim claim = plugin.dataStore.getClaimAt(clickedBlock, true);
 			
 			// get player state
 			PlayerState playerState = PlayerState.getPlayerState(player.getUniqueId());
@@ -1076,24 +1076,16 @@ public enum ClaimTool {
 						&& (newClaim.getLength() > oldClaim.getLength()
 						|| newClaim.getWidth() > oldClaim.getWidth())) {
 
-					// check for overlap of all other top level claims
-					for (Claim testClaim : plugin.dataStore.getAllClaims()) {
+					// check for overlap of all other top level claims near resized claim
+					for (Claim testClaim : newClaim.getOverlappingTopClaims()) {
 
 						// skip claim being resized
 						if (testClaim.getKey().equals(oldClaim.getKey())) {
 							continue;
 						}
 
-						// skip subclaims
-						if (testClaim.isSubClaim()) {
-							continue;
-						}
-
-						// test for overlap
-						if (newClaim.overlaps(testClaim)) {
-							result.addOverlapClaim(testClaim);
-							result.setSuccess(false);
-						}
+						result.addOverlapClaim(testClaim);
+						result.setSuccess(false);
 					}
 
 					// if success...
@@ -1272,7 +1264,7 @@ public enum ClaimTool {
 			}
 
 			// get claim at clicked location, ignoring height
-			Claim clickedClaim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+			Claim clickedClaim = plugin.dataStore.getClaimAt(clickedBlock, true);
 			
 			// if no claim at clicked location, send error message and return
 			if (clickedClaim == null) {
@@ -1640,7 +1632,7 @@ public enum ClaimTool {
 	public final void inspect(final Player player, final Block clickedBlock) {
 
 		// get claim at click location
-		Claim claim = plugin.dataStore.getClaimAt(clickedBlock.getLocation(), true);
+		Claim claim = plugin.dataStore.getClaimAt(clickedBlock, true);
 
 		// if claim found, highlight and send message
 		if (claim != null) {
@@ -0,0 +1,409 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.World;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
+
+
+/**
+ * Bulk loader for claim, permission and claim group records at startup.<br>
+ * Result sets are streamed in blocks of fetch size rows, read by column index into plain rows,
+ * and each block is decoded into records on a worker pool while the next block is read.
+ * Decoded records are returned in load order for storing in the caches in bulk.
+ */
+final class BulkLoader {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// connection to read from
+	private final Connection connection;
+
+	// query name prefix of connection's sql dialect
+	private final String dialect;
+
+	// datastore display name for log messages
+	private final String displayName;
+
+	// rows fetched from datastore and decoded per task
+	private final int fetchSize;
+
+	// number of decoding threads
+	private final int threads;
+
+	// worker pool for decoding, created by load
+	private ExecutorService executor;
+
+
+	/**
+	 * Private class that holds a claim row as read from the result set
+	 */
+	private static final class ClaimRow {
+		int key;
+		String ownerUUID;
+		int parentKey;
+		int groupKey;
+		boolean locked;
+		boolean resizeable;
+		World world;
+		int x1, y1, z1, x2, y2, z2;
+		long ctime;
+		long mtime;
+	}
+
+
+	/**
+	 * Private class that holds a permission row as read from the result set
+	 */
+	private static final class PermissionRow {
+		int key;
+		int claimKey;
+		String playerUUID;
+		byte permission;
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 * @param connection
+	 * @param displayName
+	 * @param fetchSize
+	 * @param threads number of decoding threads, or zero for one per available processor
+	 */
+	BulkLoader(final PluginMain plugin, final PooledConnection connection, final String displayName,
+			final int fetchSize, final int threads) {
+
+		this.plugin = plugin;
+		this.connection = connection.getConnection();
+		this.dialect = connection.getDialect();
+		this.displayName = displayName;
+		this.fetchSize = Math.max(1, fetchSize);
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+
+
+	/**
+	 * Load all claims, permissions and claim groups and store them in the caches
+	 * @param claimCache
+	 * @param permissionCache
+	 * @param claimGroupCache
+	 * @return loaded claims, for callers that need to act on each claim in the main thread
+	 * @throws SQLException
+	 */
+	final List<Claim> load(final ClaimCache claimCache, final PermissionCache permissionCache,
+			final ClaimGroupCache claimGroupCache) throws SQLException {
+
+		final long startTime = System.nanoTime();
+
+		// create worker pool of daemon threads, so a stalled load cannot block server shutdown
+		final AtomicInteger threadCount = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable,
+						plugin.getName() + " loader " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try {
+			final List<Claim> claims = loadClaims();
+			final List<ClaimPermission> permissions = loadPermissions();
+			final List<ClaimGroup> claimGroups = loadClaimGroups();
+
+			claimCache.storeAll(claims);
+			permissionCache.storeAll(permissions);
+			claimGroupCache.storeAll(claimGroups);
+
+			// report load time and rate
+			final long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+			final long rows = claims.size() + permissions.size() + claimGroups.size();
+			plugin.getLogger().info("Loaded " + claims.size() + " claims, " + permissions.size()
+					+ " permissions and " + claimGroups.size() + " claim groups from the "
+					+ displayName + " datastore in " + elapsedMillis + " ms ("
+					+ (rows * 1000 / elapsedMillis) + " rows per second).");
+
+			return claims;
+		}
+		finally {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+
+	/**
+	 * Stream all claim rows, decoding blocks of rows on the worker pool
+	 * @return list of decoded claims in key order
+	 * @throws SQLException
+	 */
+	private List<Claim> loadClaims() throws SQLException {
+
+		final List<Future<List<Claim>>> futures = new ArrayList<Future<List<Claim>>>();
+
+		// worlds by name, resolved once in this thread
+		final Map<String,World> worlds = new HashMap<String,World>();
+
+		final PreparedStatement preparedStatement =
+				connection.prepareStatement(Queries.getQuery(dialect, "LoadAllClaims"));
+		try {
+			preparedStatement.setFetchSize(fetchSize);
+			final ResultSet rs = preparedStatement.executeQuery();
+
+			List<ClaimRow> block = new ArrayList<ClaimRow>(fetchSize);
+			while (rs.next()) {
+
+				final ClaimRow row = new ClaimRow();
+				row.key = rs.getInt(1);
+				row.ownerUUID = rs.getString(2);
+				row.parentKey = rs.getInt(3);
+				row.groupKey = rs.getInt(4);
+				row.locked = rs.getBoolean(5);
+				row.resizeable = rs.getBoolean(6);
+
+				final String worldName = rs.getString(7);
+				if (!worlds.containsKey(worldName)) {
+					worlds.put(worldName, worldName == null ? null : plugin.getServer().getWorld(worldName));
+				}
+				row.world = worlds.get(worldName);
+
+				row.x1 = rs.getInt(8);
+				row.y1 = rs.getInt(9);
+				row.z1 = rs.getInt(10);
+				row.x2 = rs.getInt(11);
+				row.y2 = rs.getInt(12);
+				row.z2 = rs.getInt(13);
+				row.ctime = rs.getLong(14);
+				row.mtime = rs.getLong(15);
+				block.add(row);
+
+				// when block is full, submit it for decoding and start a new block
+				if (block.size() == fetchSize) {
+					futures.add(executor.submit(claimDecoder(block)));
+					block = new ArrayList<ClaimRow>(fetchSize);
+				}
+			}
+			rs.close();
+
+			if (!block.isEmpty()) {
+				futures.add(executor.submit(claimDecoder(block)));
+			}
+		}
+		finally {
+			preparedStatement.close();
+		}
+
+		return collect(futures);
+	}
+
+
+	/**
+	 * Stream all permission rows, decoding blocks of rows on the worker pool
+	 * @return list of decoded permissions
+	 * @throws SQLException
+	 */
+	private List<ClaimPermission> loadPermissions() throws SQLException {
+
+		final List<Future<List<ClaimPermission>>> futures = new ArrayList<Future<List<ClaimPermission>>>();
+
+		final PreparedStatement preparedStatement =
+				connection.prepareStatement(Queries.getQuery(dialect, "LoadAllPermissions"));
+		try {
+			preparedStatement.setFetchSize(fetchSize);
+			final ResultSet rs = preparedStatement.executeQuery();
+
+			List<PermissionRow> block = new ArrayList<PermissionRow>(fetchSize);
+			while (rs.next()) {
+
+				final PermissionRow row = new PermissionRow();
+				row.key = rs.getInt(1);
+				row.claimKey = rs.getInt(2);
+				row.playerUUID = rs.getString(3);
+				row.permission = rs.getByte(4);
+				block.add(row);
+
+				// when block is full, submit it for decoding and start a new block
+				if (block.size() == fetchSize) {
+					futures.add(executor.submit(permissionDecoder(block)));
+					block = new ArrayList<PermissionRow>(fetchSize);
+				}
+			}
+			rs.close();
+
+			if (!block.isEmpty()) {
+				futures.add(executor.submit(permissionDecoder(block)));
+			}
+		}
+		finally {
+			preparedStatement.close();
+		}
+
+		return collect(futures);
+	}
+
+
+	/**
+	 * Read all claim group rows; there are few claim groups, so they are decoded in this thread
+	 * @return list of claim groups
+	 * @throws SQLException
+	 */
+	private List<ClaimGroup> loadClaimGroups() throws SQLException {
+
+		final List<ClaimGroup> claimGroups = new ArrayList<ClaimGroup>();
+
+		final PreparedStatement preparedStatement =
+				connection.prepareStatement(Queries.getQuery(dialect, "LoadAllClaimGroups"));
+		try {
+			preparedStatement.setFetchSize(fetchSize);
+			final ResultSet rs = preparedStatement.executeQuery();
+			while (rs.next()) {
+				final ClaimGroup claimGroup = new ClaimGroup();
+				claimGroup.setKey(rs.getInt(1));
+				claimGroup.setName(rs.getString(2));
+				claimGroup.setClaimLimit(rs.getInt(3));
+				claimGroups.add(claimGroup);
+			}
+			rs.close();
+		}
+		finally {
+			preparedStatement.close();
+		}
+
+		return claimGroups;
+	}
+
+
+	/**
+	 * Create task that decodes a block of claim rows
+	 * @param rows
+	 * @return task returning decoded claims in row order
+	 */
+	private Callable<List<Claim>> claimDecoder(final List<ClaimRow> rows) {
+
+		return new Callable<List<Claim>>() {
+			@Override
+			public List<Claim> call() {
+
+				final List<Claim> claims = new ArrayList<Claim>(rows.size());
+				for (ClaimRow row : rows) {
+
+					final Claim claim = new Claim();
+					claim.setKey(row.key);
+
+					// test for null or invalid owneruuid
+					if (row.ownerUUID != null && !row.ownerUUID.isEmpty()) {
+						try {
+							claim.setOwnerUUID(UUID.fromString(row.ownerUUID));
+						}
+						catch (IllegalArgumentException e) {
+							plugin.getLogger().warning("Invalid owner UUID for claim "
+									+ row.key + " in " + displayName + " datastore.");
+						}
+					}
+
+					claim.setGroupKey(row.groupKey);
+					claim.setLocked(row.locked);
+					claim.setResizeable(row.resizeable);
+					claim.setParentKey(row.parentKey);
+					claim.setCreatedDate(Instant.ofEpochMilli(row.ctime));
+					claim.setModifiedDate(Instant.ofEpochMilli(row.mtime));
+					claim.setCorners(row.world, row.x1, row.y1, row.z1, row.x2, row.y2, row.z2);
+					claim.markClean();
+					claims.add(claim);
+				}
+				return claims;
+			}
+		};
+	}
+
+
+	/**
+	 * Create task that decodes a block of permission rows
+	 * @param rows
+	 * @return task returning decoded permissions in row order
+	 */
+	private Callable<List<ClaimPermission>> permissionDecoder(final List<PermissionRow> rows) {
+
+		return new Callable<List<ClaimPermission>>() {
+			@Override
+			public List<ClaimPermission> call() {
+
+				final List<ClaimPermission> permissions = new ArrayList<ClaimPermission>(rows.size());
+				for (PermissionRow row : rows) {
+
+					final ClaimPermission claimPermission = new ClaimPermission();
+					claimPermission.setKey(row.key);
+					claimPermission.setClaimKey(row.claimKey);
+					try {
+						claimPermission.setPlayerUUID(UUID.fromString(row.playerUUID));
+					}
+					catch (RuntimeException e) {
+						plugin.getLogger().warning("Invalid player UUID for permission record "
+								+ row.key + " in " + displayName + " datastore.");
+						continue;
+					}
+					claimPermission.setPermissionLevel(PermissionLevel.fromByte(row.permission));
+					claimPermission.markClean();
+					permissions.add(claimPermission);
+				}
+				return permissions;
+			}
+		};
+	}
+
+
+	/**
+	 * Wait for decoding tasks and concatenate their results in submission order
+	 * @param futures
+	 * @return list of all decoded records
+	 * @throws SQLException if a decoding task failed or loading was interrupted
+	 */
+	private <T> List<T> collect(final List<Future<List<T>>> futures) throws SQLException {
+
+		int size = 0;
+		final List<List<T>> blocks = new ArrayList<List<T>>(futures.size());
+		try {
+			for (Future<List<T>> future : futures) {
+				final List<T> block = future.get();
+				blocks.add(block);
+				size += block.size();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Loading from the " + displayName + " datastore was interrupted.", e);
+		}
+		catch (ExecutionException e) {
+			throw new SQLException("Could not decode records from the " + displayName + " datastore.",
+					e.getCause());
+		}
+
+		final List<T> records = new ArrayList<T>(size);
+		for (List<T> block : blocks) {
+			records.addAll(block);
+		}
+		return records;
+	}
+
+}
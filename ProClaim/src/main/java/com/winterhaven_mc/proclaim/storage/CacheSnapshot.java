@@ -0,0 +1,365 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.bukkit.World;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
+
+
+/**
+ * Binary snapshot of the claim, permission and claim group caches.<br>
+ * The snapshot records the data state of the datastore it was taken from, made of its database id
+ * and change count, and is only loaded if the data state still matches. The change count is
+ * incremented each time the datastore is opened, so a snapshot is stale once the plugin has run
+ * against the datastore without writing a new one. The file ends with a CRC32 of its contents
+ * and is read through a memory mapped buffer. Spatial and owner indexes are not stored;
+ * they are rebuilt from the records by the caches' bulk store methods.
+ */
+final class CacheSnapshot {
+
+	// file magic number, "PCS1"
+	private static final int MAGIC = 0x50435331;
+
+	// snapshot format version
+	private static final int FORMAT_VERSION = 1;
+
+	// length of trailing checksum
+	private static final int CHECKSUM_LENGTH = 8;
+
+	// claim record flags
+	private static final int HAS_OWNER = 1;
+	private static final int HAS_BOUNDS = 2;
+	private static final int HAS_WORLD = 4;
+	private static final int LOCKED = 8;
+	private static final int RESIZEABLE = 16;
+
+	private final List<Claim> claims;
+	private final List<ClaimPermission> permissions;
+	private final List<ClaimGroup> claimGroups;
+
+
+	/**
+	 * Private class constructor, used by read
+	 * @param claims
+	 * @param permissions
+	 * @param claimGroups
+	 */
+	private CacheSnapshot(final List<Claim> claims, final List<ClaimPermission> permissions,
+			final List<ClaimGroup> claimGroups) {
+
+		this.claims = claims;
+		this.permissions = permissions;
+		this.claimGroups = claimGroups;
+	}
+
+
+	final List<Claim> getClaims() {
+		return claims;
+	}
+
+	final List<ClaimPermission> getPermissions() {
+		return permissions;
+	}
+
+	final List<ClaimGroup> getClaimGroups() {
+		return claimGroups;
+	}
+
+
+	/**
+	 * Write snapshot file, replacing any existing snapshot
+	 * @param file
+	 * @param dataState
+	 * @param claims
+	 * @param permissions
+	 * @param claimGroups
+	 * @throws IOException
+	 */
+	static void write(final File file, final String dataState,
+			final Collection<Claim> claims, final Collection<ClaimPermission> permissions,
+			final Collection<ClaimGroup> claimGroups) throws IOException {
+
+		final File tempFile = new File(file.getPath() + ".tmp");
+		final FileOutputStream fileOut = new FileOutputStream(tempFile);
+		try {
+			final CheckedOutputStream checkedOut = new CheckedOutputStream(fileOut, new CRC32());
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checkedOut, 65536));
+
+			// header
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, dataState);
+			out.writeInt(claims.size());
+			out.writeInt(permissions.size());
+			out.writeInt(claimGroups.size());
+
+			for (Claim claim : claims) {
+
+				final UUID ownerUUID = claim.getOwnerUUID();
+				final UUID worldUID = ClaimWorlds.getWorldUID(claim.getWorldId());
+
+				int flags = 0;
+				if (ownerUUID != null) {
+					flags |= HAS_OWNER;
+				}
+				if (claim.hasBounds()) {
+					flags |= HAS_BOUNDS;
+				}
+				if (worldUID != null) {
+					flags |= HAS_WORLD;
+				}
+				if (Boolean.TRUE.equals(claim.isLocked())) {
+					flags |= LOCKED;
+				}
+				if (Boolean.TRUE.equals(claim.isResizeable())) {
+					flags |= RESIZEABLE;
+				}
+
+				out.writeInt(claim.getKey());
+				out.writeByte(flags);
+				if (ownerUUID != null) {
+					out.writeLong(ownerUUID.getMostSignificantBits());
+					out.writeLong(ownerUUID.getLeastSignificantBits());
+				}
+				out.writeInt(claim.getParentKey() == null ? 0 : claim.getParentKey());
+				out.writeInt(claim.getGroupKey() == null ? 0 : claim.getGroupKey());
+				if (worldUID != null) {
+					out.writeLong(worldUID.getMostSignificantBits());
+					out.writeLong(worldUID.getLeastSignificantBits());
+				}
+				if (claim.hasBounds()) {
+					out.writeInt(claim.getLowerX());
+					out.writeInt(claim.getLowerY());
+					out.writeInt(claim.getLowerZ());
+					out.writeInt(claim.getUpperX());
+					out.writeInt(claim.getUpperY());
+					out.writeInt(claim.getUpperZ());
+				}
+				out.writeLong(claim.getCreatedDate().toEpochMilli());
+				out.writeLong(claim.getModifiedDate().toEpochMilli());
+			}
+
+			for (ClaimPermission claimPermission : permissions) {
+				out.writeInt(claimPermission.getKey());
+				out.writeInt(claimPermission.getClaimKey());
+				out.writeLong(claimPermission.getPlayerUUID().getMostSignificantBits());
+				out.writeLong(claimPermission.getPlayerUUID().getLeastSignificantBits());
+				out.writeByte(claimPermission.getPermissionLevel().toByte());
+			}
+
+			for (ClaimGroup claimGroup : claimGroups) {
+				out.writeInt(claimGroup.getKey());
+				out.writeInt(claimGroup.getClaimLimit() == null ? 0 : claimGroup.getClaimLimit());
+				writeString(out, claimGroup.getName());
+			}
+
+			// trailing checksum of all preceding bytes
+			out.flush();
+			final long checksum = checkedOut.getChecksum().getValue();
+			out.writeLong(checksum);
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		finally {
+			fileOut.close();
+		}
+
+		// replace snapshot file
+		try {
+			Files.move(tempFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	/**
+	 * Read snapshot file if it is valid for the current state of the datastore
+	 * @param plugin
+	 * @param file
+	 * @param dataState
+	 * @return snapshot, or null if file does not exist, is stale or is corrupt
+	 */
+	static CacheSnapshot read(final PluginMain plugin, final File file,
+			final String dataState) {
+
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			final MappedByteBuffer buffer;
+			final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				final long size = channel.size();
+				if (size <= CHECKSUM_LENGTH || size > Integer.MAX_VALUE) {
+					plugin.getLogger().info("Claim cache snapshot is corrupt and will not be used.");
+					return null;
+				}
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			finally {
+				channel.close();
+			}
+
+			// verify checksum of all bytes before trailing checksum
+			final int dataLength = buffer.capacity() - CHECKSUM_LENGTH;
+			final ByteBuffer data = buffer.duplicate();
+			data.limit(dataLength);
+			final CRC32 crc = new CRC32();
+			crc.update(data);
+			if (crc.getValue() != buffer.getLong(dataLength)) {
+				plugin.getLogger().info("Claim cache snapshot is corrupt and will not be used.");
+				return null;
+			}
+
+			// verify header
+			buffer.position(0);
+			buffer.limit(dataLength);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				plugin.getLogger().info("Claim cache snapshot has an unknown format and will not be used.");
+				return null;
+			}
+			if (!readString(buffer).equals(dataState)) {
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim cache snapshot is out of date and will not be used.");
+				}
+				return null;
+			}
+
+			final int claimCount = buffer.getInt();
+			final int permissionCount = buffer.getInt();
+			final int claimGroupCount = buffer.getInt();
+
+			// worlds by uid, resolved once each
+			final Map<UUID,World> worlds = new HashMap<UUID,World>();
+
+			final List<Claim> claims = new ArrayList<Claim>(claimCount);
+			for (int i = 0; i < claimCount; i++) {
+
+				final Claim claim = new Claim();
+				claim.setKey(buffer.getInt());
+				final int flags = buffer.get();
+				if ((flags & HAS_OWNER) != 0) {
+					claim.setOwnerUUID(new UUID(buffer.getLong(), buffer.getLong()));
+				}
+				claim.setParentKey(buffer.getInt());
+				claim.setGroupKey(buffer.getInt());
+
+				World world = null;
+				if ((flags & HAS_WORLD) != 0) {
+					final UUID worldUID = new UUID(buffer.getLong(), buffer.getLong());
+					if (!worlds.containsKey(worldUID)) {
+						worlds.put(worldUID, plugin.getServer().getWorld(worldUID));
+					}
+					world = worlds.get(worldUID);
+				}
+				if ((flags & HAS_BOUNDS) != 0) {
+					claim.setCorners(world, buffer.getInt(), buffer.getInt(), buffer.getInt(),
+							buffer.getInt(), buffer.getInt(), buffer.getInt());
+				}
+				claim.setLocked((flags & LOCKED) != 0);
+				claim.setResizeable((flags & RESIZEABLE) != 0);
+				claim.setCreatedDate(Instant.ofEpochMilli(buffer.getLong()));
+				claim.setModifiedDate(Instant.ofEpochMilli(buffer.getLong()));
+				claim.markClean();
+				claims.add(claim);
+			}
+
+			final List<ClaimPermission> permissions = new ArrayList<ClaimPermission>(permissionCount);
+			for (int i = 0; i < permissionCount; i++) {
+				final ClaimPermission claimPermission = new ClaimPermission();
+				claimPermission.setKey(buffer.getInt());
+				claimPermission.setClaimKey(buffer.getInt());
+				claimPermission.setPlayerUUID(new UUID(buffer.getLong(), buffer.getLong()));
+				claimPermission.setPermissionLevel(PermissionLevel.fromByte(buffer.get()));
+				claimPermission.markClean();
+				permissions.add(claimPermission);
+			}
+
+			final List<ClaimGroup> claimGroups = new ArrayList<ClaimGroup>(claimGroupCount);
+			for (int i = 0; i < claimGroupCount; i++) {
+				final ClaimGroup claimGroup = new ClaimGroup();
+				claimGroup.setKey(buffer.getInt());
+				claimGroup.setClaimLimit(buffer.getInt());
+				claimGroup.setName(readString(buffer));
+				claimGroups.add(claimGroup);
+			}
+
+			// all bytes before checksum must have been read
+			if (buffer.hasRemaining()) {
+				plugin.getLogger().info("Claim cache snapshot is corrupt and will not be used.");
+				return null;
+			}
+
+			return new CacheSnapshot(claims, permissions, claimGroups);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("Could not read claim cache snapshot.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+		catch (BufferUnderflowException e) {
+			plugin.getLogger().info("Claim cache snapshot is corrupt and will not be used.");
+		}
+		catch (IllegalArgumentException e) {
+			plugin.getLogger().info("Claim cache snapshot is corrupt and will not be used.");
+		}
+		return null;
+	}
+
+
+	/**
+	 * Write length prefixed UTF-8 string
+	 * @param out
+	 * @param string
+	 * @throws IOException
+	 */
+	private static void writeString(final DataOutputStream out, final String string) throws IOException {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+
+	/**
+	 * Read length prefixed UTF-8 string
+	 * @param buffer
+	 * @return string
+	 */
+	private static String readString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
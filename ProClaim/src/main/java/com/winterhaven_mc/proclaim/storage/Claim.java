@@ -15,6 +15,17 @@ public final class Claim {
 
 	// static reference to main class
 	private final static PluginMain plugin = PluginMain.instance;
+
+	// persisted fields, as bits of the dirty field mask
+	static final int OWNER = 1;
+	static final int PARENT = 2;
+	static final int GROUP = 4;
+	static final int LOCKED = 8;
+	static final int RESIZEABLE = 16;
+	static final int BOUNDS = 32;
+
+	// persisted fields changed since last read from or written to the datastore
+	private final DirtyFields dirtyFields = new DirtyFields();
 	
 	// claim primary key
 	private Integer key;
@@ -28,15 +39,22 @@ public final class Claim {
 	// group primary key
 	private Integer groupKey;
 
-	// claim boundaries
-	private Location lowerCorner;
-	private Location upperCorner;
+	// claim boundaries, stored as block coordinates in an interned world
+	private int worldId = ClaimWorlds.NO_WORLD;
+	private int lowerX;
+	private int lowerY;
+	private int lowerZ;
+	private int upperX;
+	private int upperY;
+	private int upperZ;
+	private boolean hasLowerCorner;
+	private boolean hasUpperCorner;
 	
 	// locked status
-	private Boolean locked;
+	private boolean locked;
 	
 	// resizeable status
-	private Boolean resizeable = true;
+	private boolean resizeable = true;
 
 	// creation date
 	private Instant createdDate;
@@ -73,18 +91,10 @@ public final class Claim {
 		// only set locations if non-null and in same world
 		if (loc1 != null && loc2 != null && loc1.getWorld().equals(loc2.getWorld())) {
 			
-			int lowerX = Math.min(loc1.getBlockX(), loc2.getBlockX());
-			int upperX = Math.max(loc1.getBlockX(), loc2.getBlockX());
-
-			int lowerY = Math.min(loc1.getBlockY(), loc2.getBlockY());
-			int upperY = loc1.getWorld().getMaxHeight() - 1;
-//			int upperY = Math.max(loc1.getBlockY(), loc2.getBlockY());
-
-			int lowerZ = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
-			int upperZ = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
-
-			this.setLowerCorner(new Location(loc1.getWorld(),lowerX,lowerY,lowerZ));
-			this.setUpperCorner(new Location(loc1.getWorld(),upperX,upperY,upperZ));
+			// lower Y is lowest selected block, upper Y is top of world
+			this.setCorners(loc1.getWorld(),
+					loc1.getBlockX(), Math.min(loc1.getBlockY(), loc2.getBlockY()), loc1.getBlockZ(),
+					loc2.getBlockX(), loc1.getWorld().getMaxHeight() - 1, loc2.getBlockZ());
 		}
 	}
 
@@ -103,7 +113,10 @@ public final class Claim {
 
 
 	public final void setOwnerUUID(final UUID ownerUUID) {
-		this.ownerUUID = ownerUUID;
+		if (!Objects.equals(this.ownerUUID, ownerUUID)) {
+			this.ownerUUID = ownerUUID;
+			markDirty(OWNER);
+		}
 	}
 
 
@@ -112,7 +125,10 @@ public final class Claim {
 	}
 
 	public final void setParentKey(final Integer parentKey) {
-		this.parentKey = parentKey;
+		if (!Objects.equals(this.parentKey, parentKey)) {
+			this.parentKey = parentKey;
+			markDirty(PARENT);
+		}
 	}
 
 	public final Integer getGroupKey() {
@@ -120,23 +136,151 @@ public final class Claim {
 	}
 
 	public final void setGroupKey(final Integer groupKey) {
-		this.groupKey = groupKey;
+		if (!Objects.equals(this.groupKey, groupKey)) {
+			this.groupKey = groupKey;
+			markDirty(GROUP);
+		}
 	}
 
+	/**
+	 * Get upper corner of claim
+	 * @return new Location object for upper corner, or null if no upper corner set;
+	 * changes to the returned Location do not affect the claim
+	 */
 	public final Location getUpperCorner() {
-		return upperCorner;
+		if (!this.hasUpperCorner) {
+			return null;
+		}
+		return new Location(this.getWorld(), this.upperX, this.upperY, this.upperZ);
 	}
 
+	/**
+	 * Set upper corner of claim from block coordinates of a location
+	 * @param upperCorner
+	 */
 	public final void setUpperCorner(final Location upperCorner) {
-		this.upperCorner = upperCorner;
+		if (upperCorner == null) {
+			this.hasUpperCorner = false;
+			return;
+		}
+		final int newWorldId = ClaimWorlds.intern(upperCorner.getWorld());
+		if (this.hasUpperCorner && this.worldId == newWorldId && this.upperX == upperCorner.getBlockX()
+				&& this.upperY == upperCorner.getBlockY() && this.upperZ == upperCorner.getBlockZ()) {
+			return;
+		}
+		this.worldId = newWorldId;
+		this.upperX = upperCorner.getBlockX();
+		this.upperY = upperCorner.getBlockY();
+		this.upperZ = upperCorner.getBlockZ();
+		this.hasUpperCorner = true;
+		markDirty(BOUNDS);
 	}
 
+	/**
+	 * Get lower corner of claim
+	 * @return new Location object for lower corner, or null if no lower corner set;
+	 * changes to the returned Location do not affect the claim
+	 */
 	public final Location getLowerCorner() {
-		return lowerCorner;
+		if (!this.hasLowerCorner) {
+			return null;
+		}
+		return new Location(this.getWorld(), this.lowerX, this.lowerY, this.lowerZ);
 	}
 
+	/**
+	 * Set lower corner of claim from block coordinates of a location
+	 * @param lowerCorner
+	 */
 	public final void setLowerCorner(final Location lowerCorner) {
-		this.lowerCorner = lowerCorner;
+		if (lowerCorner == null) {
+			this.hasLowerCorner = false;
+			return;
+		}
+		final int newWorldId = ClaimWorlds.intern(lowerCorner.getWorld());
+		if (this.hasLowerCorner && this.worldId == newWorldId && this.lowerX == lowerCorner.getBlockX()
+				&& this.lowerY == lowerCorner.getBlockY() && this.lowerZ == lowerCorner.getBlockZ()) {
+			return;
+		}
+		this.worldId = newWorldId;
+		this.lowerX = lowerCorner.getBlockX();
+		this.lowerY = lowerCorner.getBlockY();
+		this.lowerZ = lowerCorner.getBlockZ();
+		this.hasLowerCorner = true;
+		markDirty(BOUNDS);
+	}
+
+	/**
+	 * Set both claim corners from block coordinates without creating Location objects<br>
+	 * Coordinates are sorted so the lower corner holds the minimum of each axis
+	 * @param world
+	 * @param x1
+	 * @param y1
+	 * @param z1
+	 * @param x2
+	 * @param y2
+	 * @param z2
+	 */
+	public final void setCorners(final World world,
+			final int x1, final int y1, final int z1,
+			final int x2, final int y2, final int z2) {
+
+		final int newWorldId = ClaimWorlds.intern(world);
+		if (this.hasBounds() && this.worldId == newWorldId
+				&& this.lowerX == Math.min(x1, x2) && this.lowerY == Math.min(y1, y2) && this.lowerZ == Math.min(z1, z2)
+				&& this.upperX == Math.max(x1, x2) && this.upperY == Math.max(y1, y2) && this.upperZ == Math.max(z1, z2)) {
+			return;
+		}
+		this.worldId = newWorldId;
+		this.lowerX = Math.min(x1, x2);
+		this.lowerY = Math.min(y1, y2);
+		this.lowerZ = Math.min(z1, z2);
+		this.upperX = Math.max(x1, x2);
+		this.upperY = Math.max(y1, y2);
+		this.upperZ = Math.max(z1, z2);
+		this.hasLowerCorner = true;
+		this.hasUpperCorner = true;
+		markDirty(BOUNDS);
+	}
+
+	/**
+	 * Check if both claim corners are set
+	 * @return true if claim has boundaries, false if not
+	 */
+	public final boolean hasBounds() {
+		return this.hasLowerCorner && this.hasUpperCorner;
+	}
+
+	/**
+	 * Get interned id of claim world
+	 * @return interned world id, or ClaimWorlds.NO_WORLD if claim has no world
+	 */
+	final int getWorldId() {
+		return worldId;
+	}
+
+	public final int getLowerX() {
+		return lowerX;
+	}
+
+	public final int getLowerY() {
+		return lowerY;
+	}
+
+	public final int getLowerZ() {
+		return lowerZ;
+	}
+
+	public final int getUpperX() {
+		return upperX;
+	}
+
+	public final int getUpperY() {
+		return upperY;
+	}
+
+	public final int getUpperZ() {
+		return upperZ;
 	}
 
 	public final Boolean isLocked() {
@@ -145,7 +289,11 @@ public final class Claim {
 
 
 	public final void setLocked(final Boolean locked) {
-		this.locked = locked;
+		final boolean newLocked = locked != null && locked;
+		if (this.locked != newLocked) {
+			this.locked = newLocked;
+			markDirty(LOCKED);
+		}
 	}
 
 
@@ -160,7 +308,11 @@ public final class Claim {
 
 
 	public final void setResizeable(final Boolean resizeable) {
-		this.resizeable = resizeable;
+		final boolean newResizeable = resizeable == null || resizeable;
+		if (this.resizeable != newResizeable) {
+			this.resizeable = newResizeable;
+			markDirty(RESIZEABLE);
+		}
 	}
 
 
@@ -238,18 +390,31 @@ public final class Claim {
 	 * @return true if location is within claim, false if location is outside claim
 	 */
 	public final boolean contains(final Location location, final boolean ignoreHeight) {
-
-		// if claim is not in the same world as location return false
-		if (!location.getWorld().equals(this.lowerCorner.getWorld())) {
-			return false;
-		}
-
-		// check if location coordinates are within claim boundaries
-		return (ignoreHeight || location.getBlockY() >= this.lowerCorner.getBlockY()) 
-				&& location.getBlockX() >= this.lowerCorner.getBlockX()
-				&& location.getBlockX() <= this.upperCorner.getBlockX()
-				&& location.getBlockZ() >= this.lowerCorner.getBlockZ()
-				&& location.getBlockZ() <= this.upperCorner.getBlockZ();
+		return this.contains(location.getWorld(),
+				location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight);
+	}
+	
+	
+	/**
+	 * Check if block coordinates are within this claim
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param ignoreHeight
+	 * @return true if coordinates are within claim, false if coordinates are outside claim
+	 */
+	public final boolean contains(final World world, final int x, final int y, final int z,
+			final boolean ignoreHeight) {
+
+		// check if coordinates are within claim boundaries, then if claim is in the same world
+		return this.hasLowerCorner && this.hasUpperCorner
+				&& x >= this.lowerX
+				&& x <= this.upperX
+				&& z >= this.lowerZ
+				&& z <= this.upperZ
+				&& (ignoreHeight || y >= this.lowerY)
+				&& ClaimWorlds.isWorld(this.worldId, world);
 	}
 	
 	
@@ -261,11 +426,11 @@ public final class Claim {
 	public final boolean contains(final Claim otherClaim) {
 
 		// check if other claim boundaries are within this claim boundaries
-		return (this.getWorld().equals(otherClaim.getWorld())
-				&& this.getUpperCorner().getBlockX() >= otherClaim.getUpperCorner().getBlockX()
-				&& this.getUpperCorner().getBlockZ() >= otherClaim.getUpperCorner().getBlockZ()
-				&& this.getLowerCorner().getBlockX() <= otherClaim.getLowerCorner().getBlockX()
-				&& this.getLowerCorner().getBlockZ() <= otherClaim.getLowerCorner().getBlockZ());
+		return (this.worldId == otherClaim.worldId
+				&& this.upperX >= otherClaim.upperX
+				&& this.upperZ >= otherClaim.upperZ
+				&& this.lowerX <= otherClaim.lowerX
+				&& this.lowerZ <= otherClaim.lowerZ);
 	}
 	
 	
@@ -277,18 +442,63 @@ public final class Claim {
 	public final boolean overlaps(final Claim otherClaim) {
 		
 		// if claims are in different worlds, they don't overlap
-		if (!this.getWorld().equals(otherClaim.getWorld())) {
+		if (this.worldId != otherClaim.worldId) {
 			return false;
 		}
 		
-		return ( !(Math.max(this.getLowerCorner().getBlockX(),this.getUpperCorner().getBlockX()) 
-					< Math.min(otherClaim.getLowerCorner().getBlockX(),otherClaim.getUpperCorner().getBlockX())
-				|| Math.min(this.getLowerCorner().getBlockX(),this.getUpperCorner().getBlockX()) 
-					> Math.max(otherClaim.getLowerCorner().getBlockX(),otherClaim.getUpperCorner().getBlockX())
-				|| Math.max(this.getLowerCorner().getBlockZ(),this.getUpperCorner().getBlockZ()) 
-					< Math.min(otherClaim.getLowerCorner().getBlockZ(),otherClaim.getUpperCorner().getBlockZ())
-				|| Math.min(this.getLowerCorner().getBlockZ(),this.getUpperCorner().getBlockZ()) 
-					> Math.max(otherClaim.getLowerCorner().getBlockZ(),otherClaim.getUpperCorner().getBlockZ())));
+		return this.lowerX <= otherClaim.upperX
+				&& this.upperX >= otherClaim.lowerX
+				&& this.lowerZ <= otherClaim.upperZ
+				&& this.upperZ >= otherClaim.lowerZ;
+	}
+	
+
+	/**
+	 * Test if claim intersects a rectangle in two dimensions
+	 * @param world
+	 * @param x1
+	 * @param z1
+	 * @param x2
+	 * @param z2
+	 * @return true if claim intersects rectangle, false if it does not or is in a different world
+	 */
+	public final boolean intersects(final World world, final int x1, final int z1, final int x2, final int z2) {
+		
+		// if claim is not in the same world as rectangle, return false
+		if (!this.hasBounds() || !ClaimWorlds.isWorld(this.worldId, world)) {
+			return false;
+		}
+		
+		return this.lowerX <= Math.max(x1,x2)
+				&& this.upperX >= Math.min(x1,x2)
+				&& this.lowerZ <= Math.max(z1,z2)
+				&& this.upperZ >= Math.min(z1,z2);
+	}
+	
+	
+	/**
+	 * Get top level claims, other than this claim, that overlap this claim in two dimensions
+	 * @return Immutable Set of overlapping top level claims; empty Set if none found
+	 */
+	public final Set<Claim> getOverlappingTopClaims() {
+		
+		// if claim has no boundaries, return empty set
+		if (!this.hasBounds()) {
+			return Collections.emptySet();
+		}
+		
+		// create empty HashSet for return
+		final Set<Claim> returnSet = new HashSet<Claim>();
+		
+		// add each top level claim intersecting claim boundaries, skipping this claim
+		for (Claim testClaim : plugin.dataStore.getTopClaimsIntersecting(this.getWorld(),
+				this.lowerX, this.lowerZ, this.upperX, this.upperZ)) {
+			
+			if (this.getKey() == null || !this.getKey().equals(testClaim.getKey())) {
+				returnSet.add(testClaim);
+			}
+		}
+		return Collections.unmodifiableSet(returnSet);
 	}
 	
 
@@ -299,10 +509,8 @@ public final class Claim {
 	 */
 	public final boolean isCorner(final Location location) {
 		
-		return (location.getBlockX() == this.getLowerCorner().getBlockX()
-				|| location.getBlockX() == this.getUpperCorner().getBlockX()) 
-				&& (location.getBlockZ() == this.getLowerCorner().getBlockZ() 
-				|| location.getBlockZ() == this.getUpperCorner().getBlockZ());
+		return (location.getBlockX() == this.lowerX || location.getBlockX() == this.upperX) 
+				&& (location.getBlockZ() == this.lowerZ || location.getBlockZ() == this.upperZ);
 	}
 	
 	
@@ -312,8 +520,8 @@ public final class Claim {
 	 */
 	public final Integer getWidth() {
 
-		if (this.getUpperCorner() != null && this.getLowerCorner() != null) {
-			return this.getUpperCorner().getBlockX() - this.getLowerCorner().getBlockX() + 1;
+		if (this.hasBounds()) {
+			return this.upperX - this.lowerX + 1;
 		}
 		return 0;
 	}
@@ -325,8 +533,8 @@ public final class Claim {
 	 */
 	public final Integer getLength() {
 
-		if (this.getUpperCorner() != null && this.getLowerCorner() != null) {
-			return this.getUpperCorner().getBlockZ() - this.getLowerCorner().getBlockZ() + 1;
+		if (this.hasBounds()) {
+			return this.upperZ - this.lowerZ + 1;
 		}
 		return 0;
 	}
@@ -338,7 +546,7 @@ public final class Claim {
 	 */
 	public final Integer getArea() {
 
-		if (this.getUpperCorner() != null && this.getLowerCorner() != null) {
+		if (this.hasBounds()) {
 			return this.getWidth() * this.getLength();
 		}
 		return 0;
@@ -350,10 +558,10 @@ public final class Claim {
 	 * @return World object or null if no location set for claim upper corner
 	 */
 	public final World getWorld() {
-		if (this.getUpperCorner() == null) {
+		if (!this.hasUpperCorner) {
 			return null;
 		}
-		return this.getUpperCorner().getWorld();
+		return ClaimWorlds.getWorld(this.worldId);
 	}
 	
 	
@@ -380,8 +588,7 @@ public final class Claim {
 		final Claim newClaim = new Claim(loc1,loc2);
 		
 		// set lower corner Y auto-depth from config
-		newClaim.setLowerCorner(newClaim.getLowerCorner()
-				.subtract(0,plugin.getConfig().getInt("claim-auto-depth"),0));
+		newClaim.lowerY -= plugin.getConfig().getInt("claim-auto-depth");
 		
 		// set owner data
 		newClaim.setOwnerUUID(ownerData.getPlayerUUID());
@@ -390,14 +597,9 @@ public final class Claim {
 		result.setResultClaim(newClaim);
 		
 		// check if claim overlaps any top level claims in world
-		for (Claim testClaim : plugin.dataStore.getAllClaims()) {
-			
-			if (testClaim.getWorld().equals(newClaim.getWorld()) 
-					&& !testClaim.isSubClaim()
-					&& newClaim.overlaps(testClaim)) {
-				result.addOverlapClaim(testClaim);
-				result.setSuccess(false);
-			}
+		for (Claim testClaim : newClaim.getOverlappingTopClaims()) {
+			result.addOverlapClaim(testClaim);
+			result.setSuccess(false);
 		}
 		
 		// return ClaimResult
@@ -430,8 +632,7 @@ public final class Claim {
 		final Claim newClaim = new Claim(loc1,loc2);
 		
 		// set lower corner Y auto-depth from config
-		newClaim.setLowerCorner(newClaim.getLowerCorner()
-				.subtract(0,Math.max(0,plugin.getConfig().getInt("claim-auto-depth")),0));
+		newClaim.lowerY -= Math.max(0,plugin.getConfig().getInt("claim-auto-depth"));
 		
 		// get owner data from parent claim
 		final PlayerState ownerData = plugin.dataStore.getPlayerState(parentClaim.getOwnerUUID());
@@ -467,6 +668,41 @@ public final class Claim {
 	}
 
 	
+	/**
+	 * Test if any persisted field changed since the claim was last read from or written to the datastore
+	 * @return true if claim needs to be written
+	 */
+	public final boolean isDirty() {
+		return dirtyFields.isDirty();
+	}
+
+
+	/**
+	 * Mark persisted fields as changed
+	 * @param fields bits of changed fields
+	 */
+	final void markDirty(final int fields) {
+		dirtyFields.mark(fields);
+	}
+
+
+	/**
+	 * Mark all persisted fields as matching the datastore
+	 */
+	final void markClean() {
+		dirtyFields.clear();
+	}
+
+
+	/**
+	 * Get changed fields and mark them as matching the datastore, as they are about to be written
+	 * @return bits of changed fields
+	 */
+	final int takeDirtyFields() {
+		return dirtyFields.take();
+	}
+
+
 	/**
 	 * Insert a new claim record in the datastore
 	 */
@@ -481,7 +717,8 @@ public final class Claim {
 
 	
 	/**
-	 * Update an existing claim record in the datastore
+	 * Update an existing claim record in the datastore<br>
+	 * Nothing is written if no persisted field changed, but the worldguard region is always synced
 	 */
 	public final void update() {
 		
@@ -497,20 +734,7 @@ public final class Claim {
 	 * Delete a claim record from the datastore. All child claims will also be deleted.
 	 */
 	public final void delete() {
-		
-		// set status to pending delete
-		this.setStatus(ClaimStatus.PENDING_DELETE);
-		
-		// set status for all child claims to pending delete
-		for (Claim claim : this.getChildClaims()) {
-			claim.setStatus(ClaimStatus.PENDING_DELETE);
-		}
-		
-		// remove worldguard region for claim and any children
-		plugin.worldGuardHelper.removeRegion(this);
-		
-		// remove claim and any children from datastore
-		plugin.dataStore.deleteClaim(this.getKey());
+		new ClaimBatch().delete(this).commit();
 	}
 
 
@@ -520,6 +744,18 @@ public final class Claim {
 	 * @param depth
 	 */
 	public final void extend(final Integer depth) {
+		final ClaimBatch batch = new ClaimBatch();
+		extend(depth, batch);
+		batch.commit();
+	}
+
+
+	/**
+	 * Add claim depth extension along with parent claim and siblings or children to a claim batch
+	 * @param depth
+	 * @param batch
+	 */
+	public final void extend(final Integer depth, final ClaimBatch batch) {
 	
 		// create HashSet of claims to extend
 		final HashSet<Claim> extendedClaims = new HashSet<Claim>();
@@ -547,19 +783,15 @@ public final class Claim {
 		// extend all claims in HashSet
 		for (Claim extendedClaim : extendedClaims) {
 	
-			// get lower corner
-			final Location lowerCorner = extendedClaim.getLowerCorner();
-	
 			// set new Y for lower corner
-			lowerCorner.setY(newY);
-	
-			// set new lower corner in claim
-			extendedClaim.setLowerCorner(lowerCorner);
+			if (extendedClaim.lowerY != newY) {
+				extendedClaim.lowerY = newY;
+				extendedClaim.markDirty(BOUNDS);
+			}
 	
-			// update claim in datastore
-			extendedClaim.update();
+			// add claim to batch
+			batch.update(extendedClaim);
 		}
-		return;
 	}
 
 	
@@ -569,12 +801,32 @@ public final class Claim {
 	 * the claim is deleted along with any subclaims.
 	 */
 	public final void abandon() {
-		
-		// get owner player state
-		final PlayerState playerState = plugin.dataStore.getPlayerState(this.getOwnerUUID());
+		final ClaimBatch batch = new ClaimBatch();
+		abandon(batch);
+		batch.commit();
+	}
+
+
+	/**
+	 * Add claim abandonment to a claim batch
+	 * @param batch
+	 */
+	public final void abandon(final ClaimBatch batch) {
+		abandon(plugin.dataStore.getPlayerState(this.getOwnerUUID()), batch);
+	}
+
+
+	/**
+	 * Add claim abandonment to a claim batch, crediting blocks to an owner player state
+	 * the caller has already resolved
+	 * @param playerState player state of claim owner
+	 * @param batch
+	 */
+	public final void abandon(final PlayerState playerState, final ClaimBatch batch) {
 		
 		// credit player with blocks
 		playerState.setEarnedClaimBlocks(playerState.getEarnedClaimBlocks() + this.getArea());
+		batch.update(playerState);
 
 		// if claim has a claim group, transfer claim and children to admin
 		if (this.getGroupKey() != null && this.getGroupKey() != 0) {
@@ -583,31 +835,20 @@ public final class Claim {
 			this.setAdminClaim();
 			
 			// remove all claim permissions
-			this.removeAllPermissions();
+			batch.removeAllPermissions(this);
 		
-			// update claim in datastore
-			this.update();
-			
-			// add all child claim keys to abandonedKeys HashSet
-			final HashSet<Integer> abandonedKeys = 
-					new HashSet<Integer>(plugin.dataStore.getChildKeys(this.getKey()));
+			// add claim to batch
+			batch.update(this);
 			
-			// iterate through all keys in abandonedKeys HashSet
-			for (Integer key : abandonedKeys) {
-
-				// get claim
-				final Claim abandonedClaim = plugin.dataStore.getClaim(key);
-				
-				// set claim to admin claim
+			// set all child claims to admin claims
+			for (Claim abandonedClaim : this.getChildClaims()) {
 				abandonedClaim.setAdminClaim();
-				
-				// update claim in datastore
-				abandonedClaim.update();
+				batch.update(abandonedClaim);
 			}
 		}
 		else {
 			// if no claim group, delete claim and children
-			this.delete();
+			batch.delete(this);
 		}
 	}
 
@@ -617,9 +858,21 @@ public final class Claim {
 	 * @param newOwnerUUID
 	 */
 	public final void transfer(final UUID newOwnerUUID) {
+		final ClaimBatch batch = new ClaimBatch();
+		transfer(newOwnerUUID, batch);
+		batch.commit();
+	}
+
+
+	/**
+	 * Add claim ownership transfer to a claim batch
+	 * @param newOwnerUUID
+	 * @param batch
+	 */
+	public final void transfer(final UUID newOwnerUUID, final ClaimBatch batch) {
 		
 		// remove all permissions from claim
-		this.removeAllPermissions();
+		batch.removeAllPermissions(this);
 		
 		// initialize HashSet to store parent and all siblings/children
 		final Set<Claim> transferredClaims = new HashSet<Claim>();
@@ -630,14 +883,14 @@ public final class Claim {
 		// add claim itself to HashSet
 		transferredClaims.add(this);
 
-		// update each claim in datastore
+		// add each claim to batch
 		for (Claim transferredClaim : transferredClaims) {
 			
 			// update claim owner uuid to recipient uuid
 			transferredClaim.setOwnerUUID(newOwnerUUID);
 			
-			// update claim in datastore
-			transferredClaim.update();
+			// add claim to batch
+			batch.update(transferredClaim);
 		}
 	}
 
@@ -650,28 +903,16 @@ public final class Claim {
 	 */
 	public final boolean allows(final UUID playerUUID, final PermissionLevel permissionLevel) {
 
-		// get permission record from datastore
-		ClaimPermission claimPermission = plugin.dataStore.getClaimPermission(this.getKey(), playerUUID);
+		// get player permission level from datastore, falling back to public group
+		final PermissionLevel claimPermissionLevel = plugin.dataStore.getPermissionLevel(this.getKey(), playerUUID);
 		
-		// if permission record is null, try public group
-		if (claimPermission == null) {
-			
-			// get claim permission record for public group
-			claimPermission = plugin.dataStore.getClaimPermission(this.getKey(), zeroUUID);
-
-			// if no record for public, return false
-			if (claimPermission == null) {
-				return false;
-			}
-		}
-		
-		// if permission record permission level is null, return false
-		if (claimPermission.getPermissionLevel() == null) {
+		// if no permission level for player or public, return false
+		if (claimPermissionLevel == null) {
 			return false;
 		}
 
 		// return permission level result
-		return claimPermission.allows(permissionLevel);
+		return claimPermissionLevel.allows(permissionLevel);
 	}
 	
 	
@@ -843,11 +1084,6 @@ public final class Claim {
 			return Collections.emptySet();
 		}
 		
-		// if child claims set is empty, return empty set
-		if (plugin.dataStore.getChildClaims(this.getKey()).isEmpty()) {
-			return Collections.emptySet();
-		}
-
 		// return set of child claims
 		return plugin.dataStore.getChildClaims(this.getKey());
 	}
@@ -864,37 +1100,37 @@ public final class Claim {
 		// determine dimensions of resized claim
 		int newLowerX, newUpperX, newLowerZ, newUpperZ, newLowerY, newUpperY;
 		
-		if (firstClick.getBlockX() == this.getLowerCorner().getBlockX()) {
+		if (firstClick.getBlockX() == this.lowerX) {
 			newLowerX = secondClick.getBlockX();
 		}
 		else {
-			newLowerX = this.getLowerCorner().getBlockX();
+			newLowerX = this.lowerX;
 		}
 		
-		if (firstClick.getBlockX() == this.getUpperCorner().getBlockX()) {
+		if (firstClick.getBlockX() == this.upperX) {
 			newUpperX = secondClick.getBlockX();
 		}
 		else {
-			newUpperX = this.getUpperCorner().getBlockX();
+			newUpperX = this.upperX;
 		}
 		
-		if (firstClick.getBlockZ() == this.getLowerCorner().getBlockZ()) {
+		if (firstClick.getBlockZ() == this.lowerZ) {
 			newLowerZ = secondClick.getBlockZ();
 		}
 		else {
-			newLowerZ = this.getLowerCorner().getBlockZ();
+			newLowerZ = this.lowerZ;
 		}
 		
-		if (firstClick.getBlockZ() == this.getUpperCorner().getBlockZ()) {
+		if (firstClick.getBlockZ() == this.upperZ) {
 			newUpperZ = secondClick.getBlockZ();
 		}
 		else {
-			newUpperZ = this.getUpperCorner().getBlockZ();
+			newUpperZ = this.upperZ;
 		}
 		
 		// not changing Y values, just get them from old claim
-		newLowerY = this.getLowerCorner().getBlockY();
-		newUpperY = this.getUpperCorner().getBlockY();
+		newLowerY = this.lowerY;
+		newUpperY = this.upperY;
 		
 		// if new corner is beyond opposite border, return null
 		if (newLowerX > newUpperX 
@@ -0,0 +1,171 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.ClaimStatus;
+
+/**
+ * Unit of work that collects claim, permission and player state changes and commits them together.<br>
+ * On commit, the changes are applied to the caches in one step in the main thread, written to the
+ * datastore in a single transaction, and WorldGuard regions of all changed claims are updated in one pass.
+ * Changes are applied in this order: permissions removed, claims updated, claims deleted, player states updated.
+ * A batch may only be committed once.
+ */
+public final class ClaimBatch {
+
+	// static reference to main class
+	private final static PluginMain plugin = PluginMain.instance;
+
+	// claims to update, by claim key
+	private final Map<Integer,Claim> updatedClaims = new LinkedHashMap<Integer,Claim>();
+
+	// claims to delete, including child claims, by claim key
+	private final Map<Integer,Claim> deletedClaims = new LinkedHashMap<Integer,Claim>();
+
+	// keys of claims to remove all permissions from
+	private final Set<Integer> clearedPermissionClaimKeys = new LinkedHashSet<Integer>();
+
+	// player states to update, by player uuid
+	private final Map<UUID,PlayerState> updatedPlayerStates = new LinkedHashMap<UUID,PlayerState>();
+
+	// true once batch has been committed
+	private boolean committed;
+
+
+	/**
+	 * Add a changed claim to be updated
+	 * @param claim
+	 * @return this batch
+	 */
+	public final ClaimBatch update(final Claim claim) {
+		checkNotCommitted();
+		if (claim != null && claim.getKey() != null) {
+			updatedClaims.put(claim.getKey(), claim);
+		}
+		return this;
+	}
+
+
+	/**
+	 * Add a claim to be deleted, along with its child claims and the permissions of all of them
+	 * @param claim
+	 * @return this batch
+	 */
+	public final ClaimBatch delete(final Claim claim) {
+		checkNotCommitted();
+		if (claim == null || claim.getKey() == null) {
+			return this;
+		}
+
+		// set status to pending delete for claim and all child claims
+		claim.setStatus(ClaimStatus.PENDING_DELETE);
+		deletedClaims.put(claim.getKey(), claim);
+		for (Claim childClaim : claim.getChildClaims()) {
+			childClaim.setStatus(ClaimStatus.PENDING_DELETE);
+			deletedClaims.put(childClaim.getKey(), childClaim);
+		}
+		return this;
+	}
+
+
+	/**
+	 * Add a claim to remove all player permissions from
+	 * @param claim
+	 * @return this batch
+	 */
+	public final ClaimBatch removeAllPermissions(final Claim claim) {
+		checkNotCommitted();
+		if (claim != null && claim.getKey() != null) {
+			clearedPermissionClaimKeys.add(claim.getKey());
+		}
+		return this;
+	}
+
+
+	/**
+	 * Add a changed player state to be updated
+	 * @param playerState
+	 * @return this batch
+	 */
+	public final ClaimBatch update(final PlayerState playerState) {
+		checkNotCommitted();
+		if (playerState != null && playerState.getPlayerUUID() != null) {
+			updatedPlayerStates.put(playerState.getPlayerUUID(), playerState);
+		}
+		return this;
+	}
+
+
+	/**
+	 * Test if batch holds no changes
+	 * @return true if batch is empty
+	 */
+	public final boolean isEmpty() {
+		return updatedClaims.isEmpty() && deletedClaims.isEmpty()
+				&& clearedPermissionClaimKeys.isEmpty() && updatedPlayerStates.isEmpty();
+	}
+
+
+	/**
+	 * Apply all changes to the caches and datastore in one transaction, and update WorldGuard regions<br>
+	 * Must be called in the main thread
+	 */
+	public final void commit() {
+		checkNotCommitted();
+		committed = true;
+
+		if (isEmpty()) {
+			return;
+		}
+
+		// claims that are deleted are not updated
+		updatedClaims.keySet().removeAll(deletedClaims.keySet());
+
+		// apply changes to caches and datastore
+		plugin.dataStore.commitBatch(this);
+
+		// update worldguard regions of all changed claims
+		plugin.worldGuardHelper.updateRegions(updatedClaims.values(), deletedClaims.values());
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Claim batch committed with " + updatedClaims.size() + " claim updates, "
+					+ deletedClaims.size() + " claim deletions, " + clearedPermissionClaimKeys.size()
+					+ " claim permission removals and " + updatedPlayerStates.size() + " player updates.");
+		}
+	}
+
+
+	/**
+	 * Throw an exception if batch has already been committed
+	 */
+	private void checkNotCommitted() {
+		if (committed) {
+			throw new IllegalStateException("Claim batch has already been committed.");
+		}
+	}
+
+
+	final Collection<Claim> getUpdatedClaims() {
+		return Collections.unmodifiableCollection(updatedClaims.values());
+	}
+
+	final Collection<Claim> getDeletedClaims() {
+		return Collections.unmodifiableCollection(deletedClaims.values());
+	}
+
+	final Set<Integer> getClearedPermissionClaimKeys() {
+		return Collections.unmodifiableSet(clearedPermissionClaimKeys);
+	}
+
+	final Collection<PlayerState> getUpdatedPlayerStates() {
+		return Collections.unmodifiableCollection(updatedPlayerStates.values());
+	}
+
+}
@@ -1,12 +1,19 @@
 package com.winterhaven_mc.proclaim.storage;
 
+import java.util.AbstractSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 
 import com.winterhaven_mc.proclaim.PluginMain;
 import com.winterhaven_mc.proclaim.objects.ClaimStatus;
@@ -20,7 +27,87 @@ final class ClaimCache {
 	private final ConcurrentHashMap<Integer,Claim> claimMap;
 	
 	// Index of claims by owner UUID to claim key
-	private final ConcurrentHashMap<UUID,HashSet<Integer>> claimOwnerIndex;
+	private final ConcurrentHashMap<UUID,Set<Integer>> claimOwnerIndex;
+	
+	// Owner UUID each claim key is currently indexed under, used when a claim changes owner
+	private final ConcurrentHashMap<Integer,UUID> claimKeyOwnerIndex;
+	
+	// Spatial index of claim keys by world and chunk
+	private final ClaimChunkIndex claimChunkIndex;
+	
+	// Index of child claim keys by parent claim key
+	private final ConcurrentHashMap<Integer,Set<Integer>> childIndex;
+	
+	// Parent claim key each child claim is currently indexed under, used when a claim is reparented
+	private final ConcurrentHashMap<Integer,Integer> claimParentIndex;
+	
+	
+	/**
+	 * Private class that implements an unmodifiable view of child claims,
+	 * backed by the child index entry for a parent claim
+	 */
+	private final class ChildClaimSet extends AbstractSet<Claim> {
+		
+		private final Set<Integer> childKeys;
+		
+		ChildClaimSet(final Set<Integer> childKeys) {
+			this.childKeys = childKeys;
+		}
+		
+		@Override
+		public final Iterator<Claim> iterator() {
+			
+			final Iterator<Integer> keyIterator = childKeys.iterator();
+			
+			return new Iterator<Claim>() {
+				
+				private Claim nextClaim = advance();
+				
+				// get next child claim still present in claim map
+				private Claim advance() {
+					while (keyIterator.hasNext()) {
+						final Claim claim = claimMap.get(keyIterator.next());
+						if (claim != null) {
+							return claim;
+						}
+					}
+					return null;
+				}
+				
+				@Override
+				public boolean hasNext() {
+					return nextClaim != null;
+				}
+				
+				@Override
+				public Claim next() {
+					if (nextClaim == null) {
+						throw new NoSuchElementException();
+					}
+					final Claim claim = nextClaim;
+					nextClaim = advance();
+					return claim;
+				}
+			};
+		}
+		
+		// count only child claims present in claim map, so size agrees with iterator
+		@Override
+		public final int size() {
+			int count = 0;
+			for (Integer childKey : childKeys) {
+				if (claimMap.containsKey(childKey)) {
+					count++;
+				}
+			}
+			return count;
+		}
+		
+		@Override
+		public final boolean isEmpty() {
+			return !iterator().hasNext();
+		}
+	}
 	
 	
 	/**
@@ -36,7 +123,19 @@ final class ClaimCache {
 		claimMap = new ConcurrentHashMap<Integer,Claim>();
 		
 		// initialize claim owner index
-		claimOwnerIndex = new ConcurrentHashMap<UUID,HashSet<Integer>>();
+		claimOwnerIndex = new ConcurrentHashMap<UUID,Set<Integer>>();
+		
+		// initialize claim key owner index
+		claimKeyOwnerIndex = new ConcurrentHashMap<Integer,UUID>();
+		
+		// initialize claim chunk index
+		claimChunkIndex = new ClaimChunkIndex();
+		
+		// initialize child claim index
+		childIndex = new ConcurrentHashMap<Integer,Set<Integer>>();
+		
+		// initialize claim parent index
+		claimParentIndex = new ConcurrentHashMap<Integer,Integer>();
 	}
 
 	
@@ -76,16 +175,34 @@ final class ClaimCache {
 	 * @return  subclaim if one exists at location,	otherwise top level claim if one exists at location, 
 	 * 			otherwise returns null
 	 */
-	// this may be replaced by a more efficient method in the future, likely using a claim-chunk cache
 	final Claim fetchClaimAt(final Location location, final boolean ignoreHeight) {
+		return fetchClaimAt(location.getWorld(),
+				location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight);
+	}
+
+	
+	/**
+	 * Retrieve a claim by block coordinates
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param ignoreHeight
+	 * @return  subclaim if one exists at coordinates, otherwise top level claim if one exists at coordinates,
+	 * 			otherwise returns null
+	 */
+	final Claim fetchClaimAt(final World world, final int x, final int y, final int z,
+			final boolean ignoreHeight) {
 		
 		Claim returnClaim = null;
 		
-		// iterate through all claims in cache and check for location match
-		for (Claim claim : fetchAllClaims()) {
+		// iterate through claims indexed in the chunk containing coordinates and check for match
+		for (Integer claimKey : claimChunkIndex.fetchClaimKeys(world, x, z)) {
 			
-			// if claim contains location, set return claim
-			if (claim.contains(location, ignoreHeight)) {
+			final Claim claim = claimMap.get(claimKey);
+			
+			// if claim contains coordinates, set return claim
+			if (claim != null && claim.contains(world, x, y, z, ignoreHeight)) {
 				returnClaim = claim;
 				
 				// if claim is subclaim, stop searching
@@ -103,21 +220,64 @@ final class ClaimCache {
 	 * @param location
 	 * @return top level claim if one exists at location, otherwise null
 	 */
-	// this may be replaced by a more efficient method in the future, likely using a claim-chunk cache
 	final Claim fetchTopClaimAt(final Location location, final boolean ignoreHeight) {
+		return fetchTopClaimAt(location.getWorld(),
+				location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight);
+	}
+
+	
+	/**
+	 * Retrieve a top level claim by block coordinates
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param ignoreHeight
+	 * @return top level claim if one exists at coordinates, otherwise null
+	 */
+	final Claim fetchTopClaimAt(final World world, final int x, final int y, final int z,
+			final boolean ignoreHeight) {
 		
-		Claim returnClaim = null;
+		// iterate through claims indexed in the chunk containing coordinates and check for match
+		for (Integer claimKey : claimChunkIndex.fetchClaimKeys(world, x, z)) {
+			
+			final Claim claim = claimMap.get(claimKey);
+			
+			// if claim contains coordinates and is not a subclaim, return claim
+			if (claim != null && !claim.isSubClaim() && claim.contains(world, x, y, z, ignoreHeight)) {
+				return claim;
+			}
+		}
+		return null;
+	}
+
+	
+	/**
+	 * Retrieve all top level claims that intersect a rectangle in two dimensions
+	 * @param world
+	 * @param x1
+	 * @param z1
+	 * @param x2
+	 * @param z2
+	 * @return unmodifiable set of intersecting top level claims, or empty set if none found
+	 */
+	final Set<Claim> fetchTopClaimsIntersecting(final World world,
+			final int x1, final int z1, final int x2, final int z2) {
 		
-		// iterate through all claims in cache and check for location match
-		for (Claim claim : fetchAllClaims()) {
+		// create empty HashSet for return
+		final Set<Claim> returnSet = new HashSet<Claim>();
+		
+		// test each candidate claim from chunk index for intersection
+		for (Integer claimKey : claimChunkIndex.fetchClaimKeys(world, x1, z1, x2, z2)) {
 			
-			// if claim contains location and is not a subclaim, set return claim and stop searching
-			if (claim.contains(location, ignoreHeight) && !claim.isSubClaim()) {
-				returnClaim = claim;
-				break;
+			final Claim claim = claimMap.get(claimKey);
+			
+			// if claim is a top level claim that intersects rectangle, add to return set
+			if (claim != null && !claim.isSubClaim() && claim.intersects(world, x1, z1, x2, z2)) {
+				returnSet.add(claim);
 			}
 		}
-		return returnClaim;
+		return Collections.unmodifiableSet(returnSet);
 	}
 
 	
@@ -151,8 +311,14 @@ final class ClaimCache {
 			return Collections.emptySet();
 		}
 		
+		// get claim keys for owner uuid; if none, return empty set
+		final Set<Integer> claimKeys = claimOwnerIndex.get(ownerUUID);
+		if (claimKeys == null) {
+			return Collections.emptySet();
+		}
+		
 		// return unmodifiable set of claim keys for owner uuid
-		return Collections.unmodifiableSet(claimOwnerIndex.get(ownerUUID));
+		return Collections.unmodifiableSet(claimKeys);
 	}
 	
 	
@@ -189,10 +355,36 @@ final class ClaimCache {
 	}
 
 
+	/**
+	 * Retrieve child claim keys of a claim
+	 * @param claimKey
+	 * @return unmodifiable view of child claim keys, or empty set if claim has no children
+	 */
+	final Set<Integer> fetchChildKeys(final Integer claimKey) {
+		
+		// if claim key is null, return empty Set
+		if (claimKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not fetch child keys for null claim key.");
+			}
+			return Collections.emptySet();
+		}
+		
+		// get child keys from index
+		final Set<Integer> childKeys = childIndex.get(claimKey);
+		
+		// if no index entry for claim key, return empty set
+		if (childKeys == null || childKeys.isEmpty()) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(childKeys);
+	}
+	
+	
 	/**
 	 * Retrieve a set of all child claims
 	 * @param claimKey
-	 * @return
+	 * @return unmodifiable view of child claims, or empty set if claim has no children
 	 */
 	final Set<Claim> fetchChildClaims(final Integer claimKey) {
 		
@@ -204,16 +396,14 @@ final class ClaimCache {
 			return Collections.emptySet();
 		}
 
-		// create new HashSet for return
-		HashSet<Claim> returnSet = new HashSet<Claim>();
+		// get child keys from index
+		final Set<Integer> childKeys = childIndex.get(claimKey);
 		
-		// iterate over all claims and add to return set if parent key matches parameter claimKey
-		for (Claim claim : fetchAllClaims()) {
-			if (claim.getParentKey().equals(claimKey)) {
-				returnSet.add(claim);
-			}
+		// if no index entry for claim key, return empty set
+		if (childKeys == null || childKeys.isEmpty()) {
+			return Collections.emptySet();
 		}
-		return Collections.unmodifiableSet(returnSet);
+		return new ChildClaimSet(childKeys);
 	}
 	
 	
@@ -235,8 +425,15 @@ final class ClaimCache {
 		// insert claim in claim map by claim key
 		claimMap.put(claimKey, claim);
 		
-		// if ownerUUID is null, do not index
+		// insert or refresh claim in chunk index, in case claim boundaries have changed
+		claimChunkIndex.index(claim);
+		
+		// insert or refresh claim in child index, in case claim parent has changed
+		indexParent(claim);
+		
+		// if ownerUUID is null, remove any previous owner index entry and do not index
 		if (ownerUUID == null) {
+			unindexOwner(claimKey);
 			if (plugin.debug) {
 				plugin.getLogger().info("Could not index ownerUUID for claim " 
 						+ claimKey + " because ownerUUID is null.");
@@ -244,18 +441,69 @@ final class ClaimCache {
 			return;
 		}
 		
-		// remove claim key from all index entries, in case claim owner has changed
-		for (UUID playerUUID : claimOwnerIndex.keySet()) {
-			claimOwnerIndex.get(playerUUID).remove(claimKey);
+		// insert or refresh claim in owner index, in case claim owner has changed
+		indexOwner(claimKey, ownerUUID);
+	}
+	
+	
+	/**
+	 * Insert claims into the cache in bulk<br>
+	 * If the cache is empty, owner and child indexes are built per owner and parent
+	 * instead of per claim; otherwise each claim is stored individually
+	 * @param claims
+	 */
+	final void storeAll(final Collection<Claim> claims) {
+		
+		// if cache already holds claims, store each claim so existing index entries are replaced
+		if (!claimMap.isEmpty()) {
+			for (Claim claim : claims) {
+				store(claim);
+			}
+			return;
 		}
 		
-		// if claim owner index does not contain owner UUID, create empty set
-		if (!claimOwnerIndex.containsKey(ownerUUID)) { 
-			claimOwnerIndex.put(ownerUUID,new HashSet<Integer>());
+		// group claim keys by owner and by parent
+		final Map<UUID,Set<Integer>> ownerKeys = new HashMap<UUID,Set<Integer>>();
+		final Map<Integer,Set<Integer>> parentKeys = new HashMap<Integer,Set<Integer>>();
+		
+		for (Claim claim : claims) {
+			
+			final Integer claimKey = claim.getKey();
+			
+			// if claimKey is null, do not store in cache
+			if (claimKey == null) {
+				plugin.getLogger().warning("Could not store claim in cache because "
+						+ "claim key is null.");
+				continue;
+			}
+			
+			claimMap.put(claimKey, claim);
+			claimChunkIndex.index(claim);
+			
+			if (claim.getOwnerUUID() != null) {
+				Set<Integer> keys = ownerKeys.get(claim.getOwnerUUID());
+				if (keys == null) {
+					keys = ConcurrentHashMap.<Integer>newKeySet();
+					ownerKeys.put(claim.getOwnerUUID(), keys);
+				}
+				keys.add(claimKey);
+				claimKeyOwnerIndex.put(claimKey, claim.getOwnerUUID());
+			}
+			
+			if (claim.isSubClaim()) {
+				Set<Integer> keys = parentKeys.get(claim.getParentKey());
+				if (keys == null) {
+					keys = ConcurrentHashMap.<Integer>newKeySet();
+					parentKeys.put(claim.getParentKey(), keys);
+				}
+				keys.add(claimKey);
+				claimParentIndex.put(claimKey, claim.getParentKey());
+			}
 		}
 		
-		// insert claim key into index by owner UUID
-		claimOwnerIndex.get(ownerUUID).add(claimKey);
+		// publish owner and child index entries
+		claimOwnerIndex.putAll(ownerKeys);
+		childIndex.putAll(parentKeys);
 	}
 	
 	
@@ -266,19 +514,121 @@ final class ClaimCache {
 	 */
 	final void flush(final Integer claimKey) {
 		
-		// get claim
-		final Claim claim = fetch(claimKey);
-
-		// get the owner uuid of the claim
-		final UUID ownerUUID = claim.getOwnerUUID();
-
 		// remove the claim from the owner index
-		claimOwnerIndex.get(ownerUUID).remove(claimKey);
+		unindexOwner(claimKey);
+		
+		// remove the claim from the chunk index
+		claimChunkIndex.remove(claimKey);
+		
+		// remove the claim from its parent's child index entry
+		unindexParent(claimKey);
+		
+		// remove the claim's own child index entry
+		childIndex.remove(claimKey);
 		
 		// remove the claim from the claim map
 		claimMap.remove(claimKey);
 	}
 
+	/**
+	 * Insert claim key in owner index entry of its owner,
+	 * removing it from the entry of any previous owner
+	 * @param claimKey
+	 * @param ownerUUID
+	 */
+	private void indexOwner(final Integer claimKey, final UUID ownerUUID) {
+		
+		// if claim is already indexed under same owner, do nothing and return
+		final UUID indexedOwnerUUID = claimKeyOwnerIndex.get(claimKey);
+		if (ownerUUID.equals(indexedOwnerUUID)) {
+			return;
+		}
+		
+		// remove claim key from previous owner entry
+		unindexOwner(claimKey);
+		
+		// insert claim key in owner entry, creating entry if necessary
+		Set<Integer> claimKeys = claimOwnerIndex.get(ownerUUID);
+		if (claimKeys == null) {
+			claimOwnerIndex.putIfAbsent(ownerUUID, ConcurrentHashMap.<Integer>newKeySet());
+			claimKeys = claimOwnerIndex.get(ownerUUID);
+		}
+		claimKeys.add(claimKey);
+		claimKeyOwnerIndex.put(claimKey, ownerUUID);
+	}
+	
+	
+	/**
+	 * Remove claim key from owner index entry of the owner it is indexed under
+	 * @param claimKey
+	 */
+	private void unindexOwner(final Integer claimKey) {
+		
+		final UUID ownerUUID = claimKeyOwnerIndex.remove(claimKey);
+		
+		if (ownerUUID != null) {
+			final Set<Integer> claimKeys = claimOwnerIndex.get(ownerUUID);
+			if (claimKeys != null) {
+				claimKeys.remove(claimKey);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Insert claim key in child index entry of its parent claim,
+	 * removing it from the entry of any previous parent
+	 * @param claim
+	 */
+	private void indexParent(final Claim claim) {
+		
+		final Integer claimKey = claim.getKey();
+		
+		// get parent key; top level claims are not indexed
+		final Integer parentKey = claim.isSubClaim() ? claim.getParentKey() : null;
+		
+		// if claim is already indexed under same parent, do nothing and return
+		final Integer indexedParentKey = claimParentIndex.get(claimKey);
+		if (indexedParentKey != null && indexedParentKey.equals(parentKey)) {
+			return;
+		}
+		
+		// remove claim key from previous parent entry
+		unindexParent(claimKey);
+		
+		// if claim is not a subclaim, do not index
+		if (parentKey == null) {
+			return;
+		}
+		
+		// insert claim key in parent entry, creating entry if necessary
+		Set<Integer> childKeys = childIndex.get(parentKey);
+		if (childKeys == null) {
+			childIndex.putIfAbsent(parentKey, ConcurrentHashMap.<Integer>newKeySet());
+			childKeys = childIndex.get(parentKey);
+		}
+		childKeys.add(claimKey);
+		claimParentIndex.put(claimKey, parentKey);
+	}
+	
+	
+	/**
+	 * Remove claim key from child index entry of the parent claim it is indexed under
+	 * @param claimKey
+	 */
+	private void unindexParent(final Integer claimKey) {
+		
+		final Integer parentKey = claimParentIndex.remove(claimKey);
+		
+		if (parentKey != null) {
+			final Set<Integer> childKeys = childIndex.get(parentKey);
+			if (childKeys != null) {
+				childKeys.remove(claimKey);
+			}
+		}
+	}
+	
+
 	/**
 	 * Get number of claims stored in cache
 	 * @return
@@ -299,6 +649,22 @@ final class ClaimCache {
 	}
 	
 	
+	/**
+	 * Get uuids of players who own at least one claim, excluding admin claims
+	 * @return new set of owner uuids
+	 */
+	final Set<UUID> fetchOwnerUUIDs() {
+		
+		final Set<UUID> ownerUUIDs = new HashSet<UUID>();
+		for (Map.Entry<UUID,Set<Integer>> entry : claimOwnerIndex.entrySet()) {
+			if (!entry.getValue().isEmpty() && !entry.getKey().equals(DataStore.zeroUUID)) {
+				ownerUUIDs.add(entry.getKey());
+			}
+		}
+		return ownerUUIDs;
+	}
+	
+	
 	/**
 	 * Get claim owner index keys
 	 * @return unmodifiable set of UUID claim owner index keys
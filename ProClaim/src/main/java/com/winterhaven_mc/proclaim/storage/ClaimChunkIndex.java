@@ -0,0 +1,288 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.World;
+
+
+/**
+ * Spatial index of claim keys by world and chunk coordinates.<br>
+ * Each claim key is indexed in every chunk its boundaries touch, so a lookup by location
+ * only needs to test the claims that cover the chunk containing that location.
+ */
+final class ClaimChunkIndex {
+
+	// number of bits to shift a block coordinate to get its chunk coordinate
+	private static final int CHUNK_SHIFT = 4;
+
+	// index of claim keys by world uid and packed chunk coordinates
+	private final ConcurrentHashMap<UUID,ConcurrentHashMap<Long,Set<Integer>>> worldIndex;
+
+	// chunk bounds each claim key is currently indexed under, used to remove stale index entries
+	private final ConcurrentHashMap<Integer,IndexedBounds> indexedBounds;
+
+	// keys of all indexed claims by world uid, used when a query rectangle spans more chunks than claims
+	private final ConcurrentHashMap<UUID,Set<Integer>> worldClaimKeys;
+
+	// bitmap of chunks touched by any claim, checked before the chunk index for unclaimed locations
+	private final ClaimedChunkBitmap claimedChunks;
+
+
+	/**
+	 * Private class that records the chunk range a claim was indexed under
+	 */
+	private static final class IndexedBounds {
+
+		private final UUID worldUID;
+		private final int minChunkX;
+		private final int minChunkZ;
+		private final int maxChunkX;
+		private final int maxChunkZ;
+
+		IndexedBounds(final UUID worldUID, final int minChunkX, final int minChunkZ,
+				final int maxChunkX, final int maxChunkZ) {
+
+			this.worldUID = worldUID;
+			this.minChunkX = minChunkX;
+			this.minChunkZ = minChunkZ;
+			this.maxChunkX = maxChunkX;
+			this.maxChunkZ = maxChunkZ;
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 */
+	ClaimChunkIndex() {
+
+		// initialize world index
+		worldIndex = new ConcurrentHashMap<UUID,ConcurrentHashMap<Long,Set<Integer>>>();
+
+		// initialize indexed bounds map
+		indexedBounds = new ConcurrentHashMap<Integer,IndexedBounds>();
+
+		// initialize world claim keys map
+		worldClaimKeys = new ConcurrentHashMap<UUID,Set<Integer>>();
+
+		// initialize claimed chunk bitmap
+		claimedChunks = new ClaimedChunkBitmap();
+	}
+
+
+	/**
+	 * Insert or refresh index entries for a claim.<br>
+	 * Any entries from a previous indexing of the same claim key are removed first,
+	 * so this method is also used when a claim has been resized.
+	 * Index updates are synchronized so the claimed chunk bitmap stays consistent with the chunk index.
+	 * @param claim
+	 */
+	final synchronized void index(final Claim claim) {
+
+		final Integer claimKey = claim.getKey();
+
+		// if claim key is null, do not index
+		if (claimKey == null) {
+			return;
+		}
+
+		// remove any existing index entries for claim key
+		remove(claimKey);
+
+		// if claim has no world or boundaries, do not index;
+		// world uid is used so claims in worlds that are not loaded yet are indexed too
+		final UUID worldUID = ClaimWorlds.getWorldUID(claim.getWorldId());
+		if (worldUID == null || !claim.hasBounds()) {
+			return;
+		}
+
+		final IndexedBounds bounds = new IndexedBounds(worldUID,
+				claim.getLowerX() >> CHUNK_SHIFT,
+				claim.getLowerZ() >> CHUNK_SHIFT,
+				claim.getUpperX() >> CHUNK_SHIFT,
+				claim.getUpperZ() >> CHUNK_SHIFT);
+
+		// get chunk map for world, creating it if necessary
+		ConcurrentHashMap<Long,Set<Integer>> chunkMap = worldIndex.get(bounds.worldUID);
+		if (chunkMap == null) {
+			worldIndex.putIfAbsent(bounds.worldUID, new ConcurrentHashMap<Long,Set<Integer>>());
+			chunkMap = worldIndex.get(bounds.worldUID);
+		}
+
+		// insert claim key in every chunk covered by claim
+		for (int chunkX = bounds.minChunkX; chunkX <= bounds.maxChunkX; chunkX++) {
+			for (int chunkZ = bounds.minChunkZ; chunkZ <= bounds.maxChunkZ; chunkZ++) {
+
+				final Long chunkKey = chunkKey(chunkX, chunkZ);
+
+				Set<Integer> claimKeys = chunkMap.get(chunkKey);
+				if (claimKeys == null) {
+					chunkMap.putIfAbsent(chunkKey, ConcurrentHashMap.<Integer>newKeySet());
+					claimKeys = chunkMap.get(chunkKey);
+					claimedChunks.set(bounds.worldUID, chunkX, chunkZ);
+				}
+				claimKeys.add(claimKey);
+			}
+		}
+
+		// insert claim key in world claim keys set
+		Set<Integer> worldKeys = worldClaimKeys.get(bounds.worldUID);
+		if (worldKeys == null) {
+			worldClaimKeys.putIfAbsent(bounds.worldUID, ConcurrentHashMap.<Integer>newKeySet());
+			worldKeys = worldClaimKeys.get(bounds.worldUID);
+		}
+		worldKeys.add(claimKey);
+
+		// record bounds claim key was indexed under
+		indexedBounds.put(claimKey, bounds);
+	}
+
+
+	/**
+	 * Remove all index entries for a claim key
+	 * @param claimKey
+	 */
+	final synchronized void remove(final Integer claimKey) {
+
+		// if claim key is null, do nothing and return
+		if (claimKey == null) {
+			return;
+		}
+
+		// get bounds claim key was indexed under; if none, do nothing and return
+		final IndexedBounds bounds = indexedBounds.remove(claimKey);
+		if (bounds == null) {
+			return;
+		}
+
+		// remove claim key from world claim keys set
+		final Set<Integer> worldKeys = worldClaimKeys.get(bounds.worldUID);
+		if (worldKeys != null) {
+			worldKeys.remove(claimKey);
+		}
+
+		final ConcurrentHashMap<Long,Set<Integer>> chunkMap = worldIndex.get(bounds.worldUID);
+		if (chunkMap == null) {
+			return;
+		}
+
+		// remove claim key from every chunk it was indexed in, dropping chunk entries left empty
+		for (int chunkX = bounds.minChunkX; chunkX <= bounds.maxChunkX; chunkX++) {
+			for (int chunkZ = bounds.minChunkZ; chunkZ <= bounds.maxChunkZ; chunkZ++) {
+
+				final Long chunkKey = chunkKey(chunkX, chunkZ);
+
+				final Set<Integer> claimKeys = chunkMap.get(chunkKey);
+				if (claimKeys != null) {
+					claimKeys.remove(claimKey);
+					if (claimKeys.isEmpty()) {
+						chunkMap.remove(chunkKey, claimKeys);
+						claimedChunks.clear(bounds.worldUID, chunkX, chunkZ);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Get keys of all claims that cover the chunk containing a block location
+	 * @param world
+	 * @param blockX
+	 * @param blockZ
+	 * @return unmodifiable set of claim keys, or empty set if no claims cover the chunk
+	 */
+	final Set<Integer> fetchClaimKeys(final World world, final int blockX, final int blockZ) {
+
+		// if world is null, return empty set
+		if (world == null) {
+			return Collections.emptySet();
+		}
+
+		final int chunkX = blockX >> CHUNK_SHIFT;
+		final int chunkZ = blockZ >> CHUNK_SHIFT;
+
+		// if no claim touches chunk, return empty set without consulting chunk index
+		if (!claimedChunks.isSet(world.getUID(), chunkX, chunkZ)) {
+			return Collections.emptySet();
+		}
+
+		final ConcurrentHashMap<Long,Set<Integer>> chunkMap = worldIndex.get(world.getUID());
+		if (chunkMap == null) {
+			return Collections.emptySet();
+		}
+
+		final Set<Integer> claimKeys = chunkMap.get(chunkKey(chunkX, chunkZ));
+		if (claimKeys == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(claimKeys);
+	}
+
+
+	/**
+	 * Get keys of all claims that cover any chunk touched by a rectangle of block coordinates.<br>
+	 * The returned keys are candidates only; callers must still test each claim for intersection.
+	 * If the rectangle spans more chunks than there are claims in the world, all claim keys
+	 * in the world are returned instead of walking every chunk.
+	 * @param world
+	 * @param minX
+	 * @param minZ
+	 * @param maxX
+	 * @param maxZ
+	 * @return set of candidate claim keys, or empty set if no claims are indexed in range
+	 */
+	final Set<Integer> fetchClaimKeys(final World world,
+			final int minX, final int minZ, final int maxX, final int maxZ) {
+
+		// if world is null, return empty set
+		if (world == null) {
+			return Collections.emptySet();
+		}
+
+		final ConcurrentHashMap<Long,Set<Integer>> chunkMap = worldIndex.get(world.getUID());
+		final Set<Integer> worldKeys = worldClaimKeys.get(world.getUID());
+		if (chunkMap == null || worldKeys == null || worldKeys.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		final int minChunkX = Math.min(minX, maxX) >> CHUNK_SHIFT;
+		final int maxChunkX = Math.max(minX, maxX) >> CHUNK_SHIFT;
+		final int minChunkZ = Math.min(minZ, maxZ) >> CHUNK_SHIFT;
+		final int maxChunkZ = Math.max(minZ, maxZ) >> CHUNK_SHIFT;
+
+		// if rectangle spans more chunks than claims in world, return all claim keys in world
+		final long chunkCount = ((long) maxChunkX - minChunkX + 1) * ((long) maxChunkZ - minChunkZ + 1);
+		if (chunkCount > worldKeys.size()) {
+			return new HashSet<Integer>(worldKeys);
+		}
+
+		// collect claim keys from every chunk touched by rectangle
+		final Set<Integer> returnSet = new HashSet<Integer>();
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				final Set<Integer> chunkClaimKeys = chunkMap.get(chunkKey(chunkX, chunkZ));
+				if (chunkClaimKeys != null) {
+					returnSet.addAll(chunkClaimKeys);
+				}
+			}
+		}
+		return returnSet;
+	}
+
+
+	/**
+	 * Pack chunk coordinates into a single long map key
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return packed chunk key
+	 */
+	private static long chunkKey(final int chunkX, final int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+}
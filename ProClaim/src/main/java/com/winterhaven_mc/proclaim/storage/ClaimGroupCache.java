@@ -1,5 +1,6 @@
 package com.winterhaven_mc.proclaim.storage;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
@@ -95,6 +96,35 @@ final class ClaimGroupCache {
 	}
 	
 
+	/**
+	 * Insert claim groups into the cache in bulk<br>
+	 * If the cache is empty, the name index is built without searching for previous names;
+	 * otherwise each claim group is stored individually
+	 * @param claimGroups
+	 */
+	final void storeAll(final Collection<ClaimGroup> claimGroups) {
+		
+		// if cache already holds claim groups, store each one so renamed groups are reindexed
+		if (!claimGroupMap.isEmpty()) {
+			for (ClaimGroup claimGroup : claimGroups) {
+				store(claimGroup);
+			}
+			return;
+		}
+		
+		for (ClaimGroup claimGroup : claimGroups) {
+			
+			// if key or name is missing, let store log the error and skip claim group
+			if (claimGroup.getKey() == null || claimGroup.getName() == null || claimGroup.getName().isEmpty()) {
+				store(claimGroup);
+				continue;
+			}
+			claimGroupMap.put(claimGroup.getKey(), claimGroup);
+			claimGroupNameIndex.put(claimGroup.getName().toLowerCase(), claimGroup.getKey());
+		}
+	}
+	
+	
 	/**
 	 * Insert a claim group into the cache
 	 * @param claimGroup
@@ -138,14 +168,13 @@ final class ClaimGroupCache {
 	 */
 	final void flush(final Integer claimGroupKey) {
 
-		// get claim group name
-		final String claimGroupName = plugin.dataStore.getClaimGroup(claimGroupKey).getName();
-		
-		// remove the claim from the claim map
-		claimGroupMap.remove(claimGroupKey);
+		// remove the claim group from the claim group map
+		final ClaimGroup claimGroup = claimGroupMap.remove(claimGroupKey);
 		
-		// remove the claim from the name index
-		claimGroupNameIndex.remove(claimGroupName);
+		// remove the claim group from the name index, which is keyed by lower case name
+		if (claimGroup != null && claimGroup.getName() != null) {
+			claimGroupNameIndex.remove(claimGroup.getName().toLowerCase());
+		}
 	}
 
 
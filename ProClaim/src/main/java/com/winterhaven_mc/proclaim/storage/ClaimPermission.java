@@ -1,5 +1,6 @@
 package com.winterhaven_mc.proclaim.storage;
 
+import java.util.Objects;
 import java.util.UUID;
 
 import com.winterhaven_mc.proclaim.PluginMain;
@@ -8,6 +9,15 @@ import com.winterhaven_mc.proclaim.objects.PermissionLevel;
 public final class ClaimPermission {
 
 	private final static PluginMain plugin = PluginMain.instance;
+
+	// persisted fields, as bits of the dirty field mask
+	static final int CLAIM = 1;
+	static final int PLAYER = 2;
+	static final int LEVEL = 4;
+
+	// persisted fields changed since last read from or written to the datastore
+	private final DirtyFields dirtyFields = new DirtyFields();
+
 	private Integer permissionRecordKey;
 	private Integer claimKey;
 	private UUID playerUUID;
@@ -46,7 +56,10 @@ public final class ClaimPermission {
 	}
 	
 	public final void setClaimKey(final Integer claimKey) {
-		this.claimKey = claimKey;
+		if (!Objects.equals(this.claimKey, claimKey)) {
+			this.claimKey = claimKey;
+			markDirty(CLAIM);
+		}
 	}
 
 	public final UUID getPlayerUUID() {
@@ -54,7 +67,10 @@ public final class ClaimPermission {
 	}
 
 	public final void setPlayerUUID(final UUID playerUUID) {
-		this.playerUUID = playerUUID;
+		if (!Objects.equals(this.playerUUID, playerUUID)) {
+			this.playerUUID = playerUUID;
+			markDirty(PLAYER);
+		}
 	}
 
 	public final PermissionLevel getPermissionLevel() {
@@ -62,7 +78,10 @@ public final class ClaimPermission {
 	}
 
 	public final void setPermissionLevel(final PermissionLevel permissionLevel) {
-		this.permissionLevel = permissionLevel;
+		if (this.permissionLevel != permissionLevel) {
+			this.permissionLevel = permissionLevel;
+			markDirty(LEVEL);
+		}
 	}
 	
 	public final PermissionLevel addGrant() {
@@ -78,6 +97,37 @@ public final class ClaimPermission {
 		return this.getPermissionLevel().allows(permissionLevel);
 	}
 	
+	/**
+	 * Test if any persisted field changed since the permission was last read from or written to the datastore
+	 * @return true if permission needs to be written
+	 */
+	public final boolean isDirty() {
+		return dirtyFields.isDirty();
+	}
+	
+	/**
+	 * Mark persisted fields as changed
+	 * @param fields bits of changed fields
+	 */
+	final void markDirty(final int fields) {
+		dirtyFields.mark(fields);
+	}
+	
+	/**
+	 * Mark all persisted fields as matching the datastore
+	 */
+	final void markClean() {
+		dirtyFields.clear();
+	}
+	
+	/**
+	 * Get changed fields and mark them as matching the datastore, as they are about to be written
+	 * @return bits of changed fields
+	 */
+	final int takeDirtyFields() {
+		return dirtyFields.take();
+	}
+	
 	/**
 	 * Insert a new claim permission record in the datastore
 	 */
@@ -86,7 +136,8 @@ public final class ClaimPermission {
 	}
 	
 	/**
-	 * Update an existing claim permission record in the datastore
+	 * Update an existing claim permission record in the datastore<br>
+	 * Nothing is written if no persisted field changed
 	 */
 	public final void update() {
 		plugin.dataStore.updateClaimPermission(this);
@@ -0,0 +1,119 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bukkit.World;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Registry of interned world ids used by claims to store their world as a primitive int.<br>
+ * Ids are assigned the first time a world is seen and remain valid for the life of the server,
+ * so claims do not hold references to World objects that may be unloaded.
+ */
+final class ClaimWorlds {
+
+	// static reference to main class
+	private final static PluginMain plugin = PluginMain.instance;
+
+	// id for claims that have no world
+	static final int NO_WORLD = -1;
+
+	// map of world uid to interned id
+	private static final ConcurrentHashMap<UUID,Integer> idMap = new ConcurrentHashMap<UUID,Integer>();
+
+	// list of world uids indexed by interned id
+	private static final CopyOnWriteArrayList<UUID> uidList = new CopyOnWriteArrayList<UUID>();
+
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private ClaimWorlds() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Get interned id for a world, assigning a new id if world has not been seen before
+	 * @param world
+	 * @return interned world id, or NO_WORLD if world is null
+	 */
+	static int intern(final World world) {
+
+		// if world is null, return no world id
+		if (world == null) {
+			return NO_WORLD;
+		}
+
+		final UUID worldUID = world.getUID();
+
+		// if world already has an id, return it
+		final Integer worldId = idMap.get(worldUID);
+		if (worldId != null) {
+			return worldId;
+		}
+
+		// assign next id under lock so list index and map entry stay consistent
+		synchronized (uidList) {
+			final Integer existingId = idMap.get(worldUID);
+			if (existingId != null) {
+				return existingId;
+			}
+			uidList.add(worldUID);
+			final int newId = uidList.size() - 1;
+			idMap.put(worldUID, newId);
+			return newId;
+		}
+	}
+
+
+	/**
+	 * Get world for an interned id
+	 * @param worldId
+	 * @return World object, or null if id is not assigned or world is not loaded
+	 */
+	static World getWorld(final int worldId) {
+
+		// if id is out of range, return null
+		if (worldId < 0 || worldId >= uidList.size()) {
+			return null;
+		}
+		return plugin.getServer().getWorld(uidList.get(worldId));
+	}
+
+
+	/**
+	 * Get world uid for an interned id, whether or not the world is loaded
+	 * @param worldId
+	 * @return world uid, or null if id is not assigned
+	 */
+	static UUID getWorldUID(final int worldId) {
+
+		// if id is out of range, return null
+		if (worldId < 0 || worldId >= uidList.size()) {
+			return null;
+		}
+		return uidList.get(worldId);
+	}
+
+
+	/**
+	 * Test if an interned id refers to a world
+	 * @param worldId
+	 * @param world
+	 * @return true if id was interned for world, false if not or if world is null
+	 */
+	static boolean isWorld(final int worldId, final World world) {
+
+		// if world is null or id is out of range, return false
+		if (world == null || worldId < 0 || worldId >= uidList.size()) {
+			return false;
+		}
+		return uidList.get(worldId).equals(world.getUID());
+	}
+
+}
@@ -0,0 +1,266 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Per world bitmap of chunks touched by at least one claim.<br>
+ * Chunks are grouped in regions of 32 x 32 chunks, each stored as 1024 bits, so testing
+ * an unclaimed location costs a region lookup and a single bit test.
+ * Regions are found in an open addressing table keyed by primitive region coordinates,
+ * so a lookup does not box its key. Regions with no claimed chunks are not stored.
+ * Calls to set and clear must be serialized by the caller; isSet may be called from any thread.
+ */
+final class ClaimedChunkBitmap {
+
+	// number of bits to shift a chunk coordinate to get its region coordinate
+	private static final int REGION_SHIFT = 5;
+
+	// mask for chunk coordinate within region
+	private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+	// number of long words needed for one bit per chunk in a region
+	private static final int REGION_WORDS = (1 << (REGION_SHIFT * 2)) / Long.SIZE;
+
+	// initial number of slots in a region table
+	private static final int INITIAL_CAPACITY = 16;
+
+	// map of region tables by world uid
+	private final ConcurrentHashMap<UUID,RegionTable> worldRegions;
+
+
+	/**
+	 * Private class that holds the region bitmaps of one world in an open addressing table.<br>
+	 * A slot is in use when its region is not null. A key is written before its region is published,
+	 * so a reader that sees a region also sees its key. Slots are only filled in place; a table is
+	 * replaced by a copy when it grows or when a region is removed, so probe sequences seen by
+	 * concurrent readers are never broken.
+	 */
+	private static final class RegionTable {
+
+		private final long[] keys;
+		private final AtomicReferenceArray<AtomicLongArray> regions;
+		private final int mask;
+
+		// number of slots in use; only used by the writing thread
+		private int size;
+
+		RegionTable(final int capacity) {
+			this.keys = new long[capacity];
+			this.regions = new AtomicReferenceArray<AtomicLongArray>(capacity);
+			this.mask = capacity - 1;
+		}
+
+		/**
+		 * Get region bitmap for a region key
+		 * @param regionKey
+		 * @return region bitmap, or null if region has no claimed chunks
+		 */
+		final AtomicLongArray get(final long regionKey) {
+			int slot = slot(regionKey, mask);
+			while (true) {
+				final AtomicLongArray region = regions.get(slot);
+				if (region == null) {
+					return null;
+				}
+				if (keys[slot] == regionKey) {
+					return region;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		/**
+		 * Test if another region can be inserted without exceeding half the table capacity
+		 * @return true if table has room for another region
+		 */
+		final boolean hasRoom() {
+			return (size + 1) * 2 <= keys.length;
+		}
+
+		/**
+		 * Insert a region bitmap for a region key not yet in the table
+		 * @param regionKey
+		 * @param region
+		 */
+		final void insert(final long regionKey, final AtomicLongArray region) {
+			int slot = slot(regionKey, mask);
+			while (regions.get(slot) != null) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = regionKey;
+			regions.set(slot, region);
+			size++;
+		}
+
+		/**
+		 * Copy table into a new table, leaving out one region
+		 * @param capacity capacity of new table, a power of two
+		 * @param excluded region to leave out, or null to copy all regions
+		 * @return new table
+		 */
+		final RegionTable copy(final int capacity, final AtomicLongArray excluded) {
+			final RegionTable table = new RegionTable(capacity);
+			for (int slot = 0; slot < keys.length; slot++) {
+				final AtomicLongArray region = regions.get(slot);
+				if (region != null && region != excluded) {
+					table.insert(keys[slot], region);
+				}
+			}
+			return table;
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 */
+	ClaimedChunkBitmap() {
+
+		// initialize world regions map
+		worldRegions = new ConcurrentHashMap<UUID,RegionTable>();
+	}
+
+
+	/**
+	 * Mark a chunk as claimed
+	 * @param worldUID
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	final void set(final UUID worldUID, final int chunkX, final int chunkZ) {
+
+		// get region table for world, creating it if necessary
+		RegionTable table = worldRegions.get(worldUID);
+		if (table == null) {
+			table = new RegionTable(INITIAL_CAPACITY);
+			worldRegions.put(worldUID, table);
+		}
+
+		// get region bitmap, creating it if necessary
+		final long regionKey = regionKey(chunkX, chunkZ);
+		AtomicLongArray region = table.get(regionKey);
+		if (region == null) {
+			region = new AtomicLongArray(REGION_WORDS);
+
+			// if table is half full, replace it with a table of twice the capacity
+			if (!table.hasRoom()) {
+				table = table.copy(table.keys.length * 2, null);
+				table.insert(regionKey, region);
+				worldRegions.put(worldUID, table);
+			}
+			else {
+				table.insert(regionKey, region);
+			}
+		}
+
+		// set chunk bit
+		final int bit = bitIndex(chunkX, chunkZ);
+		final int word = bit >>> 6;
+		region.set(word, region.get(word) | (1L << bit));
+	}
+
+
+	/**
+	 * Mark a chunk as unclaimed, removing its region bitmap if no claimed chunks remain in it
+	 * @param worldUID
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	final void clear(final UUID worldUID, final int chunkX, final int chunkZ) {
+
+		final RegionTable table = worldRegions.get(worldUID);
+		if (table == null) {
+			return;
+		}
+
+		final AtomicLongArray region = table.get(regionKey(chunkX, chunkZ));
+		if (region == null) {
+			return;
+		}
+
+		// clear chunk bit
+		final int bit = bitIndex(chunkX, chunkZ);
+		final int word = bit >>> 6;
+		region.set(word, region.get(word) & ~(1L << bit));
+
+		// if any chunk in region is still claimed, keep region
+		for (int i = 0; i < REGION_WORDS; i++) {
+			if (region.get(i) != 0) {
+				return;
+			}
+		}
+
+		// replace table with a copy that leaves out the empty region, or remove table if it was the last
+		if (table.size == 1) {
+			worldRegions.remove(worldUID, table);
+		}
+		else {
+			worldRegions.put(worldUID, table.copy(table.keys.length, region));
+		}
+	}
+
+
+	/**
+	 * Test if a chunk is touched by any claim
+	 * @param worldUID
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return true if chunk is marked as claimed, false if not
+	 */
+	final boolean isSet(final UUID worldUID, final int chunkX, final int chunkZ) {
+
+		final RegionTable table = worldRegions.get(worldUID);
+		if (table == null) {
+			return false;
+		}
+
+		final AtomicLongArray region = table.get(regionKey(chunkX, chunkZ));
+		if (region == null) {
+			return false;
+		}
+
+		final int bit = bitIndex(chunkX, chunkZ);
+		return (region.get(bit >>> 6) & (1L << bit)) != 0;
+	}
+
+
+	/**
+	 * Get first table slot to probe for a region key
+	 * @param regionKey
+	 * @param mask table capacity minus one
+	 * @return slot index
+	 */
+	private static int slot(final long regionKey, final int mask) {
+
+		// spread bits of both region coordinates over the low bits used as slot index
+		final long hash = regionKey * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32) & mask;
+	}
+
+
+	/**
+	 * Pack region coordinates of a chunk into a single long table key
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return packed region key
+	 */
+	private static long regionKey(final int chunkX, final int chunkZ) {
+		return ((long) (chunkX >> REGION_SHIFT) << 32) | ((chunkZ >> REGION_SHIFT) & 0xFFFFFFFFL);
+	}
+
+
+	/**
+	 * Get bit index of a chunk within its region
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return bit index from 0 to 1023
+	 */
+	private static int bitIndex(final int chunkX, final int chunkZ) {
+		return ((chunkZ & REGION_MASK) << REGION_SHIFT) | (chunkX & REGION_MASK);
+	}
+
+}
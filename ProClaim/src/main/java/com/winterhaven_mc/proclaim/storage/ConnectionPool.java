@@ -0,0 +1,284 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Pool of datastore connections.<br>
+ * Connections are opened on demand up to the pool size and reused after release. A thread that
+ * borrows again while it already holds a connection gets the same connection back, so a method
+ * holding a connection may call another method that borrows one without waiting on itself.
+ * Connections that have been idle for a while are validated before they are handed out again,
+ * and a connection released with an open transaction is rolled back.
+ */
+final class ConnectionPool {
+
+	// idle time after which a connection is validated before reuse, in milliseconds
+	private static final long VALIDATION_IDLE_TIME = 30000;
+
+	// time allowed for connection validation, in seconds
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// pool name for log messages
+	private final String name;
+
+	// query name prefix of sql dialect, or null for default queries
+	private final String dialect;
+
+	// opens new connections for the pool
+	private final ConnectionFactory factory;
+
+	// maximum number of open connections
+	private final int maxSize;
+
+	// maximum time to wait for a connection in milliseconds, or zero to wait indefinitely
+	private final long borrowTimeout;
+
+	// idle connections, most recently released first; guarded by itself
+	private final ArrayDeque<PooledConnection> idle;
+
+	// connection held by each thread
+	private final ThreadLocal<PooledConnection> held;
+
+	// number of open connections, idle or borrowed; guarded by idle
+	private int openCount;
+
+	// true after pool has been closed; guarded by idle
+	private boolean closed;
+
+
+	/**
+	 * Opens and configures a new connection for a pool
+	 */
+	interface ConnectionFactory {
+		Connection open() throws SQLException;
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 * @param name
+	 * @param dialect
+	 * @param factory
+	 * @param maxSize
+	 * @param borrowTimeout
+	 */
+	ConnectionPool(final PluginMain plugin, final String name, final String dialect,
+			final ConnectionFactory factory, final int maxSize, final long borrowTimeout) {
+
+		this.plugin = plugin;
+		this.name = name;
+		this.dialect = dialect;
+		this.factory = factory;
+		this.maxSize = Math.max(1, maxSize);
+		this.borrowTimeout = Math.max(0, borrowTimeout);
+		this.idle = new ArrayDeque<PooledConnection>();
+		this.held = new ThreadLocal<PooledConnection>();
+	}
+
+
+	/**
+	 * Borrow a connection, waiting for one to be released if all connections are in use.<br>
+	 * Every borrow must be matched by a release, normally in a finally block.
+	 * @return pooled connection
+	 * @throws SQLException if pool is closed, no connection became available in time
+	 * or a new connection could not be opened
+	 */
+	final PooledConnection borrow() throws SQLException {
+
+		// if this thread already holds a connection, return it again
+		PooledConnection pooledConnection = held.get();
+		if (pooledConnection != null) {
+			pooledConnection.holdCount++;
+			return pooledConnection;
+		}
+
+		pooledConnection = take();
+		pooledConnection.holdCount = 1;
+		held.set(pooledConnection);
+		return pooledConnection;
+	}
+
+
+	/**
+	 * Release a borrowed connection
+	 * @param pooledConnection connection to release; null is ignored, so a connection
+	 * that could not be borrowed can be released in the same finally block
+	 */
+	final void release(final PooledConnection pooledConnection) {
+
+		if (pooledConnection == null) {
+			return;
+		}
+
+		// if this is a nested borrow, the outer borrower still holds the connection
+		if (--pooledConnection.holdCount > 0) {
+			return;
+		}
+		held.remove();
+
+		// roll back a transaction left open, so the next borrower starts clean
+		boolean usable = true;
+		try {
+			final Connection connection = pooledConnection.getConnection();
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		}
+		catch (SQLException e) {
+			usable = false;
+		}
+
+		synchronized (idle) {
+			if (usable && !closed) {
+				pooledConnection.lastReleased = System.currentTimeMillis();
+				idle.push(pooledConnection);
+			}
+			else {
+				pooledConnection.close();
+				openCount--;
+			}
+			idle.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Close all idle connections and close borrowed connections when they are released
+	 */
+	final void close() {
+
+		synchronized (idle) {
+			closed = true;
+			PooledConnection pooledConnection;
+			while ((pooledConnection = idle.poll()) != null) {
+				pooledConnection.close();
+				openCount--;
+			}
+			idle.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Take an idle connection, open a new one, or wait for one to be released
+	 * @return pooled connection
+	 * @throws SQLException
+	 */
+	private PooledConnection take() throws SQLException {
+
+		final long deadline = System.currentTimeMillis() + borrowTimeout;
+
+		while (true) {
+
+			PooledConnection pooledConnection = null;
+
+			synchronized (idle) {
+
+				while (true) {
+
+					if (closed) {
+						throw new SQLException("The " + name + " connection pool is closed.");
+					}
+
+					// use most recently released idle connection
+					pooledConnection = idle.poll();
+					if (pooledConnection != null) {
+						break;
+					}
+
+					// reserve a slot for a new connection if pool is not full
+					if (openCount < maxSize) {
+						openCount++;
+						break;
+					}
+
+					// wait for a connection to be released
+					long remaining = 0;
+					if (borrowTimeout > 0) {
+						remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0) {
+							throw new SQLException("Timed out waiting for a connection from the "
+									+ name + " connection pool.");
+						}
+					}
+					try {
+						idle.wait(remaining);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a connection from the "
+								+ name + " connection pool.");
+					}
+				}
+			}
+
+			// open new connection in reserved slot, outside lock
+			if (pooledConnection == null) {
+				try {
+					return new PooledConnection(factory.open(), dialect);
+				}
+				catch (SQLException e) {
+					discard(null);
+					throw e;
+				}
+				catch (RuntimeException e) {
+					discard(null);
+					throw e;
+				}
+			}
+
+			// validate connection that has been idle for a while, outside lock
+			if (System.currentTimeMillis() - pooledConnection.lastReleased < VALIDATION_IDLE_TIME
+					|| isValid(pooledConnection)) {
+				return pooledConnection;
+			}
+
+			if (plugin.debug) {
+				plugin.getLogger().info("Discarding stale connection from the " + name + " connection pool.");
+			}
+			discard(pooledConnection);
+		}
+	}
+
+
+	/**
+	 * Close a connection and free its slot in the pool
+	 * @param pooledConnection connection to close, or null to only free a reserved slot
+	 */
+	private void discard(final PooledConnection pooledConnection) {
+
+		if (pooledConnection != null) {
+			pooledConnection.close();
+		}
+		synchronized (idle) {
+			openCount--;
+			idle.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Test if a connection is still usable
+	 * @param pooledConnection
+	 * @return true if connection is valid, false if not
+	 */
+	private boolean isValid(final PooledConnection pooledConnection) {
+		try {
+			return pooledConnection.getConnection().isValid(VALIDATION_TIMEOUT);
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+}
@@ -1,9 +1,18 @@
 package com.winterhaven_mc.proclaim.storage;
 
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
 import org.bukkit.Location;
-
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 
 public abstract class DataStore {
@@ -21,6 +30,15 @@ public abstract class DataStore {
 	 * @throws Exception
 	 */
 	abstract void initialize() throws Exception;
+
+	/**
+	 * Initialize storage only to export its records for conversion<br>
+	 * Datastores that can read records without loading them into the caches override this.
+	 * @throws Exception
+	 */
+	void initializeForExport() throws Exception {
+		initialize();
+	}
 	
 	/**
 	 * get all player data records
@@ -34,6 +52,22 @@ public abstract class DataStore {
 	 * @return PlayerState object or null if no matching record
 	 */
 	abstract PlayerState getPlayerState(final UUID playerUUID);
+
+	/**
+	 * Get player record by player UUID only if it is in the cache; never reads the datastore
+	 * @param playerUUID
+	 * @return cached PlayerState object or null if player is not cached
+	 */
+	public abstract PlayerState getCachedPlayerState(final UUID playerUUID);
+
+	/**
+	 * Get player record by player UUID without adding it to the cache<br>
+	 * Returns the cached object if the player is cached, so changes to it are not overwritten.
+	 * Safe to call from an async thread.
+	 * @param playerUUID
+	 * @return PlayerState object or null if no matching record
+	 */
+	public abstract PlayerState readPlayerState(final UUID playerUUID);
 	
 	/**
 	 * Get player records by player name
@@ -42,6 +76,42 @@ public abstract class DataStore {
 	 */
 	abstract Set<PlayerState> getPlayerRecords(final String playerName);
 	
+	/**
+	 * Load player record into the cache ahead of login, inserting a new record for a player
+	 * not seen before, and rename records of other players that use the same name.<br>
+	 * Runs in the async pre-login thread, so any datastore reads happen off the main thread.
+	 * @param playerUUID
+	 * @param playerName name the player is logging in with
+	 * @return player state, or null if uuid is null
+	 */
+	final PlayerState prefetchPlayerState(final UUID playerUUID, final String playerName) {
+
+		// if playerUUID is null, return null record
+		if (playerUUID == null) {
+			return null;
+		}
+
+		// get player state from cache or datastore; getPlayerState stores it in the cache
+		PlayerState playerState = getPlayerState(playerUUID);
+
+		// if player has not been seen before, insert record now so login finds it in the cache
+		if (playerState == null) {
+			playerState = new PlayerState(playerUUID, playerName);
+			insertPlayerStateBlocking(playerState);
+		}
+
+		// give other players with the same name a temporary name until their next login
+		if (playerName != null && !playerName.isEmpty()) {
+
+			// if name has changed since last login, set new name so conflicts are checked against it
+			if (!playerName.equalsIgnoreCase(playerState.getName())) {
+				playerState.setName(playerName);
+			}
+			playerState.resolveNameConflicts();
+		}
+		return playerState;
+	}
+
 	/**
 	 * Insert new player record
 	 * @param playerState
@@ -92,6 +162,226 @@ public abstract class DataStore {
 	 */
 	public abstract Claim getClaimAt(final Location location, final boolean ignoreHeight);
 
+	/**
+	 * get claim by block coordinates, without creating a Location
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param ignoreHeight
+	 * @return subclaim at coordinates if one exists;
+	 *  else top level claim at coordinates;
+	 *  else null if no claim exists at coordinates
+	 */
+	public abstract Claim getClaimAt(final World world, final int x, final int y, final int z,
+			final boolean ignoreHeight);
+
+	/**
+	 * get claim by block
+	 * @param block
+	 * @return subclaim at block if one exists;
+	 *  else top level claim at block;
+	 *  else null if no claim exists at block
+	 */
+	public abstract Claim getClaimAt(final Block block);
+
+	/**
+	 * get claim by block
+	 * @param block
+	 * @param ignoreHeight
+	 * @return subclaim at block if one exists;
+	 *  else top level claim at block;
+	 *  else null if no claim exists at block
+	 */
+	public abstract Claim getClaimAt(final Block block, final boolean ignoreHeight);
+
+	/**
+	 * get top level claims intersecting a rectangle
+	 * @param world
+	 * @param x1
+	 * @param z1
+	 * @param x2
+	 * @param z2
+	 * @return Immutable Set of top level claims intersecting rectangle; empty Set if none found
+	 */
+	public abstract Set<Claim> getTopClaimsIntersecting(final World world,
+			final int x1, final int z1, final int x2, final int z2);
+
+	/**
+	 * Remove all blocks that are within a claim from a list of blocks, such as an explosion block list.<br>
+	 * Top level claims intersecting the bounding box of the blocks are fetched once;
+	 * if none are found the list is left unchanged without testing any block.
+	 * All blocks are assumed to be in the same world.
+	 * @param blocks
+	 * @return true if any blocks were removed, false if list is unchanged
+	 */
+	public final boolean removeClaimedBlocks(final List<Block> blocks) {
+
+		// if block list is null or empty, do nothing and return
+		if (blocks == null || blocks.isEmpty()) {
+			return false;
+		}
+
+		final World world = blocks.get(0).getWorld();
+
+		// get bounding box of blocks
+		int minX = Integer.MAX_VALUE;
+		int minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxZ = Integer.MIN_VALUE;
+		for (Block block : blocks) {
+			minX = Math.min(minX, block.getX());
+			minZ = Math.min(minZ, block.getZ());
+			maxX = Math.max(maxX, block.getX());
+			maxZ = Math.max(maxZ, block.getZ());
+		}
+
+		// get top level claims intersecting bounding box; if none, do nothing and return
+		final Collection<Claim> claims = getTopClaimsIntersecting(world, minX, minZ, maxX, maxZ);
+		if (claims.isEmpty()) {
+			return false;
+		}
+		final Claim[] claimArray = claims.toArray(new Claim[claims.size()]);
+
+		// remove blocks contained in any intersecting claim or its subclaims in a single pass
+		return blocks.removeIf(new Predicate<Block>() {
+			@Override
+			public boolean test(final Block block) {
+				return getClaimAt(claimArray, world, block.getX(), block.getY(), block.getZ()) != null;
+			}
+		});
+	}
+
+	/**
+	 * Get the claim at block coordinates, chosen from the given top level claims and their subclaims.<br>
+	 * Subclaims are tested wherever their parent contains the coordinates ignoring height,
+	 * because a subclaim may extend below the lower height limit of its parent.
+	 * @param topClaims
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return subclaim at coordinates, else top level claim at coordinates, or null if none
+	 */
+	private static Claim getClaimAt(final Claim[] topClaims, final World world,
+			final int x, final int y, final int z) {
+
+		for (Claim topClaim : topClaims) {
+			if (topClaim.contains(world, x, y, z, true)) {
+
+				// subclaim at coordinates takes precedence over its parent claim
+				for (Claim childClaim : topClaim.getChildClaims()) {
+					if (childClaim.contains(world, x, y, z, false)) {
+						return childClaim;
+					}
+				}
+				if (topClaim.contains(world, x, y, z, false)) {
+					return topClaim;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Test if moving a list of blocks, such as the blocks moved by a piston, would affect a claim
+	 * that is not owned by the given owner.<br>
+	 * Both the original and destination location of each block are tested. Top level claims
+	 * intersecting the union box of all locations are fetched once; if none are found,
+	 * or all are owned by the given owner, no block is tested.
+	 * All blocks are assumed to be in the same world.
+	 * @param ownerUUID owner of the claim the blocks are moved from, or null if not in a claim
+	 * @param blocks blocks being moved
+	 * @param direction direction blocks are moved in, or null to test original locations only
+	 * @return true if any original or destination location is in a claim with a different owner
+	 */
+	public final boolean movesClaimedBlocks(final UUID ownerUUID, final List<Block> blocks,
+			final BlockFace direction) {
+
+		// if block list is null or empty, return false
+		if (blocks == null || blocks.isEmpty()) {
+			return false;
+		}
+
+		final World world = blocks.get(0).getWorld();
+
+		// get block offset for destination locations
+		final int dx = direction == null ? 0 : direction.getModX();
+		final int dy = direction == null ? 0 : direction.getModY();
+		final int dz = direction == null ? 0 : direction.getModZ();
+
+		// get union box of original and destination locations
+		int minX = Integer.MAX_VALUE;
+		int minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxZ = Integer.MIN_VALUE;
+		for (Block block : blocks) {
+			minX = Math.min(minX, Math.min(block.getX(), block.getX() + dx));
+			minZ = Math.min(minZ, Math.min(block.getZ(), block.getZ() + dz));
+			maxX = Math.max(maxX, Math.max(block.getX(), block.getX() + dx));
+			maxZ = Math.max(maxZ, Math.max(block.getZ(), block.getZ() + dz));
+		}
+
+		// get intersecting top level claims that have a different owner or contain a subclaim that does
+		final List<Claim> foreignClaims = new ArrayList<Claim>();
+		for (Claim claim : getTopClaimsIntersecting(world, minX, minZ, maxX, maxZ)) {
+			if (!isOwner(ownerUUID, claim)) {
+				foreignClaims.add(claim);
+				continue;
+			}
+			for (Claim childClaim : claim.getChildClaims()) {
+				if (!isOwner(ownerUUID, childClaim)) {
+					foreignClaims.add(claim);
+					break;
+				}
+			}
+		}
+
+		// if no claims with a different owner intersect union box, return false
+		if (foreignClaims.isEmpty()) {
+			return false;
+		}
+		final Claim[] foreignClaimArray = foreignClaims.toArray(new Claim[foreignClaims.size()]);
+
+		// test original and destination location of each block
+		for (Block block : blocks) {
+			if (isForeignClaimed(ownerUUID, foreignClaimArray, world, block.getX(), block.getY(), block.getZ())
+					|| ((dx != 0 || dy != 0 || dz != 0) && isForeignClaimed(ownerUUID, foreignClaimArray, world,
+							block.getX() + dx, block.getY() + dy, block.getZ() + dz))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Test if the claim at block coordinates, chosen from the given top level claims
+	 * and their subclaims, has a different owner
+	 * @param ownerUUID
+	 * @param topClaims
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if coordinates are in a claim with a different owner, false if not
+	 */
+	private static boolean isForeignClaimed(final UUID ownerUUID, final Claim[] topClaims,
+			final World world, final int x, final int y, final int z) {
+
+		final Claim claim = getClaimAt(topClaims, world, x, y, z);
+		return claim != null && !isOwner(ownerUUID, claim);
+	}
+
+	/**
+	 * Test if a claim is owned by the given owner
+	 * @param ownerUUID
+	 * @param claim
+	 * @return true if owner uuid is non-null and matches claim owner, false if not
+	 */
+	private static boolean isOwner(final UUID ownerUUID, final Claim claim) {
+		return ownerUUID != null && ownerUUID.equals(claim.getOwnerUUID());
+	}
+
 	/**
 	 * get claim by claim key
 	 * @return Claim
@@ -104,6 +394,12 @@ public abstract class DataStore {
 	 * @return Immutable Set of claims; empty HashSet if no records found
 	 */
 	public abstract Set<Claim> getPlayerClaims(final UUID ownerUUID);
+
+	/**
+	 * Get uuids of all players who own claims, excluding admin claims, from the claim cache
+	 * @return Set of owner uuids
+	 */
+	public abstract Set<UUID> getClaimOwners();
 	
 	/**
 	 * Get child claim records for claim by key
@@ -153,6 +449,15 @@ public abstract class DataStore {
 	 */
 	abstract ClaimPermission getClaimPermission(final Integer claimKey, final UUID playerUUID);
 
+	/**
+	 * Get effective permission level for player by claim key and player uuid<br>
+	 * If the player has no permission record for the claim, the public permission level is returned
+	 * @param claimKey
+	 * @param playerUUID
+	 * @return PermissionLevel or null if neither player nor public permission found
+	 */
+	abstract PermissionLevel getPermissionLevel(final Integer claimKey, final UUID playerUUID);
+
 //	/**
 //	 * Get claim permission for player by claim key and player key
 //	 * @param claimKey
@@ -264,6 +569,108 @@ public abstract class DataStore {
 	 */
 	abstract void deleteClaimGroup(final Integer claimGroupKey);
 	
+	/**
+	 * Apply all changes of a claim batch to the caches and write them to the datastore together
+	 * @param batch
+	 */
+	abstract void commitBatch(final ClaimBatch batch);
+	
+	/**
+	 * Handler for pages of records streamed from a datastore during conversion
+	 * @param <T> record type
+	 */
+	interface RecordPageHandler<T> {
+		
+		/**
+		 * Handle a page of records
+		 * @param page
+		 * @throws SQLException to stop streaming
+		 */
+		void handle(final List<T> page) throws SQLException;
+	}
+	
+	/**
+	 * Stream all player records in pages
+	 * @param pageSize
+	 * @param handler
+	 * @return number of records that could not be read and were skipped
+	 * @throws SQLException
+	 */
+	abstract int exportPlayerRecords(final int pageSize, final RecordPageHandler<PlayerState> handler)
+			throws SQLException;
+	
+	/**
+	 * Stream all claim records in pages, in key order
+	 * @param pageSize
+	 * @param handler
+	 * @return number of records that could not be read and were skipped
+	 * @throws SQLException
+	 */
+	abstract int exportClaims(final int pageSize, final RecordPageHandler<Claim> handler)
+			throws SQLException;
+	
+	/**
+	 * Stream all claim group records in pages
+	 * @param pageSize
+	 * @param handler
+	 * @return number of records that could not be read and were skipped
+	 * @throws SQLException
+	 */
+	abstract int exportClaimGroups(final int pageSize, final RecordPageHandler<ClaimGroup> handler)
+			throws SQLException;
+	
+	/**
+	 * Stream all permission records in pages
+	 * @param pageSize
+	 * @param handler
+	 * @return number of records that could not be read and were skipped
+	 * @throws SQLException
+	 */
+	abstract int exportClaimPermissions(final int pageSize, final RecordPageHandler<ClaimPermission> handler)
+			throws SQLException;
+	
+	/**
+	 * Insert or replace a page of player records in a single transaction
+	 * @param records
+	 * @throws SQLException
+	 */
+	abstract void importPlayerRecords(final List<PlayerState> records) throws SQLException;
+	
+	/**
+	 * Insert or replace a page of claim records in a single transaction, keeping their keys
+	 * @param records
+	 * @throws SQLException
+	 */
+	abstract void importClaims(final List<Claim> records) throws SQLException;
+	
+	/**
+	 * Insert or replace a page of claim group records in a single transaction, keeping their keys
+	 * @param records
+	 * @throws SQLException
+	 */
+	abstract void importClaimGroups(final List<ClaimGroup> records) throws SQLException;
+	
+	/**
+	 * Insert or replace a page of permission records in a single transaction, keeping their keys
+	 * @param records
+	 * @throws SQLException
+	 */
+	abstract void importClaimPermissions(final List<ClaimPermission> records) throws SQLException;
+	
+	/**
+	 * Test if datastore holds no records other than the public player
+	 * @return true if datastore is empty
+	 * @throws SQLException
+	 */
+	abstract boolean isEmpty() throws SQLException;
+	
+	/**
+	 * Delete all records other than the public player from the datastore and the caches,
+	 * in a single transaction, such as after a failed conversion into this datastore
+	 * @throws SQLException
+	 */
+	abstract void deleteAllRecords() throws SQLException;
+	
 	/**
 	 * Close datastore connection
 	 */
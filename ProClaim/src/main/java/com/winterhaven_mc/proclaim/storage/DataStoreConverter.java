@@ -0,0 +1,192 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Copies all records from one datastore to another.<br>
+ * Records are streamed from the old datastore in pages, and each page is inserted into the
+ * new datastore as a single batched transaction, so memory use does not grow with the size
+ * of the datastore. Claim, claim group and permission keys are preserved, so references
+ * between claims, their parents, their groups and their permissions remain valid.<br>
+ * If the copy fails, all records already written to the new datastore are deleted, so a
+ * partial copy is never left behind.
+ */
+final class DataStoreConverter {
+
+	// number of records read and inserted per transaction
+	private static final int PAGE_SIZE = 1000;
+
+	// interval between progress log messages, in milliseconds
+	private static final long PROGRESS_INTERVAL = 5000;
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	private final DataStore oldDataStore;
+	private final DataStore newDataStore;
+
+
+	/**
+	 * Abstract class that counts converted records of one table and logs progress
+	 * @param <T> record type
+	 */
+	private abstract class TableCopy<T> implements DataStore.RecordPageHandler<T> {
+
+		private final String tableName;
+		private final long startTime = System.currentTimeMillis();
+		private long lastReport = startTime;
+		private int count;
+
+		TableCopy(final String tableName) {
+			this.tableName = tableName;
+		}
+
+		abstract void insert(final List<T> page) throws SQLException;
+
+		@Override
+		public final void handle(final List<T> page) throws SQLException {
+			insert(page);
+			count += page.size();
+
+			// log progress of long running conversions
+			final long now = System.currentTimeMillis();
+			if (now - lastReport >= PROGRESS_INTERVAL) {
+				lastReport = now;
+				plugin.getLogger().info(count + " " + tableName + " records converted so far...");
+			}
+		}
+
+		final int report() {
+			final long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTime);
+			plugin.getLogger().info(count + " " + tableName + " records converted to "
+					+ newDataStore.toString() + " datastore in " + elapsedMillis + " ms ("
+					+ ((long) count * 1000 / elapsedMillis) + " records per second).");
+			return count;
+		}
+	}
+
+
+	/**
+	 * Private class constructor
+	 * @param plugin
+	 * @param oldDataStore
+	 * @param newDataStore
+	 */
+	private DataStoreConverter(final PluginMain plugin, final DataStore oldDataStore, final DataStore newDataStore) {
+		this.plugin = plugin;
+		this.oldDataStore = oldDataStore;
+		this.newDataStore = newDataStore;
+	}
+
+
+	/**
+	 * Copy all records from old datastore to new datastore
+	 * @param plugin
+	 * @param oldDataStore initialized datastore to read from
+	 * @param newDataStore initialized empty datastore to write to
+	 * @return number of old datastore records that could not be read and were skipped
+	 * @throws SQLException if the new datastore is not empty, or a page could not be read or written
+	 */
+	static int convert(final PluginMain plugin, final DataStore oldDataStore, final DataStore newDataStore)
+			throws SQLException {
+		return new DataStoreConverter(plugin, oldDataStore, newDataStore).convert();
+	}
+
+
+	/**
+	 * Copy tables and delete the partial copy from the new datastore if the copy fails
+	 * @return number of skipped records
+	 * @throws SQLException
+	 */
+	private int convert() throws SQLException {
+
+		// keys are preserved, so copying into a datastore that already holds records could overwrite them
+		if (!newDataStore.isEmpty()) {
+			throw new SQLException("The " + newDataStore.toString()
+					+ " datastore already contains records and was not overwritten.");
+		}
+
+		try {
+			return copyTables();
+		}
+		catch (SQLException e) {
+			deletePartialCopy();
+			throw e;
+		}
+		catch (RuntimeException e) {
+			deletePartialCopy();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Delete all records written to the new datastore by a failed copy
+	 */
+	private void deletePartialCopy() {
+		try {
+			newDataStore.deleteAllRecords();
+			plugin.getLogger().warning("Records partially converted to " + newDataStore.toString()
+					+ " datastore have been deleted.");
+		}
+		catch (Exception e) {
+			plugin.getLogger().severe("Could not delete records partially converted to "
+					+ newDataStore.toString() + " datastore.");
+			plugin.getLogger().severe(e.getLocalizedMessage());
+		}
+	}
+
+
+	/**
+	 * Copy tables in an order that inserts referenced records before the records that reference them
+	 * @return number of skipped records
+	 * @throws SQLException
+	 */
+	private int copyTables() throws SQLException {
+
+		int skipped = 0;
+
+		final TableCopy<PlayerState> players = new TableCopy<PlayerState>("player") {
+			@Override
+			void insert(final List<PlayerState> page) throws SQLException {
+				newDataStore.importPlayerRecords(page);
+			}
+		};
+		skipped += oldDataStore.exportPlayerRecords(PAGE_SIZE, players);
+		players.report();
+
+		final TableCopy<ClaimGroup> claimGroups = new TableCopy<ClaimGroup>("claim group") {
+			@Override
+			void insert(final List<ClaimGroup> page) throws SQLException {
+				newDataStore.importClaimGroups(page);
+			}
+		};
+		skipped += oldDataStore.exportClaimGroups(PAGE_SIZE, claimGroups);
+		claimGroups.report();
+
+		final TableCopy<Claim> claims = new TableCopy<Claim>("claim") {
+			@Override
+			void insert(final List<Claim> page) throws SQLException {
+				newDataStore.importClaims(page);
+			}
+		};
+		skipped += oldDataStore.exportClaims(PAGE_SIZE, claims);
+		claims.report();
+
+		final TableCopy<ClaimPermission> permissions = new TableCopy<ClaimPermission>("permission") {
+			@Override
+			void insert(final List<ClaimPermission> page) throws SQLException {
+				newDataStore.importClaimPermissions(page);
+			}
+		};
+		skipped += oldDataStore.exportClaimPermissions(PAGE_SIZE, permissions);
+		permissions.report();
+
+		return skipped;
+	}
+
+}
@@ -2,9 +2,6 @@ package com.winterhaven_mc.proclaim.storage;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 import com.winterhaven_mc.proclaim.PluginMain;
 
@@ -99,10 +96,10 @@ public final class DataStoreFactory {
 			plugin.getLogger().info("Converting existing " + oldDataStore.toString() + " datastore to "
 					+ newDataStore.toString() + " datastore...");
 			
-			// initialize old datastore if necessary
+			// initialize old datastore for export if necessary; its records are streamed, not cached
 			if (!oldDataStore.isInitialized()) {
 				try {
-					oldDataStore.initialize();
+					oldDataStore.initializeForExport();
 				} catch (Exception e) {
 					plugin.getLogger().warning("Could not initialize " 
 							+ oldDataStore.toString() + " datastore for conversion.");
@@ -111,51 +108,31 @@ public final class DataStoreFactory {
 				}
 			}
 			
-			// convert player records
-			Set<PlayerState> allPlayerRecords = new HashSet<PlayerState>();
-			
-			allPlayerRecords = oldDataStore.getAllPlayerRecords();
-			
-			int count = 0;
-			for (PlayerState record : allPlayerRecords) {
-				newDataStore.insertPlayerStateBlocking(record);
-				count++;
+			// copy all records in batched transactions; keep old datastore if conversion fails
+			final int skipped;
+			try {
+				skipped = DataStoreConverter.convert(plugin, oldDataStore, newDataStore);
 			}
-			plugin.getLogger().info(count + " player records converted to " + newDataStore.toString() + " datastore.");
-			
-			// convert claim records
-			Collection<Claim> allClaimRecords = new HashSet<Claim>();
-			
-			allClaimRecords = oldDataStore.getAllClaims();
-			count = 0;
-			for (Claim record : allClaimRecords) {
-				newDataStore.insertClaimBlocking(record);
-				count++;
-			}
-			plugin.getLogger().info(count + " claim records converted to " + newDataStore.toString() + " datastore.");
-			
-			// convert claim group records
-			Collection<ClaimGroup> allClaimGroupRecords = new HashSet<ClaimGroup>();
-			
-			allClaimGroupRecords = oldDataStore.getAllClaimGroups();
-			count = 0;
-			for (ClaimGroup record : allClaimGroupRecords) {
-				newDataStore.insertClaimGroupBlocking(record);
-				count++;
-			}
-			plugin.getLogger().info(count + " claim group records converted to " + newDataStore.toString() + " datastore.");
-			
-			// convert permissions records
-			Collection<ClaimPermission> allPermissionRecords = new HashSet<ClaimPermission>();
-
-			allPermissionRecords = oldDataStore.getAllClaimPermissions();
-			count = 0;
-			for (ClaimPermission record : allPermissionRecords) {
-				newDataStore.insertClaimPermissionBlocking(record);
-				count++;
+			catch (Exception e) {
+				plugin.getLogger().warning("Could not convert " + oldDataStore.toString()
+						+ " datastore. Existing datastore has not been removed.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+				oldDataStore.close();
+				return;
 			}
+
 			newDataStore.sync();
 			oldDataStore.close();
+
+			// keep old datastore if any of its records could not be converted
+			if (skipped > 0) {
+				plugin.getLogger().warning(skipped + " records of " + oldDataStore.toString()
+						+ " datastore could not be converted. Existing datastore has not been removed.");
+				return;
+			}
 			oldDataStore.delete();
 		}
 	}
@@ -0,0 +1,3408 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
+
+
+/**
+ * Base class of datastores backed by an SQL database through JDBC.<br>
+ * Subclasses open the connection pools and supply the settings for their database; queries
+ * are read in the dialect of the pooled connections. All claim, permission and claim group
+ * records are held in the caches, and asynchronous writes go through a single writer.
+ */
+abstract class DataStoreJDBC extends DataStore {
+
+	// reference to main class
+	protected final PluginMain plugin;
+
+	// datastore settings from storage section of config
+	protected StorageSettings settings;
+
+	// pool of connections for writes
+	protected ConnectionPool writePool;
+
+	// pool of connections for reads that miss the caches; may be the write pool
+	protected ConnectionPool readPool;
+
+	// single writer for all asynchronous writes to datastore
+	private DataStoreWriter writer;
+	
+	// player state cache, bounded by settings read when the datastore is initialized
+	private PlayerStateCache playerStateCache;
+	
+	// claim cache
+	private final ClaimCache claimCache;
+	
+	// permission cache
+	private final PermissionCache permissionCache;
+	
+	// claim group cache
+	private final ClaimGroupCache claimGroupCache;
+
+	// true if datastore was opened only to export its records, without loading the caches
+	private boolean exportOnly;
+	
+	
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	DataStoreJDBC(final PluginMain plugin) {
+
+		// reference to main class
+		this.plugin = plugin;
+
+		// initialize claim cache
+		this.claimCache = new ClaimCache(plugin);
+		
+		// initialize permission cache
+		this.permissionCache = new PermissionCache(plugin);
+		
+		// initialize claim group cache
+		this.claimGroupCache = new ClaimGroupCache(plugin);
+	}
+
+
+	/**
+	 * Read datastore settings and open the write and read connection pools
+	 * @throws SQLException if the database driver could not be loaded or a connection could not be opened
+	 */
+	abstract void openConnectionPools() throws SQLException;
+
+
+	/**
+	 * Initialize the datastore<br>
+	 * Creates database tables if they don't already exist<br>
+	 * Inserts player 0 (public) in player table if not already there
+	 * @throws SQLException
+	 */
+	@Override
+	final void initialize() throws SQLException {
+
+		open();
+
+		// load all claim, permission and claim group records into caches
+		cacheAllRecords();
+	}
+
+
+	/**
+	 * Initialize the datastore to export its records for conversion<br>
+	 * Records are streamed from the database, so caches are not loaded, WorldGuard regions are not
+	 * synced, and no cache snapshot is written when the datastore is closed.
+	 * @throws SQLException
+	 */
+	@Override
+	final void initializeForExport() throws SQLException {
+		exportOnly = true;
+		open();
+	}
+
+
+	/**
+	 * Create tables, apply schema migrations and start the writer
+	 * @throws SQLException
+	 */
+	private void open() throws SQLException {
+
+		// open connection pools for this database
+		openConnectionPools();
+
+		final PooledConnection connection = writePool.borrow();
+		try {
+			final Statement statement = connection.getConnection().createStatement();
+			try {
+				final String dialect = connection.getDialect();
+
+				// execute players table creation statement
+				statement.executeUpdate(Queries.getQuery(dialect, "CreatePlayerTable"));
+
+				// execute claims table creation statement
+				statement.executeUpdate(Queries.getQuery(dialect, "CreateClaimTable"));
+
+				// execute permissions table creation statement
+				statement.executeUpdate(Queries.getQuery(dialect, "CreatePermissionTable"));
+
+				// execute group table creation statement
+				statement.executeUpdate(Queries.getQuery(dialect, "CreateClaimGroupTable"));
+
+				// apply schema migrations not yet applied to this database
+				SchemaMigrator.migrate(plugin, connection, this.getDisplayName());
+
+				// insert public player into players table with all zero UUID
+				statement.executeUpdate(MessageFormat.format(Queries.getQuery(dialect, "InsertPublicPlayer"),
+						zeroUUID.toString()));
+			}
+			finally {
+				statement.close();
+			}
+		}
+		finally {
+			writePool.release(connection);
+		}
+
+		// start writer thread for asynchronous writes
+		writer = new DataStoreWriter(plugin, writePool, this.getDisplayName(),
+				settings.getWriteQueueSize(), settings.getWriteFlushInterval());
+		writer.start();
+
+		// initialize player state cache, writing back changed player state before eviction
+		playerStateCache = new PlayerStateCache(plugin, settings.getPlayerCacheSize(),
+				settings.getPlayerCacheIdleTime(), new PlayerStateCache.WriteBack() {
+			@Override
+			public void write(final PlayerState playerState, final Runnable completion, final Runnable failure) {
+				updatePlayerState(playerState, completion, failure);
+			}
+		});
+		playerStateCache.startEviction();
+
+		// set initialized true
+		setInitialized(true);
+		plugin.getLogger().info(this.getDisplayName() + " datastore initialized.");
+	}
+	
+	
+	/**
+	 * Load all claim, permission and claim group records into caches in bulk,
+	 * and sync WorldGuard regions for all claims
+	 */
+	private final void cacheAllRecords() {
+
+		// read data state before marking datastore opened, which makes any existing snapshot stale
+		final String dataState = selectDataState();
+		incrementChangeCount();
+
+		// if a snapshot of the current data state exists, load caches from snapshot
+		if (settings.isSnapshotEnabled()) {
+
+			final long startTime = System.nanoTime();
+			final CacheSnapshot snapshot = dataState == null ? null
+					: CacheSnapshot.read(plugin, getSnapshotFile(), dataState);
+
+			if (snapshot != null) {
+				claimCache.storeAll(snapshot.getClaims());
+				permissionCache.storeAll(snapshot.getPermissions());
+				claimGroupCache.storeAll(snapshot.getClaimGroups());
+				for (Claim claim : snapshot.getClaims()) {
+					plugin.worldGuardHelper.syncRegion(claim);
+				}
+				plugin.getLogger().info("Loaded " + snapshot.getClaims().size() + " claims, "
+						+ snapshot.getPermissions().size() + " permissions and "
+						+ snapshot.getClaimGroups().size() + " claim groups from cache snapshot in "
+						+ ((System.nanoTime() - startTime) / 1000000) + " ms.");
+				return;
+			}
+		}
+
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			final BulkLoader loader = new BulkLoader(plugin, connection, getDisplayName(),
+					settings.getLoadFetchSize(), settings.getLoadThreads());
+			final List<Claim> claims = loader.load(claimCache, permissionCache, claimGroupCache);
+
+			// release connection before syncing regions, which does not need it
+			readPool.release(connection);
+			connection = null;
+
+			for (Claim claim : claims) {
+				plugin.worldGuardHelper.syncRegion(claim);
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while loading records from the "
+					+ getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+	}
+
+
+	/**
+	 * Write snapshot of claim, permission and claim group caches for the current data state<br>
+	 * Must only be called after writer has been shut down, so caches match the committed data
+	 */
+	private final void writeSnapshot() {
+
+		final File snapshotFile = getSnapshotFile();
+
+		// if a cache completion task never ran, caches may not match committed data
+		if (writer.hasPendingCompletions()) {
+			snapshotFile.delete();
+			if (plugin.debug) {
+				plugin.getLogger().info("Cache snapshot not written because caches may be incomplete.");
+			}
+			return;
+		}
+
+		final String dataState = selectDataState();
+		if (dataState == null) {
+			snapshotFile.delete();
+			return;
+		}
+
+		try {
+			final long startTime = System.nanoTime();
+			CacheSnapshot.write(snapshotFile, dataState, claimCache.fetchAllClaims(),
+					permissionCache.fetchAllPermissions(), claimGroupCache.fetchAllClaimGroups());
+			if (plugin.debug) {
+				plugin.getLogger().info("Cache snapshot written in "
+						+ ((System.nanoTime() - startTime) / 1000000) + " ms.");
+			}
+		}
+		catch (IOException e) {
+			snapshotFile.delete();
+			plugin.getLogger().warning("Could not write cache snapshot.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Select data state of database, which changes each time the datastore is opened
+	 * @return data state string, or null if it could not be read
+	 */
+	private final String selectDataState() {
+
+		PooledConnection connection = null;
+		try {
+			connection = writePool.borrow();
+			final PreparedStatement preparedStatement = connection.prepare("SelectDataState");
+			final ResultSet rs = preparedStatement.executeQuery();
+			String dataState = null;
+			if (rs.next()) {
+				dataState = rs.getString("databaseid") + ":" + rs.getLong("changecount");
+			}
+			rs.close();
+			return dataState;
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("Could not read data state of the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			return null;
+		}
+		finally {
+			writePool.release(connection);
+		}
+	}
+
+
+	/**
+	 * Increment change count of database once when it is opened<br>
+	 * Any write made while the plugin runs follows this, so a snapshot taken before it, or left behind
+	 * by a server that stopped without writing a new one, no longer matches. Counting once per start
+	 * instead of on every row write keeps writes and bulk imports free of extra updates.
+	 */
+	private final void incrementChangeCount() {
+
+		PooledConnection connection = null;
+		try {
+			connection = writePool.borrow();
+			connection.prepare("IncrementChangeCount").executeUpdate();
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("Could not update data state of the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// without a new data state, an old snapshot could be loaded at next startup
+			getSnapshotFile().delete();
+		}
+		finally {
+			writePool.release(connection);
+		}
+	}
+
+
+	/**
+	 * Get cache snapshot file
+	 * @return snapshot file in plugin data folder
+	 */
+	final File getSnapshotFile() {
+		return new File(plugin.getDataFolder() + File.separator + "proclaim.snapshot");
+	}
+
+
+	/**
+	 * Close datastore
+	 */
+	@Override
+	public final void close() {
+	
+		// stop player state cache eviction
+		if (playerStateCache != null) {
+			playerStateCache.stopEviction();
+			if (plugin.debug) {
+				plugin.getLogger().info("Player state cache " + playerStateCache.getStatistics());
+			}
+		}
+
+		// commit all queued writes and stop writer thread
+		if (writer != null) {
+			writer.shutdown();
+
+			// write cache snapshot for next startup
+			if (settings.isSnapshotEnabled() && isInitialized() && !exportOnly) {
+				writeSnapshot();
+			}
+		}
+
+		// close connection pools
+		if (readPool != null && readPool != writePool) {
+			readPool.close();
+		}
+		if (writePool != null) {
+			writePool.close();
+		}
+		plugin.getLogger().info(this.getDisplayName() + " datastore connections closed.");
+		setInitialized(false);
+	}
+
+
+	/**
+	 * Sync datastore<br>
+	 * Blocks until all queued writes have been committed
+	 */
+	@Override
+	final void sync() {
+	
+		// wait for writer to commit queued writes
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+
+	@Override
+	final PlayerState getPlayerState(final UUID playerUUID) {
+		
+		// if playerKey is null, return null record
+		if (playerUUID == null) {
+			return null;
+		}
+	
+		// try cache first
+		PlayerState playerState = playerStateCache.fetch(playerUUID);
+		
+		// if player state found in cache, return
+		if (playerState != null) {
+			return playerState;
+		}
+	
+		// get player state from datastore
+		playerState = selectPlayerRecord(playerUUID);
+		
+		// insert player state in cache
+		if (playerState != null) {
+			playerStateCache.store(playerState);
+		}
+		return playerState;
+	}
+
+
+	@Override
+	public final PlayerState getCachedPlayerState(final UUID playerUUID) {
+
+		// if playerUUID is null, return null record
+		if (playerUUID == null) {
+			return null;
+		}
+		return playerStateCache.fetch(playerUUID);
+	}
+
+
+	@Override
+	public final PlayerState readPlayerState(final UUID playerUUID) {
+
+		// if playerUUID is null, return null record
+		if (playerUUID == null) {
+			return null;
+		}
+
+		// if player is cached, return cached player state
+		final PlayerState playerState = playerStateCache.fetch(playerUUID);
+		if (playerState != null) {
+			return playerState;
+		}
+
+		// get player state from datastore without caching it
+		return selectPlayerRecord(playerUUID);
+	}
+
+
+	/**
+	 * Get HashSet of all player records<br>
+	 * Used by convertDataStore method in DataStoreFactory
+	 */
+	@Override
+	final Set<PlayerState> getAllPlayerRecords() {
+	
+		Set<PlayerState> returnSet = new HashSet<PlayerState>();
+	
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			PreparedStatement preparedStatement = 
+					connection.prepare("SelectAllPlayerRecords");
+	
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+	
+			while (rs.next()) {
+				
+				PlayerState playerState = new PlayerState();
+				
+				// test if uuid is null or empty and skip, otherwise try to set from string and catch exception
+				String playerUUID = rs.getString("playeruuid");
+				if (playerUUID != null && !playerUUID.isEmpty()) {
+					try {
+						playerState.setPlayerUUID(UUID.fromString(rs.getString("playeruuid")));
+					}
+					catch (Exception e) {
+						plugin.getLogger().warning("Invalid UUID for player " 
+								+ playerState.getName() 
+								+ " in " + getDisplayName() + " datastore.");
+					}
+				}
+				playerState.setName(rs.getString("playername"));
+				playerState.setLastLogin(java.time.Instant.ofEpochMilli(rs.getLong("lastlogin")));
+				playerState.setEarnedClaimBlocks(rs.getInt("earnedblocks"));
+				playerState.setPurchasedClaimBlocks(rs.getInt("purchasedblocks"));
+				playerState.setBonusClaimBlocks(rs.getInt("bonusblocks"));
+				
+				playerState.markClean();
+				returnSet.add(playerState);
+			}
+		}
+		catch (Exception e) {
+	
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch all player records from the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+	
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.getStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+		// return results
+		return Collections.unmodifiableSet(returnSet);	
+	}
+
+
+	/**
+	 * Get player records by playerName
+	 */
+	@Override
+	final Set<PlayerState> getPlayerRecords(final String playerName) {
+		
+		// if playerName is null, return empty set
+		if (playerName == null) {
+			return Collections.emptySet();
+		}
+		
+		// create new hash set for return data
+		final Set<PlayerState> returnSet = new HashSet<PlayerState>();
+		
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			PreparedStatement preparedStatement = 
+					connection.prepare("SelectPlayerRecordsByName");
+			
+			preparedStatement.setString(1, playerName.toLowerCase());
+			
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			// it is possible for more than one record to match, so put results in a HashSet
+			while (rs.next()) {
+				
+				// create new player record to read data into
+				PlayerState playerState = new PlayerState();
+				
+				// test if uuid is null or empty and skip, otherwise try to set from string and catch exception
+				String playerUUID = rs.getString("playeruuid");
+				if (playerUUID != null && !playerUUID.isEmpty()) {
+					try {
+						playerState.setPlayerUUID(UUID.fromString(rs.getString("playeruuid")));
+					}
+					catch (Exception e) {
+						plugin.getLogger().warning("Invalid UUID for player " 
+								+ playerState.getName() 
+								+ " in " + getDisplayName() + " datastore.");
+					}
+				}
+				playerState.setName(rs.getString("playername"));
+				playerState.setLastLogin(java.time.Instant.ofEpochMilli(rs.getLong("lastlogin")));
+				playerState.setEarnedClaimBlocks(rs.getInt("earnedblocks"));
+				playerState.setPurchasedClaimBlocks(rs.getInt("purchasedblocks"));
+				playerState.setBonusClaimBlocks(rs.getInt("bonusblocks"));
+				
+				playerState.markClean();
+
+				// put player record into return hash set
+				returnSet.add(playerState);
+			}
+		
+			// if no matching record found for playerName, write log message and return empty set
+			if (returnSet.isEmpty() && plugin.debug) {
+				plugin.getLogger().info("No records found for player name " + playerName + ".");
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to " 
+					+ "read player records by name from " + getDisplayName() + " storage.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+		return Collections.unmodifiableSet(returnSet);
+	}
+
+
+	/**
+	 * Get player record by UUID
+	 */
+	private final PlayerState selectPlayerRecord(final UUID playerUUID) {
+		
+		// if playerUUID is null, return null record
+		if (playerUUID == null) {
+			return null;
+		}
+
+		// initialize new player state object for return
+		PlayerState playerState = new PlayerState();
+		
+		if (plugin.debug) {
+			plugin.getLogger().info("Getting player record from " 
+					+ getDisplayName() + " datastore by player UUID.");
+		}
+		
+		String playerUUIDString  = playerUUID.toString();
+
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			PreparedStatement preparedStatement = 
+					connection.prepare("SelectPlayerRecordByUUID");
+			
+			preparedStatement.setString(1, playerUUIDString);
+			
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			boolean empty = true;
+
+			// only zero or one record can match the unique key
+			if (rs.next()) {
+				try {
+					playerState.setPlayerUUID(UUID.fromString(rs.getString("playeruuid")));
+				}
+				catch (Exception e) {
+					plugin.getLogger().warning("Invalid UUID for playerid " + playerState.getName() + " in " + getDisplayName() + " datastore.");
+				}
+				playerState.setName(rs.getString("playername"));
+				playerState.setLastLogin(rs.getLong("lastlogin"));
+				playerState.setEarnedClaimBlocks(rs.getInt("earnedblocks"));
+				playerState.setPurchasedClaimBlocks(rs.getInt("purchasedblocks"));
+				playerState.setBonusClaimBlocks(rs.getInt("bonusblocks"));
+				playerState.markClean();
+			    empty = false;
+			}
+		
+			// if no matching record found for playerUUID, output log message and return null
+			if (empty) {
+				plugin.getLogger().info("No record found for player UUID " + playerUUID.toString() + ".");
+				playerState = null;
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to " 
+					+ "read a player record by UUID from " + getDisplayName() + " storage.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			playerState = null;
+		}
+		finally {
+			readPool.release(connection);
+		}
+		
+		// return player state
+		return playerState;
+	}
+	
+	
+	/**
+	 * Insert new player record in the datastore
+	 */
+	@Override
+	final void insertPlayerStateBlocking(final PlayerState playerState) {
+
+		// if player data is null do nothing and return
+		if (playerState == null) {
+			return;
+		}
+
+		// the insert writes all fields, so none remain changed
+		playerState.markClean();
+
+		try {
+
+			// convert playerUUID to string
+			String stringPlayerUUID = "";
+			if (playerState.getPlayerUUID() != null) {
+				stringPlayerUUID = playerState.getPlayerUUID().toString();
+			}
+
+			// borrow connection from write pool
+			final PooledConnection connection = writePool.borrow();
+			try {
+				
+				PreparedStatement preparedStatement;
+				preparedStatement = connection.prepare("InsertPlayerRecord");
+
+				preparedStatement.setString(1, stringPlayerUUID);
+				preparedStatement.setString(2, playerState.getName());
+				preparedStatement.setLong(3, playerState.getLastLogin().toEpochMilli());
+				preparedStatement.setInt(4, playerState.getEarnedClaimBlocks());
+				preparedStatement.setInt(5, playerState.getPurchasedClaimBlocks());
+				preparedStatement.setInt(6, playerState.getBonusClaimBlocks());
+
+				preparedStatement.executeUpdate();
+			}
+			finally {
+				writePool.release(connection);
+			}
+			
+			if (plugin.debug) {
+				plugin.getLogger().info("Player state for " + playerState.getName() 
+				+ " inserted into the " + getDisplayName() + " datastore.");
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "insert a player record into the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		
+		// put player state record in cache
+		this.playerStateCache.store(playerState);
+		if (plugin.debug) {
+			plugin.getLogger().info("Player state for " + playerState.getName() + " stored in cache.");
+		}
+	}
+
+
+	/**
+	 * Insert new player record in the datastore
+	 */
+	@Override
+	final void insertPlayerState(final PlayerState playerState) {
+
+		// if player state object is null do nothing and return
+		if (playerState == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("Could not insert null player state in " 
+						+ getDisplayName() + " datastore.");
+			}
+			return;
+		}
+
+		// the insert writes all fields, so none remain changed
+		playerState.markClean();
+
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+
+					// convert non-null playerUUID to string
+					String playerUUID = null;
+					if (playerState.getPlayerUUID() != null) {
+						playerUUID = playerState.getPlayerUUID().toString();
+					}
+					
+					PreparedStatement preparedStatement;
+					preparedStatement = connection.prepare("InsertPlayerRecord");
+
+					preparedStatement.setString(1, playerUUID);
+					preparedStatement.setString(2, playerState.getName());
+					preparedStatement.setLong(3, playerState.getLastLogin().toEpochMilli());
+					preparedStatement.setInt(4, playerState.getEarnedClaimBlocks());
+					preparedStatement.setInt(5, playerState.getPurchasedClaimBlocks());
+					preparedStatement.setInt(6, playerState.getBonusClaimBlocks());
+
+					preparedStatement.executeUpdate();
+					
+					if (plugin.debug) {
+						plugin.getLogger().info("Player record for " + playerState.getName() 
+								+ " inserted into the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while attempting to "
+							+ "insert a player record into the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// insert player state record in cache
+				playerStateCache.store(playerState);
+				if (plugin.debug) {
+					plugin.getLogger().info("Player record for " + playerState.getName() + " stored in cache.");
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Update existing player record in datastore<br>
+	 * Nothing is written if no field changed. Changed fields are taken when the write executes,
+	 * so an update merged into a queued update writes the fields changed for both. A single changed
+	 * field is written alone; several changed fields are written as a full record.
+	 */
+	@Override
+	final void updatePlayerState(final PlayerState playerState) {
+		updatePlayerState(playerState, null, null);
+	}
+
+
+	/**
+	 * Update player record, running a task in the main thread once the update has committed,
+	 * or in the writer thread if it failed
+	 * @param playerState
+	 * @param completion task to run after commit, or null
+	 * @param failure task to run after the update failed and its fields were marked changed again, or null
+	 */
+	private void updatePlayerState(final PlayerState playerState, final Runnable completion,
+			final Runnable failure) {
+	
+		// if player state object is null or unchanged do nothing and return
+		if (playerState == null || !playerState.isDirty()) {
+			return;
+		}
+
+		writer.submitUpdate(DataStoreWriter.recordKey("player", playerState.getPlayerUUID()), new DataStoreWriter.WriteOperation() {
+
+			// changed fields taken by this write
+			private int fields;
+
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				// get changed fields; if none, an earlier write already wrote them
+				fields = playerState.takeDirtyFields();
+				if (fields == 0) {
+					return;
+				}
+
+				try {
+					executePlayerStateUpdate(connection, playerState, fields);
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Player record for " + playerState.getName() 
+						+ " updated in the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while "
+							+ "updating a player record in the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+
+			@Override
+			void failed() {
+				// mark fields changed again, so they are written by the next update
+				playerState.markDirty(fields);
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// update player state record in cache, unless it was evicted while the write was queued
+				playerStateCache.refresh(playerState);
+				if (plugin.debug) {
+					plugin.getLogger().info("Player state for " 
+							+ playerState.getName() + " refreshed in cache.");
+				}
+				if (completion != null) {
+					completion.run();
+				}
+			}
+		}, failure);
+	}
+
+
+	/**
+	 * Execute update statement for changed fields of a player record<br>
+	 * A single changed field is written alone; several changed fields are written as a full record
+	 * @param connection
+	 * @param playerState
+	 * @param fields bits of changed fields
+	 * @throws SQLException
+	 */
+	private void executePlayerStateUpdate(final PooledConnection connection, final PlayerState playerState,
+			final int fields) throws SQLException {
+
+		PreparedStatement preparedStatement;
+
+		// single field queries take the player uuid as their second parameter
+		int uuidIndex = 2;
+
+		switch (fields) {
+		case PlayerState.NAME:
+			preparedStatement = connection.prepare("UpdatePlayerName");
+			preparedStatement.setString(1, playerState.getName());
+			break;
+		case PlayerState.LAST_LOGIN:
+			preparedStatement = connection.prepare("UpdatePlayerLastLogin");
+			preparedStatement.setLong(1, playerState.getLastLogin().toEpochMilli());
+			break;
+		case PlayerState.EARNED_BLOCKS:
+			preparedStatement = connection.prepare("UpdatePlayerEarnedBlocks");
+			preparedStatement.setInt(1, playerState.getEarnedClaimBlocks());
+			break;
+		case PlayerState.PURCHASED_BLOCKS:
+			preparedStatement = connection.prepare("UpdatePlayerPurchasedBlocks");
+			preparedStatement.setInt(1, playerState.getPurchasedClaimBlocks());
+			break;
+		case PlayerState.BONUS_BLOCKS:
+			preparedStatement = connection.prepare("UpdatePlayerBonusBlocks");
+			preparedStatement.setInt(1, playerState.getBonusClaimBlocks());
+			break;
+		default:
+			preparedStatement = connection.prepare("UpdatePlayerRecord");
+			preparedStatement.setString(1, playerState.getName());
+			preparedStatement.setLong(2, playerState.getLastLogin().toEpochMilli());
+			preparedStatement.setInt(3, playerState.getEarnedClaimBlocks());
+			preparedStatement.setInt(4, playerState.getPurchasedClaimBlocks());
+			preparedStatement.setInt(5, playerState.getBonusClaimBlocks());
+			uuidIndex = 6;
+		}
+
+		preparedStatement.setString(uuidIndex, playerState.getPlayerUUID().toString());
+		preparedStatement.executeUpdate();
+	}
+
+
+	/**
+	 * Delete player record from datastore by player uuid
+	 */
+	@Override
+	final void deletePlayerState(final UUID playerUUID) {
+	
+		// if key is null or empty, return null record
+		if (playerUUID == null) {
+			return;
+		}
+	
+		writer.submit(DataStoreWriter.recordKey("player", playerUUID), new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				int rowsAffected = 0;
+
+				try {
+					
+					// create prepared statement
+					PreparedStatement preparedStatement;
+					preparedStatement = connection.prepare("DeletePlayerRecord");
+
+					preparedStatement.setString(1, playerUUID.toString());
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " player records deleted.");
+					}
+
+					// delete player permission records
+					preparedStatement = 
+							connection.prepare("DeletePlayerPermissions");
+
+					preparedStatement.setString(1, playerUUID.toString());
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+					
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " player permission records deleted.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a player record from the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// remove player state record from cache
+				playerStateCache.flush(playerUUID);
+				if (plugin.debug) {
+					plugin.getLogger().info("Player state removed from cache.");
+				}
+			}
+		});
+
+		return;
+	}
+
+
+	/**
+	 * Read all claim records from datastore into HashSet
+	 */
+	@Override
+	final public Set<Claim> getAllClaims() {
+		
+		final Set<Claim> returnSet = new HashSet<Claim>();
+
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			
+			PreparedStatement preparedStatement;
+			preparedStatement = connection.prepare("SelectAllClaimRecords");
+
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			while( rs.next() ) {
+				
+				Claim claim = new Claim();
+
+				claim.setKey(rs.getInt("claimkey"));
+
+				// test for null or invalid owneruuid
+				String ownerUUID = rs.getString("owneruuid");
+				if (ownerUUID != null && !ownerUUID.isEmpty()) {
+					try {
+						claim.setOwnerUUID(UUID.fromString(ownerUUID));
+					}
+					catch (Exception e) {
+						plugin.getLogger().warning("Invalid owner UUID for claim " 
+								+ claim.getKey() 
+								+ " in " + getDisplayName() + " datastore.");
+					}
+				}
+				else {
+					claim.setOwnerUUID(null);
+				}
+				
+				claim.setGroupKey(rs.getInt("claimgroupkey"));
+				claim.setLocked(rs.getBoolean("locked"));
+				claim.setResizeable(rs.getBoolean("resizable"));
+				claim.setParentKey(rs.getInt("parentclaimkey"));
+				claim.setCreatedDate(Instant.ofEpochMilli(rs.getLong("ctime")));
+				claim.setModifiedDate(Instant.ofEpochMilli(rs.getLong("mtime")));
+				
+				String worldName = rs.getString("worldname");
+				int x1 = rs.getInt("x1");
+				int y1 = rs.getInt("y1");
+				int z1 = rs.getInt("z1");
+				int x2 = rs.getInt("x2");
+				int y2 = rs.getInt("y2");
+				int z2 = rs.getInt("z2");
+				claim.setCorners(plugin.getServer().getWorld(worldName),x1,y1,z1,x2,y2,z2);
+
+				claim.markClean();
+
+				// add record to return list
+				returnSet.add(claim);
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while reading claims from the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+		return Collections.unmodifiableSet(returnSet);
+	}
+
+	
+	final public Claim getClaim(final Integer claimKey) {
+		
+		// if claim key is null, return null record
+		if (claimKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get claim record for null key.");
+			}
+			return null;
+		}
+		
+		// try to retrieve claim record from cache
+		final Claim claim = claimCache.fetch(claimKey);
+		
+		// output success or fail message to log if debugging is enabled
+		if (plugin.debug) {
+			if (claim != null) {
+				plugin.getLogger().info("Retrieved claim record from cache.");
+			}
+			else {
+				plugin.getLogger().info("No matching claim record found in cache.");
+			}
+		}
+		
+		// all claim records are stored in cache, so not trying datastore at this point.
+		// for caching claim records on demand, a negative result would also need to be cached
+		// to prevent excessive database lookups when no record exists
+
+		// return claim record; will be null if no record found
+		return claim;
+	}
+	
+	
+	/**
+	 * Get child keys of claim
+	 * @param claimKey
+	 * @return Set of Integer child keys; empty Set if no records found 
+	 */
+	@Override
+	final Set<Integer> getChildKeys(final Integer claimKey) {
+	
+		// if claim key is null, return empty set
+		if (claimKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get child claim records for null key.");
+			}
+			return Collections.emptySet();
+		}
+		
+		// return unmodifiable set of child keys from cache
+		return claimCache.fetchChildKeys(claimKey);
+	}
+
+	
+	@Override
+	public final Set<Claim> getChildClaims(final Integer claimKey) {
+
+		// if claim key is null, return empty set
+		if (claimKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get child claim records for null key.");
+			}
+			return Collections.emptySet();
+		}
+		
+		// return unmodifiable set of child claims from cache
+		return claimCache.fetchChildClaims(claimKey);
+		
+		// all claim records are stored in cache, so not trying datastore at this point.
+		// for caching claim records on demand, a negative result would also need to be cached
+		// to prevent excessive database lookups when no record exists
+	}
+
+	
+	@Override
+	public final Set<UUID> getClaimOwners() {
+		return claimCache.fetchOwnerUUIDs();
+	}
+
+
+	@Override
+	public final Set<Claim> getPlayerClaims(final UUID ownerUUID) {
+		
+		// if ownerUUID is null, return null record
+		if (ownerUUID == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get claim records for null player uuid.");
+			}
+			return Collections.emptySet();
+		}
+		
+		// retrieve claim records from cache
+		return Collections.unmodifiableSet(claimCache.fetchClaimsByOwner(ownerUUID));
+		
+		// all claim records are stored in cache, so not trying datastore at this point.
+		// for caching claim records on demand, a negative result would also need to be cached
+		// to prevent excessive database lookups when no record exists
+	}
+	
+	
+	/**
+	 * Get claim record by claim key
+	 */
+	@SuppressWarnings("unused")
+	private final Claim selectClaimRecord(final Integer claimKey) {
+		
+		// if claim key is null, return null record
+		if (claimKey == null) {
+			return null;
+		}
+		
+		Claim claim = new Claim();
+		
+		//final String sqlSelectClaimRecordByKey = "SELECT * FROM claims WHERE claimkey = ?";
+
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			PreparedStatement preparedStatement;
+			preparedStatement = connection.prepare("SelectClaimRecordByKey");
+			
+			preparedStatement.setInt(1, claimKey);
+			
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			boolean empty = true;
+
+			// only zero or one record can match the unique key
+			if (rs.next()) {
+				claim.setKey(rs.getInt("claimkey"));
+				
+				// test for null or invalid owner uuid
+				String ownerUUID = rs.getString("owneruuid");
+				if (ownerUUID != null && !ownerUUID.isEmpty()) {
+					try {
+						claim.setOwnerUUID(UUID.fromString(rs.getString("owneruuid")));
+					}
+					catch (Exception e) {
+						plugin.getLogger().warning("Invalid owner UUID for claim " 
+								+ claim.getKey() 
+								+ " in " + this.getDisplayName() + " datastore.");
+					}
+				}
+
+				claim.setGroupKey(rs.getInt("claimgroupkey"));
+				claim.setLocked(rs.getBoolean("locked"));
+				claim.setResizeable(rs.getBoolean("resizable"));
+				claim.setParentKey(rs.getInt("parentclaimkey"));
+				claim.setCreatedDate(Instant.ofEpochMilli(rs.getLong("ctime")));
+				claim.setModifiedDate(Instant.ofEpochMilli(rs.getLong("mtime")));
+				
+				String worldName = rs.getString("worldname");
+				int x1 = rs.getInt("x1");
+				int y1 = rs.getInt("y1");
+				int z1 = rs.getInt("z1");
+				int x2 = rs.getInt("x2");
+				int y2 = rs.getInt("y2");
+				int z2 = rs.getInt("z2");
+				claim.setCorners(plugin.getServer().getWorld(worldName),x1,y1,z1,x2,y2,z2);
+				
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim loaded from " 
+							+ this.getDisplayName() + "datastore with worldname " + worldName);
+				}
+				claim.markClean();
+			    empty = false;
+			}
+			
+			// if no matching record found for claim key, output log message and set return claim to null
+			if (empty) {
+				plugin.getLogger().info("No record found for claim key " + claimKey + ".");
+				claim = null;
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while reading a claim from the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+		return claim;
+	}
+	
+	@Override
+	public final Claim getClaimAt(final Location location) {
+		return getClaimAt(location,false);
+	}
+
+	@Override
+	public final Claim getClaimAt(final Location location, final boolean ignoreHeight) {
+
+		// if location is null, return null record
+		if (location == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("Could not retrieve claim because passed location is null.");
+			}
+			return null;
+		}
+		return claimCache.fetchClaimAt(location, ignoreHeight);
+	}
+	
+	@Override
+	public final Claim getClaimAt(final World world, final int x, final int y, final int z,
+			final boolean ignoreHeight) {
+
+		// if world is null, return null record
+		if (world == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("Could not retrieve claim because passed world is null.");
+			}
+			return null;
+		}
+		return claimCache.fetchClaimAt(world, x, y, z, ignoreHeight);
+	}
+
+	@Override
+	public final Claim getClaimAt(final Block block) {
+		return getClaimAt(block,false);
+	}
+
+	@Override
+	public final Claim getClaimAt(final Block block, final boolean ignoreHeight) {
+
+		// if block is null, return null record
+		if (block == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("Could not retrieve claim because passed block is null.");
+			}
+			return null;
+		}
+		return claimCache.fetchClaimAt(block.getWorld(), block.getX(), block.getY(), block.getZ(), ignoreHeight);
+	}
+	
+	@Override
+	public final Set<Claim> getTopClaimsIntersecting(final World world,
+			final int x1, final int z1, final int x2, final int z2) {
+		
+		// if world is null, return empty set
+		if (world == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("Could not retrieve claims because passed world is null.");
+			}
+			return Collections.emptySet();
+		}
+		return claimCache.fetchTopClaimsIntersecting(world, x1, z1, x2, z2);
+	}
+	
+	@SuppressWarnings("unused")
+	private final Claim selectClaimAt(final Location location, final boolean ignoreHeight) {
+	
+		Claim claim = new Claim();
+		
+		final String worldName = location.getWorld().getName();
+		final int x = location.getBlockX();
+		final int y = location.getBlockY();
+		final int z = location.getBlockZ();
+		
+		// subclaims will always have a higher claimkey than parents,
+		// so select first match in descending order
+		//final String sqlGetClaimAtLocationIgnoringHeight = "SELECT * FROM claims "
+		//		+ "WHERE worldname = ? AND x1 <= ? AND x2 >= ? AND z1 <= ? AND z2 >= ? "
+		//		+ "ORDER BY claimkey DESC limit 1";
+		
+		//final String sqlGetClaimAtLocationObservingHeight = "SELECT * FROM claims "
+		//		+ "WHERE worldname = ? AND x1 <= ? AND x2 >= ? AND z1 <= ? AND z2 >= ? AND y1 <= ? "
+		//		+ "ORDER BY claimkey DESC limit 1";
+		
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			
+			PreparedStatement preparedStatement;
+			
+			if (ignoreHeight) {
+				preparedStatement = 
+						connection.prepare("SelectClaimAtLocationIgnoringHeight");
+				
+				preparedStatement.setString(1,worldName);
+				preparedStatement.setInt(2, x);
+				preparedStatement.setInt(3, x);
+				preparedStatement.setInt(4, z);
+				preparedStatement.setInt(5, z);
+			}
+			else {
+			
+				preparedStatement = 
+						connection.prepare("SelectClaimAtLocationObservingHeight");
+	
+				preparedStatement.setString(1,worldName);
+				preparedStatement.setInt(2, x);
+				preparedStatement.setInt(3, x);
+				preparedStatement.setInt(4, z);
+				preparedStatement.setInt(5, z);
+				preparedStatement.setInt(6, y);
+			}
+			
+			ResultSet rs = preparedStatement.executeQuery();
+	
+			boolean empty = true;
+	
+			if (rs.next()) {
+				claim.setKey(rs.getInt("claimkey"));
+				claim.setGroupKey(rs.getInt("claimgroupkey"));
+				claim.setLocked(rs.getBoolean("locked"));
+				claim.setResizeable(rs.getBoolean("resizable"));
+				claim.setParentKey(rs.getInt("parentclaimkey"));
+				claim.setCreatedDate(Instant.ofEpochMilli(rs.getLong("ctime")));
+				claim.setModifiedDate(Instant.ofEpochMilli(rs.getLong("mtime")));
+				
+				try {
+					claim.setOwnerUUID(UUID.fromString(rs.getString("owneruuid")));
+				} catch (Exception e) {
+					claim.setOwnerUUID(null);
+				}
+				
+				String storedWorldName = rs.getString("worldname");
+				int x1 = rs.getInt("x1");
+				int y1 = rs.getInt("y1");
+				int z1 = rs.getInt("z1");
+				int x2 = rs.getInt("x2");
+				int y2 = rs.getInt("y2");
+				int z2 = rs.getInt("z2");
+				claim.setCorners(plugin.getServer().getWorld(storedWorldName),x1,y1,z1,x2,y2,z2);
+				
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim loaded from " 
+							+ getDisplayName() + " datastore with worldname " + storedWorldName);
+				}
+				claim.markClean();
+			    empty = false;
+			}
+			
+			// if no claims found return null
+			if (empty) {
+				return null;
+			}
+			
+		} catch (SQLException e) {
+			plugin.getLogger().warning("There was an error while attempting to"
+					+ " find a claim at a location in the " + getDisplayName() + " datastore:");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+		return claim;
+	}
+
+
+	/**
+	 * Inserts a new claim record in the datastore
+	 */
+	@Override
+	final void insertClaimBlocking(final Claim claim) {
+
+		// if claim is null, do nothing and return
+		if (claim == null) {
+			return;
+		}
+
+		// get the current system time
+		final long currentTime = System.currentTimeMillis();
+
+		if (claim.getGroupKey() == null) {
+			claim.setGroupKey(0);
+		}
+		if (claim.getParentKey() == null) {
+			claim.setParentKey(0);
+		}
+
+		// the insert writes all fields, so none remain changed
+		claim.markClean();
+
+		//PreparedStatement preparedStatement;
+
+		try {
+
+			// if claim owner uuid is null, insert all zero uuid
+			String ownerUUIDString = "";
+			if (claim.getOwnerUUID() != null) {
+				ownerUUIDString = claim.getOwnerUUID().toString();
+			}
+			else {
+				ownerUUIDString = zeroUUID.toString();
+			}
+
+			// borrow connection from write pool
+			final PooledConnection connection = writePool.borrow();
+			try {
+
+				PreparedStatement preparedStatement;
+				preparedStatement = connection.prepareReturningKeys("InsertClaimRecord");
+
+				preparedStatement.setString(1, ownerUUIDString);
+				preparedStatement.setInt(2, claim.getParentKey());
+				preparedStatement.setInt(3, claim.getGroupKey());
+				preparedStatement.setBoolean(4, claim.isLocked());
+				preparedStatement.setBoolean(5, claim.getResizeable());
+				preparedStatement.setString(6, getWorldName(claim));
+				preparedStatement.setInt(7, claim.getLowerX());
+				preparedStatement.setInt(8, claim.getLowerY());
+				preparedStatement.setInt(9, claim.getLowerZ());
+				preparedStatement.setInt(10, claim.getUpperX());
+				preparedStatement.setInt(11, claim.getUpperY());
+				preparedStatement.setInt(12, claim.getUpperZ());
+				preparedStatement.setLong(13, currentTime);
+				preparedStatement.setLong(14, currentTime);
+
+				int affectedRows = preparedStatement.executeUpdate();
+
+				if (plugin.debug) {
+					plugin.getLogger().info("Inserted " + affectedRows + " new claim record(s) in the "
+							+ getDisplayName() + " datastore.");
+				}
+
+				final ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+
+				// set newClaimKey to newly minted primary key
+				if (generatedKeys.next()) {
+					claim.setKey(generatedKeys.getInt(1));
+				}
+			}
+			finally {
+				writePool.release(connection);
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while "
+					+ "inserting a new claim into the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Inserts a new claim record in the datastore asynchronously
+	 */
+	@Override
+	final void insertClaim(final Claim claim) {
+
+		// if claim is null, do nothing and return
+		if (claim == null) {
+			return;
+		}
+
+		// get the current system time
+		final long currentTime = System.currentTimeMillis();
+		
+		if (claim.getGroupKey() == null) {
+			claim.setGroupKey(0);
+		}
+		if (claim.getParentKey() == null) {
+			claim.setParentKey(0);
+		}
+
+		// the insert writes all fields, so none remain changed
+		claim.markClean();
+
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+
+					// if claim owner uuid is null, insert all zero uuid
+					String ownerUUIDString = "";
+					if (claim.getOwnerUUID() != null) {
+						ownerUUIDString = claim.getOwnerUUID().toString();
+					}
+					else {
+						ownerUUIDString = zeroUUID.toString();
+					}
+
+					PreparedStatement preparedStatement;
+					preparedStatement = connection.prepareReturningKeys("InsertClaimRecord");
+
+					preparedStatement.setString(1, ownerUUIDString);
+					preparedStatement.setInt(2, claim.getParentKey());
+					preparedStatement.setInt(3, claim.getGroupKey());
+					preparedStatement.setBoolean(4, claim.isLocked());
+					preparedStatement.setBoolean(5, claim.getResizeable());
+					preparedStatement.setString(6, getWorldName(claim));
+					preparedStatement.setInt(7, claim.getLowerX());
+					preparedStatement.setInt(8, claim.getLowerY());
+					preparedStatement.setInt(9, claim.getLowerZ());
+					preparedStatement.setInt(10, claim.getUpperX());
+					preparedStatement.setInt(11, claim.getUpperY());
+					preparedStatement.setInt(12, claim.getUpperZ());
+					preparedStatement.setLong(13, currentTime);
+					preparedStatement.setLong(14, currentTime);
+
+					int affectedRows = preparedStatement.executeUpdate();
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Inserted " + affectedRows + " new claim record(s) in the " + getDisplayName() + " datastore.");
+					}
+
+					ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+
+					// set newClaimKey to newly minted primary key
+					if (generatedKeys.next()) {
+						claim.setKey(generatedKeys.getInt(1));
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while "
+							+ "inserting a new claim into the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// insert claim record in cache
+				claimCache.store(claim);
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim record stored in cache.");
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Updates an existing claim record in the datastore<br>
+	 * Nothing is written if no field changed. A single changed field is written alone
+	 * with the modified date, unless it is the claim boundary.
+	 */
+	@Override
+	final void updateClaim(final Claim claim) {
+		
+		// if claim is null, claim key is null or claim is unchanged, do nothing and return
+		if (!prepareClaimUpdate(claim)) {
+			return;
+		}
+
+		writer.submitUpdate(DataStoreWriter.recordKey("claim", claim.getKey()), new DataStoreWriter.WriteOperation() {
+
+			// changed fields taken by this write
+			private int fields;
+
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				// get changed fields; if none, an earlier write already wrote them
+				fields = claim.takeDirtyFields();
+				if (fields == 0) {
+					return;
+				}
+
+				try {
+					final int rowsAffected = executeClaimUpdate(connection, claim, fields);
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Successfully updated " + rowsAffected 
+								+ " claim(s) in the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while "
+							+ "updating claim data in the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+
+			@Override
+			void failed() {
+				// mark fields changed again, so they are written by the next update
+				claim.markDirty(fields);
+			}
+		}, null);
+	}
+	
+	
+	/**
+	 * Set modified date and non-null defaults of a changed claim, and refresh it in the cache
+	 * @param claim
+	 * @return true if claim must be written, false if claim is null, has no key or is unchanged
+	 */
+	private boolean prepareClaimUpdate(final Claim claim) {
+
+		if (claim == null || claim.getKey() == null || !claim.isDirty()) {
+			return false;
+		}
+
+		// set claim modified date to current time
+		claim.setModifiedDate(Instant.now());
+
+		// set non-null defaults
+		if (claim.getGroupKey() == null) {
+			claim.setGroupKey(0);
+		}
+		if (claim.getParentKey() == null) {
+			claim.setParentKey(0);
+		}
+
+		// refresh claim in cache now, so claim indexes reflect any boundary or owner change immediately
+		claimCache.store(claim);
+		if (plugin.debug) {
+			plugin.getLogger().info("Claim record updated in cache.");
+		}
+		return true;
+	}
+
+
+	/**
+	 * Get name of a claim's world
+	 * @param claim
+	 * @return world name, or null if claim has no world or its world is not loaded
+	 */
+	private static String getWorldName(final Claim claim) {
+		final World world = claim.getWorld();
+		if (world == null) {
+			return null;
+		}
+		return world.getName();
+	}
+
+
+	/**
+	 * Execute update statement for changed fields of a claim record<br>
+	 * A single changed field is written alone with the modified date, unless it is the claim boundary;
+	 * several changed fields are written as a full record
+	 * @param connection
+	 * @param claim
+	 * @param fields bits of changed fields
+	 * @return number of rows updated
+	 * @throws SQLException
+	 */
+	private int executeClaimUpdate(final PooledConnection connection, final Claim claim,
+			final int fields) throws SQLException {
+
+		// if claim owner uuid is null, insert all zero uuid
+		String ownerUUIDString = "";
+		if (claim.getOwnerUUID() != null) {
+			ownerUUIDString = claim.getOwnerUUID().toString();
+		}
+		else {
+			ownerUUIDString = zeroUUID.toString();
+		}
+		
+		PreparedStatement preparedStatement;
+
+		// single field queries take the modified date and claim key as their second and third parameters
+		int modifiedDateIndex = 2;
+
+		switch (fields) {
+		case Claim.OWNER:
+			preparedStatement = connection.prepare("UpdateClaimOwner");
+			preparedStatement.setString(1, ownerUUIDString);
+			break;
+		case Claim.PARENT:
+			preparedStatement = connection.prepare("UpdateClaimParent");
+			preparedStatement.setInt(1, claim.getParentKey());
+			break;
+		case Claim.GROUP:
+			preparedStatement = connection.prepare("UpdateClaimGroup");
+			preparedStatement.setInt(1, claim.getGroupKey());
+			break;
+		case Claim.LOCKED:
+			preparedStatement = connection.prepare("UpdateClaimLocked");
+			preparedStatement.setBoolean(1, claim.isLocked());
+			break;
+		case Claim.RESIZEABLE:
+			preparedStatement = connection.prepare("UpdateClaimResizable");
+			preparedStatement.setBoolean(1, claim.getResizeable());
+			break;
+		default:
+			preparedStatement = connection.prepare("UpdateClaimRecord");
+			preparedStatement.setString(1, ownerUUIDString);
+			preparedStatement.setInt(2, claim.getParentKey());
+			preparedStatement.setInt(3, claim.getGroupKey());
+			preparedStatement.setBoolean(4, claim.isLocked());
+			preparedStatement.setBoolean(5, claim.getResizeable());
+			preparedStatement.setString(6, getWorldName(claim));
+			preparedStatement.setInt(7, claim.getLowerX());
+			preparedStatement.setInt(8, claim.getLowerY());
+			preparedStatement.setInt(9, claim.getLowerZ());
+			preparedStatement.setInt(10, claim.getUpperX());
+			preparedStatement.setInt(11, claim.getUpperY());
+			preparedStatement.setInt(12, claim.getUpperZ());
+			modifiedDateIndex = 13;
+		}
+
+		preparedStatement.setLong(modifiedDateIndex, claim.getModifiedDate().toEpochMilli());
+		preparedStatement.setInt(modifiedDateIndex + 1, claim.getKey());
+
+		return preparedStatement.executeUpdate();
+	}
+
+
+	/**
+	 * Delete a claim record from the datastore by claim key
+	 * and all child claim records
+	 * and all permissions records
+	 */
+	@Override
+	final void deleteClaim(final Integer claimKey) {
+
+		// if key is null or empty, do nothing and return
+		if (claimKey == null) {
+			plugin.getLogger().warning(getDisplayName() + " datastore could not delete claim because "
+					+ "passed key is null.");
+			return;
+		}
+		
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				int rowsAffected = 0;
+
+				try {
+
+					// create prepared statement
+					PreparedStatement preparedStatement;
+					preparedStatement = connection.prepare("DeleteClaimRecord");
+
+					preparedStatement.setInt(1, claimKey);
+					preparedStatement.setInt(2, claimKey);
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " claim records deleted from the "
+								+ getDisplayName() + " datastore.");
+					}
+
+					// delete claim permissions
+					preparedStatement = connection.prepare("DeleteClaimPermissions");
+
+					preparedStatement.setInt(1, claimKey);
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " claim permission records for claim "
+								+ claimKey + " deleted from the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a claim record from the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// get all child claim keys, also to be removed
+				Set<Integer> deleteKeys = new HashSet<Integer>(getChildKeys(claimKey));
+				
+				// add claim key to set
+				deleteKeys.add(claimKey);
+				
+				// iterate over set and remove all claims from cache
+				int count = 0;
+				for (Integer deleteKey : deleteKeys) {
+					
+					// remove claim record from cache
+					claimCache.flush(deleteKey);
+					count++;
+				}
+				// send debug message to log
+				if (plugin.debug) {
+					plugin.getLogger().info(count + " claim record(s) removed from cache.");
+				}
+			}
+		});
+
+		return;
+	}
+	
+	/**
+	 * Apply a claim batch to the caches, then write all of its changes in one write operation,
+	 * so they are committed in one transaction<br>
+	 * If any statement fails, the writes of the batch are rolled back, and changed fields of
+	 * updated records are marked changed again so a later update writes them.
+	 */
+	@Override
+	final void commitBatch(final ClaimBatch batch) {
+
+		// remove cleared permissions from cache
+		final Set<Integer> clearedClaimKeys = new HashSet<Integer>(batch.getClearedPermissionClaimKeys());
+		for (Integer claimKey : clearedClaimKeys) {
+			flushClaimPermissions(claimKey);
+		}
+
+		// refresh changed claims in cache
+		final List<Claim> updatedClaims = new ArrayList<Claim>();
+		for (Claim claim : batch.getUpdatedClaims()) {
+			if (prepareClaimUpdate(claim)) {
+				updatedClaims.add(claim);
+			}
+		}
+
+		// remove deleted claims and their permissions from cache
+		final List<Integer> deletedClaimKeys = new ArrayList<Integer>();
+		for (Claim claim : batch.getDeletedClaims()) {
+			flushClaimPermissions(claim.getKey());
+			claimCache.flush(claim.getKey());
+			deletedClaimKeys.add(claim.getKey());
+		}
+
+		// get changed player states; they are already current in cache
+		final List<PlayerState> updatedPlayerStates = new ArrayList<PlayerState>();
+		for (PlayerState playerState : batch.getUpdatedPlayerStates()) {
+			if (playerState.isDirty()) {
+				updatedPlayerStates.add(playerState);
+			}
+		}
+
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+
+			// changed fields taken by this write
+			private final int[] claimFields = new int[updatedClaims.size()];
+			private final int[] playerFields = new int[updatedPlayerStates.size()];
+
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				// set savepoint, so a failed batch can be undone without undoing other writes of the transaction
+				final Connection jdbcConnection = connection.getConnection();
+				final Savepoint savepoint = jdbcConnection.setSavepoint();
+
+				// take changed fields of updated records
+				for (int i = 0; i < claimFields.length; i++) {
+					claimFields[i] = updatedClaims.get(i).takeDirtyFields();
+				}
+				for (int i = 0; i < playerFields.length; i++) {
+					playerFields[i] = updatedPlayerStates.get(i).takeDirtyFields();
+				}
+
+				try {
+					PreparedStatement preparedStatement;
+
+					for (Integer claimKey : clearedClaimKeys) {
+						preparedStatement = connection.prepare("DeletePermissionRecordsForClaim");
+						preparedStatement.setInt(1, claimKey);
+						preparedStatement.executeUpdate();
+					}
+
+					for (int i = 0; i < claimFields.length; i++) {
+						if (claimFields[i] != 0) {
+							executeClaimUpdate(connection, updatedClaims.get(i), claimFields[i]);
+						}
+					}
+
+					for (Integer claimKey : deletedClaimKeys) {
+						preparedStatement = connection.prepare("DeleteClaimRecord");
+						preparedStatement.setInt(1, claimKey);
+						preparedStatement.setInt(2, claimKey);
+						preparedStatement.executeUpdate();
+
+						preparedStatement = connection.prepare("DeleteClaimPermissions");
+						preparedStatement.setInt(1, claimKey);
+						preparedStatement.executeUpdate();
+					}
+
+					for (int i = 0; i < playerFields.length; i++) {
+						if (playerFields[i] != 0) {
+							executePlayerStateUpdate(connection, updatedPlayerStates.get(i), playerFields[i]);
+						}
+					}
+
+					jdbcConnection.releaseSavepoint(savepoint);
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Claim batch written to the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					jdbcConnection.rollback(savepoint);
+					plugin.getLogger().warning("An error occured while writing a claim batch to the "
+							+ getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+
+			@Override
+			void failed() {
+				// mark fields changed again, so they are written by the next update
+				for (int i = 0; i < claimFields.length; i++) {
+					updatedClaims.get(i).markDirty(claimFields[i]);
+				}
+				for (int i = 0; i < playerFields.length; i++) {
+					updatedPlayerStates.get(i).markDirty(playerFields[i]);
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				for (PlayerState playerState : updatedPlayerStates) {
+					playerStateCache.refresh(playerState);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Remove all cached permission records of a claim
+	 * @param claimKey
+	 */
+	private void flushClaimPermissions(final Integer claimKey) {
+		for (Integer permissionKey : new HashSet<Integer>(permissionCache.getCacheMapKeys(claimKey))) {
+			permissionCache.flush(permissionKey);
+		}
+	}
+
+
+	/**
+	 * Get all permissions from datastore
+	 */
+	@Override
+	final Set<ClaimPermission> getAllClaimPermissions() {
+
+		// create new HashSet for return
+		Set<ClaimPermission> returnSet = new HashSet<ClaimPermission>();
+		
+		PreparedStatement preparedStatement;
+		
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			preparedStatement = connection.prepare("SelectAllPermissions");
+	
+			ResultSet rs = preparedStatement.executeQuery();
+	
+			while (rs.next()) {
+
+				ClaimPermission claimPermission = new ClaimPermission();
+				
+				claimPermission.setKey(rs.getInt("permissionkey"));
+				claimPermission.setClaimKey(rs.getInt("claimkey"));
+				claimPermission.setPlayerUUID(UUID.fromString(rs.getString("playeruuid")));
+				claimPermission.setPermissionLevel(PermissionLevel.fromByte(rs.getByte("permission")));
+				
+				returnSet.add(claimPermission);
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to read permission data from the " 
+					+ getDisplayName() + " datastore.");
+		}
+		finally {
+			readPool.release(connection);
+		}
+		
+		return Collections.unmodifiableSet(returnSet);
+	}
+
+	@Override
+	final ClaimPermission getClaimPermission(final Integer claimKey, final UUID playerUUID) {
+		
+		// if claim key is null, return null record
+		if (claimKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get permission record for null claim key.");
+			}
+			return null;
+		}
+		
+		// if player key is null, return null record
+		if (playerUUID == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get permission record for null player uuid.");
+			}
+			return null;
+		}
+		
+		// get permission record from permission cache; will be null if no record found
+		return permissionCache.fetch(claimKey, playerUUID);
+		
+		// all permission records are stored in cache, so not trying datastore at this point.
+		// for caching permission records on demand, a negative result would also need to be cached
+		// to prevent excessive database lookups when no record exists
+	}
+	
+
+	@Override
+	final PermissionLevel getPermissionLevel(final Integer claimKey, final UUID playerUUID) {
+		
+		// if claim key or player uuid is null, return null
+		if (claimKey == null || playerUUID == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get permission level for null claim key or player uuid.");
+			}
+			return null;
+		}
+		
+		// get permission level from permission cache; will be null if no record found
+		return permissionCache.fetchPermissionLevel(claimKey, playerUUID);
+	}
+	
+
+	@Override
+	final ClaimPermission getClaimPermission(final Integer permissionRecordKey) {
+		
+		// if permission record key is null, return null record
+		if (permissionRecordKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get permission record for null key.");
+			}
+			return null;
+		}
+		
+		// try to retrieve permission record from cache
+		final ClaimPermission claimPermission = permissionCache.fetch(permissionRecordKey);
+		
+		// all permission records are stored in cache, so not trying datastore at this point.
+		// for caching permission records on demand, a negative result would also need to be cached
+		// to prevent excessive database lookups when no record exists
+		
+		// return record; will be null if no record found
+		return claimPermission;
+	}
+	
+
+	@Override
+	final Set<Integer> getClaimPermissionKeys(final Integer claimKey) {
+		
+		// get all permission record keys for a claim
+		return Collections.unmodifiableSet((permissionCache.getCacheMapKeys(claimKey)));
+	}
+	
+	
+	/**
+	 * get player permission level for claim by claimKey, playerUUID 
+	 */
+	@SuppressWarnings("unused")
+	private final ClaimPermission selectPermissionRecord(final Integer claimKey, final UUID playerUUID) {
+	
+		// if claim key is null, return null record
+		if (claimKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not select permission record for null claim key.");
+			}
+			return null;
+		}
+		
+		// if player uuid is null, return null record
+		if (playerUUID == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not select permission record for null player uuid.");
+			}
+			return null;
+		}
+		
+		// initialize new permission record
+		ClaimPermission claimPermission = new ClaimPermission();
+		
+		if (plugin.debug) {
+			plugin.getLogger().info("Getting permission record from " 
+					+ getDisplayName() + " datastore by claim key and player uuid.");
+		}
+
+		PreparedStatement preparedStatement;
+		
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			preparedStatement = 
+					connection.prepare("SelectPermissionRecord");
+			
+			preparedStatement.setInt(1, claimKey);
+			preparedStatement.setString(2, playerUUID.toString());
+			
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			// only zero or one record can match unique (claimKey,playerUUID)
+			if( rs.next() ) {
+				
+				claimPermission.setClaimKey(claimKey);
+				claimPermission.setPlayerUUID(playerUUID);
+				claimPermission.setPermissionLevel(PermissionLevel.fromByte(rs.getByte("permission")));
+				claimPermission.markClean();
+			}
+	
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "select a permission record from the " + getDisplayName() + " datastore.");
+		}
+		finally {
+			readPool.release(connection);
+		}
+		
+		// if permission record is null or permission level is null, return null record
+		if (claimPermission == null || claimPermission.getPermissionLevel() == null) {
+			return null;
+		}
+		
+		// return permission record
+		return claimPermission;
+	}
+
+	
+	/**
+	 * get player (or group) permission level for claim by permission record key
+	 */
+	@SuppressWarnings("unused")
+	private final ClaimPermission selectPermissionRecord(final Integer permissionRecordKey) {
+	
+		// if permission record key is null, return null record
+		if (permissionRecordKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not select permission record for null key.");
+			}
+			return null;
+		}
+		
+		// initialize new permission record
+		ClaimPermission claimPermission = new ClaimPermission();
+		
+		if (plugin.debug) {
+			plugin.getLogger().info("Getting permission record from " 
+					+ getDisplayName() + " datastore by permission record key.");
+		}
+
+		PreparedStatement preparedStatement;
+		
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			preparedStatement = connection.prepare("SelectPermissionRecordByKey");
+			
+			preparedStatement.setInt(1, permissionRecordKey);
+			
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			// only zero or one record can match unique (claimKey,playerKey)
+			if( rs.next() ) {
+				
+				claimPermission.setClaimKey(rs.getInt("claimkey"));
+				claimPermission.setPlayerUUID(UUID.fromString(rs.getString("playeruuid")));
+				claimPermission.setPermissionLevel(PermissionLevel.fromByte(rs.getByte("permission")));
+				claimPermission.markClean();
+			}
+	
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "select a permission record from the " + getDisplayName() + " datastore.");
+		}
+		finally {
+			readPool.release(connection);
+		}
+		
+		// if permission record is null or permission level is null, return null record
+		if (claimPermission == null || claimPermission.getPermissionLevel() == null) {
+			return null;
+		}
+		
+		// return permission record
+		return claimPermission;
+	}
+
+	
+	@Override
+	final void insertClaimPermissionBlocking(final ClaimPermission claimPermission) {
+		
+		// if player data is null do nothing and return
+		if (claimPermission == null) {
+			return;
+		}
+
+		// the insert writes all fields, so none remain changed
+		claimPermission.markClean();
+
+		try {
+
+			// borrow connection from write pool
+			final PooledConnection connection = writePool.borrow();
+			try {
+
+				PreparedStatement preparedStatement;
+				preparedStatement = connection.prepareReturningKeys("InsertPermissionRecord");
+
+				preparedStatement.setInt(1, claimPermission.getClaimKey());
+				preparedStatement.setString(2, claimPermission.getPlayerUUID().toString());
+				preparedStatement.setByte(3, claimPermission.getPermissionLevel().toByte());
+
+				preparedStatement.executeUpdate();
+
+				ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+
+				// set permissionRecordKey to newly minted primary key
+				if (generatedKeys.next()) {
+					Integer newKey = generatedKeys.getInt(1);
+					claimPermission.setKey(newKey);
+				}
+			}
+			finally {
+				writePool.release(connection);
+			}
+			
+			if (plugin.debug) {
+				plugin.getLogger().info("Permission record inserted into " + getDisplayName() + " datastore.");
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "save a permission record to the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		
+		// insert permission record in cache
+		permissionCache.store(claimPermission);
+		if (plugin.debug) {
+			plugin.getLogger().info("Permission record stored in cache.");
+		}
+	}
+	
+	
+	@Override
+	final void insertClaimPermission(final ClaimPermission claimPermission) {
+
+		// if player data is null do nothing and return
+		if (claimPermission == null) {
+			return;
+		}
+
+		// the insert writes all fields, so none remain changed
+		claimPermission.markClean();
+
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+
+					PreparedStatement preparedStatement;
+					preparedStatement = connection.prepareReturningKeys("InsertPermissionRecord");
+
+					preparedStatement.setInt(1, claimPermission.getClaimKey());
+					preparedStatement.setString(2, claimPermission.getPlayerUUID().toString());
+					preparedStatement.setByte(3, claimPermission.getPermissionLevel().toByte());
+
+					preparedStatement.executeUpdate();
+
+					ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+
+					// set permissionRecordKey to newly minted primary key
+					if (generatedKeys.next()) {
+						Integer newKey = generatedKeys.getInt(1);
+						claimPermission.setKey(newKey);
+					}
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Permission record inserted into " 
+								+ getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while attempting to "
+							+ "insert a permission record into the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// insert permission record in cache
+				permissionCache.store(claimPermission);
+				if (plugin.debug) {
+					plugin.getLogger().info("Permission record stored in cache.");
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Updates an existing claim record in the datastore
+	 */
+	@Override
+	final void updateClaimPermission(final ClaimPermission claimPermission) {
+		
+		// if permission record is null, log error and return
+		if (claimPermission == null) {
+			plugin.getLogger().warning("Could not update a permission record "
+					+ "in the " + this.getDisplayName() + " datastore because the record was null.");
+			return;
+		}
+		
+		// if permission record key is null, log error and return
+		if (claimPermission.getKey() == null) {
+			plugin.getLogger().warning("Could not update a permission record "
+					+ "in the " + this.getDisplayName() + " datastore because the key was null.");
+			return;
+		}
+		
+		// if claim key is null, log error and return
+		if (claimPermission.getClaimKey() == null) {
+			plugin.getLogger().warning("Could not update a permission record "
+					+ "in the " + this.getDisplayName() + " datastore because the claim key was null.");
+			return;
+		}
+		
+		// if player key is null, log error and return
+		if (claimPermission.getPlayerUUID() == null) {
+			plugin.getLogger().warning("Could not update a permission record "
+					+ "in the " + this.getDisplayName() + " datastore because the player uuid was null.");
+			return;
+		}
+
+		// if permission level is null, log error and return
+		if (claimPermission.getPermissionLevel() == null) {
+			plugin.getLogger().warning("Could not update a permission record "
+					+ "in the " + this.getDisplayName() + " datastore because the permission level was null.");
+			return;
+		}
+
+		// if permission record is unchanged, do nothing and return
+		if (!claimPermission.isDirty()) {
+			return;
+		}
+
+		writer.submitUpdate(DataStoreWriter.recordKey("permission", claimPermission.getKey()), new DataStoreWriter.WriteOperation() {
+
+			// changed fields taken by this write
+			private int fields;
+
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				// get changed fields; if none, an earlier write already wrote them
+				fields = claimPermission.takeDirtyFields();
+				if (fields == 0) {
+					return;
+				}
+
+				try {
+					
+					PreparedStatement preparedStatement;
+
+					// write permission level alone if it is the only changed field
+					if (fields == ClaimPermission.LEVEL) {
+						preparedStatement = connection.prepare("UpdatePermissionLevel");
+						preparedStatement.setByte(1, claimPermission.getPermissionLevel().toByte());
+						preparedStatement.setInt(2, claimPermission.getKey());
+					}
+					else {
+						preparedStatement = connection.prepare("UpdatePermissionRecord");
+						preparedStatement.setInt(1, claimPermission.getClaimKey());
+						preparedStatement.setString(2, claimPermission.getPlayerUUID().toString());
+						preparedStatement.setByte(3, claimPermission.getPermissionLevel().toByte());
+						preparedStatement.setInt(4, claimPermission.getKey());
+					}
+
+					int rowsAffected = preparedStatement.executeUpdate();
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Successfully updated " + rowsAffected 
+								+ " permission record(s) in the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while "
+							+ "updating a permission record in the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+
+			@Override
+			void failed() {
+				// mark fields changed again, so they are written by the next update
+				claimPermission.markDirty(fields);
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// insert permission record in cache
+				permissionCache.store(claimPermission);
+			}
+		});
+	}
+
+
+	/**
+	 * Delete all permission records for claim
+	 */
+	@Override
+	final void deleteAllClaimPermissions(final Integer claimKey) {
+		
+		if (claimKey == null) {
+			plugin.getLogger().info("Could not delete permission record from the " 
+					+ getDisplayName() + " datastore because the passed claim key was null.");
+			return;
+		}
+
+		// get permission records, to get keys for cache flush
+		final Set<Integer> permissionKeys = getClaimPermissionKeys(claimKey);
+
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+					
+					int rowsAffected = 0;
+					
+					PreparedStatement preparedStatement = 
+							connection.prepare("DeletePermissionRecordsForClaim");
+
+					preparedStatement.setInt(1, claimKey);
+
+					rowsAffected = preparedStatement.executeUpdate();
+					
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " permission records for claim " 
+								+ claimKey + " were removed from the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while attempting to"
+							+ " remove permission records from the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// flush permission record from cache
+				for (Integer key : permissionKeys) {
+					permissionCache.flush(key);
+				}
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim permission records remove from cache.");
+				}
+			}
+		});
+	}
+	
+
+	/**
+	 * Delete player's claim permissions by claimKey, playerKey
+	 * @param claim
+	 * @param playerKey
+	 */
+	@Override
+	final void deletePlayerClaimPermission(final Integer claimKey, final UUID playerUUID) {
+		
+		if (claimKey == null) {
+			plugin.getLogger().info("Could not delete permission record from the " 
+					+ getDisplayName() + " datastore because the passed claim key was null.");
+			return;
+		}
+
+		if (playerUUID == null) {
+			plugin.getLogger().info("Could not delete permission record from the " 
+					+ getDisplayName() + " datastore because the passed player uuid was null.");
+			return;
+		}
+
+		// get permission record, to get key for cache flush
+		final ClaimPermission claimPermission = getClaimPermission(claimKey,playerUUID);
+
+		// if no record retrieved, no deletion is necessary
+		if (claimPermission == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("There was no permission record to delete "
+						+ "with the passed claim key and player uuid.");
+			}
+			return;
+		}
+
+		// delete permission record asynchronously
+		writer.submit(DataStoreWriter.recordKey("permission", claimPermission.getKey()), new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+					
+					int rowsAffected = 0;
+
+					PreparedStatement preparedStatement;
+					preparedStatement = 
+							connection.prepare("DeletePermissionRecord");
+					preparedStatement.setInt(1, claimKey);
+					preparedStatement.setString(2, playerUUID.toString());
+
+					rowsAffected = preparedStatement.executeUpdate();
+					
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " permssion records for claim " 
+								+ claimKey + " were deleted from the " + getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while attempting to "
+							+ "remove permissions from the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// flush permission record from cache
+				permissionCache.flush(claimPermission.getKey());
+				if (plugin.debug) {
+					plugin.getLogger().info("Permission record remove from cache.");
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Get all claim group records
+	 */
+	//TODO: make this get claim groups from cache
+	@Override
+	final Set<ClaimGroup> getAllClaimGroups() {
+	
+		Set<ClaimGroup> returnSet = new HashSet<ClaimGroup>();
+	
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			// create prepared statement
+			PreparedStatement preparedStatement = 
+					connection.prepare("SelectAllClaimGroups");
+	
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			while (rs.next()) {
+				
+				ClaimGroup claimGroup = new ClaimGroup();
+				
+				claimGroup.setKey(rs.getInt("claimgroupkey"));
+				claimGroup.setName(rs.getString("groupname"));
+				claimGroup.setClaimLimit(rs.getInt("claimlimit"));
+				
+				returnSet.add(claimGroup);
+				
+			}
+		}
+		catch  (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "read all claim group records from the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+		
+		// return unmodifiable view of return set
+		return Collections.unmodifiableSet(returnSet);
+	}
+
+
+	/**
+	 * Get number of claims in group owned by player, by playerUUID
+	 * @param claimGroup
+	 * @param playerUUID
+	 * @return int number of claims owned by player in claim group
+	 */
+	@Override
+	final int getPlayerClaimGroupCount(final ClaimGroup claimGroup, final UUID playerUUID) {
+		
+		int count = 0;
+
+		// check each claim owned by player for matching claim group and increment count
+		for (Claim claim : plugin.dataStore.getPlayerClaims(playerUUID)) {
+			
+			if (claim.getGroupKey().equals(claimGroup.getKey())) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	
+	/**
+	 * Get claim group by name
+	 * @param claimGroupName
+	 * @return ClaimGroup
+	 */
+	@Override
+	final ClaimGroup getClaimGroup(final String claimGroupName) {
+		
+		// if claim group record key is null, return null record
+		if (claimGroupName == null || claimGroupName.isEmpty()) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get claim group record for null or empty name.");
+			}
+			return null;
+		}
+		
+		// try to retrieve claim group record from cache
+		ClaimGroup claimGroup = claimGroupCache.fetch(claimGroupName);
+		
+		// all claim group records are stored in cache, so not trying datastore at this point.
+
+		// return claim group record; will be null if no record found
+		return claimGroup;
+	}
+
+	
+	@Override
+	final ClaimGroup getClaimGroup(final Integer claimGroupKey) {
+		
+		// if claim group record key is null, return null record
+		if (claimGroupKey == null) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get claim group record for null key.");
+			}
+			return null;
+		}
+		
+		// try to retrieve claim group record from cache
+		ClaimGroup claimGroup = claimGroupCache.fetch(claimGroupKey);
+		
+		// all claim group records are stored in cache, so not trying datastore at this point.
+
+		// return claim group record; will be null if no record found
+		return claimGroup;
+	}
+	
+	/**
+	 * Get claim group by claimGroupKey
+	 */
+	@SuppressWarnings("unused")
+	final private ClaimGroup selectClaimGroupRecord(final Integer claimGroupKey) {
+
+		// claimGroupId is null or zero, return a null claimGroup
+		if (claimGroupKey == null || claimGroupKey == 0) {
+			if (plugin.debug) {
+				plugin.getLogger().warning("Could not get claim group record for null key.");
+			}
+			return null;
+		}
+		
+		// create new claim group for return
+		ClaimGroup claimGroup = new ClaimGroup();
+
+		PooledConnection connection = null;
+		try {
+			connection = readPool.borrow();
+			// create prepared statement
+			PreparedStatement preparedStatement = 
+					connection.prepare("SelectClaimGroupByKey");
+	
+			preparedStatement.setInt(1, claimGroupKey);
+	
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+			
+			if (rs.next()) {
+				claimGroup.setKey(rs.getInt("claimgroupkey"));
+				claimGroup.setName(rs.getString("groupname"));
+				claimGroup.setClaimLimit(rs.getInt("claimlimit"));
+			}
+			else {
+				// return null claim group if none found
+				claimGroup = null;
+			}
+		}
+		catch  (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "read a claim group from the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}			
+		finally {
+			readPool.release(connection);
+		}
+		
+		return claimGroup;
+	}
+	
+	
+	/**
+	 * Insert new claim group record
+	 */
+	@Override
+	final void insertClaimGroupBlocking(final ClaimGroup claimGroup) {
+
+		// if claim group is null, do nothing and return
+		if (claimGroup == null) {
+			return;
+		}
+
+		try {
+
+			// borrow connection from write pool
+			final PooledConnection connection = writePool.borrow();
+			try {
+
+				// create prepared statement
+				PreparedStatement preparedStatement;
+				preparedStatement = connection.prepareReturningKeys("InsertClaimGroupRecord");
+
+				preparedStatement.setString(1, claimGroup.getName());
+				preparedStatement.setInt(2, claimGroup.getClaimLimit());
+
+				// execute sql query
+				int rowsAffected = preparedStatement.executeUpdate();
+
+				if (plugin.debug) {
+					plugin.getLogger().info("Inserted " + rowsAffected + " new claim group record(s) in the "
+							+ getDisplayName() + " datastore.");
+				}
+
+				ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+
+				// set newClaimKey to newly minted primary key
+				if (generatedKeys.next()) {
+					claimGroup.setKey(generatedKeys.getInt(1));
+				}
+			}
+			finally {
+				writePool.release(connection);
+			}
+
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occured while attempting to "
+					+ "insert a claim group in the " + getDisplayName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		
+		// insert claim group record in cache
+		claimGroupCache.store(claimGroup);
+		if (plugin.debug) {
+			plugin.getLogger().info("Claim group record stored in cache.");
+		}
+	}
+
+
+	/**
+	 * Insert new claim group record in datastore asynchronously
+	 */
+	@Override
+	final void insertClaimGroup(final ClaimGroup claimGroup) {
+
+		// if claim group is null, do nothing and return null record
+		if (claimGroup == null) {
+			return;
+		}
+
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+
+					// create prepared statement
+					PreparedStatement preparedStatement = 
+							connection.prepareReturningKeys("InsertClaimGroupRecord");
+
+					preparedStatement.setString(1, claimGroup.getName());
+					preparedStatement.setInt(2, claimGroup.getClaimLimit());
+
+					// execute sql query
+					int rowsAffected = preparedStatement.executeUpdate();
+
+					if (plugin.debug) {
+						plugin.getLogger().info("Inserted " + rowsAffected + " new claim group record(s) in the "
+								+ getDisplayName() + " datastore.");
+					}
+
+					ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+
+					// set newClaimKey to newly minted primary key
+					if (generatedKeys.next()) {
+						claimGroup.setKey(generatedKeys.getInt(1));
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while attempting to "
+							+ "insert a claim group in the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// insert claim group record in cache
+				claimGroupCache.store(claimGroup);
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim group record stored in cache.");
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Update an existing claim record
+	 */
+	@Override
+	final void updateClaimGroup(final ClaimGroup claimGroup) {
+		
+		// if claim is null or claim key is null, do nothing and return
+		if (claimGroup == null || claimGroup.getKey() == null) {
+			return;
+		}
+
+		writer.submitUpdate(DataStoreWriter.recordKey("claimgroup", claimGroup.getKey()), new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+					
+					int rowsAffected = 0;
+					
+					PreparedStatement preparedStatement;
+					preparedStatement = connection.prepare("UpdateClaimGroupRecord");
+
+					preparedStatement.setString(1, claimGroup.getName());
+					preparedStatement.setInt(2, claimGroup.getClaimLimit());
+					preparedStatement.setInt(3, claimGroup.getKey());
+
+					rowsAffected = preparedStatement.executeUpdate();
+					
+					if (plugin.debug) {
+						plugin.getLogger().info("Successfully updated " + rowsAffected + " claim(s) in the "
+								+ getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while "
+							+ "updating claim group data in the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// store claim group record in cache
+				claimGroupCache.store(claimGroup);
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim group record updated in cache.");
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Delete a claim group record
+	 */
+	final void deleteClaimGroup(final Integer claimGroupKey) {
+		
+		// if key is null, do nothing and return
+		if (claimGroupKey == null) {
+			plugin.getLogger().warning("Could not delete claim group from the "
+					+ getDisplayName() + " datastore because passed key is null.");
+			return;
+		}
+
+		writer.submit(DataStoreWriter.recordKey("claimgroup", claimGroupKey), new DataStoreWriter.WriteOperation() {
+			@Override
+			public void execute(final PooledConnection connection) throws SQLException {
+
+				try {
+
+					int rowsAffected = 0;
+
+					// create prepared statement
+					PreparedStatement preparedStatement = 
+							connection.prepare("DeleteClaimGroupRecord");
+
+					preparedStatement.setInt(1, claimGroupKey);
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " claim group records deleted.");
+					}
+
+					// remove groupkey from claim records
+					preparedStatement = 
+							connection.prepare("UpdateClaimGroupKeyInClaimRecords");
+
+					preparedStatement.setInt(1,  claimGroupKey);
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+					
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " claim group keys removed from claim records in the "
+								+ getDisplayName() + " datastore.");
+					}
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a claim group record from the " + getDisplayName() + " datastore.");
+					throw e;
+				}
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				// store claim group record in cache
+				claimGroupCache.flush(claimGroupKey);
+				if (plugin.debug) {
+					plugin.getLogger().info("Claim group record removed from cache.");
+				}
+			}
+		});
+
+		return;
+	}
+
+
+	/**
+	 * Private interface for reading a record from the current row of a result set
+	 * @param <T> record type
+	 */
+	private interface RowReader<T> {
+		T read(final ResultSet rs) throws SQLException;
+	}
+
+
+	/**
+	 * Private interface for binding a record to the parameters of a prepared statement
+	 * @param <T> record type
+	 */
+	private interface RowBinder<T> {
+		void bind(final PreparedStatement preparedStatement, final T record) throws SQLException;
+	}
+
+
+	@Override
+	final int exportPlayerRecords(final int pageSize, final RecordPageHandler<PlayerState> handler)
+			throws SQLException {
+
+		return exportRecords("LoadAllPlayers", pageSize, new RowReader<PlayerState>() {
+			@Override
+			public PlayerState read(final ResultSet rs) throws SQLException {
+
+				final PlayerState playerState = new PlayerState();
+
+				// test if uuid is null or empty and skip, otherwise try to set from string
+				final String playerUUID = rs.getString(1);
+				if (playerUUID != null && !playerUUID.isEmpty()) {
+					try {
+						playerState.setPlayerUUID(UUID.fromString(playerUUID));
+					}
+					catch (IllegalArgumentException e) {
+						plugin.getLogger().warning("Invalid UUID for player "
+								+ rs.getString(2) + " in " + getDisplayName() + " datastore.");
+					}
+				}
+				playerState.setName(rs.getString(2));
+				playerState.setLastLogin(Instant.ofEpochMilli(rs.getLong(3)));
+				playerState.setEarnedClaimBlocks(rs.getInt(4));
+				playerState.setPurchasedClaimBlocks(rs.getInt(5));
+				playerState.setBonusClaimBlocks(rs.getInt(6));
+				playerState.markClean();
+				return playerState;
+			}
+		}, handler);
+	}
+
+
+	@Override
+	final int exportClaims(final int pageSize, final RecordPageHandler<Claim> handler)
+			throws SQLException {
+
+		return exportRecords("LoadAllClaims", pageSize, new RowReader<Claim>() {
+			@Override
+			public Claim read(final ResultSet rs) throws SQLException {
+
+				final Claim claim = new Claim();
+				claim.setKey(rs.getInt(1));
+
+				// test for null or invalid owneruuid
+				final String ownerUUID = rs.getString(2);
+				if (ownerUUID != null && !ownerUUID.isEmpty()) {
+					try {
+						claim.setOwnerUUID(UUID.fromString(ownerUUID));
+					}
+					catch (IllegalArgumentException e) {
+						plugin.getLogger().warning("Invalid owner UUID for claim "
+								+ claim.getKey() + " in " + getDisplayName() + " datastore.");
+					}
+				}
+				// skip claims whose world is missing or not loaded, so their world name is not lost
+				final String worldName = rs.getString(7);
+				final World world = worldName == null ? null : plugin.getServer().getWorld(worldName);
+				if (world == null) {
+					plugin.getLogger().warning("Claim " + claim.getKey() + " in " + getDisplayName()
+							+ " datastore was skipped because its world " + worldName + " is not loaded.");
+					return null;
+				}
+				claim.setParentKey(rs.getInt(3));
+				claim.setGroupKey(rs.getInt(4));
+				claim.setLocked(rs.getBoolean(5));
+				claim.setResizeable(rs.getBoolean(6));
+				claim.setCorners(world,
+						rs.getInt(8), rs.getInt(9), rs.getInt(10),
+						rs.getInt(11), rs.getInt(12), rs.getInt(13));
+				claim.setCreatedDate(Instant.ofEpochMilli(rs.getLong(14)));
+				claim.setModifiedDate(Instant.ofEpochMilli(rs.getLong(15)));
+				claim.markClean();
+				return claim;
+			}
+		}, handler);
+	}
+
+
+	@Override
+	final int exportClaimGroups(final int pageSize, final RecordPageHandler<ClaimGroup> handler)
+			throws SQLException {
+
+		return exportRecords("LoadAllClaimGroups", pageSize, new RowReader<ClaimGroup>() {
+			@Override
+			public ClaimGroup read(final ResultSet rs) throws SQLException {
+				final ClaimGroup claimGroup = new ClaimGroup();
+				claimGroup.setKey(rs.getInt(1));
+				claimGroup.setName(rs.getString(2));
+				claimGroup.setClaimLimit(rs.getInt(3));
+				return claimGroup;
+			}
+		}, handler);
+	}
+
+
+	@Override
+	final int exportClaimPermissions(final int pageSize, final RecordPageHandler<ClaimPermission> handler)
+			throws SQLException {
+
+		return exportRecords("LoadAllPermissions", pageSize, new RowReader<ClaimPermission>() {
+			@Override
+			public ClaimPermission read(final ResultSet rs) throws SQLException {
+				final ClaimPermission claimPermission = new ClaimPermission();
+				claimPermission.setKey(rs.getInt(1));
+				claimPermission.setClaimKey(rs.getInt(2));
+
+				// skip permissions with a null or invalid player uuid
+				final String playerUUID = rs.getString(3);
+				try {
+					claimPermission.setPlayerUUID(UUID.fromString(playerUUID));
+				}
+				catch (IllegalArgumentException | NullPointerException e) {
+					plugin.getLogger().warning("Permission " + claimPermission.getKey() + " in "
+							+ getDisplayName() + " datastore was skipped because its player UUID is invalid.");
+					return null;
+				}
+				claimPermission.setPermissionLevel(PermissionLevel.fromByte(rs.getByte(4)));
+				claimPermission.markClean();
+				return claimPermission;
+			}
+		}, handler);
+	}
+
+
+	@Override
+	final void importPlayerRecords(final List<PlayerState> records) throws SQLException {
+
+		importRecords("ImportPlayerRecord", records, new RowBinder<PlayerState>() {
+			@Override
+			public void bind(final PreparedStatement preparedStatement, final PlayerState playerState)
+					throws SQLException {
+
+				String playerUUID = null;
+				if (playerState.getPlayerUUID() != null) {
+					playerUUID = playerState.getPlayerUUID().toString();
+				}
+				preparedStatement.setString(1, playerUUID);
+				preparedStatement.setString(2, playerState.getName());
+				preparedStatement.setLong(3, playerState.getLastLogin().toEpochMilli());
+				preparedStatement.setInt(4, playerState.getEarnedClaimBlocks());
+				preparedStatement.setInt(5, playerState.getPurchasedClaimBlocks());
+				preparedStatement.setInt(6, playerState.getBonusClaimBlocks());
+			}
+		});
+	}
+
+
+	@Override
+	final void importClaims(final List<Claim> records) throws SQLException {
+
+		importRecords("ImportClaimRecord", records, new RowBinder<Claim>() {
+			@Override
+			public void bind(final PreparedStatement preparedStatement, final Claim claim)
+					throws SQLException {
+
+				// if claim owner uuid is null, insert all zero uuid
+				String ownerUUIDString = zeroUUID.toString();
+				if (claim.getOwnerUUID() != null) {
+					ownerUUIDString = claim.getOwnerUUID().toString();
+				}
+				final String worldName = getWorldName(claim);
+				preparedStatement.setInt(1, claim.getKey());
+				preparedStatement.setString(2, ownerUUIDString);
+				preparedStatement.setInt(3, claim.getParentKey() == null ? 0 : claim.getParentKey());
+				preparedStatement.setInt(4, claim.getGroupKey() == null ? 0 : claim.getGroupKey());
+				preparedStatement.setBoolean(5, claim.isLocked());
+				preparedStatement.setBoolean(6, claim.getResizeable());
+				preparedStatement.setString(7, worldName);
+				preparedStatement.setInt(8, claim.getLowerX());
+				preparedStatement.setInt(9, claim.getLowerY());
+				preparedStatement.setInt(10, claim.getLowerZ());
+				preparedStatement.setInt(11, claim.getUpperX());
+				preparedStatement.setInt(12, claim.getUpperY());
+				preparedStatement.setInt(13, claim.getUpperZ());
+				preparedStatement.setLong(14, claim.getCreatedDate().toEpochMilli());
+				preparedStatement.setLong(15, claim.getModifiedDate().toEpochMilli());
+			}
+		});
+
+		// store imported claims in cache
+		claimCache.storeAll(records);
+	}
+
+
+	@Override
+	final void importClaimGroups(final List<ClaimGroup> records) throws SQLException {
+
+		importRecords("ImportClaimGroupRecord", records, new RowBinder<ClaimGroup>() {
+			@Override
+			public void bind(final PreparedStatement preparedStatement, final ClaimGroup claimGroup)
+					throws SQLException {
+				preparedStatement.setInt(1, claimGroup.getKey());
+				preparedStatement.setString(2, claimGroup.getName());
+				preparedStatement.setInt(3, claimGroup.getClaimLimit() == null ? 0 : claimGroup.getClaimLimit());
+			}
+		});
+
+		// store imported claim groups in cache
+		claimGroupCache.storeAll(records);
+	}
+
+
+	@Override
+	final void importClaimPermissions(final List<ClaimPermission> records) throws SQLException {
+
+		importRecords("ImportPermissionRecord", records, new RowBinder<ClaimPermission>() {
+			@Override
+			public void bind(final PreparedStatement preparedStatement, final ClaimPermission claimPermission)
+					throws SQLException {
+				preparedStatement.setInt(1, claimPermission.getKey());
+				preparedStatement.setInt(2, claimPermission.getClaimKey());
+				preparedStatement.setString(3, claimPermission.getPlayerUUID().toString());
+				preparedStatement.setByte(4, claimPermission.getPermissionLevel().toByte());
+			}
+		});
+
+		// store imported permissions in cache
+		permissionCache.storeAll(records);
+	}
+
+
+	@Override
+	final boolean isEmpty() throws SQLException {
+
+		final PooledConnection connection = readPool.borrow();
+		try {
+			final ResultSet rs = connection.prepare("CountAllRecords").executeQuery();
+			try {
+				return !rs.next() || rs.getLong(1) == 0;
+			}
+			finally {
+				rs.close();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+	}
+
+
+	@Override
+	final void deleteAllRecords() throws SQLException {
+
+		// commit any queued writes first, so none of them is applied after the delete
+		writer.flush();
+
+		final PooledConnection connection = writePool.borrow();
+		try {
+			final Connection jdbcConnection = connection.getConnection();
+			final boolean autoCommit = jdbcConnection.getAutoCommit();
+			jdbcConnection.setAutoCommit(false);
+			try {
+				connection.prepare("DeleteAllPermissions").executeUpdate();
+				connection.prepare("DeleteAllClaims").executeUpdate();
+				connection.prepare("DeleteAllClaimGroups").executeUpdate();
+				connection.prepare("DeleteAllPlayers").executeUpdate();
+				jdbcConnection.commit();
+			}
+			catch (SQLException e) {
+				jdbcConnection.rollback();
+				throw e;
+			}
+			finally {
+				jdbcConnection.setAutoCommit(autoCommit);
+			}
+		}
+		finally {
+			writePool.release(connection);
+		}
+
+		// remove deleted records from caches
+		for (ClaimPermission claimPermission : new ArrayList<ClaimPermission>(permissionCache.fetchAllPermissions())) {
+			permissionCache.flush(claimPermission.getKey());
+		}
+		for (Integer claimKey : new ArrayList<Integer>(claimCache.getCacheMapKeys())) {
+			claimCache.flush(claimKey);
+		}
+		for (Integer claimGroupKey : new ArrayList<Integer>(claimGroupCache.getCacheMapKeys())) {
+			claimGroupCache.flush(claimGroupKey);
+		}
+		for (UUID playerUUID : new ArrayList<UUID>(playerStateCache.getCacheMapKeys())) {
+			if (!zeroUUID.equals(playerUUID)) {
+				playerStateCache.flush(playerUUID);
+			}
+		}
+	}
+
+
+	/**
+	 * Stream all rows of a query in pages of records
+	 * @param queryName
+	 * @param pageSize
+	 * @param reader returns null for rows that are skipped
+	 * @param handler
+	 * @return number of skipped rows
+	 * @throws SQLException
+	 */
+	private <T> int exportRecords(final String queryName, final int pageSize,
+			final RowReader<T> reader, final RecordPageHandler<T> handler) throws SQLException {
+
+		// read from read pool, so writes are not blocked
+		final PooledConnection connection = readPool.borrow();
+		try {
+			final PreparedStatement preparedStatement = connection.getConnection()
+					.prepareStatement(Queries.getQuery(connection.getDialect(), queryName));
+			try {
+				preparedStatement.setFetchSize(pageSize);
+				final ResultSet rs = preparedStatement.executeQuery();
+
+				int skipped = 0;
+				List<T> page = new ArrayList<T>(pageSize);
+				while (rs.next()) {
+					final T record = reader.read(rs);
+					if (record == null) {
+						skipped++;
+						continue;
+					}
+					page.add(record);
+					if (page.size() >= pageSize) {
+						handler.handle(page);
+						page = new ArrayList<T>(pageSize);
+					}
+				}
+				rs.close();
+
+				if (!page.isEmpty()) {
+					handler.handle(page);
+				}
+				return skipped;
+			}
+			finally {
+				preparedStatement.close();
+			}
+		}
+		finally {
+			readPool.release(connection);
+		}
+	}
+
+
+	/**
+	 * Insert a page of records with a batch statement in a single transaction
+	 * @param queryName
+	 * @param records
+	 * @param binder
+	 * @throws SQLException if batch failed; the transaction is rolled back
+	 */
+	private <T> void importRecords(final String queryName, final List<T> records,
+			final RowBinder<T> binder) throws SQLException {
+
+		final PooledConnection connection = writePool.borrow();
+		try {
+			final Connection jdbcConnection = connection.getConnection();
+			final boolean autoCommit = jdbcConnection.getAutoCommit();
+			jdbcConnection.setAutoCommit(false);
+			try {
+				final PreparedStatement preparedStatement = connection.prepare(queryName);
+				for (T record : records) {
+					binder.bind(preparedStatement, record);
+					preparedStatement.addBatch();
+				}
+				preparedStatement.executeBatch();
+				jdbcConnection.commit();
+			}
+			catch (SQLException e) {
+				jdbcConnection.rollback();
+				throw e;
+			}
+			finally {
+				jdbcConnection.setAutoCommit(autoCommit);
+			}
+		}
+		finally {
+			writePool.release(connection);
+		}
+	}
+
+}
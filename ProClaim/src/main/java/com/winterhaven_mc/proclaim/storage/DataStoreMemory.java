@@ -0,0 +1,1017 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
+
+
+/**
+ * Datastore held entirely in memory.<br>
+ * The caches are the authoritative copy of all records, so every read is served from memory and every
+ * change takes effect immediately. Changes are made durable by an append-only journal that is synced
+ * to disk in groups and periodically compacted into a snapshot. Blocking and asynchronous writes
+ * behave the same; neither waits for the journal to reach the disk, which {@link #sync()} does.
+ */
+public final class DataStoreMemory extends DataStore {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// journal of changes
+	private MemoryJournal journal;
+
+	// player state cache
+	private final PlayerStateCache playerStateCache;
+
+	// claim cache
+	private final ClaimCache claimCache;
+
+	// permission cache
+	private final PermissionCache permissionCache;
+
+	// claim group cache
+	private final ClaimGroupCache claimGroupCache;
+
+	// next record keys
+	private final AtomicInteger nextClaimKey = new AtomicInteger(1);
+	private final AtomicInteger nextPermissionKey = new AtomicInteger(1);
+	private final AtomicInteger nextClaimGroupKey = new AtomicInteger(1);
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	DataStoreMemory(final PluginMain plugin) {
+
+		// reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.MEMORY;
+
+		// journal and snapshot file names are chosen by the journal
+		this.filename = "";
+
+		// initialize caches
+		this.playerStateCache = new PlayerStateCache(plugin);
+		this.claimCache = new ClaimCache(plugin);
+		this.permissionCache = new PermissionCache(plugin);
+		this.claimGroupCache = new ClaimGroupCache(plugin);
+	}
+
+
+	/**
+	 * Initialize the datastore<br>
+	 * Loads the snapshot and replays the journal into the caches, and starts the journal thread
+	 * @throws IOException if the snapshot could not be read or the journal could not be started
+	 */
+	@Override
+	final void initialize() throws IOException {
+
+		final MemorySettings settings = new MemorySettings(plugin);
+
+		journal = new MemoryJournal(plugin, new MemoryJournal.State() {
+
+			@Override
+			public Collection<PlayerState> getPlayerRecords() {
+				return fetchAllPlayerStates();
+			}
+
+			@Override
+			public Collection<Claim> getClaims() {
+				return claimCache.fetchAllClaims();
+			}
+
+			@Override
+			public Collection<ClaimPermission> getClaimPermissions() {
+				return permissionCache.fetchAllPermissions();
+			}
+
+			@Override
+			public Collection<ClaimGroup> getClaimGroups() {
+				return claimGroupCache.fetchAllClaimGroups();
+			}
+
+			@Override
+			public int[] getNextKeys() {
+				return new int[] { nextClaimKey.get(), nextPermissionKey.get(), nextClaimGroupKey.get() };
+			}
+
+			@Override
+			public void setNextKeys(final int[] nextKeys) {
+				advanceKey(nextClaimKey, nextKeys[0] - 1);
+				advanceKey(nextPermissionKey, nextKeys[1] - 1);
+				advanceKey(nextClaimGroupKey, nextKeys[2] - 1);
+			}
+
+			@Override
+			public void putPlayerState(final PlayerState playerState) {
+				playerStateCache.store(playerState);
+			}
+
+			@Override
+			public void removePlayerState(final UUID playerUUID) {
+				removePlayerRecord(playerUUID);
+			}
+
+			@Override
+			public void putClaim(final Claim claim) {
+				advanceKey(nextClaimKey, claim.getKey());
+				claimCache.store(claim);
+			}
+
+			@Override
+			public void removeClaim(final int claimKey) {
+				removeClaimRecord(claimKey);
+			}
+
+			@Override
+			public void putClaimPermission(final ClaimPermission claimPermission) {
+				advanceKey(nextPermissionKey, claimPermission.getKey());
+				permissionCache.store(claimPermission);
+			}
+
+			@Override
+			public void removeClaimPermission(final int permissionRecordKey) {
+				permissionCache.flush(permissionRecordKey);
+			}
+
+			@Override
+			public void removeClaimPermissions(final int claimKey) {
+				removeClaimPermissionRecords(claimKey);
+			}
+
+			@Override
+			public void putClaimGroup(final ClaimGroup claimGroup) {
+				advanceKey(nextClaimGroupKey, claimGroup.getKey());
+				claimGroupCache.store(claimGroup);
+			}
+
+			@Override
+			public void removeClaimGroup(final int claimGroupKey) {
+				removeClaimGroupRecord(claimGroupKey);
+			}
+		}, settings);
+
+		journal.open();
+
+		// public player is not journaled, and is stored in cache if not replayed
+		if (playerStateCache.fetch(zeroUUID) == null) {
+			final PlayerState publicPlayer = new PlayerState();
+			publicPlayer.setPlayerUUID(zeroUUID);
+			publicPlayer.setName("[public]");
+			publicPlayer.markClean();
+			playerStateCache.store(publicPlayer);
+		}
+
+		// sync WorldGuard regions for all claims
+		for (Claim claim : claimCache.fetchAllClaims()) {
+			plugin.worldGuardHelper.syncRegion(claim);
+		}
+
+		// set initialized true
+		setInitialized(true);
+		plugin.getLogger().info(this.getDisplayName() + " datastore initialized.");
+	}
+
+
+	/**
+	 * Raise next key above a key in use
+	 * @param nextKey
+	 * @param key key in use, or null
+	 */
+	private static void advanceKey(final AtomicInteger nextKey, final Integer key) {
+		if (key == null) {
+			return;
+		}
+		int current;
+		while ((current = nextKey.get()) <= key) {
+			if (nextKey.compareAndSet(current, key + 1)) {
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Get all player records in the cache, except the public player
+	 * @return list of player states
+	 */
+	private List<PlayerState> fetchAllPlayerStates() {
+
+		final List<PlayerState> playerStates = new ArrayList<PlayerState>(playerStateCache.getSize());
+		for (UUID playerUUID : playerStateCache.getCacheMapKeys()) {
+			final PlayerState playerState = playerStateCache.fetch(playerUUID);
+			if (playerState != null && !zeroUUID.equals(playerUUID)) {
+				playerStates.add(playerState);
+			}
+		}
+		return playerStates;
+	}
+
+
+	/**
+	 * Remove player record and the player's permission records from the caches
+	 * @param playerUUID
+	 */
+	private void removePlayerRecord(final UUID playerUUID) {
+
+		if (playerStateCache.fetch(playerUUID) != null) {
+			playerStateCache.flush(playerUUID);
+		}
+		for (ClaimPermission claimPermission : permissionCache.fetchAllPermissions()) {
+			if (playerUUID.equals(claimPermission.getPlayerUUID())) {
+				permissionCache.flush(claimPermission.getKey());
+			}
+		}
+	}
+
+
+	/**
+	 * Remove claim record, its child claim records and the permission records of all of them from the caches
+	 * @param claimKey
+	 */
+	private void removeClaimRecord(final Integer claimKey) {
+
+		final Set<Integer> deleteKeys = new HashSet<Integer>(claimCache.fetchChildKeys(claimKey));
+		deleteKeys.add(claimKey);
+
+		for (Integer deleteKey : deleteKeys) {
+			removeClaimPermissionRecords(deleteKey);
+			claimCache.flush(deleteKey);
+		}
+	}
+
+
+	/**
+	 * Remove all permission records of a claim from the cache
+	 * @param claimKey
+	 */
+	private void removeClaimPermissionRecords(final Integer claimKey) {
+		for (Integer permissionRecordKey : new ArrayList<Integer>(permissionCache.getCacheMapKeys(claimKey))) {
+			permissionCache.flush(permissionRecordKey);
+		}
+	}
+
+
+	/**
+	 * Remove claim group record from the cache and remove its key from claims in the group
+	 * @param claimGroupKey
+	 */
+	private void removeClaimGroupRecord(final Integer claimGroupKey) {
+
+		claimGroupCache.flush(claimGroupKey);
+		for (Claim claim : claimCache.fetchAllClaims()) {
+			if (claimGroupKey.equals(claim.getGroupKey())) {
+				claim.setGroupKey(0);
+			}
+		}
+	}
+
+
+	/**
+	 * Close datastore<br>
+	 * Writes all journaled changes and compacts the journal into a snapshot
+	 */
+	@Override
+	public final void close() {
+
+		if (journal != null) {
+			journal.close();
+		}
+		plugin.getLogger().info(this.getDisplayName() + " datastore journal closed.");
+		setInitialized(false);
+	}
+
+
+	/**
+	 * Sync datastore<br>
+	 * Blocks until all journaled changes have been written to disk
+	 */
+	@Override
+	final void sync() {
+		if (journal != null) {
+			journal.sync();
+		}
+	}
+
+
+	/**
+	 * Delete journal and snapshot files
+	 */
+	@Override
+	final void delete() {
+		MemoryJournal.delete(plugin.getDataFolder());
+	}
+
+
+	/**
+	 * Check if journal or snapshot files exist
+	 */
+	@Override
+	final boolean exists() {
+		return MemoryJournal.exists(plugin.getDataFolder());
+	}
+
+
+	@Override
+	final Set<PlayerState> getAllPlayerRecords() {
+		return Collections.unmodifiableSet(new HashSet<PlayerState>(fetchAllPlayerStates()));
+	}
+
+
+	@Override
+	final PlayerState getPlayerState(final UUID playerUUID) {
+
+		// if playerUUID is null, return null record
+		if (playerUUID == null) {
+			return null;
+		}
+		return playerStateCache.fetch(playerUUID);
+	}
+
+
+	@Override
+	public final PlayerState getCachedPlayerState(final UUID playerUUID) {
+		return getPlayerState(playerUUID);
+	}
+
+
+	/**
+	 * Get player record; all player records are held in the cache
+	 */
+	@Override
+	public final PlayerState readPlayerState(final UUID playerUUID) {
+		return getPlayerState(playerUUID);
+	}
+
+
+	/**
+	 * Get player records by playerName, ignoring case
+	 */
+	@Override
+	final Set<PlayerState> getPlayerRecords(final String playerName) {
+
+		// if playerName is null, return empty set
+		if (playerName == null) {
+			return Collections.emptySet();
+		}
+
+		// more than one record may match, so all records are searched
+		final Set<PlayerState> returnSet = new HashSet<PlayerState>();
+		for (PlayerState playerState : fetchAllPlayerStates()) {
+			if (playerName.equalsIgnoreCase(playerState.getName())) {
+				returnSet.add(playerState);
+			}
+		}
+		return Collections.unmodifiableSet(returnSet);
+	}
+
+
+	@Override
+	final void insertPlayerStateBlocking(final PlayerState playerState) {
+		insertPlayerState(playerState);
+	}
+
+
+	@Override
+	final void insertPlayerState(final PlayerState playerState) {
+
+		// if player state or player uuid is null, do nothing and return
+		if (playerState == null || playerState.getPlayerUUID() == null) {
+			if (plugin.debug) {
+				plugin.getLogger().info("Could not insert null player state in "
+						+ getDisplayName() + " datastore.");
+			}
+			return;
+		}
+
+		playerState.markClean();
+		playerStateCache.store(playerState);
+		journal.appendPutPlayerState(playerState);
+	}
+
+
+	/**
+	 * Update player record, journaling it only if a field changed
+	 */
+	@Override
+	final void updatePlayerState(final PlayerState playerState) {
+
+		// if player state is unchanged, do nothing and return
+		if (playerState == null || !playerState.isDirty()) {
+			return;
+		}
+		insertPlayerState(playerState);
+	}
+
+
+	@Override
+	final void deletePlayerState(final UUID playerUUID) {
+
+		// if key is null, do nothing and return
+		if (playerUUID == null) {
+			return;
+		}
+
+		removePlayerRecord(playerUUID);
+		journal.appendRemovePlayerState(playerUUID);
+	}
+
+
+	@Override
+	public final Set<Claim> getAllClaims() {
+		return claimCache.fetchAllClaims();
+	}
+
+
+	@Override
+	public final Claim getClaimAt(final Location location) {
+		return getClaimAt(location, false);
+	}
+
+
+	@Override
+	public final Claim getClaimAt(final Location location, final boolean ignoreHeight) {
+
+		// if location is null, return null record
+		if (location == null) {
+			return null;
+		}
+		return claimCache.fetchClaimAt(location, ignoreHeight);
+	}
+
+
+	@Override
+	public final Claim getClaimAt(final World world, final int x, final int y, final int z,
+			final boolean ignoreHeight) {
+
+		// if world is null, return null record
+		if (world == null) {
+			return null;
+		}
+		return claimCache.fetchClaimAt(world, x, y, z, ignoreHeight);
+	}
+
+
+	@Override
+	public final Claim getClaimAt(final Block block) {
+		return getClaimAt(block, false);
+	}
+
+
+	@Override
+	public final Claim getClaimAt(final Block block, final boolean ignoreHeight) {
+
+		// if block is null, return null record
+		if (block == null) {
+			return null;
+		}
+		return claimCache.fetchClaimAt(block.getWorld(), block.getX(), block.getY(), block.getZ(), ignoreHeight);
+	}
+
+
+	@Override
+	public final Set<Claim> getTopClaimsIntersecting(final World world,
+			final int x1, final int z1, final int x2, final int z2) {
+
+		// if world is null, return empty set
+		if (world == null) {
+			return Collections.emptySet();
+		}
+		return claimCache.fetchTopClaimsIntersecting(world, x1, z1, x2, z2);
+	}
+
+
+	@Override
+	public final Claim getClaim(final Integer claimKey) {
+
+		// if claim key is null, return null record
+		if (claimKey == null) {
+			return null;
+		}
+		return claimCache.fetch(claimKey);
+	}
+
+
+	@Override
+	public final Set<UUID> getClaimOwners() {
+		return claimCache.fetchOwnerUUIDs();
+	}
+
+
+	@Override
+	public final Set<Claim> getPlayerClaims(final UUID ownerUUID) {
+
+		// if ownerUUID is null, return empty set
+		if (ownerUUID == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(claimCache.fetchClaimsByOwner(ownerUUID));
+	}
+
+
+	@Override
+	public final Set<Claim> getChildClaims(final Integer claimKey) {
+
+		// if claim key is null, return empty set
+		if (claimKey == null) {
+			return Collections.emptySet();
+		}
+		return claimCache.fetchChildClaims(claimKey);
+	}
+
+
+	@Override
+	final Set<Integer> getChildKeys(final Integer claimKey) {
+
+		// if claim key is null, return empty set
+		if (claimKey == null) {
+			return Collections.emptySet();
+		}
+		return claimCache.fetchChildKeys(claimKey);
+	}
+
+
+	@Override
+	final void insertClaimBlocking(final Claim claim) {
+		insertClaim(claim);
+	}
+
+
+	/**
+	 * Insert new claim, assigning the next claim key
+	 */
+	@Override
+	final void insertClaim(final Claim claim) {
+
+		// if claim is null, do nothing and return
+		if (claim == null) {
+			return;
+		}
+
+		// set non-null defaults
+		if (claim.getGroupKey() == null) {
+			claim.setGroupKey(0);
+		}
+		if (claim.getParentKey() == null) {
+			claim.setParentKey(0);
+		}
+
+		final Instant now = Instant.now();
+		claim.setCreatedDate(now);
+		claim.setModifiedDate(now);
+		claim.setKey(nextClaimKey.getAndIncrement());
+		claim.markClean();
+
+		claimCache.store(claim);
+		journal.appendPutClaim(claim);
+	}
+
+
+	@Override
+	final void updateClaim(final Claim claim) {
+
+		// if claim is null, claim key is null or claim is unchanged, do nothing and return
+		if (claim == null || claim.getKey() == null || !claim.isDirty()) {
+			return;
+		}
+
+		// set claim modified date to current time
+		claim.setModifiedDate(Instant.now());
+
+		// set non-null defaults
+		if (claim.getGroupKey() == null) {
+			claim.setGroupKey(0);
+		}
+		if (claim.getParentKey() == null) {
+			claim.setParentKey(0);
+		}
+
+		// refresh claim in cache, so claim indexes reflect any boundary or owner change
+		claim.markClean();
+		claimCache.store(claim);
+		journal.appendPutClaim(claim);
+	}
+
+
+	/**
+	 * Delete claim, its child claims and the permissions of all of them
+	 */
+	@Override
+	final void deleteClaim(final Integer claimKey) {
+
+		// if key is null, do nothing and return
+		if (claimKey == null) {
+			plugin.getLogger().warning(getDisplayName() + " datastore could not delete claim because "
+					+ "passed key is null.");
+			return;
+		}
+
+		removeClaimRecord(claimKey);
+		journal.appendRemoveClaim(claimKey);
+	}
+
+
+	/**
+	 * Apply a claim batch; each change is journaled as it is applied to the caches
+	 * @param batch
+	 */
+	@Override
+	final void commitBatch(final ClaimBatch batch) {
+		for (Integer claimKey : batch.getClearedPermissionClaimKeys()) {
+			deleteAllClaimPermissions(claimKey);
+		}
+		for (Claim claim : batch.getUpdatedClaims()) {
+			updateClaim(claim);
+		}
+		for (Claim claim : batch.getDeletedClaims()) {
+			deleteClaim(claim.getKey());
+		}
+		for (PlayerState playerState : batch.getUpdatedPlayerStates()) {
+			updatePlayerState(playerState);
+		}
+	}
+
+
+	@Override
+	final ClaimPermission getClaimPermission(final Integer claimKey, final UUID playerUUID) {
+
+		// if claim key or player uuid is null, return null record
+		if (claimKey == null || playerUUID == null) {
+			return null;
+		}
+		return permissionCache.fetch(claimKey, playerUUID);
+	}
+
+
+	@Override
+	final PermissionLevel getPermissionLevel(final Integer claimKey, final UUID playerUUID) {
+
+		// if claim key or player uuid is null, return null
+		if (claimKey == null || playerUUID == null) {
+			return null;
+		}
+		return permissionCache.fetchPermissionLevel(claimKey, playerUUID);
+	}
+
+
+	@Override
+	final ClaimPermission getClaimPermission(final Integer permissionRecordKey) {
+
+		// if permission record key is null, return null record
+		if (permissionRecordKey == null) {
+			return null;
+		}
+		return permissionCache.fetch(permissionRecordKey);
+	}
+
+
+	@Override
+	final Set<Integer> getClaimPermissionKeys(final Integer claimKey) {
+		return Collections.unmodifiableSet(permissionCache.getCacheMapKeys(claimKey));
+	}
+
+
+	@Override
+	final Set<ClaimPermission> getAllClaimPermissions() {
+		return Collections.unmodifiableSet(new HashSet<ClaimPermission>(permissionCache.fetchAllPermissions()));
+	}
+
+
+	@Override
+	final void insertClaimPermissionBlocking(final ClaimPermission claimPermission) {
+		insertClaimPermission(claimPermission);
+	}
+
+
+	/**
+	 * Insert new permission record, assigning the next permission record key
+	 */
+	@Override
+	final void insertClaimPermission(final ClaimPermission claimPermission) {
+
+		// if permission record is null, do nothing and return
+		if (claimPermission == null) {
+			return;
+		}
+
+		claimPermission.setKey(nextPermissionKey.getAndIncrement());
+		claimPermission.markClean();
+		permissionCache.store(claimPermission);
+		journal.appendPutClaimPermission(claimPermission);
+	}
+
+
+	@Override
+	final void updateClaimPermission(final ClaimPermission claimPermission) {
+
+		// if permission record or any of its fields is null, log error and return
+		if (claimPermission == null || claimPermission.getKey() == null || claimPermission.getClaimKey() == null
+				|| claimPermission.getPlayerUUID() == null || claimPermission.getPermissionLevel() == null) {
+			plugin.getLogger().warning("Could not update a permission record "
+					+ "in the " + this.getDisplayName() + " datastore because the record was incomplete.");
+			return;
+		}
+
+		// if permission record is unchanged, do nothing and return
+		if (!claimPermission.isDirty()) {
+			return;
+		}
+
+		claimPermission.markClean();
+		permissionCache.store(claimPermission);
+		journal.appendPutClaimPermission(claimPermission);
+	}
+
+
+	@Override
+	final void deleteAllClaimPermissions(final Integer claimKey) {
+
+		if (claimKey == null) {
+			plugin.getLogger().info("Could not delete permission record from the "
+					+ getDisplayName() + " datastore because the passed claim key was null.");
+			return;
+		}
+
+		removeClaimPermissionRecords(claimKey);
+		journal.appendRemoveClaimPermissions(claimKey);
+	}
+
+
+	@Override
+	final void deletePlayerClaimPermission(final Integer claimKey, final UUID playerUUID) {
+
+		// get permission record, to get key for journal
+		final ClaimPermission claimPermission = getClaimPermission(claimKey, playerUUID);
+
+		// if no record retrieved, no deletion is necessary
+		if (claimPermission == null) {
+			return;
+		}
+
+		permissionCache.flush(claimPermission.getKey());
+		journal.appendRemoveClaimPermission(claimPermission.getKey());
+	}
+
+
+	@Override
+	final ClaimGroup getClaimGroup(final String claimGroupName) {
+
+		// if claim group name is null or empty, return null record
+		if (claimGroupName == null || claimGroupName.isEmpty()) {
+			return null;
+		}
+		return claimGroupCache.fetch(claimGroupName);
+	}
+
+
+	@Override
+	final ClaimGroup getClaimGroup(final Integer claimGroupKey) {
+
+		// if claim group key is null, return null record
+		if (claimGroupKey == null) {
+			return null;
+		}
+		return claimGroupCache.fetch(claimGroupKey);
+	}
+
+
+	@Override
+	final Set<ClaimGroup> getAllClaimGroups() {
+		return claimGroupCache.fetchAllClaimGroups();
+	}
+
+
+	@Override
+	final int getPlayerClaimGroupCount(final ClaimGroup claimGroup, final UUID playerUUID) {
+
+		int count = 0;
+
+		// check each claim owned by player for matching claim group and increment count
+		for (Claim claim : getPlayerClaims(playerUUID)) {
+			if (claim.getGroupKey().equals(claimGroup.getKey())) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	@Override
+	final void insertClaimGroupBlocking(final ClaimGroup claimGroup) {
+		insertClaimGroup(claimGroup);
+	}
+
+
+	/**
+	 * Insert new claim group record, assigning the next claim group key
+	 */
+	@Override
+	final void insertClaimGroup(final ClaimGroup claimGroup) {
+
+		// if claim group is null, do nothing and return
+		if (claimGroup == null) {
+			return;
+		}
+
+		claimGroup.setKey(nextClaimGroupKey.getAndIncrement());
+		claimGroupCache.store(claimGroup);
+		journal.appendPutClaimGroup(claimGroup);
+	}
+
+
+	@Override
+	final void updateClaimGroup(final ClaimGroup claimGroup) {
+
+		// if claim group or key is null, do nothing and return
+		if (claimGroup == null || claimGroup.getKey() == null) {
+			return;
+		}
+
+		claimGroupCache.store(claimGroup);
+		journal.appendPutClaimGroup(claimGroup);
+	}
+
+
+	/**
+	 * Delete claim group record and remove its key from claims in the group
+	 */
+	@Override
+	final void deleteClaimGroup(final Integer claimGroupKey) {
+
+		// if key is null, do nothing and return
+		if (claimGroupKey == null) {
+			plugin.getLogger().warning("Could not delete claim group from the "
+					+ getDisplayName() + " datastore because passed key is null.");
+			return;
+		}
+
+		removeClaimGroupRecord(claimGroupKey);
+		journal.appendRemoveClaimGroup(claimGroupKey);
+	}
+
+
+	@Override
+	final int exportPlayerRecords(final int pageSize, final RecordPageHandler<PlayerState> handler)
+			throws SQLException {
+		return exportRecords(fetchAllPlayerStates(), pageSize, handler);
+	}
+
+
+	/**
+	 * Stream all claim records in pages, in key order, so parent claims precede their child claims
+	 */
+	@Override
+	final int exportClaims(final int pageSize, final RecordPageHandler<Claim> handler)
+			throws SQLException {
+
+		final List<Claim> claims = new ArrayList<Claim>(claimCache.fetchAllClaims());
+		Collections.sort(claims, new Comparator<Claim>() {
+			@Override
+			public int compare(final Claim claim1, final Claim claim2) {
+				return claim1.getKey().compareTo(claim2.getKey());
+			}
+		});
+		return exportRecords(claims, pageSize, handler);
+	}
+
+
+	@Override
+	final int exportClaimGroups(final int pageSize, final RecordPageHandler<ClaimGroup> handler)
+			throws SQLException {
+		return exportRecords(claimGroupCache.fetchAllClaimGroups(), pageSize, handler);
+	}
+
+
+	@Override
+	final int exportClaimPermissions(final int pageSize, final RecordPageHandler<ClaimPermission> handler)
+			throws SQLException {
+		return exportRecords(permissionCache.fetchAllPermissions(), pageSize, handler);
+	}
+
+
+	@Override
+	final void importPlayerRecords(final List<PlayerState> records) throws SQLException {
+		for (PlayerState playerState : records) {
+			insertPlayerState(playerState);
+		}
+	}
+
+
+	/**
+	 * Store a page of claim records, keeping their keys
+	 */
+	@Override
+	final void importClaims(final List<Claim> records) throws SQLException {
+		claimCache.storeAll(records);
+		for (Claim claim : records) {
+			advanceKey(nextClaimKey, claim.getKey());
+			journal.appendPutClaim(claim);
+		}
+	}
+
+
+	/**
+	 * Store a page of claim group records, keeping their keys
+	 */
+	@Override
+	final void importClaimGroups(final List<ClaimGroup> records) throws SQLException {
+		claimGroupCache.storeAll(records);
+		for (ClaimGroup claimGroup : records) {
+			advanceKey(nextClaimGroupKey, claimGroup.getKey());
+			journal.appendPutClaimGroup(claimGroup);
+		}
+	}
+
+
+	/**
+	 * Store a page of permission records, keeping their keys
+	 */
+	@Override
+	final void importClaimPermissions(final List<ClaimPermission> records) throws SQLException {
+		permissionCache.storeAll(records);
+		for (ClaimPermission claimPermission : records) {
+			advanceKey(nextPermissionKey, claimPermission.getKey());
+			journal.appendPutClaimPermission(claimPermission);
+		}
+	}
+
+
+	@Override
+	final boolean isEmpty() {
+		return claimCache.getSize() == 0 && permissionCache.fetchAllPermissions().isEmpty()
+				&& claimGroupCache.fetchAllClaimGroups().isEmpty() && fetchAllPlayerStates().isEmpty();
+	}
+
+
+	/**
+	 * Remove all records other than the public player, journaling each removal
+	 */
+	@Override
+	final void deleteAllRecords() {
+
+		for (Integer claimKey : new ArrayList<Integer>(claimCache.getCacheMapKeys())) {
+			if (claimCache.fetch(claimKey) != null) {
+				removeClaimRecord(claimKey);
+				journal.appendRemoveClaim(claimKey);
+			}
+		}
+		for (ClaimPermission claimPermission : new ArrayList<ClaimPermission>(permissionCache.fetchAllPermissions())) {
+			permissionCache.flush(claimPermission.getKey());
+			journal.appendRemoveClaimPermission(claimPermission.getKey());
+		}
+		for (ClaimGroup claimGroup : new ArrayList<ClaimGroup>(claimGroupCache.fetchAllClaimGroups())) {
+			removeClaimGroupRecord(claimGroup.getKey());
+			journal.appendRemoveClaimGroup(claimGroup.getKey());
+		}
+		for (PlayerState playerState : fetchAllPlayerStates()) {
+			removePlayerRecord(playerState.getPlayerUUID());
+			journal.appendRemovePlayerState(playerState.getPlayerUUID());
+		}
+	}
+
+
+	/**
+	 * Pass records to handler in pages
+	 * @param records
+	 * @param pageSize
+	 * @param handler
+	 * @return number of skipped records, always zero since records are held in memory
+	 * @throws SQLException
+	 */
+	private static <T> int exportRecords(final Collection<T> records, final int pageSize,
+			final RecordPageHandler<T> handler) throws SQLException {
+
+		List<T> page = new ArrayList<T>(pageSize);
+		for (T record : records) {
+			page.add(record);
+			if (page.size() >= pageSize) {
+				handler.handle(page);
+				page = new ArrayList<T>(pageSize);
+			}
+		}
+		if (!page.isEmpty()) {
+			handler.handle(page);
+		}
+		return 0;
+	}
+
+}
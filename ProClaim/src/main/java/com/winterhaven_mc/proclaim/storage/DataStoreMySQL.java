@@ -0,0 +1,110 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Datastore on a networked SQL server that accepts MySQL syntax.<br>
+ * Reads and writes share a pool of connections, so reads that miss the caches and blocking
+ * writes run concurrently with the asynchronous writer. Queries use the mysql dialect.
+ */
+public final class DataStoreMySQL extends DataStoreJDBC {
+
+	// query name prefix of mysql dialect
+	private static final String DIALECT = "mysql";
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	DataStoreMySQL(final PluginMain plugin) {
+
+		super(plugin);
+
+		// set datastore type
+		this.type = DataStoreType.MYSQL;
+
+		// no local file; database is identified by the configured url
+		this.filename = "";
+	}
+
+
+	/**
+	 * Open connection pool to the configured database server
+	 * @throws SQLException if no url is configured, the driver could not be loaded
+	 * or the server could not be reached
+	 */
+	@Override
+	final void openConnectionPools() throws SQLException {
+
+		final MySQLSettings mysqlSettings = new MySQLSettings(plugin);
+		settings = mysqlSettings;
+
+		// cache snapshots are never used with a shared database server
+		if (plugin.getConfig().getBoolean("storage.cache-snapshot", true)) {
+			plugin.getLogger().info("Cache snapshots are disabled for the " + getDisplayName()
+					+ " datastore; all records are loaded from the database at startup.");
+		}
+
+		if (mysqlSettings.getUrl().isEmpty()) {
+			throw new SQLException("No url is configured for the " + getDisplayName() + " datastore.");
+		}
+
+		try {
+			Class.forName(mysqlSettings.getDriver());
+		}
+		catch (ClassNotFoundException e) {
+			throw new SQLException("Database driver " + mysqlSettings.getDriver() + " could not be loaded.", e);
+		}
+
+		writePool = new ConnectionPool(plugin, getDisplayName(), DIALECT,
+				new ConnectionPool.ConnectionFactory() {
+			@Override
+			public Connection open() throws SQLException {
+				return DriverManager.getConnection(mysqlSettings.getUrl(),
+						mysqlSettings.getUsername(), mysqlSettings.getPassword());
+			}
+		}, mysqlSettings.getPoolSize(), mysqlSettings.getConnectionTimeout());
+		readPool = writePool;
+
+		// open first connection now, so an unreachable server is reported at startup
+		final PooledConnection connection = writePool.borrow();
+		try {
+			plugin.getLogger().info(getDisplayName() + " datastore connected to "
+					+ connection.getConnection().getMetaData().getDatabaseProductName() + " "
+					+ connection.getConnection().getMetaData().getDatabaseProductVersion()
+					+ " with a pool of up to " + mysqlSettings.getPoolSize() + " connections.");
+		}
+		finally {
+			writePool.release(connection);
+		}
+	}
+
+
+	/**
+	 * Records are not removed from a networked datastore, because other servers may share it
+	 */
+	@Override
+	final void delete() {
+		plugin.getLogger().info("Records in the " + getDisplayName()
+				+ " datastore were left on the database server.");
+	}
+
+
+	/**
+	 * A networked datastore only counts as existing while it is open, so it is converted when the
+	 * configured storage type is changed while the server is running, but never pulled into a
+	 * local datastore at startup
+	 * @return true if datastore is initialized, false if not
+	 */
+	@Override
+	final boolean exists() {
+		return isInitialized();
+	}
+
+}
@@ -12,6 +12,26 @@ public enum DataStoreType {
 			// create new sqlite datastore object
 			return new DataStoreSQLite(plugin);
 		}
+	},
+
+	MYSQL("MySQL") {
+
+		@Override
+		public DataStore create() {
+
+			// create new mysql datastore object
+			return new DataStoreMySQL(plugin);
+		}
+	},
+
+	MEMORY("Memory") {
+
+		@Override
+		public DataStore create() {
+
+			// create new memory datastore object
+			return new DataStoreMemory(plugin);
+		}
 	};
 
 	private String friendlyName;
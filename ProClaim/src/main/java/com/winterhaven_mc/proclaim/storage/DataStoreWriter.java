@@ -0,0 +1,650 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Single writer thread for a datastore.<br>
+ * Write operations are queued in submission order and executed by one thread, with all operations
+ * pending at each flush run in a single transaction on a connection borrowed from the write pool.
+ * An update submitted while an earlier update of the same record is still queued, with no other
+ * operation on that record in between, is merged into the queued update. Completion tasks are run in the main thread after the
+ * transaction for their operation has been committed, or in the writer thread if the plugin
+ * is being disabled and the main thread is waiting for the writer to shut down. If the writer
+ * thread has stopped unexpectedly, queued and new operations are executed in the calling thread.
+ * If an operation fails, or the transaction it ran in is rolled back, the operation is told
+ * so it can mark the fields it took as changed again, and its failure tasks are run in the
+ * writer thread instead of its completion tasks.
+ */
+final class DataStoreWriter implements Runnable {
+
+	// time between attempts to get a connection while the datastore is unreachable, in milliseconds
+	private static final long RETRY_INTERVAL = 1000;
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// pool of connections to datastore written by this writer
+	private final ConnectionPool connectionPool;
+
+	// datastore display name for log messages
+	private final String displayName;
+
+	// maximum number of queued operations before submitting threads must wait
+	private final int queueCapacity;
+
+	// time to collect further operations after the first one arrives, in milliseconds
+	private final long flushInterval;
+
+	// queue of pending operations, guarded by itself
+	private final ArrayDeque<QueuedWrite> queue;
+
+	// last queued operation by record key, used to merge repeated updates; guarded by queue
+	private final Map<String,QueuedWrite> lastWriteByKey;
+
+	// writer thread
+	private final Thread thread;
+
+	// true until shutdown is requested; guarded by queue
+	private boolean running;
+
+	// true once writer thread has left its loop, normally or unexpectedly; guarded by queue
+	private boolean stopped;
+
+	// number of operations taken from queue but not yet committed; guarded by queue
+	private int inFlight;
+
+	// true if a caller is waiting for queued operations to be committed; guarded by queue
+	private boolean flushRequested;
+
+	// number of completion task batches scheduled in main thread that have not yet run
+	private final AtomicInteger pendingCompletions = new AtomicInteger();
+
+
+	/**
+	 * Write operation executed by the writer thread inside a transaction
+	 */
+	static abstract class WriteOperation {
+
+		/**
+		 * Execute write operation on connection<br>
+		 * If an exception is thrown, the failure is logged, failed() is called
+		 * and the completion tasks are not run
+		 * @param connection
+		 * @throws SQLException
+		 */
+		abstract void execute(final PooledConnection connection) throws SQLException;
+
+		/**
+		 * Called in the writer thread if execute threw an exception, or if the transaction was
+		 * not committed after execute returned. An operation that took changed fields of a record
+		 * marks them changed again here, so they are written by the next update.
+		 */
+		void failed() { }
+	}
+
+
+	/**
+	 * Private class that holds a queued write operation and its completion and failure tasks
+	 */
+	private static final class QueuedWrite {
+
+		private final boolean update;
+		private WriteOperation operation;
+		private final List<Runnable> completions = new ArrayList<Runnable>(1);
+		private final List<Runnable> failures = new ArrayList<Runnable>(0);
+
+		QueuedWrite(final boolean update, final WriteOperation operation,
+				final Runnable completion, final Runnable failure) {
+			this.update = update;
+			this.operation = operation;
+			if (completion != null) {
+				this.completions.add(completion);
+			}
+			if (failure != null) {
+				this.failures.add(failure);
+			}
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 * @param connectionPool
+	 * @param displayName
+	 * @param queueCapacity
+	 * @param flushInterval
+	 */
+	DataStoreWriter(final PluginMain plugin, final ConnectionPool connectionPool, final String displayName,
+			final int queueCapacity, final long flushInterval) {
+
+		this.plugin = plugin;
+		this.connectionPool = connectionPool;
+		this.displayName = displayName;
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.flushInterval = Math.max(0, flushInterval);
+		this.queue = new ArrayDeque<QueuedWrite>();
+		this.lastWriteByKey = new HashMap<String,QueuedWrite>();
+		this.thread = new Thread(this, plugin.getName() + " " + displayName + " writer");
+	}
+
+
+	/**
+	 * Start writer thread
+	 */
+	final void start() {
+		synchronized (queue) {
+			running = true;
+		}
+		thread.start();
+	}
+
+
+	/**
+	 * Queue an insert or delete operation. The operation is never merged with other operations.
+	 * @param recordKey key identifying the record written, or null if none or more than one record is written
+	 * @param operation
+	 * @param completion task to run in main thread after commit, or null
+	 */
+	final void submit(final String recordKey, final WriteOperation operation, final Runnable completion) {
+		enqueue(recordKey, false, operation, completion, null);
+	}
+
+
+	/**
+	 * Queue an update operation. If the last queued operation for the same record key is an update
+	 * that has not yet been taken by the writer thread, this operation replaces it.
+	 * @param recordKey key identifying the record updated
+	 * @param operation
+	 * @param completion task to run in main thread after commit, or null
+	 */
+	final void submitUpdate(final String recordKey, final WriteOperation operation, final Runnable completion) {
+		enqueue(recordKey, true, operation, completion, null);
+	}
+
+
+	/**
+	 * Queue an update operation with a task to run if it is not committed
+	 * @param recordKey key identifying the record updated
+	 * @param operation
+	 * @param completion task to run in main thread after commit, or null
+	 * @param failure task to run in writer thread if the update is not committed, or null
+	 */
+	final void submitUpdate(final String recordKey, final WriteOperation operation,
+			final Runnable completion, final Runnable failure) {
+		enqueue(recordKey, true, operation, completion, failure);
+	}
+
+
+	/**
+	 * Block until all operations queued before this call have been committed
+	 */
+	final void flush() {
+
+		synchronized (queue) {
+			while ((!queue.isEmpty() || inFlight > 0) && thread.isAlive() && !stopped) {
+				flushRequested = true;
+				queue.notifyAll();
+				try {
+					queue.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Stop accepting operations, commit all queued operations and stop writer thread
+	 */
+	final void shutdown() {
+
+		synchronized (queue) {
+			running = false;
+			queue.notifyAll();
+		}
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// if writer thread stopped unexpectedly, write any operations it left in queue
+		final List<QueuedWrite> batch;
+		synchronized (queue) {
+			if (!stopped || queue.isEmpty()) {
+				return;
+			}
+			batch = drainQueue();
+		}
+		runCompletions(writeBatch(batch));
+	}
+
+
+	/**
+	 * Test if completion tasks of committed operations were scheduled but have not run,
+	 * meaning caches may not yet reflect all committed writes
+	 * @return true if any scheduled completion tasks have not run
+	 */
+	final boolean hasPendingCompletions() {
+		return pendingCompletions.get() > 0;
+	}
+
+
+	/**
+	 * Create record key from record type and key
+	 * @param recordType
+	 * @param key
+	 * @return record key string, or null if key is null
+	 */
+	static String recordKey(final String recordType, final Object key) {
+		if (key == null) {
+			return null;
+		}
+		return recordType + ":" + key;
+	}
+
+
+	/**
+	 * Writer thread loop
+	 */
+	@Override
+	public final void run() {
+		try {
+			writeLoop();
+		}
+		finally {
+			synchronized (queue) {
+				if (running) {
+					plugin.getLogger().severe(displayName + " datastore writer stopped unexpectedly. "
+							+ "Writes will be executed in the calling thread.");
+					running = false;
+				}
+				stopped = true;
+				inFlight = 0;
+				queue.notifyAll();
+			}
+		}
+	}
+
+
+	/**
+	 * Take and write batches of queued operations until shut down
+	 */
+	private void writeLoop() {
+
+		while (true) {
+
+			final List<QueuedWrite> batch;
+
+			synchronized (queue) {
+
+				// wait for first operation
+				while (queue.isEmpty() && running) {
+					try {
+						queue.wait();
+					}
+					catch (InterruptedException e) {
+						running = false;
+					}
+				}
+
+				// if queue is empty, writer has been shut down
+				if (queue.isEmpty()) {
+					queue.notifyAll();
+					return;
+				}
+
+				// collect further operations for flush interval, unless shutting down, flushing or queue is full
+				final long deadline = System.currentTimeMillis() + flushInterval;
+				long remaining = flushInterval;
+				while (running && !flushRequested && remaining > 0 && queue.size() < queueCapacity) {
+					try {
+						queue.wait(remaining);
+					}
+					catch (InterruptedException e) {
+						running = false;
+					}
+					remaining = deadline - System.currentTimeMillis();
+				}
+
+				// take all queued operations; later updates can no longer be merged into them
+				batch = new ArrayList<QueuedWrite>(queue);
+				queue.clear();
+				lastWriteByKey.clear();
+				flushRequested = false;
+				inFlight = batch.size();
+				queue.notifyAll();
+			}
+
+			final List<Runnable> completions = writeBatch(batch);
+
+			synchronized (queue) {
+				inFlight = 0;
+				queue.notifyAll();
+			}
+
+			// run completion tasks in main thread in submission order
+			if (!completions.isEmpty()) {
+				if (plugin.isEnabled()) {
+					pendingCompletions.incrementAndGet();
+					new BukkitRunnable() {
+						@Override
+						public void run() {
+							try {
+								runCompletions(completions);
+							}
+							finally {
+								pendingCompletions.decrementAndGet();
+							}
+						}
+					}.runTask(plugin);
+				}
+
+				// plugin is being disabled and main thread is waiting for shutdown, so run them here
+				else {
+					runCompletions(completions);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Add operation to queue, merging it into a queued update of the same record if possible
+	 * @param recordKey
+	 * @param update
+	 * @param operation
+	 * @param completion
+	 * @param failure
+	 */
+	private void enqueue(final String recordKey, final boolean update,
+			final WriteOperation operation, final Runnable completion, final Runnable failure) {
+
+		final List<QueuedWrite> batch;
+
+		synchronized (queue) {
+
+			if (running && !stopped) {
+
+				// an operation without a record key is a barrier; nothing queued before it may be merged
+				if (recordKey == null) {
+					lastWriteByKey.clear();
+				}
+
+				// if last queued operation for record is an update, merge this update into it
+				else if (update) {
+					final QueuedWrite lastWrite = lastWriteByKey.get(recordKey);
+					if (lastWrite != null && lastWrite.update) {
+						lastWrite.operation = operation;
+						if (completion != null) {
+							lastWrite.completions.add(completion);
+						}
+						if (failure != null) {
+							lastWrite.failures.add(failure);
+						}
+						return;
+					}
+				}
+
+				// wait for space in queue
+				while (queue.size() >= queueCapacity && running && !stopped) {
+					if (plugin.debug) {
+						plugin.getLogger().info(displayName + " write queue is full, waiting for writer.");
+					}
+					queue.notifyAll();
+					try {
+						queue.wait();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+
+				// if writer stopped while waiting for space, fall through and write in this thread
+				if (!stopped) {
+					final QueuedWrite queuedWrite = new QueuedWrite(update, operation, completion, failure);
+					queue.add(queuedWrite);
+					if (recordKey != null) {
+						lastWriteByKey.put(recordKey, queuedWrite);
+					}
+					queue.notifyAll();
+					return;
+				}
+			}
+
+			// writer is not running, so execute any operations it left in queue and this operation
+			// in calling thread, in submission order
+			batch = stopped ? drainQueue() : new ArrayList<QueuedWrite>(1);
+			batch.add(new QueuedWrite(update, operation, completion, failure));
+		}
+
+		runCompletions(writeBatch(batch));
+	}
+
+
+	/**
+	 * Take all queued operations; caller must hold queue lock
+	 * @return list of queued operations in submission order
+	 */
+	private List<QueuedWrite> drainQueue() {
+		final List<QueuedWrite> batch = new ArrayList<QueuedWrite>(queue);
+		queue.clear();
+		lastWriteByKey.clear();
+		return batch;
+	}
+
+
+	/**
+	 * Run completion tasks in order, logging any that fail so the remaining tasks still run
+	 * @param completions
+	 */
+	private void runCompletions(final List<Runnable> completions) {
+		for (Runnable completion : completions) {
+			try {
+				completion.run();
+			}
+			catch (RuntimeException e) {
+				plugin.getLogger().warning("An error occured while completing a write to the "
+						+ displayName + " datastore.");
+				plugin.getLogger().warning(String.valueOf(e));
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Execute operations in a single transaction<br>
+	 * Operations that fail, and all operations of a transaction that is not committed, are told
+	 * they failed and their failure tasks are run.
+	 * @param batch
+	 * @return completion tasks of committed operations, in submission order
+	 */
+	private List<Runnable> writeBatch(final List<QueuedWrite> batch) {
+
+		final List<Runnable> completions = new ArrayList<Runnable>();
+
+		final PooledConnection connection = borrowConnection(batch.size());
+		if (connection == null) {
+			for (QueuedWrite queuedWrite : batch) {
+				fail(queuedWrite);
+			}
+			return completions;
+		}
+
+		// operations that executed without error, in submission order
+		final List<QueuedWrite> executed = new ArrayList<QueuedWrite>(batch.size());
+		boolean committed = false;
+
+		try {
+			final Connection jdbcConnection = connection.getConnection();
+
+			// if no transaction could be begun, each statement is committed as it executes
+			boolean transaction = true;
+			try {
+				jdbcConnection.setAutoCommit(false);
+			}
+			catch (SQLException e) {
+				plugin.getLogger().warning("Could not begin transaction in the " + displayName + " datastore.");
+				plugin.getLogger().warning(e.getMessage());
+				transaction = false;
+			}
+
+			for (QueuedWrite queuedWrite : batch) {
+				try {
+					queuedWrite.operation.execute(connection);
+					executed.add(queuedWrite);
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while writing to the "
+							+ displayName + " datastore.");
+					plugin.getLogger().warning(e.getMessage());
+					if (plugin.debug) {
+						e.printStackTrace();
+					}
+					fail(queuedWrite);
+				}
+
+				// an unexpected error in one operation must not stop the writer thread
+				catch (RuntimeException e) {
+					plugin.getLogger().log(Level.WARNING, "An unexpected error occured while writing to the "
+							+ displayName + " datastore.", e);
+					fail(queuedWrite);
+				}
+			}
+
+			if (!transaction) {
+				committed = true;
+			}
+			else {
+				try {
+					jdbcConnection.commit();
+					committed = true;
+				}
+				catch (SQLException e) {
+					plugin.getLogger().warning("An error occured while committing "
+							+ batch.size() + " write(s) to the " + displayName + " datastore.");
+					plugin.getLogger().warning(e.getMessage());
+
+					// roll back, so the connection is not returned to the pool with a partial transaction
+					try {
+						jdbcConnection.rollback();
+					}
+					catch (SQLException rollbackException) {
+						plugin.getLogger().warning(rollbackException.getMessage());
+					}
+				}
+				finally {
+					try {
+						jdbcConnection.setAutoCommit(true);
+					}
+					catch (SQLException e) {
+						plugin.getLogger().warning(e.getMessage());
+					}
+				}
+			}
+		}
+		finally {
+			connectionPool.release(connection);
+		}
+
+		// if transaction was rolled back, none of its operations were written
+		if (!committed) {
+			for (QueuedWrite queuedWrite : executed) {
+				fail(queuedWrite);
+			}
+			return completions;
+		}
+
+		for (QueuedWrite queuedWrite : executed) {
+			completions.addAll(queuedWrite.completions);
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Committed " + executed.size() + " of " + batch.size()
+					+ " write(s) to the " + displayName + " datastore.");
+		}
+		return completions;
+	}
+
+
+	/**
+	 * Tell an operation that it was not committed and run its failure tasks, logging any that fail
+	 * @param queuedWrite
+	 */
+	private void fail(final QueuedWrite queuedWrite) {
+		try {
+			queuedWrite.operation.failed();
+		}
+		catch (RuntimeException e) {
+			plugin.getLogger().log(Level.WARNING, "An error occured while handling a failed write to the "
+					+ displayName + " datastore.", e);
+		}
+		for (Runnable failure : queuedWrite.failures) {
+			try {
+				failure.run();
+			}
+			catch (RuntimeException e) {
+				plugin.getLogger().log(Level.WARNING, "An error occured while handling a failed write to the "
+						+ displayName + " datastore.", e);
+			}
+		}
+	}
+
+
+	/**
+	 * Borrow a connection for a batch, retrying while the datastore is unreachable
+	 * and the writer has not been shut down
+	 * @param batchSize number of operations waiting, for log messages
+	 * @return pooled connection, or null if no connection could be borrowed and the batch is dropped
+	 */
+	private PooledConnection borrowConnection(final int batchSize) {
+
+		while (true) {
+			try {
+				return connectionPool.borrow();
+			}
+			catch (SQLException e) {
+				plugin.getLogger().warning("Could not get a connection to the " + displayName
+						+ " datastore for " + batchSize + " write(s).");
+				plugin.getLogger().warning(e.getMessage());
+			}
+
+			synchronized (queue) {
+				if (!running) {
+					plugin.getLogger().severe(batchSize + " write(s) to the " + displayName
+							+ " datastore were lost.");
+					return null;
+				}
+				try {
+					queue.wait(RETRY_INTERVAL);
+				}
+				catch (InterruptedException e) {
+					running = false;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Bit mask of the persisted fields of a record that changed since it was last read from
+ * or written to the datastore.<br>
+ * Fields are marked in the main thread as they change, and taken by the datastore writer thread
+ * when the record is written, so changes made while a write is queued are not lost.
+ */
+final class DirtyFields {
+
+	private final AtomicInteger fields = new AtomicInteger();
+
+
+	/**
+	 * Test if any field changed
+	 * @return true if record needs to be written
+	 */
+	final boolean isDirty() {
+		return fields.get() != 0;
+	}
+
+
+	/**
+	 * Get changed fields without clearing them
+	 * @return bits of changed fields
+	 */
+	final int get() {
+		return fields.get();
+	}
+
+
+	/**
+	 * Mark fields as changed
+	 * @param changedFields bits of changed fields
+	 */
+	final void mark(final int changedFields) {
+		int current;
+		do {
+			current = fields.get();
+		} while (!fields.compareAndSet(current, current | changedFields));
+	}
+
+
+	/**
+	 * Mark all fields as matching the datastore
+	 */
+	final void clear() {
+		fields.set(0);
+	}
+
+
+	/**
+	 * Get changed fields and mark them as matching the datastore, as they are about to be written
+	 * @return bits of changed fields
+	 */
+	final int take() {
+		return fields.getAndSet(0);
+	}
+
+}
@@ -0,0 +1,1170 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.bukkit.World;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
+
+
+/**
+ * Append-only journal of memory datastore changes, compacted into a snapshot.<br>
+ * Each change is encoded in the calling thread as a record framed by its length and a CRC32,
+ * and appended to a buffer. The journal thread writes the buffer to the journal file and syncs it
+ * to disk once per flush interval, so all changes made during the interval share one fsync.
+ * When the journal holds enough records or the compact interval has elapsed, a journal of the next
+ * generation is started and the current state is written to a snapshot of that generation, after
+ * which older journals are deleted. At startup the snapshot is read and every journal of the same or
+ * a later generation is replayed in order, stopping at the first torn or corrupt record of each.
+ */
+final class MemoryJournal implements Runnable {
+
+	// journal file magic number, "PCJ1"
+	private static final int JOURNAL_MAGIC = 0x50434A31;
+
+	// snapshot file magic number, "PCM1"
+	private static final int SNAPSHOT_MAGIC = 0x50434D31;
+
+	// journal and snapshot format version
+	private static final int FORMAT_VERSION = 1;
+
+	// buffered bytes that wake the journal thread before the flush interval has elapsed
+	private static final int FLUSH_THRESHOLD = 1048576;
+
+	// time between compaction checks while no records are written, in milliseconds
+	private static final long IDLE_INTERVAL = 1000;
+
+	// file names
+	private static final String FILE_PREFIX = "proclaim-memory";
+	private static final String JOURNAL_SUFFIX = ".journal";
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+	// record types
+	private static final byte END_OF_SNAPSHOT = 0;
+	private static final byte PUT_PLAYER = 1;
+	private static final byte DELETE_PLAYER = 2;
+	private static final byte PUT_CLAIM = 3;
+	private static final byte DELETE_CLAIM = 4;
+	private static final byte PUT_PERMISSION = 5;
+	private static final byte DELETE_PERMISSION = 6;
+	private static final byte DELETE_CLAIM_PERMISSIONS = 7;
+	private static final byte PUT_CLAIM_GROUP = 8;
+	private static final byte DELETE_CLAIM_GROUP = 9;
+
+	// claim record flags
+	private static final int HAS_OWNER = 1;
+	private static final int HAS_BOUNDS = 2;
+	private static final int HAS_WORLD = 4;
+	private static final int LOCKED = 8;
+	private static final int RESIZEABLE = 16;
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// datastore state written to snapshots and rebuilt by replay
+	private final State state;
+
+	// folder holding journal and snapshot files
+	private final File folder;
+
+	private final boolean fsync;
+	private final long flushInterval;
+	private final long compactInterval;
+	private final int compactRecords;
+
+	// journal thread
+	private final Thread thread;
+
+	// lock guarding the fields below
+	private final Object lock = new Object();
+
+	// encoded records not yet written to the journal file
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream(65536);
+
+	// number of records appended and number of those written to the journal file
+	private long appendedCount;
+	private long flushedCount;
+
+	// number of records appended since the last compaction
+	private int journalRecords;
+
+	// time of last compaction
+	private long lastCompaction;
+
+	// true while the journal thread accepts records
+	private boolean running;
+
+	// true if a caller is waiting for appended records to be written
+	private boolean flushRequested;
+
+	// true if a write failed, so the next flush compacts the journal to save the full state
+	private boolean compactRequested;
+
+	// generation of current journal file, only used by the journal thread after open
+	private long generation;
+
+	// current journal file channel, only used by the journal thread after open
+	private FileChannel channel;
+
+
+	/**
+	 * State of a memory datastore, read when a snapshot is written and changed when records are replayed
+	 */
+	interface State {
+
+		Collection<PlayerState> getPlayerRecords();
+		Collection<Claim> getClaims();
+		Collection<ClaimPermission> getClaimPermissions();
+		Collection<ClaimGroup> getClaimGroups();
+
+		/**
+		 * Get next claim, permission and claim group keys
+		 * @return array of three next keys
+		 */
+		int[] getNextKeys();
+
+		/**
+		 * Set next claim, permission and claim group keys, if greater than the current next keys
+		 * @param nextKeys array of three next keys
+		 */
+		void setNextKeys(final int[] nextKeys);
+
+		void putPlayerState(final PlayerState playerState);
+		void removePlayerState(final UUID playerUUID);
+		void putClaim(final Claim claim);
+		void removeClaim(final int claimKey);
+		void putClaimPermission(final ClaimPermission claimPermission);
+		void removeClaimPermission(final int permissionRecordKey);
+		void removeClaimPermissions(final int claimKey);
+		void putClaimGroup(final ClaimGroup claimGroup);
+		void removeClaimGroup(final int claimGroupKey);
+	}
+
+
+	/**
+	 * Private class that encodes a single record
+	 */
+	private static final class Record {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		Record(final byte type) throws IOException {
+			out.writeByte(type);
+		}
+
+		/**
+		 * Write record framed by its length and checksum
+		 * @param target
+		 * @throws IOException
+		 */
+		final void frame(final DataOutputStream target) throws IOException {
+			final byte[] data = bytes.toByteArray();
+			final CRC32 crc = new CRC32();
+			crc.update(data);
+			target.writeInt(data.length);
+			target.write(data);
+			target.writeInt((int) crc.getValue());
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 * @param state
+	 * @param settings
+	 */
+	MemoryJournal(final PluginMain plugin, final State state, final MemorySettings settings) {
+
+		this.plugin = plugin;
+		this.state = state;
+		this.folder = plugin.getDataFolder();
+		this.fsync = settings.isFsync();
+		this.flushInterval = settings.getWriteFlushInterval();
+		this.compactInterval = settings.getCompactInterval();
+		this.compactRecords = settings.getCompactRecords();
+		this.thread = new Thread(this, plugin.getName() + " memory journal");
+	}
+
+
+	/**
+	 * Read snapshot and replay journals into state, then start a new journal and the journal thread.<br>
+	 * If any journal records were replayed, they are compacted into a new snapshot first.
+	 * @throws IOException if the snapshot could not be read or a new journal could not be started
+	 */
+	final void open() throws IOException {
+
+		final long startTime = System.nanoTime();
+
+		// read snapshot
+		final File snapshotFile = getSnapshotFile(folder);
+		generation = snapshotFile.exists() ? readSnapshot(snapshotFile) : 0;
+
+		// replay journals of snapshot generation or later, in generation order
+		int replayed = 0;
+		long lastGeneration = generation;
+		for (File journalFile : getJournalFiles(folder)) {
+			final long journalGeneration = getGeneration(journalFile);
+			if (journalGeneration >= generation) {
+				replayed += replayJournal(journalFile);
+				lastGeneration = Math.max(lastGeneration, journalGeneration);
+			}
+		}
+
+		plugin.getLogger().info("Loaded " + state.getClaims().size() + " claims, "
+				+ state.getClaimPermissions().size() + " permissions and "
+				+ state.getClaimGroups().size() + " claim groups from memory datastore snapshot and "
+				+ replayed + " journal records in " + ((System.nanoTime() - startTime) / 1000000) + " ms.");
+
+		// write replayed records to a snapshot of the next generation, so the journals can be removed
+		if (replayed > 0) {
+			generation = lastGeneration + 1;
+			writeSnapshot(generation);
+		}
+
+		// remove journals that are empty or included in the snapshot
+		for (File journalFile : getJournalFiles(folder)) {
+			journalFile.delete();
+		}
+
+		// start journal of current generation
+		channel = openJournal(generation);
+		lastCompaction = System.currentTimeMillis();
+
+		synchronized (lock) {
+			running = true;
+		}
+		thread.start();
+	}
+
+
+	/**
+	 * Write all appended records to the journal file, compact the journal and stop the journal thread
+	 */
+	final void close() {
+
+		synchronized (lock) {
+			running = false;
+			lock.notifyAll();
+		}
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Block until all records appended before this call have been written to the journal file
+	 */
+	final void sync() {
+
+		synchronized (lock) {
+			final long target = appendedCount;
+			while (flushedCount < target && thread.isAlive()) {
+				flushRequested = true;
+				lock.notifyAll();
+				try {
+					lock.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+
+	final void appendPutPlayerState(final PlayerState playerState) {
+		try {
+			final Record record = new Record(PUT_PLAYER);
+			writePlayerState(record.out, playerState);
+			append(record);
+		}
+		catch (IOException e) {
+			logEncodeError(e);
+		}
+	}
+
+
+	final void appendRemovePlayerState(final UUID playerUUID) {
+		try {
+			final Record record = new Record(DELETE_PLAYER);
+			writeUUID(record.out, playerUUID);
+			append(record);
+		}
+		catch (IOException e) {
+			logEncodeError(e);
+		}
+	}
+
+
+	final void appendPutClaim(final Claim claim) {
+		try {
+			final Record record = new Record(PUT_CLAIM);
+			writeClaim(record.out, claim);
+			append(record);
+		}
+		catch (IOException e) {
+			logEncodeError(e);
+		}
+	}
+
+
+	final void appendRemoveClaim(final int claimKey) {
+		appendKey(DELETE_CLAIM, claimKey);
+	}
+
+
+	final void appendPutClaimPermission(final ClaimPermission claimPermission) {
+		try {
+			final Record record = new Record(PUT_PERMISSION);
+			writeClaimPermission(record.out, claimPermission);
+			append(record);
+		}
+		catch (IOException e) {
+			logEncodeError(e);
+		}
+	}
+
+
+	final void appendRemoveClaimPermission(final int permissionRecordKey) {
+		appendKey(DELETE_PERMISSION, permissionRecordKey);
+	}
+
+
+	final void appendRemoveClaimPermissions(final int claimKey) {
+		appendKey(DELETE_CLAIM_PERMISSIONS, claimKey);
+	}
+
+
+	final void appendPutClaimGroup(final ClaimGroup claimGroup) {
+		try {
+			final Record record = new Record(PUT_CLAIM_GROUP);
+			writeClaimGroup(record.out, claimGroup);
+			append(record);
+		}
+		catch (IOException e) {
+			logEncodeError(e);
+		}
+	}
+
+
+	final void appendRemoveClaimGroup(final int claimGroupKey) {
+		appendKey(DELETE_CLAIM_GROUP, claimGroupKey);
+	}
+
+
+	/**
+	 * Test if a snapshot or journal file exists in folder
+	 * @param folder
+	 * @return true if memory datastore files exist, false if not
+	 */
+	static boolean exists(final File folder) {
+		return getSnapshotFile(folder).exists() || getJournalFiles(folder).length > 0;
+	}
+
+
+	/**
+	 * Delete snapshot and journal files in folder
+	 * @param folder
+	 */
+	static void delete(final File folder) {
+		getSnapshotFile(folder).delete();
+		for (File journalFile : getJournalFiles(folder)) {
+			journalFile.delete();
+		}
+	}
+
+
+	/**
+	 * Journal thread loop
+	 */
+	@Override
+	public final void run() {
+
+		boolean stopping = false;
+
+		while (!stopping) {
+
+			final byte[] data;
+			final long count;
+
+			synchronized (lock) {
+
+				// wait for records, then collect further records for flush interval
+				long deadline = 0;
+				while (running && !flushRequested && pending.size() < FLUSH_THRESHOLD) {
+					final long now = System.currentTimeMillis();
+					long timeout;
+					if (pending.size() > 0) {
+						if (deadline == 0) {
+							deadline = now + flushInterval;
+						}
+						timeout = deadline - now;
+						if (timeout <= 0) {
+							break;
+						}
+					}
+					else if (isCompactDue(now)) {
+						break;
+					}
+					else {
+						timeout = IDLE_INTERVAL;
+					}
+					try {
+						lock.wait(timeout);
+					}
+					catch (InterruptedException e) {
+						running = false;
+					}
+				}
+
+				stopping = !running;
+				data = pending.toByteArray();
+				pending.reset();
+				count = appendedCount;
+				flushRequested = false;
+			}
+
+			write(data);
+
+			final boolean compact;
+			synchronized (lock) {
+				flushedCount = count;
+				lock.notifyAll();
+				compact = stopping ? journalRecords > 0 || compactRequested
+						: isCompactDue(System.currentTimeMillis());
+			}
+
+			if (compact) {
+				compact();
+			}
+		}
+
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Test if journal should be compacted; must be called holding lock
+	 * @param now current time in milliseconds
+	 * @return true if compaction is due
+	 */
+	private boolean isCompactDue(final long now) {
+
+		// after a failed write, retry no more than once per idle interval
+		if (compactRequested) {
+			return now - lastCompaction >= IDLE_INTERVAL;
+		}
+		return journalRecords >= compactRecords
+				|| (journalRecords > 0 && now - lastCompaction >= compactInterval);
+	}
+
+
+	/**
+	 * Append encoded record to pending records
+	 * @param record
+	 * @throws IOException
+	 */
+	private void append(final Record record) throws IOException {
+
+		synchronized (lock) {
+
+			if (!running) {
+				plugin.getLogger().warning("A change to the memory datastore was not saved "
+						+ "because the journal is closed.");
+				return;
+			}
+
+			record.frame(new DataOutputStream(pending));
+			appendedCount++;
+			journalRecords++;
+
+			// wake journal thread early if a large amount of data is waiting
+			if (pending.size() >= FLUSH_THRESHOLD) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+
+	/**
+	 * Append record holding a single key
+	 * @param type
+	 * @param key
+	 */
+	private void appendKey(final byte type, final int key) {
+		try {
+			final Record record = new Record(type);
+			record.out.writeInt(key);
+			append(record);
+		}
+		catch (IOException e) {
+			logEncodeError(e);
+		}
+	}
+
+
+	/**
+	 * Log a record encoding error
+	 * @param e
+	 */
+	private void logEncodeError(final IOException e) {
+		plugin.getLogger().warning("A change to the memory datastore could not be journaled.");
+		plugin.getLogger().warning(e.getMessage());
+	}
+
+
+	/**
+	 * Write records to journal file and sync it to disk; on failure, request a compaction so the
+	 * full state is saved to a snapshot
+	 * @param data
+	 */
+	private void write(final byte[] data) {
+
+		if (data.length == 0) {
+			return;
+		}
+
+		try {
+			final ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (fsync) {
+				channel.force(false);
+			}
+		}
+		catch (IOException e) {
+			plugin.getLogger().severe("Could not write the memory datastore journal. "
+					+ "A snapshot of all records will be written instead.");
+			plugin.getLogger().severe(e.getMessage());
+			synchronized (lock) {
+				compactRequested = true;
+			}
+		}
+	}
+
+
+	/**
+	 * Start a journal of the next generation and write the current state to a snapshot of that
+	 * generation, then delete older journals.<br>
+	 * Records appended before the new journal is started are written to the old journal first.
+	 * Any change made after that is written to the new journal, which is replayed over the snapshot,
+	 * so the snapshot may safely include changes made while it is being written.
+	 */
+	private void compact() {
+
+		final long startTime = System.nanoTime();
+		final int compactedRecords;
+		final byte[] data;
+		final long count;
+
+		// take records appended to old journal generation
+		synchronized (lock) {
+			data = pending.toByteArray();
+			pending.reset();
+			count = appendedCount;
+			compactedRecords = journalRecords;
+			journalRecords = 0;
+			compactRequested = false;
+			lastCompaction = System.currentTimeMillis();
+		}
+
+		write(data);
+
+		try {
+			channel.close();
+			generation++;
+			channel = openJournal(generation);
+		}
+		catch (IOException e) {
+			plugin.getLogger().severe("Could not start a new memory datastore journal.");
+			plugin.getLogger().severe(e.getMessage());
+			return;
+		}
+		finally {
+			synchronized (lock) {
+				flushedCount = Math.max(flushedCount, count);
+				lock.notifyAll();
+			}
+		}
+
+		// write snapshot of new generation; older journals are kept if it could not be written
+		try {
+			writeSnapshot(generation);
+		}
+		catch (IOException e) {
+			plugin.getLogger().severe("Could not write memory datastore snapshot.");
+			plugin.getLogger().severe(e.getMessage());
+			synchronized (lock) {
+				journalRecords += compactedRecords;
+			}
+			return;
+		}
+
+		for (File journalFile : getJournalFiles(folder)) {
+			if (getGeneration(journalFile) < generation) {
+				journalFile.delete();
+			}
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Compacted " + compactedRecords + " memory datastore journal records in "
+					+ ((System.nanoTime() - startTime) / 1000000) + " ms.");
+		}
+	}
+
+
+	/**
+	 * Create journal file of a generation and write its header
+	 * @param journalGeneration
+	 * @return file channel positioned after header
+	 * @throws IOException
+	 */
+	private FileChannel openJournal(final long journalGeneration) throws IOException {
+
+		final FileChannel journalChannel = FileChannel.open(getJournalFile(folder, journalGeneration).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+		final ByteBuffer header = ByteBuffer.allocate(16);
+		header.putInt(JOURNAL_MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.putLong(journalGeneration);
+		header.flip();
+		while (header.hasRemaining()) {
+			journalChannel.write(header);
+		}
+		journalChannel.force(true);
+		return journalChannel;
+	}
+
+
+	/**
+	 * Write snapshot of current state, replacing any existing snapshot
+	 * @param snapshotGeneration
+	 * @throws IOException
+	 */
+	private void writeSnapshot(final long snapshotGeneration) throws IOException {
+
+		final File snapshotFile = getSnapshotFile(folder);
+		final File tempFile = new File(snapshotFile.getPath() + ".tmp");
+		final FileOutputStream fileOut = new FileOutputStream(tempFile);
+		try {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 65536));
+
+			// header
+			final int[] nextKeys = state.getNextKeys();
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(snapshotGeneration);
+			out.writeInt(nextKeys[0]);
+			out.writeInt(nextKeys[1]);
+			out.writeInt(nextKeys[2]);
+
+			int count = 0;
+			for (PlayerState playerState : state.getPlayerRecords()) {
+				final Record record = new Record(PUT_PLAYER);
+				writePlayerState(record.out, playerState);
+				record.frame(out);
+				count++;
+			}
+			for (ClaimGroup claimGroup : state.getClaimGroups()) {
+				final Record record = new Record(PUT_CLAIM_GROUP);
+				writeClaimGroup(record.out, claimGroup);
+				record.frame(out);
+				count++;
+			}
+			for (Claim claim : state.getClaims()) {
+				final Record record = new Record(PUT_CLAIM);
+				writeClaim(record.out, claim);
+				record.frame(out);
+				count++;
+			}
+			for (ClaimPermission claimPermission : state.getClaimPermissions()) {
+				final Record record = new Record(PUT_PERMISSION);
+				writeClaimPermission(record.out, claimPermission);
+				record.frame(out);
+				count++;
+			}
+
+			// end record holding number of records, so a truncated snapshot is never loaded
+			final Record end = new Record(END_OF_SNAPSHOT);
+			end.out.writeInt(count);
+			end.frame(out);
+
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		finally {
+			fileOut.close();
+		}
+
+		// replace snapshot file
+		try {
+			Files.move(tempFile.toPath(), snapshotFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	/**
+	 * Read snapshot into state
+	 * @param snapshotFile
+	 * @return generation of snapshot
+	 * @throws IOException if snapshot is unreadable, corrupt or incomplete
+	 */
+	private long readSnapshot(final File snapshotFile) throws IOException {
+
+		final ByteBuffer buffer = map(snapshotFile);
+		final Map<UUID,World> worlds = new HashMap<UUID,World>();
+
+		try {
+			if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				throw new IOException("Memory datastore snapshot has an unknown format.");
+			}
+			final long snapshotGeneration = buffer.getLong();
+			state.setNextKeys(new int[] { buffer.getInt(), buffer.getInt(), buffer.getInt() });
+
+			int count = 0;
+			while (true) {
+				final ByteBuffer record = readFrame(buffer);
+				if (record == null) {
+					throw new IOException("Memory datastore snapshot is corrupt or incomplete.");
+				}
+				if (record.get(0) == END_OF_SNAPSHOT) {
+					record.get();
+					if (record.getInt() != count) {
+						throw new IOException("Memory datastore snapshot is incomplete.");
+					}
+					return snapshotGeneration;
+				}
+				apply(record, worlds);
+				count++;
+			}
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("Memory datastore snapshot is corrupt or incomplete.");
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException("Memory datastore snapshot is corrupt.");
+		}
+	}
+
+
+	/**
+	 * Replay journal into state, up to the first torn or corrupt record
+	 * @param journalFile
+	 * @return number of records replayed
+	 * @throws IOException if journal could not be read
+	 */
+	private int replayJournal(final File journalFile) throws IOException {
+
+		final ByteBuffer buffer = map(journalFile);
+		final Map<UUID,World> worlds = new HashMap<UUID,World>();
+		int count = 0;
+		boolean complete = false;
+
+		try {
+			if (buffer.getInt() != JOURNAL_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				plugin.getLogger().warning("Memory datastore journal " + journalFile.getName()
+						+ " has an unknown format and was not replayed.");
+				return 0;
+			}
+			buffer.getLong();
+
+			while (buffer.hasRemaining()) {
+				final ByteBuffer record = readFrame(buffer);
+				if (record == null) {
+					break;
+				}
+				apply(record, worlds);
+				count++;
+			}
+			complete = !buffer.hasRemaining();
+		}
+		catch (BufferUnderflowException e) {
+			// journal header or record contents are truncated
+		}
+		catch (IllegalArgumentException e) {
+			// record contents are corrupt
+		}
+
+		if (!complete) {
+			plugin.getLogger().warning("Memory datastore journal " + journalFile.getName()
+					+ " ends with a torn or corrupt record; " + count + " records before it were replayed.");
+		}
+		return count;
+	}
+
+
+	/**
+	 * Read next framed record and verify its checksum
+	 * @param buffer
+	 * @return record contents starting with record type, or null if record is torn or corrupt
+	 */
+	private static ByteBuffer readFrame(final ByteBuffer buffer) {
+
+		if (buffer.remaining() < 4) {
+			return null;
+		}
+		final int start = buffer.position();
+		final int length = buffer.getInt();
+		if (length <= 0 || length > buffer.remaining() - 4) {
+			buffer.position(start);
+			return null;
+		}
+
+		final ByteBuffer record = buffer.slice();
+		record.limit(length);
+		buffer.position(buffer.position() + length);
+
+		final CRC32 crc = new CRC32();
+		crc.update(record.duplicate());
+		if ((int) crc.getValue() != buffer.getInt()) {
+			buffer.position(start);
+			return null;
+		}
+		return record;
+	}
+
+
+	/**
+	 * Apply a record to state
+	 * @param record record contents starting with record type
+	 * @param worlds worlds by uid, resolved once each
+	 */
+	private void apply(final ByteBuffer record, final Map<UUID,World> worlds) {
+
+		final byte type = record.get();
+
+		switch (type) {
+		case PUT_PLAYER:
+			state.putPlayerState(readPlayerState(record));
+			break;
+		case DELETE_PLAYER:
+			state.removePlayerState(readUUID(record));
+			break;
+		case PUT_CLAIM:
+			state.putClaim(readClaim(record, worlds));
+			break;
+		case DELETE_CLAIM:
+			state.removeClaim(record.getInt());
+			break;
+		case PUT_PERMISSION:
+			state.putClaimPermission(readClaimPermission(record));
+			break;
+		case DELETE_PERMISSION:
+			state.removeClaimPermission(record.getInt());
+			break;
+		case DELETE_CLAIM_PERMISSIONS:
+			state.removeClaimPermissions(record.getInt());
+			break;
+		case PUT_CLAIM_GROUP:
+			state.putClaimGroup(readClaimGroup(record));
+			break;
+		case DELETE_CLAIM_GROUP:
+			state.removeClaimGroup(record.getInt());
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown memory datastore record type " + type + ".");
+		}
+	}
+
+
+	private static void writePlayerState(final DataOutputStream out, final PlayerState playerState)
+			throws IOException {
+		writeUUID(out, playerState.getPlayerUUID());
+		writeString(out, playerState.getName());
+		out.writeLong(playerState.getLastLogin() == null ? 0 : playerState.getLastLogin().toEpochMilli());
+		out.writeInt(playerState.getEarnedClaimBlocks());
+		out.writeInt(playerState.getPurchasedClaimBlocks());
+		out.writeInt(playerState.getBonusClaimBlocks());
+	}
+
+
+	private static PlayerState readPlayerState(final ByteBuffer buffer) {
+		final PlayerState playerState = new PlayerState();
+		playerState.setPlayerUUID(readUUID(buffer));
+		playerState.setName(readString(buffer));
+		playerState.setLastLogin(Instant.ofEpochMilli(buffer.getLong()));
+		playerState.setEarnedClaimBlocks(buffer.getInt());
+		playerState.setPurchasedClaimBlocks(buffer.getInt());
+		playerState.setBonusClaimBlocks(buffer.getInt());
+		playerState.markClean();
+		return playerState;
+	}
+
+
+	private static void writeClaim(final DataOutputStream out, final Claim claim) throws IOException {
+
+		final UUID ownerUUID = claim.getOwnerUUID();
+		final UUID worldUID = ClaimWorlds.getWorldUID(claim.getWorldId());
+
+		int flags = 0;
+		if (ownerUUID != null) {
+			flags |= HAS_OWNER;
+		}
+		if (claim.hasBounds()) {
+			flags |= HAS_BOUNDS;
+		}
+		if (worldUID != null) {
+			flags |= HAS_WORLD;
+		}
+		if (Boolean.TRUE.equals(claim.isLocked())) {
+			flags |= LOCKED;
+		}
+		if (Boolean.TRUE.equals(claim.isResizeable())) {
+			flags |= RESIZEABLE;
+		}
+
+		out.writeInt(claim.getKey());
+		out.writeByte(flags);
+		if (ownerUUID != null) {
+			writeUUID(out, ownerUUID);
+		}
+		out.writeInt(claim.getParentKey() == null ? 0 : claim.getParentKey());
+		out.writeInt(claim.getGroupKey() == null ? 0 : claim.getGroupKey());
+		if (worldUID != null) {
+			writeUUID(out, worldUID);
+		}
+		if (claim.hasBounds()) {
+			out.writeInt(claim.getLowerX());
+			out.writeInt(claim.getLowerY());
+			out.writeInt(claim.getLowerZ());
+			out.writeInt(claim.getUpperX());
+			out.writeInt(claim.getUpperY());
+			out.writeInt(claim.getUpperZ());
+		}
+		out.writeLong(claim.getCreatedDate() == null ? 0 : claim.getCreatedDate().toEpochMilli());
+		out.writeLong(claim.getModifiedDate() == null ? 0 : claim.getModifiedDate().toEpochMilli());
+	}
+
+
+	private Claim readClaim(final ByteBuffer buffer, final Map<UUID,World> worlds) {
+
+		final Claim claim = new Claim();
+		claim.setKey(buffer.getInt());
+		final int flags = buffer.get();
+		if ((flags & HAS_OWNER) != 0) {
+			claim.setOwnerUUID(readUUID(buffer));
+		}
+		claim.setParentKey(buffer.getInt());
+		claim.setGroupKey(buffer.getInt());
+
+		World world = null;
+		if ((flags & HAS_WORLD) != 0) {
+			final UUID worldUID = readUUID(buffer);
+			if (!worlds.containsKey(worldUID)) {
+				worlds.put(worldUID, plugin.getServer().getWorld(worldUID));
+			}
+			world = worlds.get(worldUID);
+		}
+		if ((flags & HAS_BOUNDS) != 0) {
+			claim.setCorners(world, buffer.getInt(), buffer.getInt(), buffer.getInt(),
+					buffer.getInt(), buffer.getInt(), buffer.getInt());
+		}
+		claim.setLocked((flags & LOCKED) != 0);
+		claim.setResizeable((flags & RESIZEABLE) != 0);
+		claim.setCreatedDate(Instant.ofEpochMilli(buffer.getLong()));
+		claim.setModifiedDate(Instant.ofEpochMilli(buffer.getLong()));
+		claim.markClean();
+		return claim;
+	}
+
+
+	private static void writeClaimPermission(final DataOutputStream out, final ClaimPermission claimPermission)
+			throws IOException {
+		out.writeInt(claimPermission.getKey());
+		out.writeInt(claimPermission.getClaimKey());
+		writeUUID(out, claimPermission.getPlayerUUID());
+		out.writeByte(claimPermission.getPermissionLevel().toByte());
+	}
+
+
+	private static ClaimPermission readClaimPermission(final ByteBuffer buffer) {
+		final ClaimPermission claimPermission = new ClaimPermission();
+		claimPermission.setKey(buffer.getInt());
+		claimPermission.setClaimKey(buffer.getInt());
+		claimPermission.setPlayerUUID(readUUID(buffer));
+		claimPermission.setPermissionLevel(PermissionLevel.fromByte(buffer.get()));
+		claimPermission.markClean();
+		return claimPermission;
+	}
+
+
+	private static void writeClaimGroup(final DataOutputStream out, final ClaimGroup claimGroup)
+			throws IOException {
+		out.writeInt(claimGroup.getKey());
+		out.writeInt(claimGroup.getClaimLimit() == null ? 0 : claimGroup.getClaimLimit());
+		writeString(out, claimGroup.getName());
+	}
+
+
+	private static ClaimGroup readClaimGroup(final ByteBuffer buffer) {
+		final ClaimGroup claimGroup = new ClaimGroup();
+		claimGroup.setKey(buffer.getInt());
+		claimGroup.setClaimLimit(buffer.getInt());
+		claimGroup.setName(readString(buffer));
+		return claimGroup;
+	}
+
+
+	private static void writeUUID(final DataOutputStream out, final UUID uuid) throws IOException {
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+
+	private static UUID readUUID(final ByteBuffer buffer) {
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+
+	/**
+	 * Write length prefixed UTF-8 string, with length -1 for null
+	 * @param out
+	 * @param string
+	 * @throws IOException
+	 */
+	private static void writeString(final DataOutputStream out, final String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+
+	/**
+	 * Read length prefixed UTF-8 string
+	 * @param buffer
+	 * @return string, or null if length is -1
+	 */
+	private static String readString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length == -1) {
+			return null;
+		}
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Map file into a read only buffer
+	 * @param file
+	 * @return buffer
+	 * @throws IOException
+	 */
+	private static ByteBuffer map(final File file) throws IOException {
+		final FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if (fileChannel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file.getName() + " is too large.");
+			}
+			final MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+			return buffer;
+		}
+		finally {
+			fileChannel.close();
+		}
+	}
+
+
+	private static File getSnapshotFile(final File folder) {
+		return new File(folder, FILE_PREFIX + SNAPSHOT_SUFFIX);
+	}
+
+
+	private static File getJournalFile(final File folder, final long journalGeneration) {
+		return new File(folder, FILE_PREFIX + "-" + journalGeneration + JOURNAL_SUFFIX);
+	}
+
+
+	/**
+	 * Get generation of journal file from its name
+	 * @param journalFile
+	 * @return generation, or -1 if name is not a journal file name
+	 */
+	private static long getGeneration(final File journalFile) {
+		final String name = journalFile.getName();
+		try {
+			return Long.parseLong(name.substring(FILE_PREFIX.length() + 1, name.length() - JOURNAL_SUFFIX.length()));
+		}
+		catch (RuntimeException e) {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Get journal files in folder in generation order
+	 * @param folder
+	 * @return array of journal files; empty if none
+	 */
+	private static File[] getJournalFiles(final File folder) {
+
+		final File[] files = folder.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(final File file) {
+				return file.isFile() && file.getName().startsWith(FILE_PREFIX + "-")
+						&& file.getName().endsWith(JOURNAL_SUFFIX) && getGeneration(file) >= 0;
+			}
+		});
+		if (files == null) {
+			return new File[0];
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(final File file1, final File file2) {
+				return Long.compare(getGeneration(file1), getGeneration(file2));
+			}
+		});
+		return files;
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Memory datastore settings read from the storage.memory section of the plugin config.<br>
+ * Journal records are written and synced to disk once per write flush interval.
+ */
+final class MemorySettings extends StorageSettings {
+
+	private final boolean fsync;
+	private final long compactInterval;
+	private final int compactRecords;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	MemorySettings(final PluginMain plugin) {
+
+		super(plugin);
+
+		fsync = plugin.getConfig().getBoolean("storage.memory.fsync", true);
+		compactInterval = Math.max(1, plugin.getConfig().getLong("storage.memory.compact-interval", 60)) * 60000;
+		compactRecords = Math.max(1000, plugin.getConfig().getInt("storage.memory.compact-records", 100000));
+	}
+
+
+	/**
+	 * Test if journal writes are forced to disk at each flush
+	 * @return true if journal is synced to disk, false if syncing is left to the operating system
+	 */
+	final boolean isFsync() {
+		return fsync;
+	}
+
+
+	/**
+	 * Get maximum time between journal compactions
+	 * @return compact interval in milliseconds
+	 */
+	final long getCompactInterval() {
+		return compactInterval;
+	}
+
+
+	/**
+	 * Get number of journal records that triggers a compaction before the compact interval has elapsed
+	 * @return number of records
+	 */
+	final int getCompactRecords() {
+		return compactRecords;
+	}
+
+
+	/**
+	 * The memory datastore keeps its own snapshot, so the cache snapshot of SQL datastores is never used
+	 * @return false
+	 */
+	@Override
+	final boolean isSnapshotEnabled() {
+		return false;
+	}
+
+}
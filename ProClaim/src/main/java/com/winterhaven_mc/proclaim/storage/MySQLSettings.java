@@ -0,0 +1,102 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * MySQL connection settings read from the storage.mysql section of the plugin config.<br>
+ * Any JDBC driver and url for a server that accepts MySQL syntax may be configured, such as
+ * an embedded H2 database in MySQL mode for testing.
+ */
+final class MySQLSettings extends StorageSettings {
+
+	private final String driver;
+	private final String url;
+	private final String username;
+	private final String password;
+	private final int poolSize;
+	private final long connectionTimeout;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	MySQLSettings(final PluginMain plugin) {
+
+		super(plugin);
+
+		driver = plugin.getConfig().getString("storage.mysql.driver", "com.mysql.jdbc.Driver");
+		url = plugin.getConfig().getString("storage.mysql.url", "");
+		username = plugin.getConfig().getString("storage.mysql.username", "");
+		password = plugin.getConfig().getString("storage.mysql.password", "");
+		poolSize = Math.max(2, plugin.getConfig().getInt("storage.mysql.pool-size", 8));
+		connectionTimeout = Math.max(0, plugin.getConfig().getLong("storage.mysql.connection-timeout", 10000));
+	}
+
+
+	/**
+	 * Get JDBC driver class name
+	 * @return driver class name
+	 */
+	final String getDriver() {
+		return driver;
+	}
+
+
+	/**
+	 * Get JDBC url of database
+	 * @return url, or empty string if not configured
+	 */
+	final String getUrl() {
+		return url;
+	}
+
+
+	/**
+	 * Get database user name
+	 * @return user name
+	 */
+	final String getUsername() {
+		return username;
+	}
+
+
+	/**
+	 * Get database password
+	 * @return password
+	 */
+	final String getPassword() {
+		return password;
+	}
+
+
+	/**
+	 * Get maximum number of pooled connections, including the connection used by the writer
+	 * @return pool size
+	 */
+	final int getPoolSize() {
+		return poolSize;
+	}
+
+
+	/**
+	 * Get maximum time to wait for a pooled connection
+	 * @return connection timeout in milliseconds
+	 */
+	final long getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+
+	/**
+	 * Cache snapshots are never used with a MySQL datastore, because other servers sharing
+	 * the database may change records while this server is stopped
+	 * @return false
+	 */
+	@Override
+	final boolean isSnapshotEnabled() {
+		return false;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.winterhaven_mc.proclaim.storage;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -8,6 +10,7 @@ import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
 
 final class PermissionCache {
 	
@@ -17,9 +20,32 @@ final class PermissionCache {
 	// Map of permission records by record key
 	private final Map<Integer,ClaimPermission> permissionMap;
 	
-	// index of permission records by claim key
-	private final Map<Integer,HashSet<Integer>> claimIndex;
+	// index of permission records by claim key and player uuid;
+	// public permissions are indexed under the all zero uuid in the same claim entry
+	private final Map<Integer,Map<UUID,ClaimPermission>> claimIndex;
 	
+	// claim key and player uuid each permission record key is currently indexed under
+	private final Map<Integer,IndexEntry> recordIndex;
+	
+	// constant for public group UUID, all zeros
+	private static final UUID zeroUUID = new UUID(0,0);
+	
+	
+	/**
+	 * Private class that records the claim key and player uuid a permission record was indexed under
+	 */
+	private static final class IndexEntry {
+		
+		private final Integer claimKey;
+		private final UUID playerUUID;
+		
+		IndexEntry(final Integer claimKey, final UUID playerUUID) {
+			this.claimKey = claimKey;
+			this.playerUUID = playerUUID;
+		}
+	}
+	
+
 	/**
 	 * Class constructor
 	 * @param plugin
@@ -33,7 +59,10 @@ final class PermissionCache {
 		permissionMap = new ConcurrentHashMap<Integer,ClaimPermission>();
 		
 		// initialize claim key index
-		claimIndex = new ConcurrentHashMap<Integer,HashSet<Integer>>();
+		claimIndex = new ConcurrentHashMap<Integer,Map<UUID,ClaimPermission>>();
+		
+		// initialize permission record index
+		recordIndex = new ConcurrentHashMap<Integer,IndexEntry>();
 	}
 
 	
@@ -81,17 +110,46 @@ final class PermissionCache {
 			return null;
 		}
 
-		// iterate through permission records by claim key and return record with matching player key
-		if (claimIndex.get(claimKey) != null) {
-			for (Integer key : claimIndex.get(claimKey)) {
-				if (permissionMap.get(key).getPlayerUUID().equals(playerUUID)) {
-					return permissionMap.get(key);
-				}
-			}
+		// get permission records for claim; if none, return null record
+		final Map<UUID,ClaimPermission> claimPermissions = claimIndex.get(claimKey);
+		if (claimPermissions == null) {
+			return null;
 		}
 		
-		// if no match found, return null
-		return null;
+		// return record for player uuid; will be null if no record found
+		return claimPermissions.get(playerUUID);
+	}
+	
+	
+	/**
+	 * Retrieve effective permission level from cache by claim key and player uuid<br>
+	 * If the player has no permission record for the claim, the public permission level is returned
+	 * @param claimKey
+	 * @param playerUUID
+	 * @return permission level, or null if neither player nor public record is found
+	 */
+	final PermissionLevel fetchPermissionLevel(final Integer claimKey, final UUID playerUUID) {
+		
+		// if claim key or player uuid is null, return null
+		if (claimKey == null || playerUUID == null) {
+			return null;
+		}
+		
+		// get permission records for claim; if none, return null
+		final Map<UUID,ClaimPermission> claimPermissions = claimIndex.get(claimKey);
+		if (claimPermissions == null) {
+			return null;
+		}
+		
+		// get record for player, falling back to public record
+		ClaimPermission claimPermission = claimPermissions.get(playerUUID);
+		if (claimPermission == null) {
+			claimPermission = claimPermissions.get(zeroUUID);
+			if (claimPermission == null) {
+				return null;
+			}
+		}
+		return claimPermission.getPermissionLevel();
 	}
 	
 	
@@ -132,19 +190,68 @@ final class PermissionCache {
 		// insert claim in claim map by permission record key
 		permissionMap.put(claimPermission.getKey(), claimPermission);
 		
-		// TODO: confirm this is correct and necessary
-		// remove all index entries for permission record
-		for (Integer key : claimIndex.keySet()) {
-			claimIndex.get(key).remove(claimPermission.getKey());
+		// remove index entry for permission record, in case claim key or player uuid has changed
+		unindex(claimPermission.getKey());
+		
+		// get index entry for claim key, creating it if necessary
+		Map<UUID,ClaimPermission> claimPermissions = claimIndex.get(claimPermission.getClaimKey());
+		if (claimPermissions == null) {
+			claimIndex.putIfAbsent(claimPermission.getClaimKey(), new ConcurrentHashMap<UUID,ClaimPermission>());
+			claimPermissions = claimIndex.get(claimPermission.getClaimKey());
 		}
 		
-		// if no index entry for claim key exists, create empty HashSet and insert into index
-		if (!claimIndex.containsKey(claimPermission.getClaimKey())) {
-			claimIndex.put(claimPermission.getClaimKey(), new HashSet<Integer>());
+		// insert permission record in claim index entry by player uuid
+		claimPermissions.put(claimPermission.getPlayerUUID(), claimPermission);
+		recordIndex.put(claimPermission.getKey(),
+				new IndexEntry(claimPermission.getClaimKey(), claimPermission.getPlayerUUID()));
+	}
+	
+	
+	/**
+	 * Get all permission records in the cache
+	 * @return unmodifiable collection of permission records
+	 */
+	final Collection<ClaimPermission> fetchAllPermissions() {
+		return Collections.unmodifiableCollection(new ArrayList<ClaimPermission>(permissionMap.values()));
+	}
+	
+	
+	/**
+	 * Insert permission records into the cache in bulk<br>
+	 * If the cache is empty, claim index entries are built without checking for previous entries;
+	 * otherwise each record is stored individually
+	 * @param claimPermissions
+	 */
+	final void storeAll(final Collection<ClaimPermission> claimPermissions) {
+		
+		// if cache already holds records, store each record so existing index entries are replaced
+		if (!permissionMap.isEmpty()) {
+			for (ClaimPermission claimPermission : claimPermissions) {
+				store(claimPermission);
+			}
+			return;
 		}
 		
-		// insert claim key to record key index entry
-		claimIndex.get(claimPermission.getClaimKey()).add(claimPermission.getKey());
+		for (ClaimPermission claimPermission : claimPermissions) {
+			
+			// if any key is null, let store log the error and skip record
+			if (claimPermission.getKey() == null || claimPermission.getClaimKey() == null
+					|| claimPermission.getPlayerUUID() == null) {
+				store(claimPermission);
+				continue;
+			}
+			
+			permissionMap.put(claimPermission.getKey(), claimPermission);
+			
+			Map<UUID,ClaimPermission> claimEntry = claimIndex.get(claimPermission.getClaimKey());
+			if (claimEntry == null) {
+				claimEntry = new ConcurrentHashMap<UUID,ClaimPermission>();
+				claimIndex.put(claimPermission.getClaimKey(), claimEntry);
+			}
+			claimEntry.put(claimPermission.getPlayerUUID(), claimPermission);
+			recordIndex.put(claimPermission.getKey(),
+					new IndexEntry(claimPermission.getClaimKey(), claimPermission.getPlayerUUID()));
+		}
 	}
 	
 	
@@ -162,22 +269,20 @@ final class PermissionCache {
 			return;
 		}
 		
-		// get claim key from permission record
-		Integer claimKey = permissionMap.get(permissionRecordKey).getClaimKey();
-		
 		// remove the permission record from the permission map
 		permissionMap.remove(permissionRecordKey);
 		
 		// remove the permission record from the claim index
-		claimIndex.get(claimKey).remove(permissionRecordKey);
+		unindex(permissionRecordKey);
 	}
 
 
 	/**
 	 * Remove permission record from cache by permission claim key and player uuid
-	 * @param permissionRecordKey
+	 * @param claimKey
+	 * @param playerUUID
 	 */
-	final void flush(final Integer claimKey, final Integer playerUUID) {
+	final void flush(final Integer claimKey, final UUID playerUUID) {
 		
 		if (claimKey == null) {
 			if (plugin.debug) {
@@ -194,31 +299,53 @@ final class PermissionCache {
 			return;
 		}
 
-		int count = 0;
+		// get permission record for claim key and player uuid
+		final ClaimPermission claimPermission = fetch(claimKey, playerUUID);
 		
-		// iterate through all permission record keys indexed by claim key in map
-		for (Integer permissionRecordKey : claimIndex.get(claimKey)) {
-
-			// if permission record has matching player key
-			if (permissionMap.get(permissionRecordKey).getPlayerUUID().equals(playerUUID)) {
-				
-				// remove the permission record from the permission map
-				permissionMap.remove(permissionRecordKey);
-
-				// remove the permission record from the claim index
-				claimIndex.get(claimKey).remove(permissionRecordKey);
-				
-				count++;
-			}
-		}
-		if (plugin.debug) {
-			if (count > 0) {
-				plugin.getLogger().info(count + " matching permission record(s) removed from cache.");
-			}
-			else {
+		// if no matching record, do nothing and return
+		if (claimPermission == null) {
+			if (plugin.debug) {
 				plugin.getLogger().info("No matching permission record found in cache. "
 						+ "No records removed from cache.");
 			}
+			return;
+		}
+		
+		// remove the permission record from the permission map and claim index
+		flush(claimPermission.getKey());
+		
+		if (plugin.debug) {
+			plugin.getLogger().info("1 matching permission record(s) removed from cache.");
+		}
+	}
+	
+	
+	/**
+	 * Remove claim index entry for a permission record key
+	 * @param permissionRecordKey
+	 */
+	private void unindex(final Integer permissionRecordKey) {
+		
+		final IndexEntry indexEntry = recordIndex.remove(permissionRecordKey);
+		
+		if (indexEntry == null) {
+			return;
+		}
+		
+		final Map<UUID,ClaimPermission> claimPermissions = claimIndex.get(indexEntry.claimKey);
+		if (claimPermissions == null) {
+			return;
+		}
+		
+		// remove record only if it is still the one indexed for player uuid
+		final ClaimPermission indexedPermission = claimPermissions.get(indexEntry.playerUUID);
+		if (indexedPermission != null && permissionRecordKey.equals(indexedPermission.getKey())) {
+			claimPermissions.remove(indexEntry.playerUUID, indexedPermission);
+		}
+		
+		// remove claim entry if left empty
+		if (claimPermissions.isEmpty()) {
+			claimIndex.remove(indexEntry.claimKey, claimPermissions);
 		}
 	}
 	
@@ -250,11 +377,16 @@ final class PermissionCache {
 		}
 		
 		// if index for claim key is null, return empty set
-		if (claimIndex.get(claimKey) == null) {
+		final Map<UUID,ClaimPermission> claimPermissions = claimIndex.get(claimKey);
+		if (claimPermissions == null) {
 			return Collections.emptySet();
 		}
 
-		// return unmodifiable set of index entries for claim key
-		return Collections.unmodifiableSet(claimIndex.get(claimKey));
+		// collect permission record keys for claim key
+		final Set<Integer> returnSet = new HashSet<Integer>();
+		for (ClaimPermission claimPermission : claimPermissions.values()) {
+			returnSet.add(claimPermission.getKey());
+		}
+		return Collections.unmodifiableSet(returnSet);
 	}
 }
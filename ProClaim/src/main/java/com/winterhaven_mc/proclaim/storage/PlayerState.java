@@ -2,6 +2,7 @@ package com.winterhaven_mc.proclaim.storage;
 
 import java.time.Instant;
 import java.util.Collection;
+import java.util.Objects;
 import java.util.UUID;
 
 import org.bukkit.Location;
@@ -16,6 +17,16 @@ public final class PlayerState {
 	// static reference to main class
 	private static final PluginMain plugin = PluginMain.instance;
 
+	// persisted fields, as bits of the dirty field mask
+	static final int NAME = 1;
+	static final int LAST_LOGIN = 2;
+	static final int EARNED_BLOCKS = 4;
+	static final int PURCHASED_BLOCKS = 8;
+	static final int BONUS_BLOCKS = 16;
+
+	// persisted fields changed since last read from or written to the datastore
+	private final DirtyFields dirtyFields = new DirtyFields();
+
 	// mojang assigned globally unique player ID
 	private UUID playerUUID;
 	
@@ -63,9 +74,20 @@ public final class PlayerState {
 	 * @param player
 	 */
 	public PlayerState(final Player player) {
+		this(player.getUniqueId(), player.getName());
+	}
+	
+	/**
+	 * Class constructor
+	 * create PlayerState object for a new player from player uuid and name,
+	 * such as before the player object exists during login
+	 * @param playerUUID
+	 * @param playerName
+	 */
+	PlayerState(final UUID playerUUID, final String playerName) {
 		
-		this.setPlayerUUID(player.getUniqueId());
-		this.setName(player.getName());
+		this.setPlayerUUID(playerUUID);
+		this.setName(playerName);
 		this.setEarnedClaimBlocks(plugin.getConfig().getInt("initial-blocks"));
 		this.setPurchasedClaimBlocks(0);
 		this.setLastLogin();
@@ -86,7 +108,10 @@ public final class PlayerState {
 	}
 
 	public final void setName(final String playerName) {
-		this.playerName = playerName;
+		if (!Objects.equals(this.playerName, playerName)) {
+			this.playerName = playerName;
+			markDirty(NAME);
+		}
 	}
 
 	public final Instant getLastLogin() {
@@ -94,15 +119,18 @@ public final class PlayerState {
 	}
 
 	public final void setLastLogin() {
-		this.lastLogin = Instant.now();
+		this.setLastLogin(Instant.now());
 	}
 
 	public final void setLastLogin(final Instant lastLogin) {
-		this.lastLogin = lastLogin;
+		if (!Objects.equals(this.lastLogin, lastLogin)) {
+			this.lastLogin = lastLogin;
+			markDirty(LAST_LOGIN);
+		}
 	}
 
 	public final void setLastLogin(final Long lastLogin) {
-		this.lastLogin = Instant.ofEpochMilli(lastLogin);
+		this.setLastLogin(Instant.ofEpochMilli(lastLogin));
 	}
 
 	public final int getEarnedClaimBlocks() {
@@ -110,11 +138,14 @@ public final class PlayerState {
 	}
 
 	public final void setEarnedClaimBlocks() {
-		this.earnedClaimBlocks = 0;
+		this.setEarnedClaimBlocks(0);
 	}
 
 	public final void setEarnedClaimBlocks(final int earnedClaimBlocks) {
-		this.earnedClaimBlocks = earnedClaimBlocks;
+		if (this.earnedClaimBlocks != earnedClaimBlocks) {
+			this.earnedClaimBlocks = earnedClaimBlocks;
+			markDirty(EARNED_BLOCKS);
+		}
 	}
 
 	public final int getPurchasedClaimBlocks() {
@@ -122,11 +153,14 @@ public final class PlayerState {
 	}
 
 	public final void setPurchasedClaimBlocks() {
-		this.purchasedClaimBlocks = 0;
+		this.setPurchasedClaimBlocks(0);
 	}
 
 	public final void setPurchasedClaimBlocks(final int purchasedClaimBlocks) {
-		this.purchasedClaimBlocks = purchasedClaimBlocks;
+		if (this.purchasedClaimBlocks != purchasedClaimBlocks) {
+			this.purchasedClaimBlocks = purchasedClaimBlocks;
+			markDirty(PURCHASED_BLOCKS);
+		}
 	}
 
 	public final int getBonusClaimBlocks() {
@@ -134,11 +168,14 @@ public final class PlayerState {
 	}
 
 	public void setBonusClaimBlocks() {
-		this.bonusClaimBlocks = 0;
+		this.setBonusClaimBlocks(0);
 	}
 
 	public final void setBonusClaimBlocks(final int bonusClaimBlocks) {
-		this.bonusClaimBlocks = bonusClaimBlocks;
+		if (this.bonusClaimBlocks != bonusClaimBlocks) {
+			this.bonusClaimBlocks = bonusClaimBlocks;
+			markDirty(BONUS_BLOCKS);
+		}
 	}
 
 	public final Location getLastRecordedLocation() {
@@ -196,6 +233,37 @@ public final class PlayerState {
 		this.workingClaim = workingClaim;
 	}
 
+	/**
+	 * Test if any persisted field changed since the player state was last read from or written to the datastore
+	 * @return true if player state needs to be written
+	 */
+	public final boolean isDirty() {
+		return dirtyFields.isDirty();
+	}
+
+	/**
+	 * Mark persisted fields as changed
+	 * @param fields bits of changed fields
+	 */
+	final void markDirty(final int fields) {
+		dirtyFields.mark(fields);
+	}
+
+	/**
+	 * Mark all persisted fields as matching the datastore
+	 */
+	final void markClean() {
+		dirtyFields.clear();
+	}
+
+	/**
+	 * Get changed fields and mark them as matching the datastore, as they are about to be written
+	 * @return bits of changed fields
+	 */
+	final int takeDirtyFields() {
+		return dirtyFields.take();
+	}
+
 	/**
 	 * Insert a new player state record in the datastore
 	 */
@@ -204,7 +272,8 @@ public final class PlayerState {
 	}
 	
 	/**
-	 * Update an existing player state record in the datastore
+	 * Update an existing player state record in the datastore<br>
+	 * Nothing is written if no persisted field changed
 	 */
 	public final void update() {
 		plugin.dataStore.updatePlayerState(this);
@@ -295,15 +364,21 @@ public final class PlayerState {
 					plugin.getLogger().info("A unique player with the same name was found in the datastore.");
 				}
 				
+				// rename cached player state if player is cached, so the cache does not keep the old name
+				PlayerState renamedPlayerState = plugin.dataStore.getCachedPlayerState(matchedPlayerState.getPlayerUUID());
+				if (renamedPlayerState == null) {
+					renamedPlayerState = matchedPlayerState;
+				}
+
 				// create new name for old player with prefix 'old-' and player key as suffix to guarantee uniqueness
 				String newName = "old-" + this.getName();
-				matchedPlayerState.setName(newName);
+				renamedPlayerState.setName(newName);
 	
 				if (plugin.debug) {
 					plugin.getLogger().info("Updating " + newName + " in the datastore.");
 				}
 				// update matchedPlayerData record with new name in datastore
-				plugin.dataStore.updatePlayerState(matchedPlayerState);
+				plugin.dataStore.updatePlayerState(renamedPlayerState);
 			}
 		}
 	}
@@ -317,5 +392,18 @@ public final class PlayerState {
 	public final static PlayerState getPlayerState(final UUID playerUUID) {
 		return plugin.dataStore.getPlayerState(playerUUID);
 	}
+	
+	
+	/**
+	 * Load player state into the cache and resolve name conflicts before the player logs in,
+	 * so login handling in the main thread does not read the datastore.<br>
+	 * Must not be called from the main thread.
+	 * @param playerUUID
+	 * @param playerName name the player is logging in with
+	 * @return player state, inserted as a new record if the player has not been seen before
+	 */
+	public final static PlayerState prefetch(final UUID playerUUID, final String playerName) {
+		return plugin.dataStore.prefetchPlayerState(playerUUID, playerName);
+	}
 
 }
@@ -1,24 +1,82 @@
 package com.winterhaven_mc.proclaim.storage;
 
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.winterhaven_mc.proclaim.PluginMain;
 
+/**
+ * Cache of player state records by player uuid, with an index by player name.<br>
+ * A bounded cache is swept in the main thread once per minute. Entries not used for the idle time
+ * are evicted, then the least recently used entries are evicted until the cache is within its maximum size.
+ * Online players and the public player are never evicted. A player state with changed fields
+ * is written back first, and stays cached until the write has committed, so a lookup in the
+ * meantime does not load the old record from the datastore. If the write fails, its fields are
+ * changed again and the entry stays cached, to be written back by a later sweep.
+ */
 final class PlayerStateCache {
-	
+
+	// time between eviction sweeps, in server ticks
+	private static final long SWEEP_INTERVAL = 1200;
+
+	// uuid of public player, which is never evicted
+	private static final UUID zeroUUID = new UUID(0,0);
+
 	// reference to main class
 	private final PluginMain plugin;
-	
+
 	// in-memory cache for player state by UUID
 	private final ConcurrentHashMap<UUID, CachedPlayerState> playerStateMap;
-	
+
 	// cache lookup table for playerName
 	private final ConcurrentHashMap<String, UUID> playerNameIndex;
-	
+
+	// maximum number of unpinned entries kept by a sweep, or zero if unbounded
+	private final int maxSize;
+
+	// time an entry may go unused before it is evicted, in milliseconds, or zero if unbounded
+	private final long idleTime;
+
+	// writes changed player state back to the datastore before eviction
+	private final WriteBack writeBack;
+
+	// cache statistics
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong writeBackCount = new AtomicLong();
+
+	// eviction sweep task, or null if not started
+	private BukkitTask sweepTask;
+
+
+	/**
+	 * Writes a changed player state back to the datastore before it is evicted from the cache
+	 */
+	interface WriteBack {
+
+		/**
+		 * Queue write of changed player state<br>
+		 * Exactly one of the completion and failure tasks is run once the write has finished,
+		 * unless the write was not needed because no field changed.
+		 * @param playerState
+		 * @param completion task to run in main thread after the write has committed
+		 * @param failure task to run in any thread after the write has failed and its fields
+		 * have been marked changed again
+		 */
+		void write(final PlayerState playerState, final Runnable completion, final Runnable failure);
+	}
+
 
 	/**
 	 * Private class that implements a wrapper for a PlayerState object
@@ -26,29 +84,31 @@ final class PlayerStateCache {
 	 *
 	 */
 	private final class CachedPlayerState {
-	
+
 		private final PlayerState playerState;
-		private Instant lastCacheHit;
+		private volatile long lastCacheHit;
+
+		// true while a write back before eviction is queued; cleared by the writer thread if it fails
+		private volatile boolean writeBackPending;
 
 		CachedPlayerState(final PlayerState playerState) {
-			
+
 			this.playerState = playerState;
-			this.lastCacheHit = Instant.now();
+			this.lastCacheHit = System.currentTimeMillis();
 		}
-		
-		@SuppressWarnings("unused")
-		final Instant getLastCacheHit() {
+
+		final long getLastCacheHit() {
 			return lastCacheHit;
 		}
 
 		final void setLastCacheHit() {
-			this.lastCacheHit = Instant.now();
+			this.lastCacheHit = System.currentTimeMillis();
 		}
-		
+
 		final PlayerState getPlayerState() {
 			return this.playerState;
 		}
-		
+
 		final String getName() {
 			if (this.getPlayerState() == null) {
 				return null;
@@ -56,56 +116,103 @@ final class PlayerStateCache {
 			return this.getPlayerState().getName();
 		}
 	}
-	
-	
+
+
 	/**
-	 * Class constructor
+	 * Class constructor for an unbounded cache, which never evicts entries
 	 * @param plugin
 	 */
 	PlayerStateCache(final PluginMain plugin) {
-		
+		this(plugin, 0, 0, null);
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 * @param maxSize maximum number of entries kept by a sweep, or zero if unbounded
+	 * @param idleTime time an entry may go unused before eviction in milliseconds, or zero if unbounded
+	 * @param writeBack writes changed player state back before eviction
+	 */
+	PlayerStateCache(final PluginMain plugin, final int maxSize, final long idleTime, final WriteBack writeBack) {
+
 		// set reference to main class
 		this.plugin = plugin;
-		
+
+		this.maxSize = maxSize;
+		this.idleTime = idleTime;
+		this.writeBack = writeBack;
+
 		// instantiate player state map
 		playerStateMap = new ConcurrentHashMap<UUID, CachedPlayerState>();
-		
+
 		// instantiate player name index
 		playerNameIndex = new ConcurrentHashMap<String, UUID>();
 	}
-	
-	
+
+
+	/**
+	 * Start eviction sweeps in the main thread, if the cache is bounded
+	 */
+	final void startEviction() {
+
+		if (maxSize <= 0 && idleTime <= 0) {
+			return;
+		}
+
+		sweepTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				evict();
+			}
+		}.runTaskTimer(plugin, SWEEP_INTERVAL, SWEEP_INTERVAL);
+	}
+
+
+	/**
+	 * Stop eviction sweeps
+	 */
+	final void stopEviction() {
+		if (sweepTask != null) {
+			sweepTask.cancel();
+			sweepTask = null;
+		}
+	}
+
+
 	/**
-	 * Retrieve player state from the cache by player UUID
+	 * Retrieve player state from the cache by playerUUID
 	 * @param playerUUID
 	 * @return PlayerState object or null if not found in cache
 	 */
 	final PlayerState fetch(final UUID playerUUID) {
-		
+
 		if (playerUUID == null) {
 			if (plugin.debug) {
 				plugin.getLogger().info("PlayerStateCache was passed a null UUID for lookup.");
 			}
 			return null;
 		}
-		
+
 		final CachedPlayerState cachedPlayerState = playerStateMap.get(playerUUID);
-		
+
 		if (cachedPlayerState != null && cachedPlayerState.getPlayerState() != null) {
 			cachedPlayerState.setLastCacheHit();
+			hitCount.incrementAndGet();
 			return cachedPlayerState.getPlayerState();
 		}
+		missCount.incrementAndGet();
 		return null;
 	}
-	
-	
+
+
 	/**
 	 * Retrieve player state from the cache by playerName
 	 * @param playerName
 	 * @return PlayerState object or null if not found in cache
 	 */
 	final PlayerState fetch(final String playerName) {
-		
+
 		if (playerName == null || playerName.isEmpty()) {
 			if (plugin.debug) {
 				plugin.getLogger().info("PlayerStateCache was passed a null or empty name for lookup.");
@@ -114,21 +221,16 @@ final class PlayerStateCache {
 		}
 
 		final UUID playerUUID = playerNameIndex.get(playerName);
-		
+
 		if (playerUUID == null) {
+			missCount.incrementAndGet();
 			return null;
 		}
-		
-		final CachedPlayerState cachedPlayerState = playerStateMap.get(playerUUID);
-		
-		if (cachedPlayerState != null && cachedPlayerState.getPlayerState() != null) {
-			cachedPlayerState.setLastCacheHit();
-			return cachedPlayerState.getPlayerState();
-		}
-		return null;
+
+		return fetch(playerUUID);
 	}
-	
-	
+
+
 	/**
 	 * Retrieve player state from the cache by playerName
 	 * without updating last cache hit
@@ -136,17 +238,20 @@ final class PlayerStateCache {
 	 * @return PlayerData
 	 */
 	final PlayerState peek(final String playerName) {
-		
+
 		CachedPlayerState cachedPlayerState = null;
 		final UUID playerUUID = playerNameIndex.get(playerName);
 
 		if (playerUUID != null) {
 			cachedPlayerState = playerStateMap.get(playerUUID);
 		}
+		if (cachedPlayerState == null) {
+			return null;
+		}
 		return cachedPlayerState.getPlayerState();
 	}
-	
-	
+
+
 	/**
 	 * Store player state in the cache
 	 * @param playerState
@@ -160,7 +265,7 @@ final class PlayerStateCache {
 			}
 			return;
 		}
-		
+
 		// if player UUID is null, do nothing and return
 		if (playerState.getPlayerUUID() == null) {
 			if (plugin.debug) {
@@ -171,10 +276,10 @@ final class PlayerStateCache {
 
 		final String playerName = playerState.getName();
 		final UUID playerUUID = playerState.getPlayerUUID();
-		
+
 		// insert playerState into cache
 		playerStateMap.put(playerUUID, new CachedPlayerState(playerState));
-		
+
 		// if playerName is null or empty, don't put it in the playerName index map
 		if (playerName == null || playerName.isEmpty()) {
 			if (plugin.debug) {
@@ -182,53 +287,200 @@ final class PlayerStateCache {
 			}
 			return;
 		}
-		
+
 		// not removing name index entries on update. if a player changes their name within the cache lifetime,
-		// references using the old name will still work. if another player with the old name enters 
+		// references using the old name will still work. if another player with the old name enters
 		// the cache, the name index will be updated then to refer to the new player with that name.
-		// this is acceptable cache behavior. if unforeseen issues arise, it will be changed.
-		
+		// stale entries are removed by the eviction sweep once their player is no longer cached.
+
 		// put player name in index
 		playerNameIndex.put(playerName, playerState.getPlayerUUID());
 	}
 
 
+	/**
+	 * Store player state in the cache only if the player is still cached, such as after a write
+	 * that completes after the player was evicted
+	 * @param playerState
+	 */
+	final void refresh(final PlayerState playerState) {
+
+		if (playerState == null || playerState.getPlayerUUID() == null) {
+			return;
+		}
+
+		final CachedPlayerState cachedPlayerState = playerStateMap.get(playerState.getPlayerUUID());
+		if (cachedPlayerState == null) {
+			return;
+		}
+
+		// if same object is cached, only index its name, so a write does not count as a cache hit
+		if (cachedPlayerState.getPlayerState() == playerState) {
+			if (playerState.getName() != null && !playerState.getName().isEmpty()) {
+				playerNameIndex.put(playerState.getName(), playerState.getPlayerUUID());
+			}
+			return;
+		}
+		store(playerState);
+	}
+
+
 	/**
 	 * Remove cached player state from memory by player UUID<br>
 	 * remove playerName index mappings too
 	 * @param playerUUID
 	 */
 	final void flush(final UUID playerUUID) {
-		
-		// get playerName
-		final String playerName = playerStateMap.get(playerUUID).getName();
-		
+
 		// remove entry from cache map
-		playerStateMap.remove(playerUUID);
-		
-		// remove entry from name index map
-		playerNameIndex.remove(playerName);
+		final CachedPlayerState cachedPlayerState = playerStateMap.remove(playerUUID);
+
+		// remove entry from name index map, if it still refers to this player
+		if (cachedPlayerState != null && cachedPlayerState.getName() != null) {
+			playerNameIndex.remove(cachedPlayerState.getName(), playerUUID);
+		}
 	}
 
-	
+
 	/**
 	 * Remove player state from cache by player name<br>
 	 * remove playerName index mappings too
 	 * @param playerName
 	 */
 	final void flush(final String playerName) {
-		
+
 		// get playerUUID
 		final UUID playerUUID = playerNameIndex.get(playerName);
-		
+
 		// remove entry from cache map
-		playerStateMap.remove(playerUUID);
-		
+		if (playerUUID != null) {
+			playerStateMap.remove(playerUUID);
+		}
+
 		// remove entry from name index map
 		playerNameIndex.remove(playerName);
 	}
 
-	
+
+	/**
+	 * Evict idle entries, then least recently used entries until the cache is within its maximum size.<br>
+	 * Online players and the public player are pinned. Changed entries are written back first
+	 * and removed when the write has committed, unless they were used in the meantime.
+	 * Must be called in the main thread.
+	 */
+	final void evict() {
+
+		final long now = System.currentTimeMillis();
+
+		// collect entries that may be evicted
+		final List<Map.Entry<UUID,CachedPlayerState>> candidates =
+				new ArrayList<Map.Entry<UUID,CachedPlayerState>>();
+		for (Map.Entry<UUID,CachedPlayerState> entry : playerStateMap.entrySet()) {
+			if (!isPinned(entry.getKey())) {
+				candidates.add(entry);
+			}
+		}
+
+		// least recently used first
+		Collections.sort(candidates, new Comparator<Map.Entry<UUID,CachedPlayerState>>() {
+			@Override
+			public int compare(final Map.Entry<UUID,CachedPlayerState> entry1,
+					final Map.Entry<UUID,CachedPlayerState> entry2) {
+				return Long.compare(entry1.getValue().getLastCacheHit(), entry2.getValue().getLastCacheHit());
+			}
+		});
+
+		int excess = maxSize > 0 ? candidates.size() - maxSize : 0;
+		int evicted = 0;
+
+		for (Map.Entry<UUID,CachedPlayerState> entry : candidates) {
+
+			final CachedPlayerState cachedPlayerState = entry.getValue();
+			final boolean idle = idleTime > 0 && now - cachedPlayerState.getLastCacheHit() >= idleTime;
+
+			// candidates are in access order, so once none is idle or in excess, none that follow are
+			if (!idle && excess <= 0) {
+				break;
+			}
+
+			excess--;
+
+			// write back changes not yet saved, and remove entry once they are committed
+			if (writeBack != null && cachedPlayerState.getPlayerState().isDirty()) {
+				if (!cachedPlayerState.writeBackPending) {
+					cachedPlayerState.writeBackPending = true;
+					writeBackCount.incrementAndGet();
+					final UUID playerUUID = entry.getKey();
+					final long lastCacheHit = cachedPlayerState.getLastCacheHit();
+					writeBack.write(cachedPlayerState.getPlayerState(), new Runnable() {
+						@Override
+						public void run() {
+							cachedPlayerState.writeBackPending = false;
+
+							// if entry was used or changed again since the sweep, keep it
+							if (cachedPlayerState.getLastCacheHit() == lastCacheHit
+									&& !cachedPlayerState.getPlayerState().isDirty()
+									&& remove(playerUUID, cachedPlayerState)) {
+								evictionCount.incrementAndGet();
+							}
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							// fields are changed again, so a later sweep writes the entry back before evicting it
+							cachedPlayerState.writeBackPending = false;
+						}
+					});
+				}
+				continue;
+			}
+
+			if (remove(entry.getKey(), cachedPlayerState)) {
+				evicted++;
+			}
+		}
+		evictionCount.addAndGet(evicted);
+
+		// remove name index entries of players that are no longer cached
+		for (Map.Entry<String,UUID> entry : playerNameIndex.entrySet()) {
+			if (!playerStateMap.containsKey(entry.getValue())) {
+				playerNameIndex.remove(entry.getKey(), entry.getValue());
+			}
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Player state cache evicted " + evicted + " entries; " + getStatistics());
+		}
+	}
+
+
+	/**
+	 * Remove entry only if it was not replaced, along with its name index entry
+	 * @param playerUUID
+	 * @param cachedPlayerState
+	 * @return true if entry was removed
+	 */
+	private boolean remove(final UUID playerUUID, final CachedPlayerState cachedPlayerState) {
+		if (!playerStateMap.remove(playerUUID, cachedPlayerState)) {
+			return false;
+		}
+		if (cachedPlayerState.getName() != null) {
+			playerNameIndex.remove(cachedPlayerState.getName(), playerUUID);
+		}
+		return true;
+	}
+
+
+	/**
+	 * Test if a player state must stay in the cache
+	 * @param playerUUID
+	 * @return true if player is online or is the public player
+	 */
+	private boolean isPinned(final UUID playerUUID) {
+		return zeroUUID.equals(playerUUID) || plugin.getServer().getPlayer(playerUUID) != null;
+	}
+
+
 	/**
 	 * Get number of cache map entries
 	 * @return
@@ -236,7 +488,17 @@ final class PlayerStateCache {
 	final int getSize() {
 		return playerStateMap.keySet().size();
 	}
-	
+
+
+	/**
+	 * Get cache statistics, formatted for display
+	 * @return String of size, hit, miss, eviction and write back counts
+	 */
+	final String getStatistics() {
+		return "size " + getSize() + ", hits " + hitCount.get() + ", misses " + missCount.get()
+				+ ", evictions " + evictionCount.get() + ", write backs " + writeBackCount.get() + ".";
+	}
+
 
 	/**
 	 * Get cache map keys
@@ -246,7 +508,7 @@ final class PlayerStateCache {
 		return Collections.unmodifiableSet(playerStateMap.keySet());
 	}
 
-	
+
 	/**
 	 * Get name index keys
 	 * @return
@@ -254,5 +516,5 @@ final class PlayerStateCache {
 	final Set<String> getPlayerNameIndexKeys() {
 		return Collections.unmodifiableSet(playerNameIndex.keySet());
 	}
-	
+
 }
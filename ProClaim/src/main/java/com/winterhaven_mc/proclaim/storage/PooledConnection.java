@@ -0,0 +1,96 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+
+/**
+ * Datastore connection borrowed from a connection pool, with its prepared statements.<br>
+ * A pooled connection is used by one thread at a time, from borrow to release.
+ */
+final class PooledConnection {
+
+	// jdbc connection
+	private final Connection connection;
+
+	// query name prefix of sql dialect, or null for default queries
+	private final String dialect;
+
+	// prepared statements for connection
+	private final PreparedStatementCache statementCache;
+
+	// number of nested borrows by the thread holding this connection; guarded by owning pool
+	int holdCount;
+
+	// time connection was last returned to pool, in milliseconds
+	long lastReleased;
+
+
+	/**
+	 * Class constructor
+	 * @param connection
+	 * @param dialect
+	 */
+	PooledConnection(final Connection connection, final String dialect) {
+		this.connection = connection;
+		this.dialect = dialect;
+		this.statementCache = new PreparedStatementCache(connection, dialect);
+		this.lastReleased = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Get jdbc connection
+	 * @return connection
+	 */
+	final Connection getConnection() {
+		return connection;
+	}
+
+
+	/**
+	 * Get query name prefix of sql dialect
+	 * @return dialect, or null for default queries
+	 */
+	final String getDialect() {
+		return dialect;
+	}
+
+
+	/**
+	 * Get prepared statement for a query in this connection's dialect
+	 * @param queryName name of query in queries.properties
+	 * @return prepared statement
+	 * @throws SQLException
+	 */
+	final PreparedStatement prepare(final String queryName) throws SQLException {
+		return statementCache.get(queryName);
+	}
+
+
+	/**
+	 * Get prepared statement for an insert query that returns generated keys
+	 * @param queryName name of query in queries.properties
+	 * @return prepared statement
+	 * @throws SQLException
+	 */
+	final PreparedStatement prepareReturningKeys(final String queryName) throws SQLException {
+		return statementCache.getReturningKeys(queryName);
+	}
+
+
+	/**
+	 * Close prepared statements and connection
+	 */
+	final void close() {
+		statementCache.close();
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			// connection is already closed or broken
+		}
+	}
+
+}
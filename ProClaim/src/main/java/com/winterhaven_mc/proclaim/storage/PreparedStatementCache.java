@@ -0,0 +1,128 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Cache of prepared statements for a pooled datastore connection, keyed by query name.<br>
+ * Each statement is prepared once per connection. A pooled connection is only used by the
+ * thread that borrowed it, so a statement is never shared between threads and its parameters
+ * and result set cannot be disturbed by another caller. All statements are closed when the
+ * cache is closed.
+ */
+final class PreparedStatementCache {
+
+	// suffix of map key for statements that return generated keys
+	private static final String GENERATED_KEYS_SUFFIX = "#keys";
+
+	// connection statements are prepared on
+	private final Connection connection;
+
+	// query name prefix of connection's sql dialect, or null for default queries
+	private final String dialect;
+
+	// statements prepared on connection, keyed by query name
+	private final Map<String,PreparedStatement> statements;
+
+	// true after cache has been closed
+	private boolean closed;
+
+
+	/**
+	 * Class constructor
+	 * @param connection
+	 * @param dialect query name prefix, or null for default queries
+	 */
+	PreparedStatementCache(final Connection connection, final String dialect) {
+		this.connection = connection;
+		this.dialect = dialect;
+		this.statements = new HashMap<String,PreparedStatement>();
+	}
+
+
+	/**
+	 * Get prepared statement for a query, preparing it if it has not been used before
+	 * @param queryName name of query in queries.properties
+	 * @return prepared statement
+	 * @throws SQLException if query does not exist, cache is closed or statement could not be prepared
+	 */
+	final PreparedStatement get(final String queryName) throws SQLException {
+		return fetch(queryName, queryName, false);
+	}
+
+
+	/**
+	 * Get prepared statement for an insert query that returns generated keys,
+	 * preparing it if it has not been used before
+	 * @param queryName name of query in queries.properties
+	 * @return prepared statement
+	 * @throws SQLException if query does not exist, cache is closed or statement could not be prepared
+	 */
+	final PreparedStatement getReturningKeys(final String queryName) throws SQLException {
+		return fetch(queryName + GENERATED_KEYS_SUFFIX, queryName, true);
+	}
+
+
+	/**
+	 * Close all prepared statements
+	 */
+	final void close() {
+
+		closed = true;
+
+		for (PreparedStatement statement : statements.values()) {
+			try {
+				statement.close();
+			}
+			catch (SQLException e) {
+				// statement will be released with connection
+			}
+		}
+		statements.clear();
+	}
+
+
+	/**
+	 * Fetch statement from map, or prepare and store it
+	 * @param mapKey
+	 * @param queryName
+	 * @param returnKeys
+	 * @return prepared statement
+	 * @throws SQLException
+	 */
+	private PreparedStatement fetch(final String mapKey, final String queryName,
+			final boolean returnKeys) throws SQLException {
+
+		if (closed) {
+			throw new SQLException("Statement cache is closed.");
+		}
+
+		// if statement was already prepared, return it
+		PreparedStatement statement = statements.get(mapKey);
+		if (statement != null) {
+			return statement;
+		}
+
+		// get query string
+		final String query = Queries.getQuery(dialect, queryName);
+		if (query == null) {
+			throw new SQLException("Query " + queryName + " does not exist.");
+		}
+
+		// prepare statement and store in map
+		if (returnKeys) {
+			statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+		}
+		else {
+			statement = connection.prepareStatement(query);
+		}
+		statements.put(mapKey, statement);
+		return statement;
+	}
+
+}
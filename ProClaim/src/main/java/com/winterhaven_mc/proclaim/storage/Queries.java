@@ -44,5 +44,25 @@ final class Queries {
 	final static String getQuery(final String query) throws SQLException {
 		return getQueries().getProperty(query);
 	}
+
+
+	/**
+	 * Get query for an SQL dialect<br>
+	 * A query named with the dialect prefix, such as mysql.CreatePlayerTable,
+	 * takes the place of the default query of the same name
+	 * @param dialect query name prefix, or null for default queries
+	 * @param query query name
+	 * @return query string, or null if no query exists with that name
+	 * @throws SQLException
+	 */
+	final static String getQuery(final String dialect, final String query) throws SQLException {
+		if (dialect != null) {
+			final String dialectQuery = getQueries().getProperty(dialect + "." + query);
+			if (dialectQuery != null) {
+				return dialectQuery;
+			}
+		}
+		return getQueries().getProperty(query);
+	}
 	
 }
@@ -0,0 +1,151 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * SQLite connection settings read from the storage section of the plugin config.<br>
+ * Values that are not set or not valid are replaced by defaults, so settings
+ * can be applied to a connection as pragmas without further checks.
+ */
+final class SQLiteSettings extends StorageSettings {
+
+	// valid journal modes
+	private static final List<String> JOURNAL_MODES =
+			Arrays.asList("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+
+	// valid synchronous levels
+	private static final List<String> SYNCHRONOUS_LEVELS =
+			Arrays.asList("OFF", "NORMAL", "FULL", "EXTRA");
+
+	// valid temp store locations
+	private static final List<String> TEMP_STORES =
+			Arrays.asList("DEFAULT", "FILE", "MEMORY");
+
+	private final String journalMode;
+	private final String synchronous;
+	private final long mmapSize;
+	private final int cacheSize;
+	private final String tempStore;
+	private final int busyTimeout;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	SQLiteSettings(final PluginMain plugin) {
+
+		super(plugin);
+
+		journalMode = validate("journal-mode", "WAL", JOURNAL_MODES);
+		synchronous = validate("synchronous", "NORMAL", SYNCHRONOUS_LEVELS);
+		tempStore = validate("temp-store", "MEMORY", TEMP_STORES);
+		mmapSize = Math.max(0, plugin.getConfig().getLong("storage.mmap-size", 268435456L));
+		cacheSize = Math.max(0, plugin.getConfig().getInt("storage.cache-size", 8192));
+		busyTimeout = Math.max(0, plugin.getConfig().getInt("storage.busy-timeout", 5000));
+	}
+
+
+	/**
+	 * Test if write ahead logging is enabled, allowing reads to proceed while a write is in progress
+	 * @return true if journal mode is WAL, false if not
+	 */
+	final boolean isWriteAheadLog() {
+		return journalMode.equals("WAL");
+	}
+
+
+	/**
+	 * Apply settings to a connection
+	 * @param connection
+	 * @param readOnly if true, connection is set to reject writes
+	 * @throws SQLException
+	 */
+	final void apply(final Connection connection, final boolean readOnly) throws SQLException {
+
+		final Statement statement = connection.createStatement();
+		try {
+			statement.execute("PRAGMA busy_timeout = " + busyTimeout);
+
+			// journal mode is stored in the database file, so only set it on the write connection
+			if (!readOnly) {
+				statement.execute("PRAGMA journal_mode = " + journalMode);
+			}
+			statement.execute("PRAGMA synchronous = " + synchronous);
+			statement.execute("PRAGMA temp_store = " + tempStore);
+			statement.execute("PRAGMA mmap_size = " + mmapSize);
+
+			// negative cache size is in kibibytes rather than pages
+			statement.execute("PRAGMA cache_size = -" + cacheSize);
+
+			if (readOnly) {
+				statement.execute("PRAGMA query_only = ON");
+			}
+		}
+		finally {
+			statement.close();
+		}
+	}
+
+
+	/**
+	 * Log effective settings of a connection, as reported by SQLite
+	 * @param connection
+	 * @param connectionName
+	 */
+	final void logEffective(final Connection connection, final String connectionName) {
+
+		final StringBuilder sb = new StringBuilder("SQLite " + connectionName + " connection settings:");
+		try {
+			final Statement statement = connection.createStatement();
+			try {
+				for (String pragma : Arrays.asList("journal_mode", "synchronous",
+						"mmap_size", "cache_size", "temp_store", "busy_timeout")) {
+					final ResultSet rs = statement.executeQuery("PRAGMA " + pragma);
+					sb.append(' ').append(pragma).append('=');
+					sb.append(rs.next() ? rs.getString(1) : "?");
+					rs.close();
+				}
+			}
+			finally {
+				statement.close();
+			}
+			sb.append(" write-queue-size=").append(getWriteQueueSize());
+			sb.append(" write-flush-interval=").append(getWriteFlushInterval());
+			plugin.getLogger().info(sb.toString());
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("Could not read effective SQLite " + connectionName
+					+ " connection settings.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Read a string setting and check it against a list of valid values
+	 * @param key
+	 * @param defaultValue
+	 * @param validValues
+	 * @return upper case setting value, or default value if setting is not valid
+	 */
+	private String validate(final String key, final String defaultValue, final List<String> validValues) {
+
+		final String value = plugin.getConfig().getString("storage." + key, defaultValue).toUpperCase();
+		if (!validValues.contains(value)) {
+			plugin.getLogger().warning("Invalid storage " + key + " '" + value
+					+ "' in config, using " + defaultValue + ".");
+			return defaultValue;
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,212 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Applies numbered schema migrations from queries.properties to a datastore.<br>
+ * Migration n is the query SchemaMigration.n in the connection's dialect; it may contain several
+ * statements separated by semicolons, except semicolons inside a trigger body between BEGIN and END.
+ * The highest applied version is recorded in the schemaversion table, and each migration
+ * runs in its own transaction together with its version record, so an interrupted upgrade
+ * is retried from the first migration that was not committed. MySQL commits schema changes
+ * implicitly, so a MySQL migration that fails part way is not rolled back; because MySQL has no
+ * CREATE INDEX IF NOT EXISTS, a CREATE INDEX statement is skipped when the database catalog already
+ * lists an index of that name on the table, so the retried migration does not fail on it.
+ */
+final class SchemaMigrator {
+
+	// prefix of migration query names
+	private static final String MIGRATION_PREFIX = "SchemaMigration.";
+
+	// create index statement without an existence guard; groups are index name and table name
+	private static final Pattern CREATE_INDEX =
+			Pattern.compile("(?is)CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+).*");
+
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private SchemaMigrator() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Apply all migrations newer than the recorded schema version
+	 * @param plugin
+	 * @param pooledConnection
+	 * @param displayName datastore display name for log messages
+	 * @return schema version after migration
+	 * @throws SQLException if a migration fails; the failed migration is rolled back
+	 */
+	static int migrate(final PluginMain plugin, final PooledConnection pooledConnection, final String displayName)
+			throws SQLException {
+
+		final Connection connection = pooledConnection.getConnection();
+		final String dialect = pooledConnection.getDialect();
+
+		final Statement statement = connection.createStatement();
+		try {
+
+			// create schema version table if it doesn't already exist
+			statement.executeUpdate(Queries.getQuery(dialect, "CreateSchemaVersionTable"));
+
+			// get current schema version; zero if no migration has been applied
+			int version = 0;
+			final ResultSet rs = statement.executeQuery(Queries.getQuery(dialect, "SelectSchemaVersion"));
+			if (rs.next()) {
+				version = rs.getInt(1);
+			}
+			rs.close();
+
+			// apply each following migration in order
+			String migration;
+			while ((migration = Queries.getQuery(dialect, MIGRATION_PREFIX + (version + 1))) != null) {
+				version++;
+				apply(connection, statement, migration, version);
+				plugin.getLogger().info(displayName + " datastore schema upgraded to version "
+						+ version + ".");
+			}
+
+			if (plugin.debug) {
+				plugin.getLogger().info(displayName + " datastore schema version is " + version + ".");
+			}
+			return version;
+		}
+		finally {
+			statement.close();
+		}
+	}
+
+
+	/**
+	 * Apply a single migration and record its version in one transaction
+	 * @param connection
+	 * @param statement
+	 * @param migration
+	 * @param version
+	 * @throws SQLException
+	 */
+	private static void apply(final Connection connection, final Statement statement,
+			final String migration, final int version) throws SQLException {
+
+		final boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			for (String sql : splitStatements(migration)) {
+				if (!indexExists(connection, sql)) {
+					statement.executeUpdate(sql);
+				}
+			}
+
+			final PreparedStatement insertVersion =
+					connection.prepareStatement(Queries.getQuery("InsertSchemaVersion"));
+			try {
+				insertVersion.setInt(1, version);
+				insertVersion.executeUpdate();
+			}
+			finally {
+				insertVersion.close();
+			}
+
+			connection.commit();
+		}
+		catch (SQLException e) {
+			connection.rollback();
+			throw new SQLException("Schema migration " + version + " failed: " + e.getMessage(), e);
+		}
+		finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+
+	/**
+	 * Check whether a statement creates an index that is already listed in the database catalog
+	 * @param connection
+	 * @param sql
+	 * @return true if sql is a CREATE INDEX statement for an existing index, false if not
+	 * @throws SQLException
+	 */
+	private static boolean indexExists(final Connection connection, final String sql) throws SQLException {
+
+		final Matcher matcher = CREATE_INDEX.matcher(sql);
+		if (!matcher.matches()) {
+			return false;
+		}
+		final String indexName = matcher.group(1);
+		String tableName = matcher.group(2);
+
+		// catalog lookups by table name are case sensitive on databases that store identifiers in one case
+		final DatabaseMetaData metaData = connection.getMetaData();
+		if (metaData.storesUpperCaseIdentifiers()) {
+			tableName = tableName.toUpperCase();
+		}
+		else if (metaData.storesLowerCaseIdentifiers()) {
+			tableName = tableName.toLowerCase();
+		}
+
+		final ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, tableName, false, false);
+		try {
+			while (rs.next()) {
+				if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			rs.close();
+		}
+	}
+
+
+	/**
+	 * Split migration into statements at semicolons that are not inside a BEGIN ... END block
+	 * @param migration
+	 * @return list of non-empty statements
+	 */
+	private static List<String> splitStatements(final String migration) {
+
+		final List<String> statements = new ArrayList<String>();
+		final StringBuilder current = new StringBuilder();
+		int depth = 0;
+
+		for (String token : migration.split("(?<=;)|(?=;)|(?<=\\s)|(?=\\s)")) {
+
+			if (token.equals(";") && depth == 0) {
+				if (!current.toString().trim().isEmpty()) {
+					statements.add(current.toString().trim());
+				}
+				current.setLength(0);
+				continue;
+			}
+
+			if (token.equalsIgnoreCase("BEGIN")) {
+				depth++;
+			}
+			else if (token.equalsIgnoreCase("END") && depth > 0) {
+				depth--;
+			}
+			current.append(token);
+		}
+
+		if (!current.toString().trim().isEmpty()) {
+			statements.add(current.toString().trim());
+		}
+		return statements;
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Datastore settings read from the storage section of the plugin config that apply to
+ * all SQL datastore types.<br>
+ * Values that are not set or not valid are replaced by defaults.
+ */
+class StorageSettings {
+
+	// reference to main class
+	final PluginMain plugin;
+
+	private final int writeQueueSize;
+	private final long writeFlushInterval;
+	private final int loadFetchSize;
+	private final int loadThreads;
+	private final boolean snapshotEnabled;
+	private final int playerCacheSize;
+	private final long playerCacheIdleTime;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	StorageSettings(final PluginMain plugin) {
+
+		this.plugin = plugin;
+
+		writeQueueSize = Math.max(1, plugin.getConfig().getInt("storage.write-queue-size", 10000));
+		writeFlushInterval = Math.max(0, plugin.getConfig().getLong("storage.write-flush-interval", 100));
+		loadFetchSize = Math.max(1, plugin.getConfig().getInt("storage.load-fetch-size", 1000));
+		loadThreads = Math.max(0, plugin.getConfig().getInt("storage.load-threads", 0));
+		snapshotEnabled = plugin.getConfig().getBoolean("storage.cache-snapshot", true);
+		playerCacheSize = Math.max(0, plugin.getConfig().getInt("storage.player-cache-size", 10000));
+		playerCacheIdleTime = Math.max(0, plugin.getConfig().getLong("storage.player-cache-idle-time", 30)) * 60000;
+	}
+
+
+	/**
+	 * Get maximum number of write operations queued before callers must wait
+	 * @return write queue size
+	 */
+	final int getWriteQueueSize() {
+		return writeQueueSize;
+	}
+
+
+	/**
+	 * Get time to collect write operations into a single transaction
+	 * @return write flush interval in milliseconds
+	 */
+	final long getWriteFlushInterval() {
+		return writeFlushInterval;
+	}
+
+
+	/**
+	 * Get number of rows fetched and decoded together when loading records at startup
+	 * @return load fetch size
+	 */
+	final int getLoadFetchSize() {
+		return loadFetchSize;
+	}
+
+
+	/**
+	 * Get number of threads decoding records at startup
+	 * @return number of load threads, or zero for one per available processor
+	 */
+	final int getLoadThreads() {
+		return loadThreads;
+	}
+
+
+	/**
+	 * Test if caches are saved to a snapshot file at shutdown and loaded from it at startup
+	 * @return true if cache snapshot is enabled, false if not
+	 */
+	boolean isSnapshotEnabled() {
+		return snapshotEnabled;
+	}
+
+
+	/**
+	 * Get maximum number of player states kept in the cache, not counting online players
+	 * @return player cache size, or zero if unbounded
+	 */
+	final int getPlayerCacheSize() {
+		return playerCacheSize;
+	}
+
+
+	/**
+	 * Get time a cached player state may go unused before it is evicted
+	 * @return player cache idle time in milliseconds, or zero if idle player states are kept
+	 */
+	final long getPlayerCacheIdleTime() {
+		return playerCacheIdleTime;
+	}
+
+}
@@ -0,0 +1,332 @@
+package com.winterhaven_mc.proclaim.tasks;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.ClaimStatus;
+import com.winterhaven_mc.proclaim.storage.Claim;
+import com.winterhaven_mc.proclaim.storage.ClaimBatch;
+import com.winterhaven_mc.proclaim.storage.PlayerState;
+
+/**
+ * Expires the claims of players who have not logged in for the configured number of days.<br>
+ * Claim owners are indexed in a priority queue ordered by their expiry time, which is their last login
+ * plus claim-expire-days. The index is built asynchronously at startup and rebuilt once a day
+ * from the owner index of the claim cache, and a player's expiry time is updated when they log in.
+ * An asynchronous evaluation task removes owners from the head of the queue once they are due,
+ * reads their player state, and queues their claims for abandonment. Owner records are read
+ * without adding them to the bounded player cache, so the main thread abandons queued claims
+ * without datastore reads, in small batches, one batch per tick, so the writes of each batch
+ * are committed together.
+ */
+final class ClaimExpiryIndex {
+
+	// time between evaluations of due owners, in server ticks
+	private static final long EVALUATE_INTERVAL = 1200;
+
+	// time between rebuilds of the index, in server ticks
+	private static final long REBUILD_INTERVAL = 1728000;
+
+	// maximum number of claims abandoned in one tick
+	private static final int BATCH_SIZE = 10;
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// owners in order of expiry time; guarded by this
+	private final PriorityQueue<Expiry> queue;
+
+	// expiry by owner uuid; guarded by this
+	private final Map<UUID,Expiry> expiryMap;
+
+	// claims waiting to be abandoned in the main thread
+	private final ConcurrentLinkedQueue<PendingClaim> pendingClaims;
+
+
+	/**
+	 * Private class that holds the expiry time of a claim owner
+	 */
+	private static final class Expiry implements Comparable<Expiry> {
+
+		private final UUID ownerUUID;
+		private final Instant lastLogin;
+		private final Instant expireTime;
+
+		Expiry(final UUID ownerUUID, final Instant lastLogin, final Instant expireTime) {
+			this.ownerUUID = ownerUUID;
+			this.lastLogin = lastLogin;
+			this.expireTime = expireTime;
+		}
+
+		@Override
+		public int compareTo(final Expiry other) {
+			return this.expireTime.compareTo(other.expireTime);
+		}
+	}
+
+
+	/**
+	 * Private class that holds a claim waiting to be abandoned and the player state of its owner
+	 */
+	private static final class PendingClaim {
+
+		private final Integer claimKey;
+		private final PlayerState owner;
+
+		PendingClaim(final Integer claimKey, final PlayerState owner) {
+			this.claimKey = claimKey;
+			this.owner = owner;
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	ClaimExpiryIndex(final PluginMain plugin) {
+		this.plugin = plugin;
+		this.queue = new PriorityQueue<Expiry>();
+		this.expiryMap = new HashMap<UUID,Expiry>();
+		this.pendingClaims = new ConcurrentLinkedQueue<PendingClaim>();
+	}
+
+
+	/**
+	 * Start index building, evaluation and abandonment tasks
+	 */
+	final void start() {
+
+		// build index now and once a day, to include owners of claims created or transferred since
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				rebuild();
+			}
+		}.runTaskTimerAsynchronously(plugin, 0, REBUILD_INTERVAL);
+
+		// evaluate due owners once a minute
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				evaluate();
+			}
+		}.runTaskTimerAsynchronously(plugin, EVALUATE_INTERVAL, EVALUATE_INTERVAL);
+
+		// abandon pending claims in the main thread, one batch per tick
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				abandonPending();
+			}
+		}.runTaskTimer(plugin, 1, 1);
+	}
+
+
+	/**
+	 * Update expiry time of a player from their last login
+	 * @param playerState
+	 */
+	final void update(final PlayerState playerState) {
+
+		final long expireDays = getExpireDays();
+		if (playerState == null || playerState.getPlayerUUID() == null || expireDays <= 0) {
+			return;
+		}
+		schedule(playerState.getPlayerUUID(), playerState.getLastLogin(), expireDays);
+	}
+
+
+	/**
+	 * Get configured number of days after last login that a player's claims expire
+	 * @return expire days, or zero if claims do not expire
+	 */
+	private long getExpireDays() {
+
+		// if claim-auto-expire is configured false, do not expire claims
+		if (!plugin.getConfig().getBoolean("claim-auto-expire")) {
+			return 0;
+		}
+		return Math.max(0, plugin.getConfig().getLong("claim-expire-days"));
+	}
+
+
+	/**
+	 * Put owner in index, replacing any earlier expiry time
+	 * @param ownerUUID
+	 * @param lastLogin
+	 * @param expireDays
+	 */
+	private synchronized void schedule(final UUID ownerUUID, final Instant lastLogin, final long expireDays) {
+
+		final Expiry oldExpiry = expiryMap.get(ownerUUID);
+		if (oldExpiry != null) {
+			if (oldExpiry.lastLogin.equals(lastLogin)) {
+				return;
+			}
+			queue.remove(oldExpiry);
+		}
+
+		final Expiry expiry = new Expiry(ownerUUID, lastLogin, lastLogin.plus(expireDays, ChronoUnit.DAYS));
+		expiryMap.put(ownerUUID, expiry);
+		queue.add(expiry);
+	}
+
+
+	/**
+	 * Build index from the owners of all claims that are not admin claims<br>
+	 * Runs asynchronously
+	 */
+	private void rebuild() {
+
+		final long expireDays = getExpireDays();
+		if (expireDays <= 0) {
+			return;
+		}
+
+		// get owners of claims that may expire from claim cache, and their last login from datastore
+		int count = 0;
+		for (UUID ownerUUID : plugin.dataStore.getClaimOwners()) {
+			final PlayerState owner = plugin.dataStore.readPlayerState(ownerUUID);
+			if (owner != null && owner.getLastLogin() != null) {
+				schedule(ownerUUID, owner.getLastLogin(), expireDays);
+				count++;
+			}
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Claim expiry index built for " + count + " claim owners.");
+		}
+	}
+
+
+	/**
+	 * Remove due owners from index and queue their claims for abandonment<br>
+	 * Runs asynchronously
+	 */
+	private void evaluate() {
+
+		final long expireDays = getExpireDays();
+		if (expireDays <= 0) {
+			return;
+		}
+
+		final Instant now = Instant.now();
+		final List<UUID> dueOwners = new ArrayList<UUID>();
+
+		synchronized (this) {
+			while (!queue.isEmpty() && !queue.peek().expireTime.isAfter(now)) {
+				final Expiry expiry = queue.poll();
+				expiryMap.remove(expiry.ownerUUID);
+				dueOwners.add(expiry.ownerUUID);
+			}
+		}
+
+		for (UUID ownerUUID : dueOwners) {
+
+			// read owner, so abandonment in the main thread does not read the datastore
+			final PlayerState owner = plugin.dataStore.readPlayerState(ownerUUID);
+			if (owner == null) {
+				continue;
+			}
+
+			// if owner logged in since index was built, put them back in index instead
+			if (owner.getLastLogin() != null && owner.getLastLogin().plus(expireDays, ChronoUnit.DAYS).isAfter(now)) {
+				schedule(ownerUUID, owner.getLastLogin(), expireDays);
+				continue;
+			}
+
+			final Set<Claim> claims = new HashSet<Claim>(plugin.dataStore.getPlayerClaims(ownerUUID));
+
+			// get keys of claims owned by this owner, to skip subclaims abandoned with their parent
+			final Set<Integer> claimKeys = new HashSet<Integer>();
+			for (Claim claim : claims) {
+				claimKeys.add(claim.getKey());
+			}
+
+			for (Claim claim : claims) {
+				if (!claim.isLocked() && !(claim.isSubClaim() && claimKeys.contains(claim.getParentKey()))) {
+					pendingClaims.add(new PendingClaim(claim.getKey(), owner));
+				}
+			}
+		}
+
+		if (plugin.debug && !dueOwners.isEmpty()) {
+			plugin.getLogger().info("Claims of " + dueOwners.size() + " owners queued for expiry.");
+		}
+	}
+
+
+	/**
+	 * Test if an owner removed from the index as due has not been put back by a later login
+	 * @param ownerUUID
+	 * @param now
+	 * @return true if owner is not in the index or their expiry time has passed
+	 */
+	private synchronized boolean isDue(final UUID ownerUUID, final Instant now) {
+		final Expiry expiry = expiryMap.get(ownerUUID);
+		return expiry == null || !expiry.expireTime.isAfter(now);
+	}
+
+
+	/**
+	 * Abandon a batch of pending claims<br>
+	 * Each claim is checked again, as it may have changed or its owner may have logged in since it was queued.
+	 * All claims abandoned in one run are committed together.
+	 */
+	private void abandonPending() {
+
+		final long expireDays = getExpireDays();
+		final Instant now = Instant.now();
+		final ClaimBatch batch = new ClaimBatch();
+
+		for (int count = 0; count < BATCH_SIZE; count++) {
+
+			final PendingClaim pendingClaim = pendingClaims.poll();
+			if (pendingClaim == null) {
+				break;
+			}
+
+			final Integer claimKey = pendingClaim.claimKey;
+			final Claim claim = plugin.dataStore.getClaim(claimKey);
+			if (expireDays <= 0 || claim == null || claim.isAdminClaim() || claim.isLocked()
+					|| ClaimStatus.PENDING_DELETE.equals(claim.getStatus())
+					|| !claim.getOwnerUUID().equals(pendingClaim.owner.getPlayerUUID())) {
+				continue;
+			}
+
+			// if owner is online or logged in since claim was queued, do not expire claim
+			if (plugin.getServer().getPlayer(claim.getOwnerUUID()) != null || !isDue(claim.getOwnerUUID(), now)) {
+				continue;
+			}
+
+			// expire claim, crediting the cached owner if the owner has been cached since the claim was queued
+			PlayerState owner = plugin.dataStore.getCachedPlayerState(claim.getOwnerUUID());
+			if (owner == null) {
+				owner = pendingClaim.owner;
+			}
+			claim.abandon(owner, batch);
+
+			if (plugin.debug) {
+				plugin.getLogger().info("Claim " + claimKey + " expired.");
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			batch.commit();
+		}
+	}
+
+}
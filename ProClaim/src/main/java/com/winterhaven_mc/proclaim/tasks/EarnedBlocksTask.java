@@ -0,0 +1,201 @@
+package com.winterhaven_mc.proclaim.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.storage.PlayerState;
+
+/**
+ * Single task that accrues earned claim blocks for all online players.<br>
+ * Each player accrues blocks once per accrual interval, timed from their login, if they have moved
+ * at least three blocks since their last accrual. Players are kept in order of their next accrual time,
+ * so each run only visits players that are due, and a run handles at most a fixed number of players,
+ * leaving the rest for the next run. Each player's next accrual time advances by exactly one interval,
+ * so a late run does not shift later accruals. Changed player states are updated together at the end
+ * of each run, so their writes are committed in one datastore transaction.
+ */
+final class EarnedBlocksTask extends BukkitRunnable {
+
+	// time between accruals for each player, in milliseconds
+	static final long ACCRUAL_INTERVAL = 300000;
+
+	// time between runs, in server ticks
+	static final long RUN_INTERVAL = 20;
+
+	// maximum number of players accrued in one run
+	private static final int MAX_PLAYERS_PER_RUN = 100;
+
+	// minimum squared distance a player must move between accruals to earn blocks
+	private static final double MIN_DISTANCE_SQUARED = 9;
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// scheduled accruals in order of accrual time
+	private final PriorityQueue<Accrual> queue;
+
+	// scheduled accrual by player uuid
+	private final Map<UUID,Accrual> accrualMap;
+
+
+	/**
+	 * Private class that holds the next accrual time of a player
+	 */
+	private static final class Accrual implements Comparable<Accrual> {
+
+		private final UUID playerUUID;
+		private long accrualTime;
+		private boolean cancelled;
+
+		Accrual(final UUID playerUUID, final long accrualTime) {
+			this.playerUUID = playerUUID;
+			this.accrualTime = accrualTime;
+		}
+
+		@Override
+		public int compareTo(final Accrual other) {
+			return Long.compare(this.accrualTime, other.accrualTime);
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param plugin
+	 */
+	EarnedBlocksTask(final PluginMain plugin) {
+		this.plugin = plugin;
+		this.queue = new PriorityQueue<Accrual>();
+		this.accrualMap = new HashMap<UUID,Accrual>();
+	}
+
+
+	/**
+	 * Schedule accruals for a player, starting one accrual interval from now
+	 * @param player
+	 */
+	final void add(final Player player) {
+
+		// cancel accruals already scheduled for player
+		remove(player);
+
+		final Accrual accrual = new Accrual(player.getUniqueId(), System.currentTimeMillis() + ACCRUAL_INTERVAL);
+		accrualMap.put(player.getUniqueId(), accrual);
+		queue.add(accrual);
+	}
+
+
+	/**
+	 * Cancel accruals for a player
+	 * @param player
+	 * @return true if accruals were scheduled for player, false if not
+	 */
+	final boolean remove(final Player player) {
+
+		// cancelled accruals are discarded when they reach the head of the queue
+		final Accrual accrual = accrualMap.remove(player.getUniqueId());
+		if (accrual == null) {
+			return false;
+		}
+		accrual.cancelled = true;
+		return true;
+	}
+
+
+	@Override
+	public void run() {
+
+		final long now = System.currentTimeMillis();
+
+		// get configured earned blocks per accrual interval
+		final int blocksPerAccrual = (int) (plugin.getConfig().getInt("blocks-per-hour") * ACCRUAL_INTERVAL / 3600000);
+
+		final List<PlayerState> changed = new ArrayList<PlayerState>();
+		int count = 0;
+
+		while (count < MAX_PLAYERS_PER_RUN && !queue.isEmpty() && queue.peek().accrualTime <= now) {
+
+			final Accrual accrual = queue.poll();
+			if (accrual.cancelled) {
+				continue;
+			}
+			count++;
+
+			// if player is no longer online, discard accrual
+			final Player player = plugin.getServer().getPlayer(accrual.playerUUID);
+			if (player == null) {
+				accrualMap.remove(accrual.playerUUID);
+				continue;
+			}
+
+			// schedule next accrual one interval after this one
+			accrual.accrualTime += ACCRUAL_INTERVAL;
+			queue.add(accrual);
+
+			if (accrue(player, blocksPerAccrual)) {
+				changed.add(PlayerState.getPlayerState(player.getUniqueId()));
+			}
+		}
+
+		// update changed player states together, so they are written in one transaction
+		for (PlayerState playerState : changed) {
+			playerState.update();
+		}
+
+		if (plugin.debug && count > 0) {
+			plugin.getLogger().info("Accrued earned blocks for " + changed.size() + " of "
+					+ count + " players due.");
+		}
+	}
+
+
+	/**
+	 * Give a player earned blocks if they moved since their last accrual
+	 * @param player
+	 * @param blocks number of blocks to give
+	 * @return true if player earned blocks, false if not
+	 */
+	private boolean accrue(final Player player, final int blocks) {
+
+		// get player state
+		final PlayerState playerState = PlayerState.getPlayerState(player.getUniqueId());
+		if (playerState == null) {
+			return false;
+		}
+
+		final Location location = player.getLocation();
+		final Location lastLocation = playerState.getLastRecordedLocation();
+
+		// if no afk location was recorded, record it and return
+		if (lastLocation == null) {
+			playerState.setLastAfkCheckLocation(location);
+			return false;
+		}
+
+		// if player has not moved more than three blocks since last accrual, do nothing and return
+		if (location.getWorld().equals(lastLocation.getWorld())
+				&& location.distanceSquared(lastLocation) < MIN_DISTANCE_SQUARED) {
+			return false;
+		}
+
+		// set player last afk location
+		playerState.setLastAfkCheckLocation(location);
+
+		// give player blocks
+		if (blocks <= 0) {
+			return false;
+		}
+		playerState.setEarnedClaimBlocks(playerState.getEarnedClaimBlocks() + blocks);
+		return true;
+	}
+
+}
@@ -1,19 +1,20 @@
 package com.winterhaven_mc.proclaim.tasks;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.UUID;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
 
 import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.storage.PlayerState;
 
 public final class TaskManager {
 
 	// reference to main class
 	private final PluginMain plugin;
 	
-	private final HashMap<UUID,HashSet<BukkitTask>> playerTaskMap;
+	// single task accruing earned blocks for all online players
+	private final EarnedBlocksTask earnedBlocksTask;
+	
+	// index of claim owners by claim expiry time
+	private final ClaimExpiryIndex claimExpiryIndex;
 	
 	/**
 	 * Class constructor
@@ -22,40 +23,26 @@ public final class TaskManager {
 	public TaskManager(final PluginMain plugin) {
 		this.plugin = plugin;
 		
-		// initalize playerTaskMap
-		this.playerTaskMap = new HashMap<UUID,HashSet<BukkitTask>>();
+		// start earned blocks task, run every second to accrue blocks for players that are due
+		this.earnedBlocksTask = new EarnedBlocksTask(plugin);
+		this.earnedBlocksTask.runTaskTimer(plugin, EarnedBlocksTask.RUN_INTERVAL, EarnedBlocksTask.RUN_INTERVAL);
 		
-		// start expire claims task, repeat every hour after initial no delay run
-		new ExpireClaimsTask(plugin).runTaskTimer(plugin,0,72000);
+		// start claim expiry tasks, building expiry index asynchronously
+		this.claimExpiryIndex = new ClaimExpiryIndex(plugin);
+		this.claimExpiryIndex.start();
 	}
 	
 	/**
-	 * Start task to accrue player earned blocks
+	 * Start accruing player earned blocks, every five minutes after a five minute delay
 	 * @param player
 	 */
 	public final void startPlayerEarnedBlocksTask(final Player player) {
 		
-		// start task, repeat every five minutes after five minute start delay
-        final BukkitTask playerTask = new PlayerEarnedBlocksTask(plugin,player).runTaskTimer(plugin,6000,6000);
-        
-        // get player task hashset from map
-        HashSet<BukkitTask> playerTasks = playerTaskMap.get(player.getUniqueId());
-
-        // if playerTasks HashSet is null, create a new one
-        if (playerTasks == null) {
-        	playerTasks = new HashSet<BukkitTask>();
-        }
-        
-        // add task to hashset
-        playerTasks.add(playerTask);
-        
-        // put task in hashmap
-        playerTaskMap.putIfAbsent(player.getUniqueId(), playerTasks);
+		earnedBlocksTask.add(player);
         
         if (plugin.debug) {
-        	plugin.getLogger().info("Started player earned blocks task for " + player.getName() + ".");
+        	plugin.getLogger().info("Started earned blocks accrual for " + player.getName() + ".");
         }
-        
 	}
 	
 	
@@ -65,20 +52,21 @@ public final class TaskManager {
 	 */
 	public final void cancelPlayerTasks(final Player player) {
 		
-		// get HashSet of tasks from playerTaskMap
-		final HashSet<BukkitTask> playerTasks = playerTaskMap.get(player.getUniqueId());
-		
-		// cancel each task
-		for (BukkitTask playerTask : playerTasks) {
-			playerTask.cancel();
-		}
-		
-		// remove player from TaskMap
-		playerTaskMap.remove(player.getUniqueId());
+		// stop earned blocks accrual
+		earnedBlocksTask.remove(player);
 	
         if (plugin.debug) {
         	plugin.getLogger().info("Cancelled all player tasks for " + player.getName() + ".");
         }
 	}
 	
+	
+	/**
+	 * Update claim expiry time of a player after login
+	 * @param playerState
+	 */
+	public final void updateClaimExpiry(final PlayerState playerState) {
+		claimExpiryIndex.update(playerState);
+	}
+	
 }
@@ -1,5 +1,6 @@
 package com.winterhaven_mc.proclaim.util;
 
+import java.util.Collection;
 import java.util.HashSet;
 
 import org.bukkit.Location;
@@ -117,6 +118,25 @@ public final class WorldGuardHelper {
 	}
 	
 	
+	/**
+	 * Synchronize WorldGuard regions for changed claims and remove regions for deleted claims in one pass
+	 * @param syncedClaims changed claims
+	 * @param removedClaims deleted claims, including any child claims
+	 */
+	public final void updateRegions(final Collection<Claim> syncedClaims, final Collection<Claim> removedClaims) {
+		
+		if (worldGuardPresent) {
+			
+			for (Claim removedClaim : removedClaims) {
+				worldGuardWrapper.removeRegion(removedClaim);
+			}
+			for (Claim syncedClaim : syncedClaims) {
+				worldGuardWrapper.syncRegion(syncedClaim);
+			}
+		}
+	}
+	
+	
 	public final boolean overlaps(final Claim claim, final Player player) {
 		
 		if (worldGuardPresent) {
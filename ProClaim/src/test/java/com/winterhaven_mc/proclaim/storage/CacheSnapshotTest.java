@@ -0,0 +1,159 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+import com.winterhaven_mc.proclaim.objects.PermissionLevel;
+
+
+/**
+ * Tests that cache snapshots round trip their records, and are rejected when the data state
+ * does not match or the file is damaged.
+ */
+public class CacheSnapshotTest {
+
+	// data state of datastore when snapshot was written: database id and change count
+	private static final String DATA_STATE = "0123456789abcdef0123456789abcdef:7";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private PluginMain plugin;
+	private World world;
+	private File file;
+
+
+	@Before
+	public void setUp() throws IOException {
+
+		world = mock(World.class);
+		when(world.getUID()).thenReturn(UUID.randomUUID());
+		when(world.getName()).thenReturn("world");
+
+		final Server server = mock(Server.class);
+		when(server.getWorld(world.getUID())).thenReturn(world);
+
+		plugin = mock(PluginMain.class);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("ProClaim"));
+		when(plugin.getServer()).thenReturn(server);
+
+		file = new File(folder.getRoot(), "proclaim.snapshot");
+		writeSnapshot();
+	}
+
+
+	@Test
+	public void snapshotRoundTripsRecords() {
+
+		final CacheSnapshot snapshot = CacheSnapshot.read(plugin, file, DATA_STATE);
+		assertNotNull(snapshot);
+
+		assertEquals(1, snapshot.getClaims().size());
+		final Claim claim = snapshot.getClaims().get(0);
+		assertEquals(Integer.valueOf(12), claim.getKey());
+		assertEquals(-20, claim.getLowerX());
+		assertEquals(30, claim.getUpperZ());
+		assertTrue(claim.contains(world, 0, 40, 0, false));
+
+		assertEquals(1, snapshot.getPermissions().size());
+		assertEquals(PermissionLevel.BUILD, snapshot.getPermissions().get(0).getPermissionLevel());
+
+		assertEquals(1, snapshot.getClaimGroups().size());
+		assertEquals("village", snapshot.getClaimGroups().get(0).getName());
+	}
+
+
+	@Test
+	public void snapshotOfOtherChangeCountIsRejected() {
+		assertNull(CacheSnapshot.read(plugin, file, "0123456789abcdef0123456789abcdef:8"));
+	}
+
+
+	@Test
+	public void snapshotOfOtherDatabaseIsRejected() {
+		assertNull(CacheSnapshot.read(plugin, file, "fedcba9876543210fedcba9876543210:7"));
+	}
+
+
+	@Test
+	public void snapshotWithChangedByteIsRejected() throws IOException {
+
+		// flip a bit inside the claim records
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(80);
+			final int value = randomAccessFile.read();
+			randomAccessFile.seek(80);
+			randomAccessFile.write(value ^ 1);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+
+		assertNull(CacheSnapshot.read(plugin, file, DATA_STATE));
+	}
+
+
+	@Test
+	public void truncatedSnapshotIsRejected() throws IOException {
+
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(randomAccessFile.length() - 3);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+
+		assertNull(CacheSnapshot.read(plugin, file, DATA_STATE));
+	}
+
+
+	@Test
+	public void missingSnapshotIsIgnored() {
+		assertNull(CacheSnapshot.read(plugin, new File(folder.getRoot(), "missing.snapshot"), DATA_STATE));
+	}
+
+
+	private void writeSnapshot() throws IOException {
+
+		final Claim claim = new Claim();
+		claim.setKey(12);
+		claim.setOwnerUUID(UUID.randomUUID());
+		claim.setParentKey(0);
+		claim.setGroupKey(3);
+		claim.setCorners(world, -20, 40, -10, 15, 255, 30);
+
+		final ClaimPermission claimPermission = new ClaimPermission();
+		claimPermission.setKey(5);
+		claimPermission.setClaimKey(12);
+		claimPermission.setPlayerUUID(UUID.randomUUID());
+		claimPermission.setPermissionLevel(PermissionLevel.BUILD);
+
+		final ClaimGroup claimGroup = new ClaimGroup("village", 2);
+		claimGroup.setKey(3);
+
+		CacheSnapshot.write(file, DATA_STATE, Collections.singletonList(claim),
+				Collections.singletonList(claimPermission), Collections.singletonList(claimGroup));
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests that claims are found by location in every chunk they touch, including chunks
+ * on either side of bitmap region boundaries and chunks with negative coordinates.
+ */
+public class ClaimChunkIndexTest {
+
+	private final ClaimChunkIndex index = new ClaimChunkIndex();
+	private World world;
+	private World otherWorld;
+
+
+	@Before
+	public void setUp() {
+		world = mockWorld("world");
+		otherWorld = mockWorld("other");
+	}
+
+
+	@Test
+	public void claimIsFoundInEveryChunkItTouches() {
+
+		// blocks 500 to 530 span chunks 31 to 33, crossing the region boundary between chunks 31 and 32
+		index.index(claim(1, 500, -10, 530, 10));
+
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, 500, 0));
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, 511, -10));
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, 512, 10));
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, 543, 15));
+
+		// chunks outside the claim, and the same chunks in another world
+		assertTrue(index.fetchClaimKeys(world, 495, 0).isEmpty());
+		assertTrue(index.fetchClaimKeys(world, 544, 0).isEmpty());
+		assertTrue(index.fetchClaimKeys(world, 520, 16).isEmpty());
+		assertTrue(index.fetchClaimKeys(otherWorld, 520, 0).isEmpty());
+	}
+
+
+	@Test
+	public void negativeCoordinatesAreIndexedByFloorChunk() {
+
+		// block -1 is in chunk -1 and block -16 is its first block; block -17 is in chunk -2
+		index.index(claim(1, -16, -16, -1, -1));
+
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, -1, -1));
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, -16, -16));
+		assertTrue(index.fetchClaimKeys(world, 0, 0).isEmpty());
+		assertTrue(index.fetchClaimKeys(world, -17, -1).isEmpty());
+		assertTrue(index.fetchClaimKeys(world, 15, 15).isEmpty());
+
+		// chunk -32 and chunk -33 are in different regions
+		index.index(claim(2, -528, 0, -500, 0));
+		assertEquals(Collections.singleton(2), index.fetchClaimKeys(world, -513, 0));
+		assertEquals(Collections.singleton(2), index.fetchClaimKeys(world, -512, 0));
+		assertTrue(index.fetchClaimKeys(world, -529, 0).isEmpty());
+	}
+
+
+	@Test
+	public void removedClaimIsClearedOnlyFromItsOwnChunks() {
+
+		index.index(claim(1, -40, -40, 40, 40));
+		index.index(claim(2, 20, 20, 600, 30));
+
+		index.remove(1);
+
+		// chunks touched only by the removed claim are cleared
+		assertTrue(index.fetchClaimKeys(world, -40, -40).isEmpty());
+		assertTrue(index.fetchClaimKeys(world, 0, 0).isEmpty());
+
+		// chunks shared with the remaining claim, and its chunks beyond the region boundary, are kept
+		assertEquals(Collections.singleton(2), index.fetchClaimKeys(world, 20, 20));
+		assertEquals(Collections.singleton(2), index.fetchClaimKeys(world, 600, 30));
+	}
+
+
+	@Test
+	public void resizedClaimIsReindexed() {
+
+		final Claim claim = claim(1, 0, 0, 10, 10);
+		index.index(claim);
+
+		// move claim across the origin
+		claim.setCorners(world, -600, 0, -600, -590, 255, -590);
+		index.index(claim);
+
+		assertTrue(index.fetchClaimKeys(world, 5, 5).isEmpty());
+		assertEquals(Collections.singleton(1), index.fetchClaimKeys(world, -595, -595));
+	}
+
+
+	@Test
+	public void rectangleFindsClaimsOnBothSidesOfOrigin() {
+
+		index.index(claim(1, -20, 0, -5, 5));
+		index.index(claim(2, 5, 0, 20, 5));
+		index.index(claim(3, 1000, 1000, 1010, 1010));
+
+		// rectangle touches chunks -1 and 0, fewer than the claims in the world, so chunks are walked
+		assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)),
+				new HashSet<Integer>(index.fetchClaimKeys(world, -1, 2, 1, 2)));
+		assertTrue(index.fetchClaimKeys(otherWorld, -1, 2, 1, 2).isEmpty());
+	}
+
+
+	private Claim claim(final int key, final int x1, final int z1, final int x2, final int z2) {
+		final Claim claim = new Claim();
+		claim.setKey(key);
+		claim.setCorners(world, x1, 0, z1, x2, 255, z2);
+		return claim;
+	}
+
+
+	private static World mockWorld(final String name) {
+		final World world = mock(World.class);
+		when(world.getUID()).thenReturn(UUID.randomUUID());
+		when(world.getName()).thenReturn(name);
+		return world;
+	}
+
+}
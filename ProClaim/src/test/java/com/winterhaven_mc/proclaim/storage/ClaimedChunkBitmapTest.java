@@ -0,0 +1,135 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that chunk bits are set and cleared independently across region boundaries,
+ * negative chunk coordinates and worlds.
+ */
+public class ClaimedChunkBitmapTest {
+
+	private final ClaimedChunkBitmap bitmap = new ClaimedChunkBitmap();
+	private final UUID world = UUID.randomUUID();
+
+
+	@Test
+	public void chunksOnEitherSideOfRegionBoundaryAreIndependent() {
+
+		// chunks 31 and 32 are in adjacent regions
+		bitmap.set(world, 31, 0);
+		assertTrue(bitmap.isSet(world, 31, 0));
+		assertFalse(bitmap.isSet(world, 32, 0));
+		assertFalse(bitmap.isSet(world, 0, 0));
+
+		bitmap.set(world, 32, 0);
+		bitmap.clear(world, 31, 0);
+		assertFalse(bitmap.isSet(world, 31, 0));
+		assertTrue(bitmap.isSet(world, 32, 0));
+	}
+
+
+	@Test
+	public void negativeChunksAreNotConfusedWithPositiveChunks() {
+
+		// chunk -1 is in region -1 at the last bit position, chunk 31 is in region 0 at the same position
+		bitmap.set(world, -1, -1);
+		assertTrue(bitmap.isSet(world, -1, -1));
+		assertFalse(bitmap.isSet(world, 31, 31));
+		assertFalse(bitmap.isSet(world, -1, 31));
+		assertFalse(bitmap.isSet(world, 0, 0));
+
+		// chunks -32 and -33 are on either side of a region boundary
+		bitmap.set(world, -32, 5);
+		assertTrue(bitmap.isSet(world, -32, 5));
+		assertFalse(bitmap.isSet(world, -33, 5));
+		assertFalse(bitmap.isSet(world, 0, 5));
+
+		bitmap.clear(world, -1, -1);
+		assertFalse(bitmap.isSet(world, -1, -1));
+		assertTrue(bitmap.isSet(world, -32, 5));
+	}
+
+
+	@Test
+	public void extremeChunkCoordinatesAreIndependent() {
+
+		bitmap.set(world, Integer.MAX_VALUE, Integer.MIN_VALUE);
+		bitmap.set(world, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		assertTrue(bitmap.isSet(world, Integer.MAX_VALUE, Integer.MIN_VALUE));
+		assertTrue(bitmap.isSet(world, Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertFalse(bitmap.isSet(world, Integer.MIN_VALUE, Integer.MIN_VALUE));
+		assertFalse(bitmap.isSet(world, Integer.MAX_VALUE, Integer.MAX_VALUE));
+	}
+
+
+	@Test
+	public void clearingOneChunkKeepsOtherChunksOfRegion() {
+
+		bitmap.set(world, 3, 4);
+		bitmap.set(world, 4, 3);
+		bitmap.clear(world, 3, 4);
+		assertFalse(bitmap.isSet(world, 3, 4));
+		assertTrue(bitmap.isSet(world, 4, 3));
+
+		// region is dropped when its last chunk is cleared, and can be set again
+		bitmap.clear(world, 4, 3);
+		assertFalse(bitmap.isSet(world, 4, 3));
+		bitmap.set(world, 4, 3);
+		assertTrue(bitmap.isSet(world, 4, 3));
+	}
+
+
+	@Test
+	public void worldsAreIndependent() {
+
+		final UUID otherWorld = UUID.randomUUID();
+		bitmap.set(world, 7, -7);
+		assertTrue(bitmap.isSet(world, 7, -7));
+		assertFalse(bitmap.isSet(otherWorld, 7, -7));
+
+		// clearing a chunk in a world without claims does nothing
+		bitmap.clear(otherWorld, 7, -7);
+		assertTrue(bitmap.isSet(world, 7, -7));
+	}
+
+
+	@Test
+	public void manyRegionsSurviveTableGrowthAndRemoval() {
+
+		// one chunk in each of 40 x 40 regions around the origin, more than fit in the initial table
+		for (int regionX = -20; regionX < 20; regionX++) {
+			for (int regionZ = -20; regionZ < 20; regionZ++) {
+				bitmap.set(world, regionX * 32 + 1, regionZ * 32 + 2);
+			}
+		}
+
+		// clear every other region, so tables are replaced while others remain
+		for (int regionX = -20; regionX < 20; regionX++) {
+			for (int regionZ = -20; regionZ < 20; regionZ++) {
+				if (((regionX + regionZ) & 1) == 0) {
+					bitmap.clear(world, regionX * 32 + 1, regionZ * 32 + 2);
+				}
+			}
+		}
+
+		for (int regionX = -20; regionX < 20; regionX++) {
+			for (int regionZ = -20; regionZ < 20; regionZ++) {
+				final boolean expected = ((regionX + regionZ) & 1) != 0;
+				if (expected) {
+					assertTrue(bitmap.isSet(world, regionX * 32 + 1, regionZ * 32 + 2));
+				}
+				else {
+					assertFalse(bitmap.isSet(world, regionX * 32 + 1, regionZ * 32 + 2));
+				}
+				assertFalse(bitmap.isSet(world, regionX * 32 + 2, regionZ * 32 + 1));
+			}
+		}
+	}
+
+}
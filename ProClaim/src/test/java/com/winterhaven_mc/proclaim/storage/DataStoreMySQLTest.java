@@ -0,0 +1,170 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Server;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Runs the MySQL datastore and its mysql dialect queries against an in-memory H2 database
+ * in MySQL compatibility mode.
+ */
+public class DataStoreMySQLTest {
+
+	// number of databases opened, so each test gets its own database
+	private static int databaseCount;
+
+	private static PluginMain plugin;
+	private static YamlConfiguration config;
+
+	private String url;
+	private DataStoreMySQL dataStore;
+
+
+	@BeforeClass
+	public static void setUpPlugin() {
+
+		config = new YamlConfiguration();
+
+		plugin = mock(PluginMain.class);
+		when(plugin.getConfig()).thenReturn(config);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("ProClaim"));
+		when(plugin.getName()).thenReturn("ProClaim");
+		when(plugin.isEnabled()).thenReturn(true);
+		when(plugin.getServer()).thenReturn(mock(Server.class));
+
+		// record classes get the plugin from the static instance when they are loaded
+		PluginMain.instance = plugin;
+	}
+
+
+	@Before
+	public void setUp() throws Exception {
+
+		url = "jdbc:h2:mem:proclaim" + (++databaseCount) + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+		config.set("storage.mysql.driver", "org.h2.Driver");
+		config.set("storage.mysql.url", url);
+
+		// eviction sweeps need a running server scheduler
+		config.set("storage.player-cache-size", 0);
+		config.set("storage.player-cache-idle-time", 0);
+
+		dataStore = new DataStoreMySQL(plugin);
+		dataStore.initialize();
+	}
+
+
+	@After
+	public void tearDown() {
+		dataStore.close();
+	}
+
+
+	@Test
+	public void initializeAppliesAllMigrations() throws SQLException {
+		assertEquals(2, queryLong("SELECT max(version) FROM schemaversion"));
+		assertEquals(1, queryLong("SELECT count(*) FROM datastate"));
+		assertTrue(dataStore.isEmpty());
+	}
+
+
+	@Test
+	public void interruptedMigrationIsRetried() throws Exception {
+
+		dataStore.close();
+
+		// forget applied migrations, as if the server stopped before the versions were recorded
+		execute("DELETE FROM schemaversion");
+
+		dataStore = new DataStoreMySQL(plugin);
+		dataStore.initialize();
+
+		assertEquals(2, queryLong("SELECT max(version) FROM schemaversion"));
+		assertEquals(1, queryLong("SELECT count(*) FROM datastate"));
+	}
+
+
+	@Test
+	public void playerRecordsAreFoundByNameIgnoringCase() {
+
+		final UUID playerUUID = UUID.randomUUID();
+		dataStore.insertPlayerStateBlocking(new PlayerState(playerUUID, "Steve"));
+
+		assertEquals(1, dataStore.getPlayerRecords("sTEVE").size());
+		assertEquals(playerUUID, dataStore.getPlayerRecords("steve").iterator().next().getPlayerUUID());
+	}
+
+
+	@Test
+	public void claimGroupsAreInsertedWithKeys() {
+
+		final ClaimGroup claimGroup = new ClaimGroup("village", 3);
+		dataStore.insertClaimGroupBlocking(claimGroup);
+
+		final ClaimGroup stored = dataStore.getClaimGroup("village");
+		assertNotNull(stored);
+		assertNotNull(stored.getKey());
+		assertEquals(Integer.valueOf(3), stored.getClaimLimit());
+	}
+
+
+	@Test
+	public void deleteAllRecordsKeepsPublicPlayer() throws SQLException {
+
+		dataStore.insertPlayerStateBlocking(new PlayerState(UUID.randomUUID(), "Alex"));
+		dataStore.insertClaimGroupBlocking(new ClaimGroup("farms"));
+		assertFalse(dataStore.isEmpty());
+
+		dataStore.deleteAllRecords();
+
+		assertTrue(dataStore.isEmpty());
+		assertEquals(1, queryLong("SELECT count(*) FROM players"));
+	}
+
+
+	private long queryLong(final String sql) throws SQLException {
+		final Connection connection = DriverManager.getConnection(url);
+		try {
+			final Statement statement = connection.createStatement();
+			final ResultSet rs = statement.executeQuery(sql);
+			rs.next();
+			return rs.getLong(1);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+
+	private void execute(final String sql) throws SQLException {
+		final Connection connection = DriverManager.getConnection(url);
+		try {
+			connection.createStatement().executeUpdate(sql);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Runs the datastore writer against an in-memory H2 database. The plugin reports itself
+ * disabled, so completion tasks run in the writer thread; tests that check completion tasks
+ * shut the writer down first, which waits for the writer thread to finish them.
+ */
+public class DataStoreWriterTest {
+
+	// number of databases opened, so each test gets its own database
+	private static int databaseCount;
+
+	private String url;
+	private ConnectionPool connectionPool;
+	private DataStoreWriter writer;
+
+	// when true, commits of pooled connections fail
+	private volatile boolean failCommit;
+
+	// number of rollbacks of pooled connections
+	private final AtomicInteger rollbackCount = new AtomicInteger();
+
+	// events recorded by operations and tasks, in order
+	private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+
+	@Before
+	public void setUp() throws SQLException {
+
+		final PluginMain plugin = mock(PluginMain.class);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("ProClaim"));
+		when(plugin.getName()).thenReturn("ProClaim");
+		when(plugin.isEnabled()).thenReturn(false);
+
+		url = "jdbc:h2:mem:writer" + (++databaseCount) + ";DB_CLOSE_DELAY=-1";
+		execute("CREATE TABLE records ( recordkey INTEGER, val INTEGER )");
+
+		connectionPool = new ConnectionPool(plugin, "Test", null, new ConnectionPool.ConnectionFactory() {
+			@Override
+			public Connection open() throws SQLException {
+				return failingCommits(DriverManager.getConnection(url));
+			}
+		}, 2, 0);
+
+		// long flush interval, so operations stay queued until flushed or shut down
+		writer = new DataStoreWriter(plugin, connectionPool, "Test", 100, 60000);
+		writer.start();
+	}
+
+
+	@After
+	public void tearDown() {
+		writer.shutdown();
+		connectionPool.close();
+	}
+
+
+	@Test
+	public void queuedUpdatesOfSameRecordAreMerged() throws SQLException {
+
+		writer.submitUpdate("record:1", insert(1, 10), task("first"));
+		writer.submitUpdate("record:1", insert(1, 20), task("second"));
+		writer.shutdown();
+
+		assertEquals(Arrays.asList("execute 1=20", "first", "second"), events);
+		assertEquals(1, count("SELECT count(*) FROM records"));
+		assertEquals(20, count("SELECT val FROM records WHERE recordkey = 1"));
+	}
+
+
+	@Test
+	public void updateIsNotMergedAcrossBarrier() throws SQLException {
+
+		writer.submitUpdate("record:1", insert(1, 10), null);
+		writer.submit(null, insert(2, 10), null);
+		writer.submitUpdate("record:1", insert(1, 20), null);
+		writer.flush();
+
+		assertEquals(Arrays.asList("execute 1=10", "execute 2=10", "execute 1=20"), events);
+		assertEquals(20, count("SELECT val FROM records WHERE recordkey = 1"));
+	}
+
+
+	@Test
+	public void completionsRunInSubmissionOrder() {
+
+		for (int i = 1; i <= 5; i++) {
+			writer.submit("record:" + i, insert(i, i), task("complete " + i));
+		}
+		writer.shutdown();
+
+		final List<String> completions = new ArrayList<String>();
+		for (String event : events) {
+			if (event.startsWith("complete")) {
+				completions.add(event);
+			}
+		}
+		assertEquals(Arrays.asList("complete 1", "complete 2", "complete 3", "complete 4", "complete 5"),
+				completions);
+	}
+
+
+	@Test
+	public void failedOperationDoesNotStopOthers() throws SQLException {
+
+		writer.submit(null, insert(1, 10), task("complete 1"));
+		writer.submit(null, new DataStoreWriter.WriteOperation() {
+			@Override
+			void execute(final PooledConnection connection) throws SQLException {
+				throw new SQLException("test failure");
+			}
+
+			@Override
+			void failed() {
+				events.add("failed");
+			}
+		}, task("complete failing"));
+		writer.submit(null, insert(2, 10), task("complete 2"));
+		writer.shutdown();
+
+		assertEquals(Arrays.asList("execute 1=10", "failed", "execute 2=10", "complete 1", "complete 2"), events);
+		assertEquals(2, count("SELECT count(*) FROM records"));
+	}
+
+
+	@Test
+	public void failedCommitIsRolledBackAndReported() throws SQLException {
+
+		failCommit = true;
+		writer.submitUpdate("record:1", insert(1, 10), task("complete 1"), task("failure 1"));
+		writer.submit(null, insert(2, 10), task("complete 2"));
+		writer.shutdown();
+
+		assertTrue(rollbackCount.get() > 0);
+		assertEquals(0, count("SELECT count(*) FROM records"));
+		assertEquals(Arrays.asList("execute 1=10", "execute 2=10",
+				"failed 1=10", "failure 1", "failed 2=10"), events);
+
+		// connection is returned with auto commit restored, and later writes succeed;
+		// writer is shut down, so the write is executed in this thread
+		failCommit = false;
+		writer.submit(null, insert(3, 10), task("complete 3"));
+		assertEquals(1, count("SELECT count(*) FROM records"));
+		assertTrue(events.contains("complete 3"));
+	}
+
+
+	@Test
+	public void shutdownCommitsQueuedOperations() throws SQLException {
+
+		writer.submit(null, insert(1, 10), task("complete 1"));
+		writer.shutdown();
+
+		assertEquals(1, count("SELECT count(*) FROM records"));
+		assertEquals(Arrays.asList("execute 1=10", "complete 1"), events);
+	}
+
+
+	private DataStoreWriter.WriteOperation insert(final int key, final int value) {
+		return new DataStoreWriter.WriteOperation() {
+			@Override
+			void execute(final PooledConnection connection) throws SQLException {
+				events.add("execute " + key + "=" + value);
+				connection.getConnection().createStatement().executeUpdate(
+						"MERGE INTO records (recordkey, val) KEY (recordkey) VALUES (" + key + "," + value + ")");
+			}
+
+			@Override
+			void failed() {
+				events.add("failed " + key + "=" + value);
+			}
+		};
+	}
+
+
+	private Runnable task(final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				events.add(name);
+			}
+		};
+	}
+
+
+	/**
+	 * Wrap connection so commits fail while failCommit is set, and rollbacks are counted
+	 */
+	private Connection failingCommits(final Connection connection) {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Connection.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+				if (method.getName().equals("commit") && failCommit) {
+					throw new SQLException("test commit failure");
+				}
+				if (method.getName().equals("rollback")) {
+					rollbackCount.incrementAndGet();
+				}
+				try {
+					return method.invoke(connection, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
+
+	private long count(final String sql) throws SQLException {
+		final Connection connection = DriverManager.getConnection(url);
+		try {
+			final ResultSet rs = connection.createStatement().executeQuery(sql);
+			rs.next();
+			return rs.getLong(1);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+
+	private void execute(final String sql) throws SQLException {
+		final Connection connection = DriverManager.getConnection(url);
+		try {
+			connection.createStatement().executeUpdate(sql);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+}
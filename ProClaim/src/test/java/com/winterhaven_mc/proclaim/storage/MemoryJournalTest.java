@@ -0,0 +1,338 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Tests that memory datastore journals are replayed over their snapshot after a crash.
+ * A crash is simulated by copying a journal file after its records are synced, and putting the
+ * copy back after the journal is closed, since closing compacts the journal into a snapshot.
+ */
+public class MemoryJournalTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public final TemporaryFolder saved = new TemporaryFolder();
+
+	private PluginMain plugin;
+	private MemorySettings settings;
+
+
+	/**
+	 * State holding claim groups only
+	 */
+	private static final class GroupState implements MemoryJournal.State {
+
+		private final Map<Integer,ClaimGroup> claimGroups = new TreeMap<Integer,ClaimGroup>();
+		private int[] nextKeys = new int[] { 1, 1, 1 };
+
+		public Collection<PlayerState> getPlayerRecords() {
+			return Collections.emptyList();
+		}
+
+		public Collection<Claim> getClaims() {
+			return Collections.emptyList();
+		}
+
+		public Collection<ClaimPermission> getClaimPermissions() {
+			return Collections.emptyList();
+		}
+
+		public Collection<ClaimGroup> getClaimGroups() {
+			return claimGroups.values();
+		}
+
+		public int[] getNextKeys() {
+			return nextKeys.clone();
+		}
+
+		public void setNextKeys(final int[] nextKeys) {
+			this.nextKeys = nextKeys.clone();
+		}
+
+		public void putPlayerState(final PlayerState playerState) {}
+		public void removePlayerState(final UUID playerUUID) {}
+		public void putClaim(final Claim claim) {}
+		public void removeClaim(final int claimKey) {}
+		public void putClaimPermission(final ClaimPermission claimPermission) {}
+		public void removeClaimPermission(final int permissionRecordKey) {}
+		public void removeClaimPermissions(final int claimKey) {}
+
+		public void putClaimGroup(final ClaimGroup claimGroup) {
+			claimGroups.put(claimGroup.getKey(), claimGroup);
+		}
+
+		public void removeClaimGroup(final int claimGroupKey) {
+			claimGroups.remove(claimGroupKey);
+		}
+
+		/**
+		 * Put claim group into state and append it to journal, as the memory datastore does
+		 */
+		void put(final MemoryJournal journal, final int key, final String name) {
+			final ClaimGroup claimGroup = new ClaimGroup(name, key * 10);
+			claimGroup.setKey(key);
+			putClaimGroup(claimGroup);
+			journal.appendPutClaimGroup(claimGroup);
+		}
+
+		void remove(final MemoryJournal journal, final int key) {
+			removeClaimGroup(key);
+			journal.appendRemoveClaimGroup(key);
+		}
+	}
+
+
+	@Before
+	public void setUp() {
+
+		final YamlConfiguration config = new YamlConfiguration();
+		config.set("storage.memory.fsync", false);
+		config.set("storage.write-flush-interval", 0);
+
+		plugin = mock(PluginMain.class);
+		when(plugin.getConfig()).thenReturn(config);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("ProClaim"));
+		when(plugin.getName()).thenReturn("ProClaim");
+		when(plugin.getDataFolder()).thenReturn(folder.getRoot());
+
+		settings = new MemorySettings(plugin);
+	}
+
+
+	@Test
+	public void journalIsReplayedAfterCrash() throws IOException {
+
+		final File journalFile = crashedJournal("village", "farms", "mines");
+		restore(journalFile, 0);
+
+		assertEquals("[village, farms, mines]", reopen().toString());
+	}
+
+
+	@Test
+	public void replayStopsAtTornRecord() throws IOException {
+
+		final File journalFile = crashedJournal("village", "farms", "mines");
+
+		// cut last record short, as if the server stopped while writing it
+		restore(journalFile, 3);
+
+		assertEquals("[village, farms]", reopen().toString());
+	}
+
+
+	@Test
+	public void replayStopsAtCorruptRecord() throws IOException {
+
+		final File journalFile = crashedJournal("village", "farms", "mines");
+		restore(journalFile, 0);
+
+		// change a byte of the second record: 16 byte header, then three frames of equal length
+		final File restored = new File(folder.getRoot(), journalFile.getName());
+		final long frameLength = (restored.length() - 16) / 3;
+		flipByte(restored, 16 + frameLength + 6);
+
+		// records after the corrupt record are not replayed, even though they are intact
+		assertEquals("[village]", reopen().toString());
+	}
+
+
+	@Test
+	public void journalOfSnapshotGenerationIsReplayedOverSnapshot() throws IOException {
+
+		// journal of generation 0, saved before its last record, then compacted into a snapshot
+		final GroupState state = new GroupState();
+		MemoryJournal journal = new MemoryJournal(plugin, state, settings);
+		journal.open();
+		state.put(journal, 1, "village");
+		state.put(journal, 2, "farms");
+		journal.sync();
+		final File oldJournal = save(journalFile(0));
+		state.remove(journal, 2);
+		journal.close();
+		final File snapshot = save(snapshotFile());
+
+		// journal of generation 1, started over the snapshot
+		journal = new MemoryJournal(plugin, state, settings);
+		journal.open();
+		state.put(journal, 3, "mines");
+		journal.sync();
+		final File newJournal = save(journalFile(1));
+		journal.close();
+
+		// crash after generation 1 journal was written, with the old journal left behind
+		MemoryJournal.delete(folder.getRoot());
+		restore(snapshot, 0);
+		restore(oldJournal, 0);
+		restore(newJournal, 0);
+
+		// old journal is older than the snapshot; replaying it would put back claim group 2
+		assertEquals("[village, mines]", reopen().toString());
+	}
+
+
+	@Test
+	public void incompleteSnapshotIsRejected() throws IOException {
+
+		final GroupState state = new GroupState();
+		final MemoryJournal journal = new MemoryJournal(plugin, state, settings);
+		journal.open();
+		state.put(journal, 1, "village");
+		state.put(journal, 2, "farms");
+		journal.close();
+
+		// remove end record: type, record count, and frame length and checksum
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile(), "rw");
+		try {
+			randomAccessFile.setLength(randomAccessFile.length() - 13);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+
+		try {
+			new MemoryJournal(plugin, new GroupState(), settings).open();
+			fail("incomplete snapshot was loaded");
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+
+
+	@Test
+	public void replayedJournalIsCompactedIntoSnapshot() throws IOException {
+
+		final File journalFile = crashedJournal("village", "farms");
+		restore(journalFile, 0);
+		assertEquals("[village, farms]", reopen().toString());
+
+		// replayed journal was removed, and its records are loaded from the new snapshot
+		assertFalse(journalFile(0).exists());
+		assertTrue(snapshotFile().exists());
+		assertEquals("[village, farms]", reopen().toString());
+	}
+
+
+	/**
+	 * Journal claim groups, and save the synced journal before it is closed and compacted.
+	 * The data folder is left empty.
+	 * @param names names of claim groups, keyed from 1
+	 * @return saved journal file
+	 */
+	private File crashedJournal(final String... names) throws IOException {
+
+		final GroupState state = new GroupState();
+		final MemoryJournal journal = new MemoryJournal(plugin, state, settings);
+		journal.open();
+		for (int i = 0; i < names.length; i++) {
+			state.put(journal, i + 1, names[i]);
+		}
+		journal.sync();
+		final File journalFile = save(journalFile(0));
+		journal.close();
+		MemoryJournal.delete(folder.getRoot());
+		return journalFile;
+	}
+
+
+	/**
+	 * Open a journal over the data folder with a new state, then close it
+	 * @return names of claim groups in state, in key order
+	 */
+	private List<String> reopen() throws IOException {
+
+		final GroupState state = new GroupState();
+		final MemoryJournal journal = new MemoryJournal(plugin, state, settings);
+		journal.open();
+		journal.close();
+
+		final List<String> names = new ArrayList<String>();
+		for (ClaimGroup claimGroup : state.getClaimGroups()) {
+			names.add(claimGroup.getName());
+		}
+		return names;
+	}
+
+
+	private File journalFile(final long generation) {
+		return new File(folder.getRoot(), "proclaim-memory-" + generation + ".journal");
+	}
+
+
+	private File snapshotFile() {
+		return new File(folder.getRoot(), "proclaim-memory.snapshot");
+	}
+
+
+	private File save(final File file) throws IOException {
+		final File copy = new File(saved.getRoot(), file.getName());
+		Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return copy;
+	}
+
+
+	/**
+	 * Copy saved file back into data folder
+	 * @param file saved file
+	 * @param cut number of bytes to cut from end of file
+	 */
+	private void restore(final File file, final int cut) throws IOException {
+		final File target = new File(folder.getRoot(), file.getName());
+		Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		if (cut > 0) {
+			final RandomAccessFile randomAccessFile = new RandomAccessFile(target, "rw");
+			try {
+				randomAccessFile.setLength(randomAccessFile.length() - cut);
+			}
+			finally {
+				randomAccessFile.close();
+			}
+		}
+	}
+
+
+	private static void flipByte(final File file, final long position) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(position);
+			final int value = randomAccessFile.read();
+			randomAccessFile.seek(position);
+			randomAccessFile.write(value ^ 1);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+}
@@ -0,0 +1,219 @@
+package com.winterhaven_mc.proclaim.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Server;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.winterhaven_mc.proclaim.PluginMain;
+
+
+/**
+ * Tests eviction sweeps of the player state cache. Sweeps are run directly instead of by the
+ * scheduler, and write backs are held until the test commits or fails them.
+ */
+public class PlayerStateCacheTest {
+
+	private PluginMain plugin;
+	private Server server;
+
+	// write backs queued by the cache and not yet finished
+	private final List<PendingWrite> pendingWrites = new ArrayList<PendingWrite>();
+
+
+	/**
+	 * Write back queued by the cache
+	 */
+	private static final class PendingWrite {
+
+		private final PlayerState playerState;
+		private final Runnable completion;
+		private final Runnable failure;
+
+		PendingWrite(final PlayerState playerState, final Runnable completion, final Runnable failure) {
+			this.playerState = playerState;
+			this.completion = completion;
+			this.failure = failure;
+		}
+
+		// take fields and run completion, as the writer does after a commit
+		void commit() {
+			playerState.takeDirtyFields();
+			completion.run();
+		}
+
+		// take fields, then mark them changed again and run failure task, as the writer does after a rollback
+		void fail() {
+			final int fields = playerState.takeDirtyFields();
+			playerState.markDirty(fields);
+			failure.run();
+		}
+	}
+
+
+	@Before
+	public void setUp() {
+		plugin = mock(PluginMain.class);
+		server = mock(Server.class);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("ProClaim"));
+		when(plugin.getServer()).thenReturn(server);
+	}
+
+
+	@Test
+	public void idleEntriesAreEvicted() throws InterruptedException {
+
+		final PlayerStateCache cache = newCache(0, 20);
+		final PlayerState idle = cleanPlayerState("idle");
+		cache.store(idle);
+
+		Thread.sleep(40);
+		final PlayerState recent = cleanPlayerState("recent");
+		cache.store(recent);
+		cache.evict();
+
+		assertNull(cache.fetch(idle.getPlayerUUID()));
+		assertNull(cache.peek("idle"));
+		assertNotNull(cache.fetch(recent.getPlayerUUID()));
+	}
+
+
+	@Test
+	public void leastRecentlyUsedEntriesAreEvictedOverMaximumSize() throws InterruptedException {
+
+		final PlayerStateCache cache = newCache(2, 0);
+		final PlayerState first = cleanPlayerState("first");
+		final PlayerState second = cleanPlayerState("second");
+		final PlayerState third = cleanPlayerState("third");
+		cache.store(first);
+		Thread.sleep(5);
+		cache.store(second);
+		Thread.sleep(5);
+		cache.store(third);
+		Thread.sleep(5);
+
+		// use first entry, so second is least recently used
+		cache.fetch(first.getPlayerUUID());
+		cache.evict();
+
+		assertEquals(2, cache.getSize());
+		assertNull(cache.fetch(second.getPlayerUUID()));
+		assertNotNull(cache.fetch(first.getPlayerUUID()));
+		assertNotNull(cache.fetch(third.getPlayerUUID()));
+	}
+
+
+	@Test
+	public void publicPlayerAndOnlinePlayersArePinned() throws InterruptedException {
+
+		final PlayerStateCache cache = newCache(0, 1);
+		final PlayerState publicPlayer = cleanPlayerState("[public]");
+		publicPlayer.setPlayerUUID(DataStore.zeroUUID);
+		final PlayerState online = cleanPlayerState("online");
+		when(server.getPlayer(online.getPlayerUUID())).thenReturn(mock(org.bukkit.entity.Player.class));
+		cache.store(publicPlayer);
+		cache.store(online);
+
+		Thread.sleep(5);
+		cache.evict();
+
+		assertEquals(2, cache.getSize());
+	}
+
+
+	@Test
+	public void changedEntryIsWrittenBackBeforeEviction() throws InterruptedException {
+
+		final PlayerStateCache cache = newCache(0, 1);
+		final PlayerState playerState = cleanPlayerState("changed");
+		playerState.setEarnedClaimBlocks(100);
+		cache.store(playerState);
+
+		Thread.sleep(5);
+		cache.evict();
+
+		// entry stays cached while its write back is pending, and a second sweep does not write it again
+		assertEquals(1, pendingWrites.size());
+		assertEquals(1, cache.getSize());
+		cache.evict();
+		assertEquals(1, pendingWrites.size());
+
+		pendingWrites.remove(0).commit();
+		assertEquals(0, cache.getSize());
+	}
+
+
+	@Test
+	public void failedWriteBackKeepsEntryAndRetries() throws InterruptedException {
+
+		final PlayerStateCache cache = newCache(0, 1);
+		final PlayerState playerState = cleanPlayerState("failing");
+		playerState.setPurchasedClaimBlocks(50);
+		cache.store(playerState);
+
+		Thread.sleep(5);
+		cache.evict();
+		pendingWrites.remove(0).fail();
+
+		// changes are not lost: entry is still cached and still changed
+		assertEquals(1, cache.getSize());
+		assertTrue(playerState.isDirty());
+
+		// next sweep writes it back again instead of evicting it unsaved
+		cache.evict();
+		assertEquals(1, cache.getSize());
+		assertEquals(1, pendingWrites.size());
+
+		pendingWrites.remove(0).commit();
+		assertEquals(0, cache.getSize());
+	}
+
+
+	@Test
+	public void entryUsedDuringWriteBackIsKept() throws InterruptedException {
+
+		final PlayerStateCache cache = newCache(0, 1);
+		final PlayerState playerState = cleanPlayerState("used");
+		playerState.setBonusClaimBlocks(10);
+		cache.store(playerState);
+
+		Thread.sleep(5);
+		cache.evict();
+		Thread.sleep(5);
+		cache.fetch(playerState.getPlayerUUID());
+		pendingWrites.remove(0).commit();
+
+		assertEquals(1, cache.getSize());
+	}
+
+
+	private PlayerStateCache newCache(final int maxSize, final long idleTime) {
+		return new PlayerStateCache(plugin, maxSize, idleTime, new PlayerStateCache.WriteBack() {
+			@Override
+			public void write(final PlayerState playerState, final Runnable completion, final Runnable failure) {
+				pendingWrites.add(new PendingWrite(playerState, completion, failure));
+			}
+		});
+	}
+
+
+	private static PlayerState cleanPlayerState(final String name) {
+		final PlayerState playerState = new PlayerState();
+		playerState.setPlayerUUID(UUID.randomUUID());
+		playerState.setName(name);
+		playerState.markClean();
+		return playerState;
+	}
+
+}